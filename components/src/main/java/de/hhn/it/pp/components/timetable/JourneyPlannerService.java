@@ -0,0 +1,40 @@
+package de.hhn.it.pp.components.timetable;
+
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.models.Journey;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plans journeys from one station to another, changing lines where necessary.
+ */
+public interface JourneyPlannerService {
+
+  /**
+   * Returns the journey that arrives first when departing at or after the given time. Of the
+   * journeys arriving at the same time, the one with the fewest transfers is returned.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param departure     earliest time of departure
+   * @return the journey, null if the station cannot be reached
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  Journey getEarliestArrival(int fromStationId, int toStationId, LocalDateTime departure)
+      throws StationNotFoundException;
+
+  /**
+   * Returns the journeys departing at or after the given time that are best either in the time
+   * of arrival or in the number of transfers. A journey with more transfers is only returned if
+   * it arrives earlier than all journeys with fewer transfers.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param departure     earliest time of departure
+   * @return the journeys ordered by the number of transfers, the last one arrives first. Empty if
+   *         the station cannot be reached.
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  List<Journey> getJourneys(int fromStationId, int toStationId, LocalDateTime departure)
+      throws StationNotFoundException;
+}
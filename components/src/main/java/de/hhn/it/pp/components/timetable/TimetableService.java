@@ -4,6 +4,7 @@ import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
 import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
 import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
 import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DeparturePage;
 import de.hhn.it.pp.components.timetable.models.Line;
 import de.hhn.it.pp.components.timetable.models.Station;
 import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
@@ -30,6 +31,29 @@ public interface TimetableService {
    */
   Station getStation(int stationId) throws StationNotFoundException;
 
+  /**
+   * Returns the registered stations nearest to a location. Stations without location are left
+   * out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param limit     The max number of stations to be returned
+   * @return List of registered stations, nearest first
+   */
+  List<Station> getStationsNear(double latitude, double longitude, int limit)
+      throws StationNotFoundException;
+
+  /**
+   * Returns the registered stations within a distance of a location. Stations without location
+   * are left out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param radius    distance from the location in meters
+   * @return List of registered stations, nearest first
+   */
+  List<Station> getStationsWithin(double latitude, double longitude, double radius)
+      throws StationNotFoundException;
 
   /**
    * Returns a list of registered lines with the entered name.
@@ -49,6 +73,19 @@ public interface TimetableService {
    */
   Line getLine(int lineId) throws LineNotFoundException;
 
+  /**
+   * Returns the line whose trip a vehicle is on at a time. If one trip of the vehicle ends
+   * when the next one starts, the vehicle is on the next one. If trips of the vehicle overlap,
+   * which lines added by addLines may do, it is undefined which of them is returned.
+   *
+   * @param transportationVehicle the vehicle
+   * @param dateTime              Date and Time
+   * @return the line served by the vehicle
+   * @throws LineNotFoundException if the vehicle is on no trip at that time
+   */
+  Line getServedLine(TransportationVehicle transportationVehicle, LocalDateTime dateTime)
+      throws LineNotFoundException;
+
   /**
    * Returns the TransportationVehicle with the given id.
    *
@@ -67,4 +104,40 @@ public interface TimetableService {
    */
   List<Departure> getDepartures(int stationId, LocalDateTime dateTime, long minutes,
       ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException;
+
+  /**
+   * The next departures at the specified date from a specific station, but at most limit.
+   *
+   * @param stationId station from which the departures are requested.
+   * @param dateTime  Date and Time from when
+   * @param minutes   How many minutes maximum the departure may be in the future
+   * @param limit     The max number of departures to be returned
+   * @return The first departures in ascending order from the specified time
+   */
+  List<Departure> getDepartures(int stationId, LocalDateTime dateTime, long minutes, int limit,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException;
+
+  /**
+   * The first page of the departures at the specified date from a specific station.
+   *
+   * @param stationId station from which the departures are requested.
+   * @param dateTime  Date and Time from when
+   * @param minutes   How many minutes maximum the departure may be in the future
+   * @param pageSize  The max number of departures on the page
+   * @return The first departures in ascending order and the cursor to the next page
+   */
+  DeparturePage getDeparturePage(int stationId, LocalDateTime dateTime, long minutes,
+      int pageSize, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException;
+
+  /**
+   * The next page of departures, continuing exactly where the previous page stopped.
+   *
+   * @param cursor   Cursor of the previous page, see {@link DeparturePage#getNextCursor()}
+   * @param pageSize The max number of departures on the page
+   * @return The next departures in ascending order and the cursor to the next page
+   * @throws IllegalArgumentException if the cursor is invalid
+   */
+  DeparturePage getDeparturePage(String cursor, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException;
 }
@@ -0,0 +1,15 @@
+package de.hhn.it.pp.components.timetable.events;
+
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+
+/**
+ * Interface for the calendar listener.
+ */
+public interface CalendarListener {
+
+  /**
+   * Notifies the listener that a date was added to or removed from a calendar.
+   * @param calendar calendar that changed
+   */
+  void notifyCalendarChanged(ServiceCalendar calendar);
+}
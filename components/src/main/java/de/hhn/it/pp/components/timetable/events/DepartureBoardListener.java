@@ -0,0 +1,38 @@
+package de.hhn.it.pp.components.timetable.events;
+
+import de.hhn.it.pp.components.timetable.models.Departure;
+import java.util.List;
+
+/**
+ * Interface for the departure board listener. Applying the notifications in order to a copy of
+ * the rows keeps the copy equal to the rows of the board.
+ */
+public interface DepartureBoardListener {
+
+  /**
+   * Notifies the listener that rows were removed.
+   * @param from index of the first removed row
+   * @param to index after the last removed row
+   */
+  void notifyDeparturesRemoved(int from, int to);
+
+  /**
+   * Notifies the listener that rows were inserted.
+   * @param index index of the first inserted row
+   * @param departures the inserted rows
+   */
+  void notifyDeparturesAdded(int index, List<Departure> departures);
+
+  /**
+   * Notifies the listener that a row shows a new delay.
+   * @param index index of the row
+   * @param departure the row
+   */
+  void notifyDepartureChanged(int index, Departure departure);
+
+  /**
+   * Notifies the listener that all rows were replaced.
+   * @param departures the new rows
+   */
+  void notifyDeparturesReset(List<Departure> departures);
+}
@@ -0,0 +1,16 @@
+package de.hhn.it.pp.components.timetable.events;
+
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+
+/**
+ * Interface for the functional listener.
+ */
+public interface FunctionalListener {
+
+  /**
+   * Notifies the listener that a vehicle broke down or is functional again.
+   * @param vehicle vehicle to listen
+   * @param functional true if the vehicle is functional
+   */
+  void notifyFunctional(TransportationVehicle vehicle, boolean functional);
+}
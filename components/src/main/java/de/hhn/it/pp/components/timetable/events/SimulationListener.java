@@ -0,0 +1,15 @@
+package de.hhn.it.pp.components.timetable.events;
+
+import de.hhn.it.pp.components.timetable.models.SimulationEvent;
+
+/**
+ * Interface for the simulation listener.
+ */
+public interface SimulationListener {
+
+  /**
+   * Notifies the listener that a vehicle arrived at or departed from a stop.
+   * @param event what happened
+   */
+  void notifySimulationEvent(SimulationEvent event);
+}
@@ -0,0 +1,15 @@
+package de.hhn.it.pp.components.timetable.events;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+
+/**
+ * Interface for the stops listener.
+ */
+public interface StopsListener {
+
+  /**
+   * Notifies the listener that stops were added to or removed from a line.
+   * @param line line whose stops changed
+   */
+  void notifyStopsChanged(Line line);
+}
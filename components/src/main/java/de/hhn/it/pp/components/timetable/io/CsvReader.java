@@ -0,0 +1,464 @@
+package de.hhn.it.pp.components.timetable.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Reads the rows of a GTFS file, a CSV file encoded in UTF-8 with a header row. The fields of a
+ * row are kept as byte ranges of the buffer, so reading a row creates no objects. A field is
+ * only decoded when it is requested.
+ *
+ * <p>Files on disk are memory-mapped in windows of {@value #WINDOW_SIZE} bytes, so even very
+ * large files are never loaded into the heap. Files in a zip archive are read through a buffer
+ * of fixed size instead.
+ *
+ * <p>Quoted fields are supported. Ids are compared by their bytes, so an id containing a
+ * doubled quote is not found by {@link IdIndex#get(CsvReader, int)}.
+ */
+class CsvReader implements Closeable {
+
+  static final int WINDOW_SIZE = 64 << 20;
+  private static final int STREAM_BUFFER_SIZE = 1 << 20;
+
+  private final Source source;
+  private ByteBuffer buffer;
+  /**
+   * Whether the buffer ends with the last byte of the file.
+   */
+  private boolean atEnd;
+  /**
+   * Position of the row after the current one.
+   */
+  private int nextRow;
+  private int rowNumber;
+
+  private int fieldCount;
+  private int[] fieldStarts = new int[16];
+  private int[] fieldEnds = new int[16];
+  /**
+   * Whether a quoted field contains doubled quotes.
+   */
+  private boolean[] fieldsEscaped = new boolean[16];
+  private final HashMap<String, Integer> columns = new HashMap<>();
+
+  private CsvReader(Source source) throws IOException {
+    this.source = source;
+    buffer = source.refill(null, 0);
+    atEnd = source.isAtEnd();
+    // Skip the byte order mark
+    if (buffer.limit() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+        && buffer.get(2) == (byte) 0xBF) {
+      nextRow = 3;
+    }
+    if (next()) {
+      for (int column = 0; column < fieldCount; column++) {
+        columns.putIfAbsent(getString(column), column);
+      }
+    }
+    rowNumber = 0;
+  }
+
+  /**
+   * Opens a file on disk, which is memory-mapped.
+   * @param file the file
+   * @return reader positioned before the first row after the header
+   * @throws IOException when the file cannot be read
+   */
+  static CsvReader map(Path file) throws IOException {
+    return new CsvReader(new MappedSource(FileChannel.open(file, StandardOpenOption.READ)));
+  }
+
+  /**
+   * Opens a stream, which is read through a buffer.
+   * @param in the stream, closed with the reader
+   * @return reader positioned before the first row after the header
+   * @throws IOException when the stream cannot be read
+   */
+  static CsvReader read(InputStream in) throws IOException {
+    return new CsvReader(new StreamSource(in));
+  }
+
+  /**
+   * Returns the index of a column.
+   * @param name name of the column in the header
+   * @return index of the column, -1 if the file has no such column
+   */
+  int column(String name) {
+    return columns.getOrDefault(name, -1);
+  }
+
+  /**
+   * Moves to the next row. Empty lines are skipped.
+   * @return false if there are no more rows
+   * @throws IOException when the file cannot be read
+   */
+  boolean next() throws IOException {
+    while (true) {
+      if (nextRow >= buffer.limit() && atEnd) {
+        fieldCount = 0;
+        return false;
+      }
+      int end = parseRow(nextRow);
+      if (end < 0) {
+        // The row continues after the buffer
+        buffer = source.refill(buffer, nextRow);
+        atEnd = source.isAtEnd();
+        nextRow = 0;
+        continue;
+      }
+      nextRow = end;
+      rowNumber++;
+      if (fieldCount > 1 || fieldEnds[0] > fieldStarts[0]) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Getter for the row number.
+   * @return number of the current row, the first row after the header is 1
+   */
+  int getRowNumber() {
+    return rowNumber;
+  }
+
+  /**
+   * Checker if a field is empty.
+   * @param column index of the column
+   * @return true if the field is empty or missing in the current row
+   */
+  boolean isEmpty(int column) {
+    return column < 0 || column >= fieldCount || fieldEnds[column] == fieldStarts[column];
+  }
+
+  /**
+   * Returns a field as string.
+   * @param column index of the column
+   * @return the field, empty if it is missing in the current row
+   */
+  String getString(int column) {
+    if (isEmpty(column)) {
+      return "";
+    }
+    byte[] bytes = new byte[fieldEnds[column] - fieldStarts[column]];
+    ByteBuffer field = buffer.duplicate();
+    field.position(fieldStarts[column]);
+    field.get(bytes);
+    String value = new String(bytes, StandardCharsets.UTF_8);
+    return fieldsEscaped[column] ? value.replace("\"\"", "\"") : value;
+  }
+
+  /**
+   * Returns a field as non-negative int.
+   * @param column       index of the column
+   * @param defaultValue value of an empty field
+   * @return the field
+   * @throws NumberFormatException when the field is no number
+   */
+  int getInt(int column, int defaultValue) {
+    if (isEmpty(column)) {
+      return defaultValue;
+    }
+    int value = 0;
+    for (int i = fieldStarts[column]; i < fieldEnds[column]; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("Not a number: " + getString(column));
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Returns a time field like "8:05:00" or "25:10:00" as seconds. Times after midnight of the
+   * service day are not wrapped.
+   * @param column index of the column
+   * @return seconds since midnight of the service day, -1 if the field is empty
+   * @throws NumberFormatException when the field is no time
+   */
+  int getSeconds(int column) {
+    if (isEmpty(column)) {
+      return -1;
+    }
+    int seconds = 0;
+    int value = 0;
+    int parts = 1;
+    for (int i = fieldStarts[column]; i < fieldEnds[column]; i++) {
+      byte b = buffer.get(i);
+      if (b == ':') {
+        seconds = (seconds + value) * 60;
+        value = 0;
+        parts++;
+      } else if (b >= '0' && b <= '9') {
+        value = value * 10 + b - '0';
+      } else {
+        parts = 0;
+        break;
+      }
+    }
+    if (parts != 3) {
+      throw new NumberFormatException("Not a time: " + getString(column));
+    }
+    return seconds + value;
+  }
+
+  /**
+   * Returns the hash of the bytes of a field, the same as {@link #hash(byte[])} of its bytes.
+   * @param column index of the column
+   * @return hash of the field
+   */
+  int hash(int column) {
+    int hash = 0;
+    if (!isEmpty(column)) {
+      for (int i = fieldStarts[column]; i < fieldEnds[column]; i++) {
+        hash = 31 * hash + buffer.get(i);
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the hash of bytes.
+   * @param bytes the bytes
+   * @return hash of the bytes
+   */
+  static int hash(byte[] bytes) {
+    int hash = 0;
+    for (byte b : bytes) {
+      hash = 31 * hash + b;
+    }
+    return hash;
+  }
+
+  /**
+   * Checker if a field consists of the given bytes.
+   * @param column index of the column
+   * @param bytes  the bytes
+   * @return true if the field has exactly these bytes
+   */
+  boolean fieldEquals(int column, byte[] bytes) {
+    if (isEmpty(column)) {
+      return bytes.length == 0;
+    }
+    int start = fieldStarts[column];
+    if (fieldEnds[column] - start != bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (buffer.get(start + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    source.close();
+  }
+
+  /**
+   * Splits the row starting at the position into fields.
+   * @param position start of the row
+   * @return start of the following row, -1 if the row does not end within the buffer
+   */
+  private int parseRow(int position) {
+    fieldCount = 0;
+    int limit = buffer.limit();
+    int p = position;
+    while (true) {
+      if (p < limit && buffer.get(p) == '"') {
+        int start = p + 1;
+        boolean escaped = false;
+        p = start;
+        while (true) {
+          if (p >= limit) {
+            if (!atEnd) {
+              return -1;
+            }
+            break;
+          }
+          if (buffer.get(p) == '"') {
+            if (p + 1 >= limit && !atEnd) {
+              return -1;
+            }
+            if (p + 1 < limit && buffer.get(p + 1) == '"') {
+              escaped = true;
+              p += 2;
+              continue;
+            }
+            break;
+          }
+          p++;
+        }
+        addField(start, p, escaped);
+        // Skip the closing quote and anything up to the separator
+        while (p < limit && buffer.get(p) != ',' && buffer.get(p) != '\n'
+            && buffer.get(p) != '\r') {
+          p++;
+        }
+      } else {
+        int start = p;
+        while (p < limit) {
+          byte b = buffer.get(p);
+          if (b == ',' || b == '\n' || b == '\r') {
+            break;
+          }
+          p++;
+        }
+        int end = p;
+        while (start < end && buffer.get(start) == ' ') {
+          start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+          end--;
+        }
+        addField(start, end, false);
+      }
+
+      if (p >= limit) {
+        return atEnd ? p : -1;
+      }
+      byte b = buffer.get(p++);
+      if (b == ',') {
+        continue;
+      }
+      if (b == '\r') {
+        if (p >= limit && !atEnd) {
+          return -1;
+        }
+        if (p < limit && buffer.get(p) == '\n') {
+          p++;
+        }
+      }
+      return p;
+    }
+  }
+
+  private void addField(int start, int end, boolean escaped) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+      fieldsEscaped = Arrays.copyOf(fieldsEscaped, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldsEscaped[fieldCount] = escaped;
+    fieldCount++;
+  }
+
+  /**
+   * Provides the bytes of a file in consecutive buffers.
+   */
+  private interface Source extends Closeable {
+
+    /**
+     * Returns the next buffer, starting with the unread bytes of the current one.
+     * @param current  the current buffer, null for the first one
+     * @param keepFrom position of the first unread byte in the current buffer
+     * @return the next buffer
+     * @throws IOException when the file cannot be read
+     */
+    ByteBuffer refill(ByteBuffer current, int keepFrom) throws IOException;
+
+    /**
+     * Checker if the last buffer ends with the last byte of the file.
+     * @return true if there are no more bytes
+     */
+    boolean isAtEnd();
+  }
+
+  /**
+   * Maps a file in windows, each starting at the first unread byte of the window before.
+   */
+  private static class MappedSource implements Source {
+
+    private final FileChannel channel;
+    private final long size;
+    private long offset;
+    private long end;
+
+    MappedSource(FileChannel channel) throws IOException {
+      this.channel = channel;
+      size = channel.size();
+    }
+
+    @Override
+    public ByteBuffer refill(ByteBuffer current, int keepFrom) throws IOException {
+      if (current != null) {
+        if (keepFrom == 0 && current.limit() == WINDOW_SIZE) {
+          throw new IOException("Row at byte " + offset + " is longer than " + WINDOW_SIZE);
+        }
+        offset += keepFrom;
+      }
+      end = Math.min(size, offset + WINDOW_SIZE);
+      return channel.map(FileChannel.MapMode.READ_ONLY, offset, end - offset);
+    }
+
+    @Override
+    public boolean isAtEnd() {
+      return end == size;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads a stream into one buffer, moving the unread bytes to its start before reading more.
+   */
+  private static class StreamSource implements Source {
+
+    private final InputStream in;
+    private byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+    private boolean atEnd;
+
+    StreamSource(InputStream in) {
+      this.in = in;
+    }
+
+    @Override
+    public ByteBuffer refill(ByteBuffer current, int keepFrom) throws IOException {
+      int filled = 0;
+      if (current != null) {
+        filled = current.limit() - keepFrom;
+        if (keepFrom == 0 && filled == bytes.length) {
+          // A row longer than the buffer
+          bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        } else {
+          System.arraycopy(bytes, keepFrom, bytes, 0, filled);
+        }
+      }
+      while (filled < bytes.length) {
+        int read = in.read(bytes, filled, bytes.length - filled);
+        if (read < 0) {
+          atEnd = true;
+          break;
+        }
+        filled += read;
+      }
+      return ByteBuffer.wrap(bytes, 0, filled).slice();
+    }
+
+    @Override
+    public boolean isAtEnd() {
+      return atEnd;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,537 @@
+package de.hhn.it.pp.components.timetable.io;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.AdminTimetableService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Imports a static GTFS feed into an {@link AdminTimetableService}. The feed is a zip file or a
+ * directory with stops.txt, routes.txt, trips.txt, stop_times.txt and calendar.txt and/or
+ * calendar_dates.txt.
+ *
+ * <p>Every stop becomes a station, stops with a parent station are merged into their parent.
+ * Every trip becomes a line named after its route, served by one vehicle per block or per trip.
+ * All trips of a service share one {@link ServiceCalendar}.
+ *
+ * <p>stop_times.txt is streamed, see {@link CsvReader}, and the lines are passed to the service
+ * in batches, so only the stops of the current batch are held by the importer. This requires
+ * stop_times.txt to be grouped by trip, as all common feeds are. Stops without a time are
+ * skipped. A line orders its stops by time within one day, so trips that cross midnight of the
+ * service day are skipped. Trips entirely after midnight, like "25:10:00", run on the following
+ * day and get a calendar shifted by that day.
+ */
+public class GtfsImporter {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(GtfsImporter.class);
+
+  /**
+   * Number of lines passed to the service at once.
+   */
+  static final int BATCH_SIZE = 10_000;
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+  private final AdminTimetableService timetable;
+
+  // Stops, numbered by stopIds
+  private final IdIndex stopIds = new IdIndex();
+  private final List<Station> stopStations = new ArrayList<>();
+  private final List<String> stopNames = new ArrayList<>();
+
+  private final HashMap<String, String> routeNames = new HashMap<>();
+  private final HashMap<String, TransportationVehicleType> routeTypes = new HashMap<>();
+  private final HashMap<String, ServiceCalendar> calendars = new HashMap<>();
+
+  // Trips, numbered by tripIds
+  private final IdIndex tripIds = new IdIndex();
+  private final List<String> tripNames = new ArrayList<>();
+  private final List<ServiceCalendar> tripCalendars = new ArrayList<>();
+  /** Calendars of the trips after midnight, by calendar and by the days they are shifted. */
+  private final IdentityHashMap<ServiceCalendar, HashMap<Integer, ServiceCalendar>>
+      shiftedCalendars = new IdentityHashMap<>();
+  private final List<TransportationVehicle> tripVehicles = new ArrayList<>();
+
+  private final LocalTime[] times = new LocalTime[SECONDS_PER_DAY];
+  private int skippedRows;
+
+  /**
+   * Constructor.
+   * @param timetable service to import into
+   */
+  public GtfsImporter(AdminTimetableService timetable) {
+    this.timetable = timetable;
+  }
+
+  /**
+   * Imports a feed. An importer can only import one feed.
+   *
+   * @param feed zip file or directory of the feed
+   * @throws IOException when a file cannot be read, or a file or column is missing or invalid
+   */
+  public void importFeed(Path feed) throws IOException {
+    logger.info("importFeed with feed {}", feed);
+    if (stopIds.size() > 0 || tripIds.size() > 0) {
+      throw new IllegalStateException("A feed was already imported");
+    }
+    try (Feed files = Files.isDirectory(feed) ? new DirectoryFeed(feed) : new ZipFeed(feed)) {
+      readStops(files);
+      readRoutes(files);
+      readCalendars(files);
+      readTrips(files);
+      int lineCount = readStopTimes(files);
+      logger.info("Imported {} stops and {} lines, skipped {} rows", stopIds.size(), lineCount,
+          skippedRows);
+    }
+  }
+
+  private void readStops(Feed files) throws IOException {
+    List<String> ids = new ArrayList<>();
+    List<String> parents = new ArrayList<>();
+    HashMap<String, Station> stations = new HashMap<>();
+    try (CsvReader reader = files.open("stops.txt", true)) {
+      int idColumn = requireColumn(reader, "stops.txt", "stop_id");
+      int nameColumn = reader.column("stop_name");
+      int locationTypeColumn = reader.column("location_type");
+      int parentColumn = reader.column("parent_station");
+      int wheelchairColumn = reader.column("wheelchair_boarding");
+      int latitudeColumn = reader.column("stop_lat");
+      int longitudeColumn = reader.column("stop_lon");
+      while (reader.next()) {
+        String id = reader.getString(idColumn);
+        String name = reader.getString(nameColumn);
+        int locationType = parseInt(reader, locationTypeColumn, "stops.txt");
+        String parent = reader.getString(parentColumn);
+        if (stopIds.add(id) < ids.size()) {
+          // Duplicate stop id
+          skippedRows++;
+          continue;
+        }
+        ids.add(id);
+        stopNames.add(name);
+        if (locationType == 1 || parent.isEmpty()) {
+          double latitude = parseCoordinate(reader, latitudeColumn, 90);
+          double longitude = parseCoordinate(reader, longitudeColumn, 180);
+          if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            latitude = Double.NaN;
+            longitude = Double.NaN;
+          }
+          Station station = new Station(name, false,
+              parseInt(reader, wheelchairColumn, "stops.txt") == 1, false, latitude, longitude);
+          timetable.addStation(station);
+          stations.put(id, station);
+          parent = "";
+        }
+        parents.add(parent);
+      }
+    }
+    // Parents may follow their children
+    for (int stop = 0; stop < ids.size(); stop++) {
+      Station station = stations.get(parents.get(stop).isEmpty() ? ids.get(stop)
+          : parents.get(stop));
+      if (station == null) {
+        station = new Station(stopNames.get(stop), false, false, false);
+        timetable.addStation(station);
+      }
+      stopStations.add(station);
+    }
+  }
+
+  private void readRoutes(Feed files) throws IOException {
+    try (CsvReader reader = files.open("routes.txt", true)) {
+      int idColumn = requireColumn(reader, "routes.txt", "route_id");
+      int shortNameColumn = reader.column("route_short_name");
+      int longNameColumn = reader.column("route_long_name");
+      int typeColumn = reader.column("route_type");
+      while (reader.next()) {
+        String id = reader.getString(idColumn);
+        String name = reader.getString(shortNameColumn);
+        if (name.isEmpty()) {
+          name = reader.getString(longNameColumn);
+        }
+        routeNames.put(id, name.isEmpty() ? id : name);
+        routeTypes.put(id, vehicleType(parseInt(reader, typeColumn, "routes.txt")));
+      }
+    }
+  }
+
+  private void readCalendars(Feed files) throws IOException {
+    CsvReader calendarReader = files.open("calendar.txt", false);
+    if (calendarReader != null) {
+      try (CsvReader reader = calendarReader) {
+        int idColumn = requireColumn(reader, "calendar.txt", "service_id");
+        int[] dayColumns = new int[7];
+        for (DayOfWeek day : DayOfWeek.values()) {
+          dayColumns[day.ordinal()] = reader.column(day.name().toLowerCase(Locale.ROOT));
+        }
+        int startColumn = reader.column("start_date");
+        int endColumn = reader.column("end_date");
+        while (reader.next()) {
+          EnumSet<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+          for (DayOfWeek day : DayOfWeek.values()) {
+            if (parseInt(reader, dayColumns[day.ordinal()], "calendar.txt") == 1) {
+              days.add(day);
+            }
+          }
+          calendars.put(reader.getString(idColumn), new ServiceCalendar(days,
+              parseDate(reader, startColumn, "calendar.txt"),
+              parseDate(reader, endColumn, "calendar.txt")));
+        }
+      }
+    }
+    CsvReader datesReader = files.open("calendar_dates.txt", false);
+    if (calendarReader == null && datesReader == null) {
+      throw new IOException("Feed has neither calendar.txt nor calendar_dates.txt");
+    }
+    if (datesReader != null) {
+      try (CsvReader reader = datesReader) {
+        int idColumn = requireColumn(reader, "calendar_dates.txt", "service_id");
+        int dateColumn = requireColumn(reader, "calendar_dates.txt", "date");
+        int typeColumn = requireColumn(reader, "calendar_dates.txt", "exception_type");
+        while (reader.next()) {
+          ServiceCalendar calendar = calendars.computeIfAbsent(reader.getString(idColumn),
+              id -> new ServiceCalendar(EnumSet.noneOf(DayOfWeek.class)));
+          LocalDate date = parseDate(reader, dateColumn, "calendar_dates.txt");
+          int type = parseInt(reader, typeColumn, "calendar_dates.txt");
+          if (date == null) {
+            skippedRows++;
+          } else if (type == 1) {
+            calendar.addDate(date);
+          } else if (type == 2) {
+            calendar.removeDate(date);
+          }
+        }
+      }
+    }
+  }
+
+  private void readTrips(Feed files) throws IOException {
+    HashMap<String, TransportationVehicle> blockVehicles = new HashMap<>();
+    try (CsvReader reader = files.open("trips.txt", true)) {
+      int idColumn = requireColumn(reader, "trips.txt", "trip_id");
+      int routeColumn = requireColumn(reader, "trips.txt", "route_id");
+      int serviceColumn = requireColumn(reader, "trips.txt", "service_id");
+      int blockColumn = reader.column("block_id");
+      while (reader.next()) {
+        String route = reader.getString(routeColumn);
+        ServiceCalendar calendar = calendars.get(reader.getString(serviceColumn));
+        if (!routeNames.containsKey(route) || calendar == null) {
+          skippedRows++;
+          continue;
+        }
+        if (tripIds.add(reader.getString(idColumn)) < tripNames.size()) {
+          // Duplicate trip id
+          skippedRows++;
+          continue;
+        }
+        String block = reader.getString(blockColumn);
+        TransportationVehicle vehicle = block.isEmpty() ? null : blockVehicles.get(block);
+        if (vehicle == null) {
+          vehicle = new TransportationVehicle(routeTypes.get(route));
+          timetable.addTransportationVehicle(vehicle);
+          if (!block.isEmpty()) {
+            blockVehicles.put(block, vehicle);
+          }
+        }
+        tripNames.add(routeNames.get(route));
+        tripCalendars.add(calendar);
+        tripVehicles.add(vehicle);
+      }
+    }
+  }
+
+  /**
+   * Streams the stop times and adds a line for every trip.
+   * @return number of added lines
+   */
+  private int readStopTimes(Feed files) throws IOException {
+    Line[] tripLines = new Line[tripIds.size()];
+    BitSet seenTrips = new BitSet();
+    BitSet skippedTrips = new BitSet();
+    List<Integer> batch = new ArrayList<>();
+    int lineCount = 0;
+    try (CsvReader reader = files.open("stop_times.txt", true)) {
+      int tripColumn = requireColumn(reader, "stop_times.txt", "trip_id");
+      int stopColumn = requireColumn(reader, "stop_times.txt", "stop_id");
+      int departureColumn = reader.column("departure_time");
+      int arrivalColumn = reader.column("arrival_time");
+      if (departureColumn < 0 && arrivalColumn < 0) {
+        throw new IOException("stop_times.txt has no column departure_time");
+      }
+      int previousTrip = -1;
+      int tripDay = 0;
+      int tripRows = 0;
+      while (reader.next()) {
+        int trip = tripIds.get(reader, tripColumn);
+        int stop = stopIds.get(reader, stopColumn);
+        int seconds;
+        try {
+          seconds = reader.getSeconds(departureColumn);
+          if (seconds < 0) {
+            seconds = reader.getSeconds(arrivalColumn);
+          }
+        } catch (NumberFormatException e) {
+          throw invalidRow(reader, "stop_times.txt", e);
+        }
+        if (trip < 0 || stop < 0 || seconds < 0) {
+          skippedRows++;
+          continue;
+        }
+        if (trip != previousTrip) {
+          if (seenTrips.get(trip)) {
+            throw new IOException("stop_times.txt is not grouped by trip_id, row "
+                + reader.getRowNumber() + " continues a trip of an earlier row");
+          }
+          seenTrips.set(trip);
+          if (batch.size() >= BATCH_SIZE) {
+            lineCount += addLines(batch, tripLines);
+          }
+          previousTrip = trip;
+          tripDay = seconds / SECONDS_PER_DAY;
+          tripRows = 0;
+        }
+        if (skippedTrips.get(trip)) {
+          skippedRows++;
+          continue;
+        }
+        if (seconds / SECONDS_PER_DAY != tripDay) {
+          // The trip crosses midnight, so it is dropped with the rows read so far
+          skippedTrips.set(trip);
+          tripLines[trip] = null;
+          batch.remove(Integer.valueOf(trip));
+          skippedRows += tripRows + 1;
+          continue;
+        }
+        tripRows++;
+        Line line = tripLines[trip];
+        if (line == null) {
+          line = new Line(tripNames.get(trip), calendar(tripCalendars.get(trip), tripDay),
+              tripVehicles.get(trip));
+          tripLines[trip] = line;
+          batch.add(trip);
+        }
+        line.createStop(time(seconds), stopStations.get(stop), stopNames.get(stop));
+      }
+    }
+    return lineCount + addLines(batch, tripLines);
+  }
+
+  /**
+   * Passes the lines of a batch to the service and forgets them.
+   * @return number of added lines
+   */
+  private int addLines(List<Integer> batch, Line[] tripLines) {
+    List<Line> lines = new ArrayList<>(batch.size());
+    for (int trip : batch) {
+      lines.add(tripLines[trip]);
+      tripLines[trip] = null;
+    }
+    timetable.addLines(lines);
+    batch.clear();
+    return lines.size();
+  }
+
+  /**
+   * Returns the calendar of a trip which starts a number of days after its service day.
+   * @return the shifted calendar, shared by all trips of the same service and days
+   */
+  private ServiceCalendar calendar(ServiceCalendar calendar, int days) {
+    if (days == 0) {
+      return calendar;
+    }
+    return shiftedCalendars.computeIfAbsent(calendar, key -> new HashMap<>())
+        .computeIfAbsent(days, key -> calendar.shiftedBy(days));
+  }
+
+  private LocalTime time(int seconds) {
+    int secondOfDay = seconds % SECONDS_PER_DAY;
+    LocalTime time = times[secondOfDay];
+    if (time == null) {
+      time = LocalTime.ofSecondOfDay(secondOfDay);
+      times[secondOfDay] = time;
+    }
+    return time;
+  }
+
+  /**
+   * Maps a basic or extended GTFS route type to a vehicle type.
+   * @param routeType the route type
+   * @return the vehicle type, bus for unknown types
+   */
+  static TransportationVehicleType vehicleType(int routeType) {
+    switch (routeType) {
+      case 0: // Tram
+      case 1: // Subway
+      case 12: // Monorail
+      case 109: // Suburban railway
+        return TransportationVehicleType.STRAIN;
+      case 2: // Rail
+        return TransportationVehicleType.TRAIN;
+      default:
+        if (routeType >= 100 && routeType < 200) {
+          return TransportationVehicleType.TRAIN;
+        }
+        if (routeType >= 400 && routeType < 500 || routeType >= 900 && routeType < 1000) {
+          return TransportationVehicleType.STRAIN;
+        }
+        return TransportationVehicleType.BUS;
+    }
+  }
+
+  private static int requireColumn(CsvReader reader, String file, String column)
+      throws IOException {
+    int index = reader.column(column);
+    if (index < 0) {
+      throw new IOException(file + " has no column " + column);
+    }
+    return index;
+  }
+
+  private static int parseInt(CsvReader reader, int column, String file) throws IOException {
+    try {
+      return reader.getInt(column, 0);
+    } catch (NumberFormatException e) {
+      throw invalidRow(reader, file, e);
+    }
+  }
+
+  /**
+   * Parses a latitude or longitude of stops.txt.
+   * @return the coordinate, NaN if it is missing
+   */
+  private static double parseCoordinate(CsvReader reader, int column, double limit)
+      throws IOException {
+    if (reader.isEmpty(column)) {
+      return Double.NaN;
+    }
+    try {
+      double coordinate = Double.parseDouble(reader.getString(column));
+      if (!(Math.abs(coordinate) <= limit)) {
+        throw new NumberFormatException("Coordinate out of range: " + coordinate);
+      }
+      return coordinate;
+    } catch (NumberFormatException e) {
+      throw invalidRow(reader, "stops.txt", e);
+    }
+  }
+
+  private static LocalDate parseDate(CsvReader reader, int column, String file)
+      throws IOException {
+    if (reader.isEmpty(column)) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(reader.getString(column), DATE_FORMAT);
+    } catch (DateTimeParseException e) {
+      throw invalidRow(reader, file, e);
+    }
+  }
+
+  private static IOException invalidRow(CsvReader reader, String file, Exception cause) {
+    return new IOException(file + " row " + reader.getRowNumber() + ": " + cause.getMessage(),
+        cause);
+  }
+
+  /**
+   * The files of a feed.
+   */
+  private interface Feed extends Closeable {
+
+    /**
+     * Opens a file of the feed.
+     * @param name     name of the file
+     * @param required whether the feed must contain the file
+     * @return reader of the file, null if an optional file is missing
+     * @throws IOException when the file cannot be read or a required file is missing
+     */
+    CsvReader open(String name, boolean required) throws IOException;
+  }
+
+  /**
+   * Feed in a directory. Its files are memory-mapped.
+   */
+  private static class DirectoryFeed implements Feed {
+
+    private final Path directory;
+
+    DirectoryFeed(Path directory) {
+      this.directory = directory;
+    }
+
+    @Override
+    public CsvReader open(String name, boolean required) throws IOException {
+      Path file = directory.resolve(name);
+      if (!Files.isRegularFile(file)) {
+        if (required) {
+          throw new IOException("Feed has no " + name);
+        }
+        return null;
+      }
+      return CsvReader.map(file);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Feed in a zip file, possibly within a folder of the zip file. Its files are streamed.
+   */
+  private static class ZipFeed implements Feed {
+
+    private final ZipFile zipFile;
+    private final HashMap<String, ZipEntry> entries = new HashMap<>();
+
+    ZipFeed(Path file) throws IOException {
+      zipFile = new ZipFile(file.toFile());
+      Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+      while (zipEntries.hasMoreElements()) {
+        ZipEntry entry = zipEntries.nextElement();
+        String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+        if (!entry.isDirectory()) {
+          entries.putIfAbsent(name, entry);
+        }
+      }
+    }
+
+    @Override
+    public CsvReader open(String name, boolean required) throws IOException {
+      ZipEntry entry = entries.get(name);
+      if (entry == null) {
+        if (required) {
+          throw new IOException("Feed has no " + name);
+        }
+        return null;
+      }
+      return CsvReader.read(zipFile.getInputStream(entry));
+    }
+
+    @Override
+    public void close() throws IOException {
+      zipFile.close();
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package de.hhn.it.pp.components.timetable.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Numbers the string ids of a GTFS feed, e.g. stop ids, consecutively from 0. Ids can be looked
+ * up directly from a field of a {@link CsvReader} without creating a string, which matters for
+ * the millions of rows of stop_times.txt.
+ */
+class IdIndex {
+
+  private byte[][] keys = new byte[64][];
+  private int[] numbers = new int[64];
+  private int size;
+  /**
+   * Slot of the last id found, consecutive rows often have the same id.
+   */
+  private int lastSlot = -1;
+
+  /**
+   * Adds an id.
+   * @param id the id
+   * @return number of the id, the same as before if it was already added
+   */
+  int add(String id) {
+    byte[] key = id.getBytes(StandardCharsets.UTF_8);
+    int slot = find(key, CsvReader.hash(key));
+    if (keys[slot] != null) {
+      return numbers[slot];
+    }
+    keys[slot] = key;
+    numbers[slot] = size++;
+    if (size * 2 > keys.length) {
+      grow();
+    }
+    return size - 1;
+  }
+
+  /**
+   * Returns the number of the id in a field of the current row.
+   * @param reader the reader
+   * @param column column of the id
+   * @return number of the id, -1 if it was not added
+   */
+  int get(CsvReader reader, int column) {
+    if (lastSlot >= 0 && reader.fieldEquals(column, keys[lastSlot])) {
+      return numbers[lastSlot];
+    }
+    int mask = keys.length - 1;
+    for (int slot = mix(reader.hash(column)) & mask; keys[slot] != null;
+        slot = (slot + 1) & mask) {
+      if (reader.fieldEquals(column, keys[slot])) {
+        lastSlot = slot;
+        return numbers[slot];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Getter for the size.
+   * @return number of added ids
+   */
+  int size() {
+    return size;
+  }
+
+  private int find(byte[] key, int hash) {
+    int mask = keys.length - 1;
+    int slot = mix(hash) & mask;
+    while (keys[slot] != null && !Arrays.equals(keys[slot], key)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow() {
+    lastSlot = -1;
+    byte[][] oldKeys = keys;
+    int[] oldNumbers = numbers;
+    keys = new byte[oldKeys.length * 2][];
+    numbers = new int[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        int slot = find(oldKeys[i], CsvReader.hash(oldKeys[i]));
+        keys[slot] = oldKeys[i];
+        numbers[slot] = oldNumbers[i];
+      }
+    }
+  }
+
+  /**
+   * Spreads the hash, ids like "trip_1", "trip_2" would otherwise fill neighbouring slots.
+   */
+  private static int mix(int hash) {
+    int mixed = hash * 0x9E3779B9;
+    return mixed ^ (mixed >>> 16);
+  }
+}
@@ -0,0 +1,58 @@
+package de.hhn.it.pp.components.timetable.models;
+
+/**
+ * Renders the arrival messages of the departures. The message is built in a buffer that is
+ * reused by every call on the same thread, so only the resulting string is allocated.
+ */
+final class ArrivalMessageFormat {
+
+  private static final ThreadLocal<StringBuilder> BUFFER =
+      ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+  private ArrivalMessageFormat() {
+  }
+
+  /**
+   * Renders an arrival message.
+   *
+   * @param plannedArrivalIn minutes until the planned departure
+   * @param delay            delay of the vehicle in minutes
+   * @param daysDifference   days between the current date and the date of the departure
+   * @param hour             planned hour of the departure
+   * @param minute           planned minute of the departure
+   * @return the message, e.g. "5 + 2 min", "14:05" or "+1 Tag(e) 08:00 + 2 min"
+   */
+  static String format(long plannedArrivalIn, long delay, long daysDifference, int hour,
+      int minute) {
+    // Set to 0 if negativ
+    if (plannedArrivalIn < 0) {
+      delay = delay + plannedArrivalIn;
+      plannedArrivalIn = 0;
+    }
+
+    StringBuilder buffer = BUFFER.get();
+    buffer.setLength(0);
+    if (plannedArrivalIn / 60 == 0) {
+      buffer.append(plannedArrivalIn);
+      if (delay > 0) {
+        buffer.append(" + ").append(delay);
+      }
+      buffer.append(" min");
+    } else {
+      if (daysDifference != 0) {
+        buffer.append('+').append(daysDifference).append(" Tag(e) ");
+      }
+      appendTwoDigits(buffer, hour);
+      buffer.append(':');
+      appendTwoDigits(buffer, minute);
+      if (delay > 0) {
+        buffer.append(" + ").append(delay).append(" min");
+      }
+    }
+    return buffer.toString();
+  }
+
+  private static void appendTwoDigits(StringBuilder buffer, int value) {
+    buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+  }
+}
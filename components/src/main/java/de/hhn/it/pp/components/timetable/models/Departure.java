@@ -2,9 +2,8 @@ package de.hhn.it.pp.components.timetable.models;
 
 import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
 import de.hhn.it.pp.components.timetable.events.DelayListener;
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +24,10 @@ public class Departure {
   private final LocalDateTime concreteTime;
 
   private final ControllerCurrentTimeDelegate controllerCurrentTimeDelegate;
+  /**
+   * The last rendered arrival message, reused until the minutes or the delay change.
+   */
+  private volatile ArrivalMessage arrivalMessage;
 
   /**
    * Constructor.
@@ -74,11 +77,12 @@ public class Departure {
    * @return name of the last stop
    */
   public String getLastStopStationName() {
-    return line.getStops().get(line.getStops().size() - 1).getName();
+    return line.getLastStop().getName();
   }
 
   /**
-   * Getter for the arrival message.
+   * Getter for the arrival message. The message is only rendered again when the shown minutes,
+   * the day or the delay changed since the last call.
    *
    * @return string of the arrive message
    */
@@ -86,34 +90,28 @@ public class Departure {
     if (controllerCurrentTimeDelegate != null) {
       LocalDateTime currentTime = controllerCurrentTimeDelegate.getControllerCurrentTime();
 
-      long plannedArrivalIn = Duration.between(currentTime, concreteTime).toMinutes();
-      long delay = getDelay();
-
-      // Set to 0 if negativ
-      if (plannedArrivalIn < 0) {
-        delay = delay + plannedArrivalIn;
-        plannedArrivalIn = 0;
+      // Whole minutes like Duration.between(currentTime, concreteTime).toMinutes()
+      long seconds = concreteTime.toEpochSecond(ZoneOffset.UTC)
+          - currentTime.toEpochSecond(ZoneOffset.UTC);
+      if (concreteTime.getNano() < currentTime.getNano()) {
+        seconds--;
       }
-
-      if (plannedArrivalIn / 60 == 0) {
-        return delay > 0 ? plannedArrivalIn + " + " + delay + " min" : plannedArrivalIn + " min";
-      } else {
-        long daysDifference = ChronoUnit.DAYS
-            .between(currentTime.toLocalDate(), concreteTime.toLocalDate());
-        if (daysDifference == 0) {
-          return delay > 0 ? String.format("%02d", concreteTime.getHour()) + ":" + String
-              .format("%02d", concreteTime.getMinute()) + " + " + delay + " min"
-              : String.format("%02d", concreteTime.getHour()) + ":" + String
-                  .format("%02d", concreteTime.getMinute());
-        } else {
-          return delay > 0 ? "+" + daysDifference + " Tag(e) " + String
-              .format("%02d", concreteTime.getHour()) + ":" + String
-              .format("%02d", concreteTime.getMinute()) + " + " + delay + " min"
-              : "+" + daysDifference + " Tag(e) " + String.format("%02d", concreteTime.getHour())
-                  + ":" + String
-                  .format("%02d", concreteTime.getMinute());
-        }
+      long plannedArrivalIn = seconds / 60;
+      int delay = getDelay();
+      long daysDifference = concreteTime.toLocalDate().toEpochDay()
+          - currentTime.toLocalDate().toEpochDay();
+
+      // From an hour on the message shows the time, so it no longer changes every minute
+      long shownMinutes = Math.min(plannedArrivalIn, 60);
+
+      ArrivalMessage message = arrivalMessage;
+      if (message == null || !message.isFor(shownMinutes, delay, daysDifference)) {
+        message = new ArrivalMessage(shownMinutes, delay, daysDifference,
+            ArrivalMessageFormat.format(plannedArrivalIn, delay, daysDifference,
+                concreteTime.getHour(), concreteTime.getMinute()));
+        arrivalMessage = message;
       }
+      return message.text;
     }
     return focusedStop.getTime().toString();
   }
@@ -144,4 +142,27 @@ public class Departure {
   public int getDelay() {
     return line.getServingTransportationVehicle().getDelay();
   }
+
+  /**
+   * An arrival message and what it was rendered for.
+   */
+  private static final class ArrivalMessage {
+
+    private final long shownMinutes;
+    private final int delay;
+    private final long daysDifference;
+    private final String text;
+
+    ArrivalMessage(long shownMinutes, int delay, long daysDifference, String text) {
+      this.shownMinutes = shownMinutes;
+      this.delay = delay;
+      this.daysDifference = daysDifference;
+      this.text = text;
+    }
+
+    boolean isFor(long shownMinutes, int delay, long daysDifference) {
+      return this.shownMinutes == shownMinutes && this.delay == delay
+          && this.daysDifference == daysDifference;
+    }
+  }
 }
@@ -0,0 +1,368 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.TimetableService;
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.events.DelayListener;
+import de.hhn.it.pp.components.timetable.events.DepartureBoardListener;
+import de.hhn.it.pp.components.timetable.events.FunctionalListener;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The departures shown at one station, kept up to date while the time advances.
+ *
+ * <p>The board is computed once. When the time advances, only the departed rows are dropped
+ * from the head and the rows entering the time window are appended at the tail. When a vehicle
+ * changes its delay or breaks down, the board is compared with a fresh query and only the
+ * changed rows are reported. Register the board as delay and functional callback of the vehicles
+ * to get these changes.
+ */
+public class DepartureBoard implements DelayListener, FunctionalListener {
+
+  private final TimetableService timetableService;
+  private final long rangeInMinutes;
+  private final int limit;
+  private final ControllerCurrentTimeDelegate currentTimeDelegate;
+  private final List<DepartureBoardListener> boardListeners = new ArrayList<>();
+
+  private int stationId = -1;
+  /**
+   * Time the rows were computed for, null if the board must be computed from scratch.
+   */
+  private LocalDateTime time;
+  private final ArrayList<Departure> departures = new ArrayList<>();
+  /**
+   * Vehicles which changed since the last update.
+   */
+  private final Set<TransportationVehicle> changedVehicles = new HashSet<>();
+
+  /**
+   * Constructor.
+   * @param timetableService    service the departures are requested from
+   * @param rangeInMinutes      How many minutes maximum the departure may be in the future
+   * @param limit               The max number of rows
+   * @param currentTimeDelegate delegate passed to the departures
+   */
+  public DepartureBoard(TimetableService timetableService, long rangeInMinutes, int limit,
+      ControllerCurrentTimeDelegate currentTimeDelegate) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    this.timetableService = timetableService;
+    this.rangeInMinutes = rangeInMinutes;
+    this.limit = limit;
+    this.currentTimeDelegate = currentTimeDelegate;
+  }
+
+  /**
+   * Selects the station of the board. The rows are computed on the next update.
+   * @param stationId id of the station
+   */
+  public synchronized void setStation(int stationId) {
+    this.stationId = stationId;
+    time = null;
+  }
+
+  /**
+   * Getter for the station.
+   * @return id of the station, -1 if none is selected
+   */
+  public synchronized int getStationId() {
+    return stationId;
+  }
+
+  /**
+   * Getter for the rows.
+   * @return unmodifiable view of the departures in ascending order
+   */
+  public synchronized List<Departure> getDepartures() {
+    return Collections.unmodifiableList(departures);
+  }
+
+  /**
+   * Brings the board to the given time. Advancing the time only drops and appends rows, going
+   * back in time or jumping further than the range computes the board from scratch.
+   *
+   * @param newTime the time to show the departures for
+   * @throws StationNotFoundException if the station does not exist
+   */
+  public synchronized void update(LocalDateTime newTime) throws StationNotFoundException {
+    if (stationId < 0) {
+      return;
+    }
+    if (time == null || newTime.isBefore(time)
+        || ChronoUnit.MINUTES.between(time, newTime) > rangeInMinutes) {
+      reset(newTime);
+      return;
+    }
+    if (newTime.isAfter(time)) {
+      advance(newTime);
+    }
+    if (!changedVehicles.isEmpty()) {
+      applyChangedVehicles();
+    }
+  }
+
+  /**
+   * Marks the rows of the vehicle as changed.
+   * @param vehicle vehicle to listen
+   * @param delay delay
+   */
+  @Override
+  public synchronized void notifyDelay(TransportationVehicle vehicle, int delay) {
+    changedVehicles.add(vehicle);
+  }
+
+  /**
+   * Marks the rows of the vehicle as changed.
+   * @param vehicle vehicle to listen
+   * @param functional true if the vehicle is functional
+   */
+  @Override
+  public synchronized void notifyFunctional(TransportationVehicle vehicle, boolean functional) {
+    changedVehicles.add(vehicle);
+  }
+
+  /**
+   * Inserts callbacks for changed rows.
+   *
+   * @param listener The listener to be added
+   * @throws IllegalParameterException when listener is already registered
+   */
+  public synchronized void addBoardCallback(DepartureBoardListener listener)
+      throws IllegalParameterException {
+    if (boardListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener already registered.");
+    }
+
+    boardListeners.add(listener);
+  }
+
+  /**
+   * Removes a board callback.
+   *
+   * @param listener The listener to be removed
+   * @throws IllegalParameterException when listener is not yet registered
+   */
+  public synchronized void removeBoardCallback(DepartureBoardListener listener)
+      throws IllegalParameterException {
+    if (!boardListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener is not registered:" + listener);
+    }
+
+    boardListeners.remove(listener);
+  }
+
+  private void reset(LocalDateTime newTime) throws StationNotFoundException {
+    List<Departure> fresh = timetableService
+        .getDepartures(stationId, newTime, rangeInMinutes, limit, currentTimeDelegate);
+    time = newTime;
+    changedVehicles.clear();
+    departures.clear();
+    departures.addAll(fresh);
+    for (DepartureBoardListener listener : boardListeners) {
+      listener.notifyDeparturesReset(getDepartures());
+    }
+  }
+
+  /**
+   * Drops the departed rows and appends the rows entering the time window.
+   * @param newTime the new time, after the current one
+   */
+  private void advance(LocalDateTime newTime) throws StationNotFoundException {
+    // If the board is full, it continues after its last row, otherwise after the old window
+    boolean full = departures.size() >= limit;
+    LocalDateTime lastKnown = full && !departures.isEmpty()
+        ? departures.get(departures.size() - 1).getConcreteTime()
+        : time.plusMinutes(rangeInMinutes);
+    Set<RowKey> lastKnownRows = new HashSet<>();
+    for (int i = departures.size() - 1;
+        i >= 0 && departures.get(i).getConcreteTime().equals(lastKnown); i--) {
+      lastKnownRows.add(new RowKey(departures.get(i)));
+    }
+
+    // Only rows up to the new time can have departed, they are all at the head
+    List<Integer> departed = new ArrayList<>();
+    for (int i = 0; i < departures.size() && !departures.get(i).getConcreteTime().isAfter(newTime);
+        i++) {
+      if (!isShown(departures.get(i), newTime)) {
+        departed.add(i);
+      }
+    }
+    removeRows(departed);
+    time = newTime;
+
+    int needed = limit - departures.size();
+    if (needed > 0) {
+      List<Departure> entering = fetchAfter(lastKnown, full, lastKnownRows, needed);
+      int index = departures.size();
+      departures.addAll(entering);
+      if (!entering.isEmpty()) {
+        for (DepartureBoardListener listener : boardListeners) {
+          listener.notifyDeparturesAdded(index, Collections.unmodifiableList(entering));
+        }
+      }
+    }
+  }
+
+  /**
+   * Requests the departures after the last known one. The query starts a minute early so that
+   * departures at the last known minute are found, and grows until enough rows were found.
+   */
+  private List<Departure> fetchAfter(LocalDateTime lastKnown, boolean includeLastKnown,
+      Set<RowKey> lastKnownRows, int needed) throws StationNotFoundException {
+    LocalDateTime from = lastKnown.minusMinutes(1);
+    long range = ChronoUnit.MINUTES.between(from, time.plusMinutes(rangeInMinutes));
+    if (range < 0) {
+      return Collections.emptyList();
+    }
+    int queryLimit = needed > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : needed + 16;
+    while (true) {
+      List<Departure> found = timetableService
+          .getDepartures(stationId, from, range, queryLimit, currentTimeDelegate);
+      List<Departure> entering = new ArrayList<>();
+      for (Departure departure : found) {
+        int order = departure.getConcreteTime().compareTo(lastKnown);
+        if ((order > 0 || order == 0 && includeLastKnown
+            && !lastKnownRows.contains(new RowKey(departure)))
+            && isShown(departure, time) && entering.size() < needed) {
+          entering.add(departure);
+        }
+      }
+      if (entering.size() >= needed || found.size() < queryLimit
+          || queryLimit == Integer.MAX_VALUE) {
+        return entering;
+      }
+      queryLimit = queryLimit > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : queryLimit * 2;
+    }
+  }
+
+  /**
+   * Compares the rows with a fresh query and reports removed, added and changed rows.
+   */
+  private void applyChangedVehicles() throws StationNotFoundException {
+    List<Departure> fresh = timetableService
+        .getDepartures(stationId, time, rangeInMinutes, limit, currentTimeDelegate);
+    HashMap<RowKey, Departure> freshRows = new HashMap<>();
+    for (Departure departure : fresh) {
+      freshRows.put(new RowKey(departure), departure);
+    }
+    List<Integer> removed = new ArrayList<>();
+    HashMap<RowKey, Departure> kept = new HashMap<>();
+    for (int i = 0; i < departures.size(); i++) {
+      RowKey key = new RowKey(departures.get(i));
+      if (freshRows.containsKey(key)) {
+        kept.put(key, departures.get(i));
+      } else {
+        removed.add(i);
+      }
+    }
+    removeRows(removed);
+
+    // Both lists are in the same order, so the new rows can be inserted from the top
+    for (int i = 0; i < fresh.size(); ) {
+      if (kept.containsKey(new RowKey(fresh.get(i)))) {
+        i++;
+        continue;
+      }
+      int from = i;
+      while (i < fresh.size() && !kept.containsKey(new RowKey(fresh.get(i)))) {
+        i++;
+      }
+      List<Departure> added = fresh.subList(from, i);
+      departures.addAll(from, added);
+      for (DepartureBoardListener listener : boardListeners) {
+        listener.notifyDeparturesAdded(from, Collections.unmodifiableList(added));
+      }
+    }
+
+    for (int i = 0; i < departures.size(); i++) {
+      Departure departure = departures.get(i);
+      if (changedVehicles.contains(departure.getLine().getServingTransportationVehicle())
+          && kept.containsKey(new RowKey(departure))) {
+        for (DepartureBoardListener listener : boardListeners) {
+          listener.notifyDepartureChanged(i, departure);
+        }
+      }
+    }
+    changedVehicles.clear();
+  }
+
+  /**
+   * Removes rows, reporting each run of adjacent rows once, from the bottom up.
+   * @param indices ascending indices of the rows
+   */
+  private void removeRows(List<Integer> indices) {
+    for (int end = indices.size(); end > 0; ) {
+      int start = end - 1;
+      while (start > 0 && indices.get(start - 1) == indices.get(start) - 1) {
+        start--;
+      }
+      int from = indices.get(start);
+      int to = indices.get(end - 1) + 1;
+      departures.subList(from, to).clear();
+      for (DepartureBoardListener listener : boardListeners) {
+        listener.notifyDeparturesRemoved(from, to);
+      }
+      end = start;
+    }
+  }
+
+  /**
+   * Checker if a departure is shown at a time, see the departure query of the services.
+   */
+  private boolean isShown(Departure departure, LocalDateTime at) {
+    LocalDateTime concreteTime = departure.getConcreteTime();
+    return at.isBefore(concreteTime.plusMinutes(departure.getDelay()))
+        && ChronoUnit.MINUTES.between(at, concreteTime) <= rangeInMinutes;
+  }
+
+  /**
+   * Identifies a row by what it shows, services may create new line objects for every query.
+   */
+  private static final class RowKey {
+
+    private final TransportationVehicle vehicle;
+    private final String lineName;
+    private final Station station;
+    private final String stopName;
+    private final LocalDateTime concreteTime;
+
+    RowKey(Departure departure) {
+      vehicle = departure.getLine().getServingTransportationVehicle();
+      lineName = departure.getLineName();
+      station = departure.getFocusedStop().getStation();
+      stopName = departure.getFocusedStop().getName();
+      concreteTime = departure.getConcreteTime();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof RowKey)) {
+        return false;
+      }
+      RowKey rowKey = (RowKey) o;
+      return vehicle == rowKey.vehicle && station == rowKey.station
+          && lineName.equals(rowKey.lineName) && stopName.equals(rowKey.stopName)
+          && concreteTime.equals(rowKey.concreteTime);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(vehicle), lineName,
+          System.identityHashCode(station), stopName, concreteTime);
+    }
+  }
+}
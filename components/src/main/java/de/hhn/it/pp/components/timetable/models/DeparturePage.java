@@ -0,0 +1,52 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import java.util.List;
+
+/**
+ * One page of a departure board together with the cursor to request the next page.
+ */
+public class DeparturePage {
+
+  /**
+   * Departures of this page in ascending order.
+   */
+  private final List<Departure> departures;
+  /**
+   * Opaque cursor to continue with the next page, null if there are no more departures.
+   */
+  private final String nextCursor;
+
+  /**
+   * Constructor.
+   * @param departures Departures of this page in ascending order
+   * @param nextCursor Cursor to continue with the next page, null if there are no more
+   */
+  public DeparturePage(List<Departure> departures, String nextCursor) {
+    this.departures = departures;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Getter for the departures.
+   * @return departures of this page
+   */
+  public List<Departure> getDepartures() {
+    return departures;
+  }
+
+  /**
+   * Getter for the next cursor.
+   * @return cursor to request the next page, null if there is no next page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Checker if there may be further departures.
+   * @return true if there is a next page
+   */
+  public boolean hasNextPage() {
+    return nextCursor != null;
+  }
+}
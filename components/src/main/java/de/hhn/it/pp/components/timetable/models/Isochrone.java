@@ -0,0 +1,89 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stations which can be reached from a station within a number of minutes, each with the
+ * earliest time of arrival.
+ */
+public class Isochrone {
+
+  private final Station origin;
+  private final LocalDateTime departure;
+  private final int minutes;
+  /**
+   * Earliest arrival at every reachable station, ordered by arrival.
+   */
+  private final Map<Station, LocalDateTime> arrivals;
+
+  /**
+   * Constructor.
+   *
+   * @param origin    Station to depart from
+   * @param departure Earliest time of departure
+   * @param minutes   Minutes after the departure until which stations count as reachable
+   * @param arrivals  Earliest arrival at every reachable station, ordered by arrival
+   */
+  public Isochrone(Station origin, LocalDateTime departure, int minutes,
+      LinkedHashMap<Station, LocalDateTime> arrivals) {
+    this.origin = origin;
+    this.departure = departure;
+    this.minutes = minutes;
+    this.arrivals = Collections.unmodifiableMap(arrivals);
+  }
+
+  /**
+   * Getter for the origin.
+   *
+   * @return station to depart from
+   */
+  public Station getOrigin() {
+    return origin;
+  }
+
+  /**
+   * Getter for the departure.
+   *
+   * @return earliest time of departure
+   */
+  public LocalDateTime getDeparture() {
+    return departure;
+  }
+
+  /**
+   * Getter for the minutes.
+   *
+   * @return minutes after the departure until which stations count as reachable
+   */
+  public int getMinutes() {
+    return minutes;
+  }
+
+  /**
+   * Getter for the arrivals. The origin is included with the time of departure.
+   *
+   * @return earliest arrival at every reachable station, ordered by arrival
+   */
+  public Map<Station, LocalDateTime> getArrivals() {
+    return arrivals;
+  }
+
+  /**
+   * Returns the earliest arrival at a station.
+   *
+   * @param station the station
+   * @return time of arrival, null if the station cannot be reached in time
+   */
+  public LocalDateTime getArrivalTime(Station station) {
+    return arrivals.get(station);
+  }
+
+  @Override
+  public String toString() {
+    return "Isochrone{" + origin.getName() + " " + departure + " +" + minutes + "min: "
+        + arrivals.size() + " stations}";
+  }
+}
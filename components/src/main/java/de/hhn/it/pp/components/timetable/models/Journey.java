@@ -0,0 +1,69 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Way from one station to another on one or more lines. Between two legs the traveller changes
+ * lines at the station where the first leg ends.
+ */
+public class Journey {
+
+  /**
+   * Legs in the order they are travelled.
+   */
+  private final List<Leg> legs;
+
+  /**
+   * Constructor.
+   *
+   * @param legs Legs in the order they are travelled, at least one
+   */
+  public Journey(List<Leg> legs) {
+    if (legs.isEmpty()) {
+      throw new IllegalArgumentException("A journey needs at least one leg");
+    }
+    this.legs = List.copyOf(legs);
+  }
+
+  /**
+   * Getter for the legs.
+   *
+   * @return legs in the order they are travelled
+   */
+  public List<Leg> getLegs() {
+    return legs;
+  }
+
+  /**
+   * Getter for the departure time.
+   *
+   * @return time at which the first line is boarded
+   */
+  public LocalDateTime getDepartureTime() {
+    return legs.get(0).getDepartureTime();
+  }
+
+  /**
+   * Getter for the arrival time.
+   *
+   * @return time at which the last line is left
+   */
+  public LocalDateTime getArrivalTime() {
+    return legs.get(legs.size() - 1).getArrivalTime();
+  }
+
+  /**
+   * Getter for the transfer count.
+   *
+   * @return how often the traveller changes lines
+   */
+  public int getTransferCount() {
+    return legs.size() - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "Journey" + legs;
+  }
+}
@@ -0,0 +1,117 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Part of a journey which is spent on one line, from boarding at one of its stops to alighting
+ * at a later one.
+ */
+public class Leg {
+
+  /**
+   * Line which is taken.
+   */
+  private final Line line;
+  /**
+   * Index of the stop in the stops of the line where the line is boarded.
+   */
+  private final int boardingIndex;
+  /**
+   * Index of the stop in the stops of the line where the line is left.
+   */
+  private final int alightingIndex;
+  /**
+   * Day on which the line operates for this leg.
+   */
+  private final LocalDate serviceDate;
+
+  /**
+   * Constructor.
+   *
+   * @param line           Line which is taken
+   * @param boardingIndex  Index of the stop where the line is boarded
+   * @param alightingIndex Index of the stop where the line is left, after the boarding stop
+   * @param serviceDate    Day on which the line operates for this leg
+   */
+  public Leg(Line line, int boardingIndex, int alightingIndex, LocalDate serviceDate) {
+    if (boardingIndex < 0 || alightingIndex <= boardingIndex) {
+      throw new IllegalArgumentException("Invalid stops " + boardingIndex + " to "
+          + alightingIndex);
+    }
+    this.line = line;
+    this.boardingIndex = boardingIndex;
+    this.alightingIndex = alightingIndex;
+    this.serviceDate = serviceDate;
+  }
+
+  /**
+   * Getter for the line.
+   *
+   * @return line which is taken
+   */
+  public Line getLine() {
+    return line;
+  }
+
+  /**
+   * Getter for the boarding stop.
+   *
+   * @return stop where the line is boarded
+   */
+  public Stop getBoardingStop() {
+    return line.getStops().get(boardingIndex);
+  }
+
+  /**
+   * Getter for the alighting stop.
+   *
+   * @return stop where the line is left
+   */
+  public Stop getAlightingStop() {
+    return line.getStops().get(alightingIndex);
+  }
+
+  /**
+   * Getter for the stops.
+   *
+   * @return stops of the line from the boarding stop to the alighting stop
+   */
+  public List<Stop> getStops() {
+    return line.getStops().subList(boardingIndex, alightingIndex + 1);
+  }
+
+  /**
+   * Getter for the service date.
+   *
+   * @return day on which the line operates for this leg
+   */
+  public LocalDate getServiceDate() {
+    return serviceDate;
+  }
+
+  /**
+   * Getter for the departure time. Please note that delays must be added to this.
+   *
+   * @return time at which the line leaves the boarding stop
+   */
+  public LocalDateTime getDepartureTime() {
+    return serviceDate.atTime(getBoardingStop().getTime());
+  }
+
+  /**
+   * Getter for the arrival time. Please note that delays must be added to this.
+   *
+   * @return time at which the line reaches the alighting stop
+   */
+  public LocalDateTime getArrivalTime() {
+    return serviceDate.atTime(getAlightingStop().getTime());
+  }
+
+  @Override
+  public String toString() {
+    return line.getName() + " " + getBoardingStop().getName() + " " + getDepartureTime() + " - "
+        + getAlightingStop().getName() + " " + getArrivalTime();
+  }
+}
@@ -1,8 +1,11 @@
 package de.hhn.it.pp.components.timetable.models;
 
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.events.StopsListener;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
@@ -20,7 +23,7 @@ public class Line {
   /**
    * Days on which the line operates.
    */
-  private final EnumSet<DayOfWeek> servingDays;
+  private final ServiceCalendar serviceCalendar;
   /**
    * All stops that the line will make.
    */
@@ -29,10 +32,18 @@ public class Line {
    * The vehicle that serves the line.
    */
   private final TransportationVehicle servingTransportationVehicle;
+  /**
+   * Everyone who want to be informed of changed stops.
+   */
+  private final List<StopsListener> stopsListeners = new ArrayList<>();
   /**
    * When a station is added, this value is set to true.
    */
   private boolean isStationAdded = false;
+  /**
+   * Stops sorted by time of arrival, set once the line is frozen.
+   */
+  private List<Stop> frozenStops;
 
   /**
    * Constructor.
@@ -42,8 +53,19 @@ public class Line {
    */
   public Line(String name,
       EnumSet<DayOfWeek> servingDays, TransportationVehicle vehicle) {
+    this(name, new ServiceCalendar(servingDays), vehicle);
+  }
+
+  /**
+   * Constructor.
+   * @param name            Name of the line.
+   * @param serviceCalendar Days on which the line operates, may be shared with other lines.
+   * @param vehicle         Transportation vehicle that is driving for this line
+   */
+  public Line(String name,
+      ServiceCalendar serviceCalendar, TransportationVehicle vehicle) {
     this.name = name;
-    this.servingDays = servingDays;
+    this.serviceCalendar = serviceCalendar;
     this.servingTransportationVehicle = vehicle;
     stops = new ArrayList<>();
 
@@ -62,10 +84,12 @@ public class Line {
    * @param stops List of stops
    */
   public void addStops(List<Stop> stops) {
+    checkNotFrozen();
     isStationAdded = true;
     for (int i = 0; i < stops.size() - 1; i++) {
       this.stops.add(stops.get(i));
     }
+    notifyStopsChanged();
   }
 
   /**
@@ -75,7 +99,10 @@ public class Line {
    * @param name name
    */
   public void createStop(LocalTime time, Station station, String name) {
+    checkNotFrozen();
+    isStationAdded = true;
     stops.add(new Stop(time, station, name));
+    notifyStopsChanged();
   }
 
   /**
@@ -84,6 +111,7 @@ public class Line {
    */
   //TODO Needs some form of ID
   public void removeStop(String name) {
+    checkNotFrozen();
     int stopGet = 0;
     for (int i = 0; i < stops.size() - 1; i++) {
       if (stops.get(i).getName().equals(name)) {
@@ -91,13 +119,44 @@ public class Line {
       }
     }
     stops.remove(stopGet);
+    notifyStopsChanged();
+  }
+
+  /**
+   * Freezes the line. The stops are sorted once and can no longer be changed, afterwards
+   * {@link #getStops()} returns the same unmodifiable list on every call.
+   * @return this line
+   */
+  public Line freeze() {
+    if (frozenStops == null) {
+      frozenStops = Collections.unmodifiableList(getStops());
+    }
+    return this;
   }
 
   /**
-   * Getter for the stops.
+   * Checker if the line is frozen.
+   * @return true if the stops can no longer be changed
+   */
+  public boolean isFrozen() {
+    return frozenStops != null;
+  }
+
+  private void checkNotFrozen() {
+    if (frozenStops != null) {
+      throw new UnsupportedOperationException("Line " + name + " is frozen");
+    }
+  }
+
+  /**
+   * Getter for the stops. Unless the line is frozen, the stops are sorted into a new list on
+   * every call.
    * @return Stops sorted by time of arrival.
    */
-  public ArrayList<Stop> getStops() {
+  public List<Stop> getStops() {
+    if (frozenStops != null) {
+      return frozenStops;
+    }
     ArrayList<Stop> buffer = new ArrayList<>();
     if (isStationAdded) {
       buffer = this.stops.stream().sorted(Comparator.comparing(Stop::getTime))
@@ -106,6 +165,25 @@ public class Line {
     return buffer;
   }
 
+  /**
+   * Getter for the last stop, without sorting the stops.
+   * @return the stop that is reached last, null if the line has no stops
+   */
+  public Stop getLastStop() {
+    if (frozenStops != null) {
+      return frozenStops.isEmpty() ? null : frozenStops.get(frozenStops.size() - 1);
+    }
+    Stop lastStop = null;
+    if (isStationAdded) {
+      for (Stop stop : stops) {
+        if (lastStop == null || !stop.getTime().isBefore(lastStop.getTime())) {
+          lastStop = stop;
+        }
+      }
+    }
+    return lastStop;
+  }
+
   /**
    * Getter for a stop.
    * @param name name of a stop
@@ -135,6 +213,48 @@ public class Line {
    * @return serving days enum set
    */
   public EnumSet<DayOfWeek> getServingDays() {
-    return servingDays;
+    return serviceCalendar.getServingDays();
+  }
+
+  /**
+   * Getter for the service calendar.
+   * @return calendar with all days on which the line operates
+   */
+  public ServiceCalendar getServiceCalendar() {
+    return serviceCalendar;
+  }
+
+  /**
+   * Inserts callbacks for the event of changed stops.
+   *
+   * @param listener The listener to be added
+   * @throws IllegalParameterException when listener is already registered
+   */
+  public void addStopsCallback(StopsListener listener) throws IllegalParameterException {
+    if (stopsListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener already registered.");
+    }
+
+    stopsListeners.add(listener);
+  }
+
+  /**
+   * Removes a stops callback.
+   *
+   * @param listener The listener to be removed
+   * @throws IllegalParameterException when listener is not yet registered
+   */
+  public void removeStopsCallback(StopsListener listener) throws IllegalParameterException {
+    if (!stopsListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener is not registered:" + listener);
+    }
+
+    stopsListeners.remove(listener);
+  }
+
+  private void notifyStopsChanged() {
+    for (StopsListener listener : stopsListeners) {
+      listener.notifyStopsChanged(this);
+    }
   }
 }
@@ -0,0 +1,339 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.events.CalendarListener;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * The days on which a line operates. It combines a weekly pattern with an optional period of
+ * validity and single exception dates, e.g. holidays without service.
+ *
+ * <p>Every day of the period of validity and every exception date is kept as one bit, so
+ * checking whether the line operates on a date is a single bit test. The bits are replaced as a
+ * whole when a date is added or removed, so the calendar may be read on several threads. Lines with the same service
+ * pattern should share one calendar.
+ */
+public class ServiceCalendar {
+
+  /**
+   * Days of the week on which the line operates.
+   */
+  private final EnumSet<DayOfWeek> servingDays;
+  /**
+   * First day of the period of validity, null if open.
+   */
+  private final LocalDate firstDay;
+  /**
+   * Last day of the period of validity, null if open.
+   */
+  private final LocalDate lastDay;
+  /**
+   * Bits of the period of validity and the exception dates. Changes publish a new instance, so
+   * lines may be read on other threads while dates are added or removed.
+   */
+  private volatile Bits bits = new Bits(new BitSet(), 0, 0);
+  /**
+   * Everyone who want to be informed of added or removed dates.
+   */
+  private final List<CalendarListener> calendarListeners = new ArrayList<>();
+
+  /**
+   * Constructor for a calendar that repeats every week without end.
+   * @param servingDays Days of the week on which the line operates.
+   */
+  public ServiceCalendar(EnumSet<DayOfWeek> servingDays) {
+    this(servingDays, null, null);
+  }
+
+  /**
+   * Constructor.
+   * @param servingDays Days of the week on which the line operates.
+   * @param firstDay    First day of the period of validity, null if open
+   * @param lastDay     Last day of the period of validity, null if open
+   */
+  public ServiceCalendar(EnumSet<DayOfWeek> servingDays, LocalDate firstDay, LocalDate lastDay) {
+    if (firstDay != null && lastDay != null && lastDay.isBefore(firstDay)) {
+      throw new IllegalArgumentException("lastDay " + lastDay + " is before firstDay " + firstDay);
+    }
+    this.servingDays = servingDays;
+    this.firstDay = firstDay;
+    this.lastDay = lastDay;
+    if (firstDay != null && lastDay != null) {
+      bits = cover(cover(bits, firstDay.toEpochDay()), lastDay.toEpochDay());
+    }
+  }
+
+  /**
+   * Getter for the serving days.
+   * @return days of the week on which the line operates
+   */
+  public EnumSet<DayOfWeek> getServingDays() {
+    return servingDays;
+  }
+
+  /**
+   * Getter for the first day.
+   * @return first day of the period of validity, null if open
+   */
+  public LocalDate getFirstDay() {
+    return firstDay;
+  }
+
+  /**
+   * Getter for the last day.
+   * @return last day of the period of validity, null if open
+   */
+  public LocalDate getLastDay() {
+    return lastDay;
+  }
+
+  /**
+   * Returns the dates on which the calendar differs from the weekly pattern and the period of
+   * validity, i.e. the dates added or removed with {@link #addDate(LocalDate)} and
+   * {@link #removeDate(LocalDate)}.
+   * @return the exception dates in ascending order
+   */
+  public List<LocalDate> getExceptionDates() {
+    Bits bits = this.bits;
+    List<LocalDate> dates = new ArrayList<>();
+    for (int i = 0; i < bits.dayCount; i++) {
+      if (bits.days.get(i) != runsByPattern(bits.baseDay + i)) {
+        dates.add(LocalDate.ofEpochDay(bits.baseDay + i));
+      }
+    }
+    return dates;
+  }
+
+  /**
+   * Creates a calendar which operates a number of days after every date of this calendar, e.g.
+   * for trips after midnight of their service day. Later changes of this calendar are not seen.
+   * @param dayCount number of days, may be negative
+   * @return the new calendar
+   */
+  public ServiceCalendar shiftedBy(int dayCount) {
+    EnumSet<DayOfWeek> shiftedDays = EnumSet.noneOf(DayOfWeek.class);
+    for (DayOfWeek day : servingDays) {
+      shiftedDays.add(day.plus(dayCount));
+    }
+    ServiceCalendar shifted = new ServiceCalendar(shiftedDays,
+        firstDay == null ? null : firstDay.plusDays(dayCount),
+        lastDay == null ? null : lastDay.plusDays(dayCount));
+    for (LocalDate date : getExceptionDates()) {
+      if (runsOn(date)) {
+        shifted.addDate(date.plusDays(dayCount));
+      } else {
+        shifted.removeDate(date.plusDays(dayCount));
+      }
+    }
+    return shifted;
+  }
+
+  /**
+   * Adds a date on which the line operates in addition to the weekly pattern.
+   * @param date the date
+   */
+  public void addDate(LocalDate date) {
+    setDay(date.toEpochDay(), true);
+    notifyCalendarChanged();
+  }
+
+  /**
+   * Removes a date on which the line does not operate, e.g. a holiday.
+   * @param date the date
+   */
+  public void removeDate(LocalDate date) {
+    setDay(date.toEpochDay(), false);
+    notifyCalendarChanged();
+  }
+
+  /**
+   * Checker if the line operates on a date.
+   * @param date the date
+   * @return true if the line operates on the date
+   */
+  public boolean runsOn(LocalDate date) {
+    return runsOn(date.toEpochDay());
+  }
+
+  /**
+   * Checker if the line operates on a date.
+   * @param epochDay the date as epoch day, see {@link LocalDate#toEpochDay()}
+   * @return true if the line operates on the date
+   */
+  public boolean runsOn(long epochDay) {
+    Bits bits = this.bits;
+    long offset = epochDay - bits.baseDay;
+    if (offset >= 0 && offset < bits.dayCount) {
+      return bits.days.get((int) offset);
+    }
+    return runsByPattern(epochDay);
+  }
+
+  /**
+   * Checker if there is a date on which both calendars operate.
+   * @param other the other calendar
+   * @return true if both calendars operate on at least one date
+   */
+  public boolean sharesDayWith(ServiceCalendar other) {
+    // The days covered by bits decide on their own
+    long low = Long.MAX_VALUE;
+    long high = Long.MIN_VALUE;
+    for (ServiceCalendar calendar : List.of(this, other)) {
+      Bits bits = calendar.bits;
+      if (bits.dayCount > 0) {
+        low = Math.min(low, bits.baseDay);
+        high = Math.max(high, bits.baseDay + bits.dayCount - 1);
+      }
+    }
+    for (long day = low; day <= high; day++) {
+      if (runsOn(day) && other.runsOn(day)) {
+        return true;
+      }
+    }
+    // Elsewhere both calendars repeat every week within both periods of validity, so the first
+    // week after and the last week before the covered days decide
+    long from = Math.max(firstDay == null ? Long.MIN_VALUE : firstDay.toEpochDay(),
+        other.firstDay == null ? Long.MIN_VALUE : other.firstDay.toEpochDay());
+    long to = Math.min(lastDay == null ? Long.MAX_VALUE : lastDay.toEpochDay(),
+        other.lastDay == null ? Long.MAX_VALUE : other.lastDay.toEpochDay());
+    if (low > high) {
+      low = from != Long.MIN_VALUE ? from : to != Long.MAX_VALUE ? to : 0;
+      high = low - 1;
+    }
+    long before = Math.min(to, low - 1);
+    for (long day = Math.max(from, before - 6); day <= before; day++) {
+      if (runsOn(day) && other.runsOn(day)) {
+        return true;
+      }
+    }
+    long after = Math.max(from, high + 1);
+    for (long day = after; day <= Math.min(to, after + 6); day++) {
+      if (runsOn(day) && other.runsOn(day)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Inserts callbacks for the event of an added or removed date.
+   *
+   * @param listener The listener to be added
+   * @throws IllegalParameterException when listener is already registered
+   */
+  public void addCalendarCallback(CalendarListener listener) throws IllegalParameterException {
+    if (calendarListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener already registered.");
+    }
+
+    calendarListeners.add(listener);
+  }
+
+  /**
+   * Removes a calendar callback.
+   *
+   * @param listener The listener to be removed
+   * @throws IllegalParameterException when listener is not yet registered
+   */
+  public void removeCalendarCallback(CalendarListener listener) throws IllegalParameterException {
+    if (!calendarListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener is not registered:" + listener);
+    }
+
+    calendarListeners.remove(listener);
+  }
+
+  private void notifyCalendarChanged() {
+    for (CalendarListener listener : calendarListeners) {
+      listener.notifyCalendarChanged(this);
+    }
+  }
+
+  /**
+   * Checker if the weekly pattern and the period of validity include a date.
+   * @param epochDay the date as epoch day
+   * @return true if the date is included
+   */
+  private boolean runsByPattern(long epochDay) {
+    if (firstDay != null && epochDay < firstDay.toEpochDay()
+        || lastDay != null && epochDay > lastDay.toEpochDay()) {
+      return false;
+    }
+    // The epoch day 0 was a thursday
+    return servingDays.contains(DayOfWeek.of(Math.floorMod(epochDay + 3, 7) + 1));
+  }
+
+  /**
+   * Returns a copy of the bits extended so that they cover a day. New bits are initialized from
+   * the pattern.
+   * @param bits     the bits to copy
+   * @param epochDay the day to cover
+   * @return the new bits
+   */
+  private Bits cover(Bits bits, long epochDay) {
+    if (bits.dayCount == 0) {
+      BitSet days = new BitSet();
+      days.set(0, runsByPattern(epochDay));
+      return new Bits(days, epochDay, 1);
+    } else if (epochDay < bits.baseDay) {
+      int shift = Math.toIntExact(bits.baseDay - epochDay);
+      BitSet shifted = new BitSet();
+      for (int i = bits.days.nextSetBit(0); i >= 0; i = bits.days.nextSetBit(i + 1)) {
+        shifted.set(i + shift);
+      }
+      for (int i = 0; i < shift; i++) {
+        shifted.set(i, runsByPattern(epochDay + i));
+      }
+      return new Bits(shifted, epochDay, bits.dayCount + shift);
+    }
+    BitSet days = (BitSet) bits.days.clone();
+    int dayCount = Math.max(bits.dayCount, Math.toIntExact(epochDay - bits.baseDay + 1));
+    for (int i = bits.dayCount; i < dayCount; i++) {
+      days.set(i, runsByPattern(bits.baseDay + i));
+    }
+    return new Bits(days, bits.baseDay, dayCount);
+  }
+
+  /**
+   * Sets the bit of a day and publishes the changed copy of the bits.
+   * @param epochDay the day
+   * @param runs     whether the line operates on the day
+   */
+  private synchronized void setDay(long epochDay, boolean runs) {
+    Bits changed = cover(bits, epochDay);
+    changed.days.set((int) (epochDay - changed.baseDay), runs);
+    bits = changed;
+  }
+
+  /**
+   * One bit per day starting at a base day. A published instance is never changed, so readers
+   * see the bits, the base day and the day count of the same state without locking.
+   */
+  private static final class Bits {
+
+    /**
+     * Within these days the bits are authoritative, outside of them the weekly pattern and the
+     * period of validity decide.
+     */
+    private final BitSet days;
+    /**
+     * Epoch day of the first bit.
+     */
+    private final long baseDay;
+    /**
+     * Number of days covered by the bits.
+     */
+    private final int dayCount;
+
+    private Bits(BitSet days, long baseDay, int dayCount) {
+      this.days = days;
+      this.baseDay = baseDay;
+      this.dayCount = dayCount;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Arrival or departure of the vehicle of a line at one of its stops during a simulation.
+ */
+public class SimulationEvent {
+
+  private final SimulationEventType type;
+  private final Line line;
+  /**
+   * Index of the stop in the stops of the line.
+   */
+  private final int stopIndex;
+  private final Stop stop;
+  /**
+   * Day on which the line operates for this event.
+   */
+  private final LocalDate serviceDate;
+  /**
+   * Time at which the event happens, including the delay.
+   */
+  private final LocalDateTime time;
+  /**
+   * Delay of the vehicle in minutes.
+   */
+  private final int delay;
+
+  /**
+   * Constructor.
+   *
+   * @param type        Arrival or departure
+   * @param line        Line whose vehicle arrives or departs
+   * @param stopIndex   Index of the stop in the stops of the line
+   * @param stop        The stop
+   * @param serviceDate Day on which the line operates for this event
+   * @param time        Time at which the event happens, including the delay
+   * @param delay       Delay of the vehicle in minutes
+   */
+  public SimulationEvent(SimulationEventType type, Line line, int stopIndex, Stop stop,
+      LocalDate serviceDate, LocalDateTime time, int delay) {
+    this.type = type;
+    this.line = line;
+    this.stopIndex = stopIndex;
+    this.stop = stop;
+    this.serviceDate = serviceDate;
+    this.time = time;
+    this.delay = delay;
+  }
+
+  /**
+   * Getter for the type.
+   *
+   * @return arrival or departure
+   */
+  public SimulationEventType getType() {
+    return type;
+  }
+
+  /**
+   * Getter for the line.
+   *
+   * @return line whose vehicle arrives or departs
+   */
+  public Line getLine() {
+    return line;
+  }
+
+  /**
+   * Getter for the vehicle.
+   *
+   * @return vehicle which arrives or departs
+   */
+  public TransportationVehicle getTransportationVehicle() {
+    return line.getServingTransportationVehicle();
+  }
+
+  /**
+   * Getter for the stop index.
+   *
+   * @return index of the stop in the stops of the line
+   */
+  public int getStopIndex() {
+    return stopIndex;
+  }
+
+  /**
+   * Getter for the stop.
+   *
+   * @return stop at which the vehicle arrives or departs
+   */
+  public Stop getStop() {
+    return stop;
+  }
+
+  /**
+   * Getter for the service date.
+   *
+   * @return day on which the line operates for this event
+   */
+  public LocalDate getServiceDate() {
+    return serviceDate;
+  }
+
+  /**
+   * Getter for the scheduled time.
+   *
+   * @return time at which the event should happen
+   */
+  public LocalDateTime getScheduledTime() {
+    return serviceDate.atTime(stop.getTime());
+  }
+
+  /**
+   * Getter for the time.
+   *
+   * @return time at which the event happens, including the delay
+   */
+  public LocalDateTime getTime() {
+    return time;
+  }
+
+  /**
+   * Getter for the delay.
+   *
+   * @return delay of the vehicle in minutes
+   */
+  public int getDelay() {
+    return delay;
+  }
+
+  @Override
+  public String toString() {
+    return time + " " + type + " " + line.getName() + " " + stop.getName()
+        + (delay != 0 ? " +" + delay : "");
+  }
+}
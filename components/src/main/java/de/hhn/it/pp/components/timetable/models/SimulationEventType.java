@@ -0,0 +1,9 @@
+package de.hhn.it.pp.components.timetable.models;
+
+/**
+ * The different things a vehicle can do at a stop during a simulation.
+ */
+public enum SimulationEventType {
+  ARRIVAL,
+  DEPARTURE
+}
@@ -21,9 +21,17 @@ public class Station {
    * Tells if there are toilets at the station.
    */
   private final boolean toilets;
+  /**
+   * Latitude of the station in degrees, NaN if the location is unknown.
+   */
+  private final double latitude;
+  /**
+   * Longitude of the station in degrees, NaN if the location is unknown.
+   */
+  private final double longitude;
 
   /**
-   * Constructor.
+   * Constructor for a station whose location is unknown.
    * @param name           Name of the station.
    * @param travelCenter   Tells if there' s a travel center at the station.
    * @param stepFreeAccess Tells if people with walking disabilities can enter the station.
@@ -31,10 +39,30 @@ public class Station {
    */
   public Station(String name, boolean travelCenter, boolean stepFreeAccess,
       boolean toilets) {
+    this(name, travelCenter, stepFreeAccess, toilets, Double.NaN, Double.NaN);
+  }
+
+  /**
+   * Constructor.
+   * @param name           Name of the station.
+   * @param travelCenter   Tells if there' s a travel center at the station.
+   * @param stepFreeAccess Tells if people with walking disabilities can enter the station.
+   * @param toilets        Tells if there are toilets at the station.
+   * @param latitude       Latitude of the station in degrees, NaN if unknown.
+   * @param longitude      Longitude of the station in degrees, NaN if unknown.
+   */
+  public Station(String name, boolean travelCenter, boolean stepFreeAccess,
+      boolean toilets, double latitude, double longitude) {
+    if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180
+        || Double.isNaN(latitude) != Double.isNaN(longitude)) {
+      throw new IllegalArgumentException("Invalid location " + latitude + ", " + longitude);
+    }
     this.name = name;
     this.travelCenter = travelCenter;
     this.stepFreeAccess = stepFreeAccess;
     this.toilets = toilets;
+    this.latitude = latitude;
+    this.longitude = longitude;
   }
 
   /**
@@ -69,6 +97,30 @@ public class Station {
     return toilets;
   }
 
+  /**
+   * Checker if the location of the station is known.
+   * @return bool of location
+   */
+  public boolean hasLocation() {
+    return !Double.isNaN(latitude);
+  }
+
+  /**
+   * Getter for the latitude.
+   * @return latitude in degrees, NaN if the location is unknown
+   */
+  public double getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Getter for the longitude.
+   * @return longitude in degrees, NaN if the location is unknown
+   */
+  public double getLongitude() {
+    return longitude;
+  }
+
   /**
    * ToString Method.
    * @return name
@@ -2,6 +2,7 @@ package de.hhn.it.pp.components.timetable.models;
 
 import de.hhn.it.pp.components.exceptions.IllegalParameterException;
 import de.hhn.it.pp.components.timetable.events.DelayListener;
+import de.hhn.it.pp.components.timetable.events.FunctionalListener;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,14 +16,18 @@ public class TransportationVehicle {
    * Everyone who want to be informed of vehicle delays.
    */
   private final List<DelayListener> delayListeners = new ArrayList<DelayListener>();
+  /**
+   * Everyone who want to be informed when the vehicle breaks down or is repaired.
+   */
+  private final List<FunctionalListener> functionalListeners = new ArrayList<>();
   /**
    * The delay that the vehicle currently has.
    */
-  private int delay;
+  private volatile int delay;
   /**
    * Indicates whether the vehicle is functional.
    */
-  private boolean isFunctional = true;
+  private volatile boolean isFunctional = true;
 
   /**
    * Constructor.
@@ -77,6 +82,10 @@ public class TransportationVehicle {
    */
   public TransportationVehicle setFunctional(boolean functional) {
     isFunctional = functional;
+
+    for (FunctionalListener listener : functionalListeners) {
+      listener.notifyFunctional(this, isFunctional);
+    }
     return this;
   }
 
@@ -107,4 +116,34 @@ public class TransportationVehicle {
 
     delayListeners.remove(listener);
   }
+
+  /**
+   * Inserts callbacks for the event of a break down or repair.
+   *
+   * @param listener The listener to be added
+   * @throws IllegalParameterException when listener is already registered
+   */
+  public void addFunctionalCallback(FunctionalListener listener)
+      throws IllegalParameterException {
+    if (functionalListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener already registered.");
+    }
+
+    functionalListeners.add(listener);
+  }
+
+  /**
+   * Removes a functional callback.
+   *
+   * @param listener The listener to be removed
+   * @throws IllegalParameterException when listener is not yet registered
+   */
+  public void removeFunctionalCallback(FunctionalListener listener)
+      throws IllegalParameterException {
+    if (!functionalListeners.contains(listener)) {
+      throw new IllegalParameterException("Listener is not registered:" + listener);
+    }
+
+    functionalListeners.remove(listener);
+  }
 }
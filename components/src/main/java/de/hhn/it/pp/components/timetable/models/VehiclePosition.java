@@ -0,0 +1,139 @@
+package de.hhn.it.pp.components.timetable.models;
+
+import java.time.LocalDate;
+
+/**
+ * Location of the vehicle of a line between two of its stops at a moment.
+ */
+public class VehiclePosition {
+
+  private final Line line;
+  /**
+   * Day on which the line operates.
+   */
+  private final LocalDate serviceDate;
+  /**
+   * Index of the stop which the vehicle left last, or at which it is.
+   */
+  private final int previousStopIndex;
+  /**
+   * Part of the way to the next stop which the vehicle travelled, from 0 to 1.
+   */
+  private final double progress;
+  private final double latitude;
+  private final double longitude;
+  /**
+   * Delay of the vehicle in minutes.
+   */
+  private final int delay;
+
+  /**
+   * Constructor.
+   *
+   * @param line              Line whose vehicle it is
+   * @param serviceDate       Day on which the line operates
+   * @param previousStopIndex Index of the stop which the vehicle left last, or at which it is
+   * @param progress          Part of the way to the next stop which the vehicle travelled
+   * @param latitude          Latitude of the vehicle in degrees
+   * @param longitude         Longitude of the vehicle in degrees
+   * @param delay             Delay of the vehicle in minutes
+   */
+  public VehiclePosition(Line line, LocalDate serviceDate, int previousStopIndex,
+      double progress, double latitude, double longitude, int delay) {
+    this.line = line;
+    this.serviceDate = serviceDate;
+    this.previousStopIndex = previousStopIndex;
+    this.progress = progress;
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.delay = delay;
+  }
+
+  /**
+   * Getter for the line.
+   *
+   * @return line whose vehicle it is
+   */
+  public Line getLine() {
+    return line;
+  }
+
+  /**
+   * Getter for the vehicle.
+   *
+   * @return the vehicle
+   */
+  public TransportationVehicle getTransportationVehicle() {
+    return line.getServingTransportationVehicle();
+  }
+
+  /**
+   * Getter for the service date.
+   *
+   * @return day on which the line operates
+   */
+  public LocalDate getServiceDate() {
+    return serviceDate;
+  }
+
+  /**
+   * Getter for the previous stop.
+   *
+   * @return stop which the vehicle left last, or at which it is
+   */
+  public Stop getPreviousStop() {
+    return line.getStops().get(previousStopIndex);
+  }
+
+  /**
+   * Getter for the next stop.
+   *
+   * @return stop to which the vehicle travels
+   */
+  public Stop getNextStop() {
+    return line.getStops().get(previousStopIndex + 1);
+  }
+
+  /**
+   * Getter for the progress.
+   *
+   * @return part of the way to the next stop which the vehicle travelled, from 0 to 1
+   */
+  public double getProgress() {
+    return progress;
+  }
+
+  /**
+   * Getter for the latitude.
+   *
+   * @return latitude of the vehicle in degrees
+   */
+  public double getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Getter for the longitude.
+   *
+   * @return longitude of the vehicle in degrees
+   */
+  public double getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Getter for the delay.
+   *
+   * @return delay of the vehicle in minutes
+   */
+  public int getDelay() {
+    return delay;
+  }
+
+  @Override
+  public String toString() {
+    return line.getName() + " " + getPreviousStop().getName() + " -> "
+        + getNextStop().getName() + " " + Math.round(progress * 100) + "% (" + latitude + ", "
+        + longitude + ")";
+  }
+}
@@ -0,0 +1,169 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * All scheduled stop events of one station, sorted by their time of the day.
+ *
+ * <p>A departure query only visits the dates overlapping its time window. For every date it
+ * binary-searches the start of the window and walks forward until the window closes, testing
+ * the {@link ServiceCalendar} of each stop event. Subclasses decide how the stop events are
+ * stored.
+ */
+abstract class AbstractStationBoard {
+
+  static final int MINUTES_PER_DAY = 24 * 60;
+
+  /**
+   * Minute of the day of every stop event, sorted ascending within [from, to).
+   */
+  private final int[] minutesOfDay;
+  /**
+   * Index of the first stop event of the station in {@link #minutesOfDay}.
+   */
+  private final int from;
+  /**
+   * Index after the last stop event of the station in {@link #minutesOfDay}.
+   */
+  private final int to;
+
+  /**
+   * Constructor.
+   * @param minutesOfDay minute of the day of the stop events, sorted ascending within the range
+   * @param from         index of the first stop event of the station
+   * @param to           index after the last stop event of the station
+   */
+  AbstractStationBoard(int[] minutesOfDay, int from, int to) {
+    this.minutesOfDay = minutesOfDay;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * Returns the scheduled time of a stop event, which may lie within its minute of the day.
+   * @param event index of the stop event
+   * @return second of the day
+   */
+  abstract int getSecondOfDay(int event);
+
+  /**
+   * Returns the vehicle serving a stop event.
+   * @param event index of the stop event
+   * @return the vehicle
+   */
+  abstract TransportationVehicle getVehicle(int event);
+
+  /**
+   * Returns the days on which a stop event takes place.
+   * @param event index of the stop event
+   * @return the calendar of the line
+   */
+  abstract ServiceCalendar getServiceCalendar(int event);
+
+  /**
+   * Creates the departure of a stop event.
+   * @param event               index of the stop event
+   * @param time                concrete time of the departure
+   * @param currentTimeDelegate delegate passed to the departure
+   * @return the departure
+   */
+  abstract Departure createDeparture(int event, LocalDateTime time,
+      ControllerCurrentTimeDelegate currentTimeDelegate);
+
+  /**
+   * Returns the biggest delay of all vehicles serving the station.
+   * @return max delay in minutes, at least 0
+   */
+  abstract int getMaxDelay();
+
+  /**
+   * Adds the departures within the time window of the cursor to the list, in ascending order of
+   * their concrete time. The walk starts at the position of the cursor and stops as soon as
+   * limit departures were added.
+   *
+   * @param position            Query and the position to start from
+   * @param limit               The max number of departures to be added
+   * @param currentTimeDelegate Delegate passed to the created departures
+   * @param departures          List the departures are added to
+   * @return cursor at the next stop event to look at, null if the time window is exhausted
+   */
+  DepartureCursor collectDepartures(DepartureCursor position, int limit,
+      ControllerCurrentTimeDelegate currentTimeDelegate, List<Departure> departures) {
+    LocalDateTime date = position.getDate();
+    long rangeInMinutes = position.getRangeInMinutes();
+    LocalDateTime dayStart = date.toLocalDate().atStartOfDay();
+    long firstEpochDay = date.toLocalDate().toEpochDay();
+    long dateMinute = ChronoUnit.MINUTES.between(dayStart, date);
+    long lastMinute = dateMinute + rangeInMinutes + 1;
+    long firstMinute;
+    int skip;
+    if (position.isWindowStart()) {
+      // Delayed departures are shown until they actually left, so start looking earlier
+      firstMinute = dateMinute - getMaxDelay();
+      skip = 0;
+    } else {
+      firstMinute = position.getMinute();
+      skip = position.getSkip();
+    }
+
+    int added = 0;
+    // Only visit the dates which overlap the time window
+    for (long day = Math.floorDiv(firstMinute, MINUTES_PER_DAY);
+        day <= Math.floorDiv(lastMinute, MINUTES_PER_DAY); day++) {
+      long dayOffset = day * MINUTES_PER_DAY;
+      long epochDay = firstEpochDay + day;
+      int i = lowerBound((int) Math.max(firstMinute - dayOffset, 0));
+      // Skip the events at the start minute which an earlier page already looked at
+      for (; skip > 0 && i < to && minutesOfDay[i] + dayOffset == firstMinute; skip--) {
+        i++;
+      }
+      skip = 0;
+
+      for (; i < to && minutesOfDay[i] + dayOffset <= lastMinute; i++) {
+        if (added >= limit) {
+          return position.continueAt(minutesOfDay[i] + dayOffset,
+              i - lowerBound(minutesOfDay[i]));
+        }
+        TransportationVehicle vehicle = getVehicle(i);
+        if (!vehicle.isFunctional() || !getServiceCalendar(i).runsOn(epochDay)) {
+          continue;
+        }
+
+        LocalDateTime time = dayStart.plusSeconds(dayOffset * 60 + getSecondOfDay(i));
+        if (// Make sure the time is after the planned time + delay
+            date.isBefore(time.plusMinutes(vehicle.getDelay()))
+                // Make sure the departure is within the range in minutes
+                && ChronoUnit.MINUTES.between(date, time) <= rangeInMinutes) {
+          departures.add(createDeparture(i, time, currentTimeDelegate));
+          added++;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the index of the first stop event at or after the given minute of the day.
+   * @param minuteOfDay minute of the day
+   * @return index of the first stop event not before the minute
+   */
+  private int lowerBound(int minuteOfDay) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (minutesOfDay[middle] < minuteOfDay) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
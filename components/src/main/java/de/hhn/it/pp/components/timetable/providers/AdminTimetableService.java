@@ -21,8 +21,10 @@ public interface AdminTimetableService {
    * @param line The line to add.
    * @return Id of the Line
    * @throws LineAlreadyServedException when line already was added
+   * @throws TransportationVehicleBusyException when the vehicle of the line serves another line
+   *                                            at the same time
    */
-  int addLine(Line line) throws LineAlreadyServedException;
+  int addLine(Line line) throws LineAlreadyServedException, TransportationVehicleBusyException;
 
   /**
    * Adds multiple lines.
@@ -0,0 +1,308 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary file with the whole state of a timetable service: stations, lines with their stops,
+ * service calendars and vehicles. Reading the file takes a fraction of the time of importing a
+ * GTFS feed again, e.g. when the service is restarted.
+ *
+ * <p>The file starts with a header of a magic number, the version of the format, the length of
+ * the payload and its CRC32C checksum. Files of another version and truncated or changed files
+ * are rejected. The payload holds the calendar and vehicle tables followed by the columns of a
+ * {@link ColumnarTimetable}, which are copied in bulk from a memory mapping of the file. Station
+ * boards and search indexes are not stored, they are built on the first query.
+ *
+ * <p>A file is always read as {@link ColumnarTimetableService}. Stations, lines and vehicles
+ * keep their ids, unless some of them were removed from a {@link SimpleTimetableService} or
+ * vehicles were removed from a {@link ColumnarTimetableService} before writing. Then the
+ * remaining ones are numbered again in the order of their ids. Listeners are not written.
+ */
+public final class BinaryTimetableFile {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(BinaryTimetableFile.class);
+
+  /**
+   * "PTTF", public transport timetable file.
+   */
+  private static final int MAGIC = 0x50545446;
+  /**
+   * Version of the format, must be counted up on every change of the format.
+   */
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 20;
+  /**
+   * Epoch day of an open period of validity.
+   */
+  private static final int NO_DAY = Integer.MIN_VALUE;
+
+  private BinaryTimetableFile() {
+  }
+
+  /**
+   * Writes the state of a service to a file. The file is replaced only after it was written
+   * completely.
+   *
+   * @param service the service
+   * @param file    the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(SimpleTimetableService service, Path file) throws IOException {
+    ColumnarTimetable timetable = new ColumnarTimetable();
+    BitSet registeredStations = new BitSet();
+    for (Station station : service.getStations()) {
+      registeredStations.set(timetable.stationIndex(station));
+    }
+    for (Line line : service.getLines()) {
+      timetable.addTrip(line);
+    }
+    write(timetable, registeredStations, service.getTransportationVehicles(), file);
+  }
+
+  /**
+   * Writes the state of a service to a file. The file is replaced only after it was written
+   * completely.
+   *
+   * @param service the service
+   * @param file    the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(ColumnarTimetableService service, Path file) throws IOException {
+    write(service.getTimetable(), service.getRegisteredStations(), service.getVehicles(), file);
+  }
+
+  /**
+   * Reads the state of a service from a file.
+   *
+   * @param file the file
+   * @return a new service with the stations, lines and vehicles of the file
+   * @throws IOException if the file cannot be read, is of another version or is corrupt
+   */
+  public static ColumnarTimetableService read(Path file) throws IOException {
+    logger.info("read {}", file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large: " + size + " bytes");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (size < HEADER_SIZE || buffer.getInt() != MAGIC) {
+        throw new IOException(file + " is not a timetable file");
+      }
+      int version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IOException(file + " has version " + version + ", expected " + VERSION);
+      }
+      long payloadLength = buffer.getLong();
+      int checksum = buffer.getInt();
+      if (payloadLength != size - HEADER_SIZE) {
+        throw new IOException(file + " has " + (size - HEADER_SIZE) + " bytes of payload, "
+            + "expected " + payloadLength);
+      }
+      CRC32C crc = new CRC32C();
+      crc.update(buffer.duplicate());
+      if ((int) crc.getValue() != checksum) {
+        throw new IOException(file + " is corrupt, the checksum does not match");
+      }
+
+      try {
+        ColumnarTimetableService service = read(buffer);
+        if (buffer.hasRemaining()) {
+          throw new IllegalArgumentException(buffer.remaining() + " bytes left");
+        }
+        return service;
+      } catch (RuntimeException e) {
+        throw new IOException(file + " is corrupt", e);
+      }
+    }
+  }
+
+  private static void write(ColumnarTimetable timetable, BitSet registeredStations,
+      Iterable<TransportationVehicle> registeredVehicles, Path file) throws IOException {
+    logger.info("write {} with {} trips", file, timetable.getTripCount());
+    // Tables of all calendars and vehicles used by the trips or added to the service
+    IdentityHashMap<ServiceCalendar, Integer> calendarIds = new IdentityHashMap<>();
+    List<ServiceCalendar> calendars = new ArrayList<>();
+    IdentityHashMap<TransportationVehicle, Integer> vehicleIds = new IdentityHashMap<>();
+    List<TransportationVehicle> vehicles = new ArrayList<>();
+    List<Integer> registered = new ArrayList<>();
+    for (TransportationVehicle vehicle : registeredVehicles) {
+      registered.add(tableIndex(vehicle, vehicleIds, vehicles));
+    }
+    for (int trip = 0; trip < timetable.getTripCount(); trip++) {
+      tableIndex(timetable.getTripCalendar(trip), calendarIds, calendars);
+      tableIndex(timetable.getTripVehicle(trip), vehicleIds, vehicles);
+    }
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      channel.position(HEADER_SIZE);
+      CRC32C crc = new CRC32C();
+      DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+
+      out.writeInt(calendars.size());
+      for (ServiceCalendar calendar : calendars) {
+        writeCalendar(out, calendar);
+      }
+      out.writeInt(vehicles.size());
+      for (TransportationVehicle vehicle : vehicles) {
+        out.writeInt(vehicle.getType() == null ? -1 : vehicle.getType().ordinal());
+        out.writeInt(vehicle.getDelay());
+        out.writeInt(vehicle.isFunctional() ? 1 : 0);
+      }
+      out.writeInt(registered.size());
+      for (int vehicle : registered) {
+        out.writeInt(vehicle);
+      }
+      long[] stations = registeredStations.toLongArray();
+      out.writeInt(stations.length);
+      for (long word : stations) {
+        out.writeLong(word);
+      }
+      timetable.write(out,
+          calendar -> calendar == null ? -1 : calendarIds.get(calendar),
+          vehicle -> vehicle == null ? -1 : vehicleIds.get(vehicle));
+      out.flush();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+          .putInt(MAGIC)
+          .putInt(VERSION)
+          .putLong(channel.position() - HEADER_SIZE)
+          .putInt((int) crc.getValue());
+      header.flip();
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static ColumnarTimetableService read(ByteBuffer in) {
+    List<ServiceCalendar> calendars = new ArrayList<>();
+    int calendarCount = in.getInt();
+    for (int i = 0; i < calendarCount; i++) {
+      calendars.add(readCalendar(in));
+    }
+    List<TransportationVehicle> vehicles = new ArrayList<>();
+    int vehicleCount = in.getInt();
+    for (int i = 0; i < vehicleCount; i++) {
+      int type = in.getInt();
+      vehicles.add(new TransportationVehicle(
+          type < 0 ? null : TransportationVehicleType.values()[type])
+          .setDelay(in.getInt())
+          .setFunctional(in.getInt() != 0));
+    }
+    EntityTable<TransportationVehicle> registeredVehicles = new EntityTable<>();
+    int registeredCount = in.getInt();
+    for (int i = 0; i < registeredCount; i++) {
+      registeredVehicles.add(vehicles.get(in.getInt()));
+    }
+    long[] stations = new long[in.getInt()];
+    for (int i = 0; i < stations.length; i++) {
+      stations[i] = in.getLong();
+    }
+    BitSet registeredStations = BitSet.valueOf(stations);
+
+    ColumnarTimetable timetable = ColumnarTimetable.read(in, calendars, vehicles);
+    if (registeredStations.length() > timetable.getStationCount()) {
+      throw new IllegalArgumentException(
+          "Invalid station: " + (registeredStations.length() - 1));
+    }
+    return new ColumnarTimetableService(timetable, registeredStations, registeredVehicles);
+  }
+
+  private static void writeCalendar(DataOutputStream out, ServiceCalendar calendar)
+      throws IOException {
+    int servingDays = 0;
+    for (DayOfWeek day : calendar.getServingDays()) {
+      servingDays |= 1 << day.ordinal();
+    }
+    out.writeInt(servingDays);
+    out.writeInt(epochDay(calendar.getFirstDay()));
+    out.writeInt(epochDay(calendar.getLastDay()));
+    List<LocalDate> exceptionDates = calendar.getExceptionDates();
+    out.writeInt(exceptionDates.size());
+    for (LocalDate date : exceptionDates) {
+      out.writeInt(epochDay(date));
+      out.writeInt(calendar.runsOn(date) ? 1 : 0);
+    }
+  }
+
+  private static ServiceCalendar readCalendar(ByteBuffer in) {
+    int servingDayBits = in.getInt();
+    EnumSet<DayOfWeek> servingDays = EnumSet.noneOf(DayOfWeek.class);
+    for (DayOfWeek day : DayOfWeek.values()) {
+      if ((servingDayBits & 1 << day.ordinal()) != 0) {
+        servingDays.add(day);
+      }
+    }
+    ServiceCalendar calendar =
+        new ServiceCalendar(servingDays, date(in.getInt()), date(in.getInt()));
+    int exceptionCount = in.getInt();
+    for (int i = 0; i < exceptionCount; i++) {
+      LocalDate date = date(in.getInt());
+      if (in.getInt() != 0) {
+        calendar.addDate(date);
+      } else {
+        calendar.removeDate(date);
+      }
+    }
+    return calendar;
+  }
+
+  private static int epochDay(LocalDate date) {
+    return date == null ? NO_DAY : Math.toIntExact(date.toEpochDay());
+  }
+
+  private static LocalDate date(int epochDay) {
+    return epochDay == NO_DAY ? null : LocalDate.ofEpochDay(epochDay);
+  }
+
+  /**
+   * Returns the index of an item in a table, adding it if it is not yet in the table.
+   */
+  private static <T> int tableIndex(T item, IdentityHashMap<T, Integer> indices, List<T> table) {
+    if (item == null) {
+      return -1;
+    }
+    Integer index = indices.get(item);
+    if (index == null) {
+      index = table.size();
+      table.add(item);
+      indices.put(item, index);
+    }
+    return index;
+  }
+}
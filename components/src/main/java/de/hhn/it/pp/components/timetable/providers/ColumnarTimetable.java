@@ -0,0 +1,603 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Storage of the {@link ColumnarTimetableService}. Every line is stored as a trip and all of
+ * its stops as stop events in parallel primitive columns, instead of {@link Line}, {@link Stop}
+ * and {@link LocalTime} objects. Names are stored once in a string table.
+ *
+ * <p>The stop events of every station are additionally kept sorted by minute of the day in one
+ * shared array, next to the vehicles serving the station. This index is rebuilt on the first
+ * query after a change.
+ *
+ * <p>A removed trip keeps its index, but its stop events are dropped from the columns once the
+ * events of removed trips make up half of them.
+ *
+ * <p>The columns can be written to and read from a {@link BinaryTimetableFile}.
+ */
+class ColumnarTimetable {
+
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int STATION_TRAVEL_CENTER = 1;
+  private static final int STATION_STEP_FREE_ACCESS = 2;
+  private static final int STATION_TOILETS = 4;
+
+  // String table
+  private final ArrayList<String> strings = new ArrayList<>();
+  /**
+   * Ids of the strings, created on the first lookup after the columns were read from a file.
+   */
+  private HashMap<String, Integer> stringIds = new HashMap<>();
+
+  // Station table
+  private final ArrayList<Station> stations = new ArrayList<>();
+  private final HashMap<Station, Integer> stationIndices = new HashMap<>();
+
+  // Trip columns
+  private int tripCount;
+  private int[] tripNames = new int[INITIAL_CAPACITY];
+  private ServiceCalendar[] tripCalendars = new ServiceCalendar[INITIAL_CAPACITY];
+  private TransportationVehicle[] tripVehicles = new TransportationVehicle[INITIAL_CAPACITY];
+  private int[] tripFirstEvents = new int[INITIAL_CAPACITY];
+  private int[] tripEventCounts = new int[INITIAL_CAPACITY];
+  private final BitSet removedTrips = new BitSet();
+  /**
+   * Stop events of removed trips still in the columns.
+   */
+  private int removedEventCount;
+
+  // Stop event columns
+  private int eventCount;
+  private int[] eventSeconds = new int[INITIAL_CAPACITY];
+  private int[] eventStations = new int[INITIAL_CAPACITY];
+  private int[] eventTrips = new int[INITIAL_CAPACITY];
+  private int[] eventSequences = new int[INITIAL_CAPACITY];
+  private int[] eventNames = new int[INITIAL_CAPACITY];
+
+  // Station boards: stop events grouped by station and sorted by minute of the day
+  private boolean boardsValid;
+  private int[] boardOffsets;
+  private int[] boardEvents;
+  private int[] boardMinutes;
+  /**
+   * All vehicles serving each station, needed to find the biggest current delay. The vehicles
+   * of station i are at boardVehicleOffsets[i] until boardVehicleOffsets[i + 1].
+   */
+  private int[] boardVehicleOffsets;
+  private TransportationVehicle[] boardVehicles;
+
+  /**
+   * Returns the index of a station, adding it to the station table if it is not yet known.
+   * @param station the station
+   * @return index of the station
+   */
+  int stationIndex(Station station) {
+    Integer index = stationIndices.get(station);
+    if (index == null) {
+      index = stations.size();
+      stations.add(station);
+      stationIndices.put(station, index);
+      boardsValid = false;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the station with the given index.
+   * @param index index of the station
+   * @return the station
+   */
+  Station getStation(int index) {
+    return stations.get(index);
+  }
+
+  /**
+   * Getter for the station count.
+   * @return number of stations in the station table
+   */
+  int getStationCount() {
+    return stations.size();
+  }
+
+  /**
+   * Copies a line and its current stops into the columns.
+   * @param line line to add
+   * @return index of the trip
+   */
+  int addTrip(Line line) {
+    List<Stop> stops = line.getStops();
+    if (tripCount == tripNames.length) {
+      int capacity = tripCount * 2;
+      tripNames = Arrays.copyOf(tripNames, capacity);
+      tripCalendars = Arrays.copyOf(tripCalendars, capacity);
+      tripVehicles = Arrays.copyOf(tripVehicles, capacity);
+      tripFirstEvents = Arrays.copyOf(tripFirstEvents, capacity);
+      tripEventCounts = Arrays.copyOf(tripEventCounts, capacity);
+    }
+    int trip = tripCount++;
+    tripNames[trip] = stringId(line.getName());
+    tripCalendars[trip] = line.getServiceCalendar();
+    tripVehicles[trip] = line.getServingTransportationVehicle();
+    tripFirstEvents[trip] = eventCount;
+    tripEventCounts[trip] = stops.size();
+
+    ensureEventCapacity(eventCount + stops.size());
+    for (int sequence = 0; sequence < stops.size(); sequence++) {
+      Stop stop = stops.get(sequence);
+      eventSeconds[eventCount] = stop.getTime().toSecondOfDay();
+      eventStations[eventCount] = stationIndex(stop.getStation());
+      eventTrips[eventCount] = trip;
+      eventSequences[eventCount] = sequence;
+      eventNames[eventCount] = stringId(stop.getName());
+      eventCount++;
+    }
+    boardsValid = false;
+    return trip;
+  }
+
+  /**
+   * Removes a trip. Its stop events are no longer part of any board and are dropped from the
+   * columns later.
+   * @param trip index of the trip
+   */
+  void removeTrip(int trip) {
+    removedTrips.set(trip);
+    removedEventCount += tripEventCounts[trip];
+    tripEventCounts[trip] = 0;
+    tripCalendars[trip] = null;
+    tripVehicles[trip] = null;
+    boardsValid = false;
+    if (removedEventCount * 2 > eventCount) {
+      compactEvents();
+    }
+  }
+
+  /**
+   * Checker if a trip exists.
+   * @param trip index of the trip
+   * @return true if the trip was added and not removed
+   */
+  boolean isTrip(int trip) {
+    return trip >= 0 && trip < tripCount && !removedTrips.get(trip);
+  }
+
+  /**
+   * Getter for the trip count.
+   * @return number of trips ever added, including removed ones
+   */
+  int getTripCount() {
+    return tripCount;
+  }
+
+  /**
+   * Returns the name of a trip.
+   * @param trip index of the trip
+   * @return name of the line
+   */
+  String getTripName(int trip) {
+    return strings.get(tripNames[trip]);
+  }
+
+  /**
+   * Checker if a trip has the given name, without comparing strings.
+   * @param trip index of the trip
+   * @param name the name
+   * @return true if the trip has the name
+   */
+  boolean hasTripName(int trip, String name) {
+    Integer nameId = stringIds().get(name);
+    return nameId != null && tripNames[trip] == nameId;
+  }
+
+  /**
+   * Creates a frozen line with all stops of a trip.
+   * @param trip index of the trip
+   * @return a new line object
+   */
+  Line materializeTrip(int trip) {
+    Line line = new Line(strings.get(tripNames[trip]), tripCalendars[trip], tripVehicles[trip]);
+    int firstEvent = tripFirstEvents[trip];
+    for (int event = firstEvent; event < firstEvent + tripEventCounts[trip]; event++) {
+      line.createStop(LocalTime.ofSecondOfDay(eventSeconds[event]),
+          stations.get(eventStations[event]), strings.get(eventNames[event]));
+    }
+    return line.freeze();
+  }
+
+  /**
+   * Returns the calendar of a trip.
+   * @param trip index of the trip
+   * @return calendar of the line
+   */
+  ServiceCalendar getTripCalendar(int trip) {
+    return tripCalendars[trip];
+  }
+
+  /**
+   * Returns the vehicle of a trip.
+   * @param trip index of the trip
+   * @return vehicle serving the line
+   */
+  TransportationVehicle getTripVehicle(int trip) {
+    return tripVehicles[trip];
+  }
+
+  /**
+   * Writes the string table, the station table and all columns, see
+   * {@link BinaryTimetableFile}. Removed trips are written without stop events, so that trips
+   * keep their index.
+   * @param out the output
+   * @param calendarIds index of a calendar in the calendar table of the file
+   * @param vehicleIds index of a vehicle in the vehicle table of the file
+   * @throws IOException if writing fails
+   */
+  void write(DataOutput out, ToIntFunction<ServiceCalendar> calendarIds,
+      ToIntFunction<TransportationVehicle> vehicleIds) throws IOException {
+    if (removedEventCount > 0) {
+      compactEvents();
+    }
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+    out.writeInt(stations.size());
+    for (Station station : stations) {
+      writeString(out, station.getName());
+      out.writeInt((station.isTravelCenter() ? STATION_TRAVEL_CENTER : 0)
+          | (station.isStepFreeAccess() ? STATION_STEP_FREE_ACCESS : 0)
+          | (station.isToilets() ? STATION_TOILETS : 0));
+      out.writeDouble(station.getLatitude());
+      out.writeDouble(station.getLongitude());
+    }
+
+    out.writeInt(tripCount);
+    writeInts(out, tripNames, tripCount);
+    for (int trip = 0; trip < tripCount; trip++) {
+      out.writeInt(calendarIds.applyAsInt(tripCalendars[trip]));
+    }
+    for (int trip = 0; trip < tripCount; trip++) {
+      out.writeInt(vehicleIds.applyAsInt(tripVehicles[trip]));
+    }
+    writeInts(out, tripEventCounts, tripCount);
+    long[] removed = removedTrips.toLongArray();
+    out.writeInt(removed.length);
+    for (long word : removed) {
+      out.writeLong(word);
+    }
+
+    out.writeInt(eventCount);
+    writeInts(out, eventSeconds, eventCount);
+    writeInts(out, eventStations, eventCount);
+    writeInts(out, eventNames, eventCount);
+  }
+
+  /**
+   * Reads a timetable written by {@link #write(DataOutput, ToIntFunction, ToIntFunction)}. The
+   * columns are copied from the buffer in bulk, the station boards and the lookup of string ids
+   * are built when they are first needed.
+   * @param in buffer positioned at the string table
+   * @param calendars calendar table of the file
+   * @param vehicles vehicle table of the file
+   * @return the timetable
+   * @throws IllegalArgumentException if the columns are inconsistent
+   */
+  static ColumnarTimetable read(ByteBuffer in, List<ServiceCalendar> calendars,
+      List<TransportationVehicle> vehicles) {
+    ColumnarTimetable timetable = new ColumnarTimetable();
+    int stringCount = in.getInt();
+    timetable.strings.ensureCapacity(stringCount);
+    for (int i = 0; i < stringCount; i++) {
+      timetable.strings.add(readString(in));
+    }
+    timetable.stringIds = null;
+    int stationCount = in.getInt();
+    for (int i = 0; i < stationCount; i++) {
+      String name = readString(in);
+      int flags = in.getInt();
+      double latitude = in.getDouble();
+      double longitude = in.getDouble();
+      timetable.stationIndex(new Station(name, (flags & STATION_TRAVEL_CENTER) != 0,
+          (flags & STATION_STEP_FREE_ACCESS) != 0, (flags & STATION_TOILETS) != 0, latitude,
+          longitude));
+    }
+
+    int tripCount = in.getInt();
+    timetable.tripCount = tripCount;
+    timetable.tripNames = readInts(in, tripCount);
+    checkRange(timetable.tripNames, tripCount, stringCount, "string");
+    int[] calendarIds = readInts(in, tripCount);
+    int[] vehicleIds = readInts(in, tripCount);
+    timetable.tripCalendars = new ServiceCalendar[calendarIds.length];
+    timetable.tripVehicles = new TransportationVehicle[vehicleIds.length];
+    for (int trip = 0; trip < tripCount; trip++) {
+      timetable.tripCalendars[trip] =
+          calendarIds[trip] < 0 ? null : calendars.get(calendarIds[trip]);
+      timetable.tripVehicles[trip] = vehicleIds[trip] < 0 ? null : vehicles.get(vehicleIds[trip]);
+    }
+    timetable.tripEventCounts = readInts(in, tripCount);
+    long[] removed = new long[in.getInt()];
+    for (int i = 0; i < removed.length; i++) {
+      removed[i] = in.getLong();
+    }
+    timetable.removedTrips.or(BitSet.valueOf(removed));
+    timetable.tripFirstEvents = new int[calendarIds.length];
+    int firstEvent = 0;
+    for (int trip = 0; trip < tripCount; trip++) {
+      timetable.tripFirstEvents[trip] = firstEvent;
+      firstEvent = Math.addExact(firstEvent, timetable.tripEventCounts[trip]);
+    }
+
+    int eventCount = in.getInt();
+    if (eventCount != firstEvent) {
+      throw new IllegalArgumentException(
+          "Trips have " + firstEvent + " stop events, but " + eventCount + " were written");
+    }
+    timetable.eventCount = eventCount;
+    timetable.eventSeconds = readInts(in, eventCount);
+    checkRange(timetable.eventSeconds, eventCount, 24 * 60 * 60, "second of the day");
+    timetable.eventStations = readInts(in, eventCount);
+    checkRange(timetable.eventStations, eventCount, stationCount, "station");
+    timetable.eventNames = readInts(in, eventCount);
+    checkRange(timetable.eventNames, eventCount, stringCount, "string");
+    timetable.eventTrips = new int[timetable.eventSeconds.length];
+    timetable.eventSequences = new int[timetable.eventSeconds.length];
+    for (int trip = 0; trip < tripCount; trip++) {
+      int first = timetable.tripFirstEvents[trip];
+      for (int sequence = 0; sequence < timetable.tripEventCounts[trip]; sequence++) {
+        timetable.eventTrips[first + sequence] = trip;
+        timetable.eventSequences[first + sequence] = sequence;
+      }
+    }
+    // Files of older versions still hold the stop events of removed trips
+    for (int trip = timetable.removedTrips.nextSetBit(0); trip >= 0 && trip < tripCount;
+        trip = timetable.removedTrips.nextSetBit(trip + 1)) {
+      timetable.removedEventCount += timetable.tripEventCounts[trip];
+      timetable.tripEventCounts[trip] = 0;
+      timetable.tripCalendars[trip] = null;
+      timetable.tripVehicles[trip] = null;
+    }
+    timetable.boardsValid = false;
+    return timetable;
+  }
+
+  /**
+   * Returns the time-sorted stop events of a station.
+   * @param stationIndex index of the station
+   * @return board of the station
+   */
+  AbstractStationBoard getBoard(int stationIndex) {
+    if (!boardsValid) {
+      buildBoards();
+    }
+    if (stationIndex >= stations.size()) {
+      return new ColumnarStationBoard(0, 0, 0, 0);
+    }
+    return new ColumnarStationBoard(boardOffsets[stationIndex], boardOffsets[stationIndex + 1],
+        boardVehicleOffsets[stationIndex], boardVehicleOffsets[stationIndex + 1]);
+  }
+
+  /**
+   * Moves the stop events of all trips which were not removed to the front of the columns, in
+   * the order of the trips.
+   */
+  private void compactEvents() {
+    int target = 0;
+    for (int trip = 0; trip < tripCount; trip++) {
+      int first = tripFirstEvents[trip];
+      int count = tripEventCounts[trip];
+      if (first != target && count > 0) {
+        System.arraycopy(eventSeconds, first, eventSeconds, target, count);
+        System.arraycopy(eventStations, first, eventStations, target, count);
+        System.arraycopy(eventTrips, first, eventTrips, target, count);
+        System.arraycopy(eventSequences, first, eventSequences, target, count);
+        System.arraycopy(eventNames, first, eventNames, target, count);
+      }
+      tripFirstEvents[trip] = target;
+      target += count;
+    }
+    eventCount = target;
+    removedEventCount = 0;
+    int capacity = Math.max(eventCount, INITIAL_CAPACITY);
+    if (eventSeconds.length > 2 * capacity) {
+      eventSeconds = Arrays.copyOf(eventSeconds, capacity);
+      eventStations = Arrays.copyOf(eventStations, capacity);
+      eventTrips = Arrays.copyOf(eventTrips, capacity);
+      eventSequences = Arrays.copyOf(eventSequences, capacity);
+      eventNames = Arrays.copyOf(eventNames, capacity);
+    }
+    boardsValid = false;
+  }
+
+  /**
+   * Groups the stop events of all trips by station and sorts every group by minute of the day.
+   */
+  private void buildBoards() {
+    boardOffsets = new int[stations.size() + 1];
+    for (int event = 0; event < eventCount; event++) {
+      if (!removedTrips.get(eventTrips[event])) {
+        boardOffsets[eventStations[event] + 1]++;
+      }
+    }
+    for (int station = 0; station < stations.size(); station++) {
+      boardOffsets[station + 1] += boardOffsets[station];
+    }
+
+    // Second and event packed into one long, so sorting a group sorts both
+    long[] packed = new long[boardOffsets[stations.size()]];
+    int[] next = Arrays.copyOf(boardOffsets, stations.size());
+    for (int event = 0; event < eventCount; event++) {
+      if (!removedTrips.get(eventTrips[event])) {
+        packed[next[eventStations[event]]++] = (long) eventSeconds[event] << 32 | event;
+      }
+    }
+    boardEvents = new int[packed.length];
+    boardMinutes = new int[packed.length];
+    for (int station = 0; station < stations.size(); station++) {
+      Arrays.sort(packed, boardOffsets[station], boardOffsets[station + 1]);
+    }
+    for (int i = 0; i < packed.length; i++) {
+      boardMinutes[i] = (int) (packed[i] >>> 32) / 60;
+      boardEvents[i] = (int) packed[i];
+    }
+
+    // Every vehicle once per station, found by the last station it was seen at
+    boardVehicleOffsets = new int[stations.size() + 1];
+    boardVehicles = new TransportationVehicle[INITIAL_CAPACITY];
+    HashMap<TransportationVehicle, Integer> lastStations = new HashMap<>();
+    int vehicleCount = 0;
+    for (int station = 0; station < stations.size(); station++) {
+      for (int i = boardOffsets[station]; i < boardOffsets[station + 1]; i++) {
+        TransportationVehicle vehicle = tripVehicles[eventTrips[boardEvents[i]]];
+        if (vehicle != null) {
+          Integer lastStation = lastStations.put(vehicle, station);
+          if (lastStation == null || lastStation != station) {
+            if (vehicleCount == boardVehicles.length) {
+              boardVehicles = Arrays.copyOf(boardVehicles, vehicleCount * 2);
+            }
+            boardVehicles[vehicleCount++] = vehicle;
+          }
+        }
+      }
+      boardVehicleOffsets[station + 1] = vehicleCount;
+    }
+    boardsValid = true;
+  }
+
+  private void ensureEventCapacity(int capacity) {
+    if (capacity > eventSeconds.length) {
+      int newCapacity = Math.max(capacity, eventSeconds.length * 2);
+      eventSeconds = Arrays.copyOf(eventSeconds, newCapacity);
+      eventStations = Arrays.copyOf(eventStations, newCapacity);
+      eventTrips = Arrays.copyOf(eventTrips, newCapacity);
+      eventSequences = Arrays.copyOf(eventSequences, newCapacity);
+      eventNames = Arrays.copyOf(eventNames, newCapacity);
+    }
+  }
+
+  private int stringId(String string) {
+    Integer id = stringIds().get(string);
+    if (id == null) {
+      id = strings.size();
+      strings.add(string);
+      stringIds.put(string, id);
+    }
+    return id;
+  }
+
+  private static void writeString(DataOutput out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeInts(DataOutput out, int[] values, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.writeInt(values[i]);
+    }
+  }
+
+  /**
+   * Copies a column from the buffer. The array is never smaller than the initial capacity, so
+   * that it can grow by doubling.
+   */
+  private static int[] readInts(ByteBuffer in, int count) {
+    int[] values = new int[Math.max(count, INITIAL_CAPACITY)];
+    in.asIntBuffer().get(values, 0, count);
+    in.position(in.position() + count * Integer.BYTES);
+    return values;
+  }
+
+  private static void checkRange(int[] values, int count, int bound, String name) {
+    for (int i = 0; i < count; i++) {
+      if (values[i] < 0 || values[i] >= bound) {
+        throw new IllegalArgumentException("Invalid " + name + ": " + values[i]);
+      }
+    }
+  }
+
+  private HashMap<String, Integer> stringIds() {
+    if (stringIds == null) {
+      stringIds = new HashMap<>(strings.size() * 2);
+      for (int id = 0; id < strings.size(); id++) {
+        stringIds.put(strings.get(id), id);
+      }
+    }
+    return stringIds;
+  }
+
+  /**
+   * Board over the slice of one station. Lines are only created for the departures that are
+   * actually returned, and only once per trip and query.
+   */
+  private class ColumnarStationBoard extends AbstractStationBoard {
+
+    private final HashMap<Integer, Line> tripLines = new HashMap<>();
+    private final int vehiclesFrom;
+    private final int vehiclesTo;
+
+    ColumnarStationBoard(int from, int to, int vehiclesFrom, int vehiclesTo) {
+      super(boardMinutes, from, to);
+      this.vehiclesFrom = vehiclesFrom;
+      this.vehiclesTo = vehiclesTo;
+    }
+
+    @Override
+    int getSecondOfDay(int event) {
+      return eventSeconds[boardEvents[event]];
+    }
+
+    @Override
+    TransportationVehicle getVehicle(int event) {
+      return tripVehicles[eventTrips[boardEvents[event]]];
+    }
+
+    @Override
+    ServiceCalendar getServiceCalendar(int event) {
+      return tripCalendars[eventTrips[boardEvents[event]]];
+    }
+
+    @Override
+    Departure createDeparture(int event, LocalDateTime time,
+        ControllerCurrentTimeDelegate currentTimeDelegate) {
+      int columnEvent = boardEvents[event];
+      int trip = eventTrips[columnEvent];
+      Line line = tripLines.computeIfAbsent(trip, key -> materializeTrip(key));
+      Stop stop = line.getStops().get(eventSequences[columnEvent]);
+      return new Departure(line, stop, time, currentTimeDelegate);
+    }
+
+    @Override
+    int getMaxDelay() {
+      int maxDelay = 0;
+      for (int i = vehiclesFrom; i < vehiclesTo; i++) {
+        maxDelay = Math.max(maxDelay, boardVehicles[i].getDelay());
+      }
+      return maxDelay;
+    }
+  }
+}
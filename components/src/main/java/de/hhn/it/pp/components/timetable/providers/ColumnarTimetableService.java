@@ -0,0 +1,581 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.TimetableService;
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DeparturePage;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Timetable service which keeps all stops in primitive columns instead of an object graph of
+ * lines and stops, see {@link ColumnarTimetable}. It is meant for large networks where the
+ * memory of the object graph matters.
+ *
+ * <p>A line is copied into the columns when it is added, stops added to the line object later
+ * are not seen by the service. {@link #getLine(int)} and the departures return new line objects
+ * created from the columns.
+ */
+public class ColumnarTimetableService implements AdminTimetableService, TimetableService,
+    LineSource {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(ColumnarTimetableService.class);
+
+  private final ColumnarTimetable timetable;
+  private final EntityTable<TransportationVehicle> vehicles;
+  /**
+   * Stations of the station table that were added with {@link #addStation(Station)}.
+   */
+  private final BitSet registeredStations;
+  /**
+   * Search indexes, null until first needed if the service was read from a file.
+   */
+  private SearchIndex<Station> stationSearchIndex;
+  private StationLocationIndex stationLocationIndex;
+  /**
+   * Trips by the name of their line.
+   */
+  private SearchIndex<Integer> tripSearchIndex;
+  /**
+   * Trips of every vehicle, null until first needed.
+   */
+  private VehicleBlocks vehicleBlocks;
+  private int lineCount;
+
+  /**
+   * Constructor of an empty service.
+   */
+  public ColumnarTimetableService() {
+    timetable = new ColumnarTimetable();
+    vehicles = new EntityTable<>();
+    registeredStations = new BitSet();
+    stationSearchIndex = new SearchIndex<>();
+    stationLocationIndex = new StationLocationIndex();
+    tripSearchIndex = new SearchIndex<>();
+  }
+
+  /**
+   * Constructor for a service read from a {@link BinaryTimetableFile}. The search indexes are
+   * built on the first search or change.
+   *
+   * @param timetable          the columns
+   * @param registeredStations stations of the station table that were added as stations
+   * @param vehicles           the added vehicles
+   */
+  ColumnarTimetableService(ColumnarTimetable timetable, BitSet registeredStations,
+      EntityTable<TransportationVehicle> vehicles) {
+    this.timetable = timetable;
+    this.registeredStations = registeredStations;
+    this.vehicles = vehicles;
+    for (int trip = 0; trip < timetable.getTripCount(); trip++) {
+      if (timetable.isTrip(trip)) {
+        lineCount++;
+      }
+    }
+  }
+
+  /**
+   * Getter for the columns.
+   * @return storage of the service
+   */
+  ColumnarTimetable getTimetable() {
+    return timetable;
+  }
+
+  /**
+   * Getter for the registered stations.
+   * @return indices of the stations that were added as stations
+   */
+  BitSet getRegisteredStations() {
+    return registeredStations;
+  }
+
+  /**
+   * Getter for the vehicles.
+   * @return the added vehicles
+   */
+  EntityTable<TransportationVehicle> getVehicles() {
+    return vehicles;
+  }
+
+  /**
+   * Returns a list of registered station containing the entered name, ignoring case and
+   * accents. Stations whose name or one of its words starts with the name come first.
+   *
+   * @param name  Name of the station
+   * @param limit The max number of stations to be returned
+   * @return List of registered stations
+   */
+  @Override
+  public List<Station> getStationsByName(String name, int limit) throws StationNotFoundException {
+    logger.info("getStationsByName requested with name {}, limit {}", name, limit);
+    List<Station> checkList = stationSearchIndex().search(name, limit);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the registered stations nearest to a location. Stations without location are left
+   * out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param limit     The max number of stations to be returned
+   * @return List of registered stations, nearest first
+   */
+  @Override
+  public List<Station> getStationsNear(double latitude, double longitude, int limit)
+      throws StationNotFoundException {
+    logger.info("getStationsNear requested with location {}, {}, limit {}", latitude, longitude,
+        limit);
+    List<Station> checkList = stationLocationIndex().nearest(latitude, longitude, limit);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the registered stations within a distance of a location. Stations without location
+   * are left out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param radius    distance from the location in meters
+   * @return List of registered stations, nearest first
+   */
+  @Override
+  public List<Station> getStationsWithin(double latitude, double longitude, double radius)
+      throws StationNotFoundException {
+    logger.info("getStationsWithin requested with location {}, {}, radius {}", latitude,
+        longitude, radius);
+    List<Station> checkList = stationLocationIndex().within(latitude, longitude, radius);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the station with the given id.
+   *
+   * @param stationId id of the station
+   * @return the station
+   */
+  @Override
+  public Station getStation(int stationId) throws StationNotFoundException {
+    logger.info("getStation requested with id {}", stationId);
+    if (stationId < 0 || !registeredStations.get(stationId)) {
+      throw new StationNotFoundException();
+    }
+    return timetable.getStation(stationId);
+  }
+
+  /**
+   * Getter for the station count.
+   *
+   * @return The total number of stations that exist
+   */
+  public int getStationCount() {
+    return registeredStations.cardinality();
+  }
+
+  /**
+   * Returns a list of registered lines containing the entered name, ignoring case and accents.
+   * Lines whose name or one of its words starts with the name come first.
+   *
+   * @param name  Name of the line
+   * @param limit The max number of stations to be returned
+   * @return List of registered stations
+   */
+  @Override
+  public List<Line> getLinesByName(String name, int limit) throws LineNotFoundException {
+    logger.info("getLinesByName requested with name {} and limit {}", name, limit);
+    List<Line> checkLine = new ArrayList<>();
+    for (int trip : tripSearchIndex().search(name, limit)) {
+      checkLine.add(timetable.materializeTrip(trip));
+    }
+    if (checkLine.size() == 0) {
+      throw new LineNotFoundException();
+    }
+    return checkLine;
+  }
+
+  /**
+   * Returns the line with the given id. The line is created from the columns on every call.
+   *
+   * @param lineId id of the line
+   * @return the line
+   * @throws LineNotFoundException if the id does not exist
+   */
+  @Override
+  public Line getLine(int lineId) throws LineNotFoundException {
+    logger.info("getLine requested with id {}", lineId);
+    if (!timetable.isTrip(lineId)) {
+      throw new LineNotFoundException();
+    }
+    return timetable.materializeTrip(lineId);
+  }
+
+  /**
+   * Returns the line whose trip a vehicle is on at a time. If one trip of the vehicle ends
+   * when the next one starts, the vehicle is on the next one. If trips of the vehicle overlap,
+   * which lines added by addLines may do, it is undefined which of them is returned.
+   *
+   * @param transportationVehicle the vehicle
+   * @param dateTime              Date and Time
+   * @return the line served by the vehicle
+   * @throws LineNotFoundException if the vehicle is on no trip at that time
+   */
+  @Override
+  public Line getServedLine(TransportationVehicle transportationVehicle,
+      LocalDateTime dateTime) throws LineNotFoundException {
+    logger.info("getServedLine requested with vehicle {}, date {}", transportationVehicle,
+        dateTime);
+    Line line = vehicleBlocks().getLine(transportationVehicle, dateTime);
+    if (line == null) {
+      throw new LineNotFoundException();
+    }
+    return line;
+  }
+
+  /**
+   * Getter for the lines.
+   *
+   * @return new line objects for all lines, ordered by their id
+   */
+  @Override
+  public List<Line> getLines() {
+    List<Line> lines = new ArrayList<>(lineCount);
+    for (int trip = 0; trip < timetable.getTripCount(); trip++) {
+      if (timetable.isTrip(trip)) {
+        lines.add(timetable.materializeTrip(trip));
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Getter for the lines count.
+   *
+   * @return The total number of lines that exist
+   */
+  public int getLinesCount() {
+    return lineCount;
+  }
+
+  /**
+   * Returns the TransportationVehicle with the given id.
+   *
+   * @param transportationVehicleId id of the TransportationVehicle
+   * @return the TransportationVehicle
+   */
+  @Override
+  public TransportationVehicle getTransportationVehicle(int transportationVehicleId) {
+    logger.info("getTransportationVehicle requested with id {}", transportationVehicleId);
+    return vehicles.get(transportationVehicleId);
+  }
+
+  /**
+   * Getter for the transportation vehicle count.
+   *
+   * @return The total number of lines that exist
+   */
+  public int getTransportationVehicleCount() {
+    return vehicles.size();
+  }
+
+  /**
+   * All lines departing at the specified date from a specific line.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @return All lines that operate in ascending order from the specified time
+   */
+  @Override
+  public ArrayList<Departure> getDepartures(int stationId, LocalDateTime date, long rangeInMinutes,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    return getDepartures(stationId, date, rangeInMinutes, Integer.MAX_VALUE, currentTimeDelegate);
+  }
+
+  /**
+   * The next departures at the specified date from a specific station, but at most limit.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @param limit          The max number of departures to be returned
+   * @return The first departures in ascending order from the specified time
+   */
+  @Override
+  public ArrayList<Departure> getDepartures(int stationId, LocalDateTime date, long rangeInMinutes,
+      int limit, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    logger.info("getDepartures requested with stationId {}, date {}, rangeInMinutes {}, limit {}",
+        stationId, date, rangeInMinutes, limit);
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    ArrayList<Departure> departures = new ArrayList<>(Math.min(limit, 64));
+
+    getStation(stationId);
+
+    timetable.getBoard(stationId).collectDepartures(
+        new DepartureCursor(stationId, date, rangeInMinutes), limit, currentTimeDelegate,
+        departures);
+
+    return departures;
+  }
+
+  /**
+   * The first page of the departures at the specified date from a specific station.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @param pageSize       The max number of departures on the page
+   * @return The first departures in ascending order and the cursor to the next page
+   */
+  @Override
+  public DeparturePage getDeparturePage(int stationId, LocalDateTime date, long rangeInMinutes,
+      int pageSize, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    logger.info("getDeparturePage requested with stationId {}, date {}, rangeInMinutes {}, "
+        + "pageSize {}", stationId, date, rangeInMinutes, pageSize);
+    return getDeparturePage(new DepartureCursor(stationId, date, rangeInMinutes), pageSize,
+        currentTimeDelegate);
+  }
+
+  /**
+   * The next page of departures, continuing exactly where the previous page stopped.
+   *
+   * @param cursor   Cursor of the previous page
+   * @param pageSize The max number of departures on the page
+   * @return The next departures in ascending order and the cursor to the next page
+   */
+  @Override
+  public DeparturePage getDeparturePage(String cursor, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    logger.info("getDeparturePage requested with cursor {}, pageSize {}", cursor, pageSize);
+    return getDeparturePage(DepartureCursor.decode(cursor), pageSize, currentTimeDelegate);
+  }
+
+  private DeparturePage getDeparturePage(DepartureCursor position, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    ArrayList<Departure> departures = new ArrayList<>(Math.min(pageSize, 64));
+
+    getStation(position.getStationId());
+
+    DepartureCursor next = timetable.getBoard(position.getStationId())
+        .collectDepartures(position, pageSize, currentTimeDelegate, departures);
+
+    return new DeparturePage(departures, next == null ? null : next.encode());
+  }
+
+  /**
+   * Adds a line. Its stops are copied, later changes of the line object are not seen.
+   *
+   * @param line The line to add.
+   * @throws LineAlreadyServedException when line was added
+   * @throws TransportationVehicleBusyException when the vehicle of the line serves another line
+   *                                            at the same time
+   * @return Id of the Line
+   */
+  @Override
+  public int addLine(Line line)
+      throws LineAlreadyServedException, TransportationVehicleBusyException {
+    logger.info("addLine with line {}", line);
+    for (int trip = 0; trip < timetable.getTripCount(); trip++) {
+      if (timetable.isTrip(trip) && timetable.hasTripName(trip, line.getName())) {
+        logger.error("addLine threw LineAlreadyServedException");
+        throw new LineAlreadyServedException();
+      }
+    }
+    Line conflict = vehicleBlocks().findConflict(line);
+    if (conflict != null) {
+      logger.error("addLine threw TransportationVehicleBusyException");
+      throw new TransportationVehicleBusyException(
+          "Vehicle of line " + line.getName() + " already serves line " + conflict.getName());
+    }
+
+    lineCount++;
+    int trip = timetable.addTrip(line);
+    tripSearchIndex().add(trip, line.getName());
+    vehicleBlocks.add(trip, timetable.materializeTrip(trip));
+    return trip;
+  }
+
+  /**
+   * Adds multiple lines without checking their names. Their stops are copied, later changes of
+   * the line objects are not seen. Lines whose vehicle serves another line at the same time are
+   * added too, their number is logged as a warning, or when the blocks of the vehicles are
+   * needed if they were not yet.
+   *
+   * @param lines list of lines to add
+   */
+  @Override
+  public void addLines(List<Line> lines) {
+    logger.info("addLines with {} lines", lines.size());
+    int conflicts = 0;
+    for (Line line : lines) {
+      int trip = timetable.addTrip(line);
+      tripSearchIndex().add(trip, line.getName());
+      if (vehicleBlocks != null) {
+        Line addedLine = timetable.materializeTrip(trip);
+        if (vehicleBlocks.findConflict(addedLine) != null) {
+          conflicts++;
+        }
+        vehicleBlocks.add(trip, addedLine);
+      }
+      lineCount++;
+    }
+    if (conflicts > 0) {
+      logger.warn("addLines added {} lines whose vehicle serves another line at the same time",
+          conflicts);
+    }
+  }
+
+  /**
+   * Removes a line.
+   *
+   * @param lineId id of the line.
+   */
+  @Override
+  public void removeLine(int lineId) throws LineNotFoundException {
+    logger.info("removeline with line {}", lineId);
+    if (!timetable.isTrip(lineId)) {
+      throw new LineNotFoundException();
+    }
+    if (vehicleBlocks != null) {
+      vehicleBlocks.remove(lineId);
+    }
+    timetable.removeTrip(lineId);
+    tripSearchIndex().remove(lineId);
+    lineCount--;
+  }
+
+  /**
+   * Adds a station. A station that is already used by a line keeps its index as id.
+   *
+   * @param station The station to add.
+   * @return id of the Station
+   */
+  @Override
+  public int addStation(Station station) {
+    logger.info("addStation with station {}", station);
+    int id = timetable.stationIndex(station);
+    registeredStations.set(id);
+    stationSearchIndex().add(station, station.getName());
+    stationLocationIndex().add(station);
+    return id;
+  }
+
+  /**
+   * Removes a station.
+   *
+   * @param stationId id of the station to be removed.
+   */
+  @Override
+  public void removeStation(int stationId) throws StationNotFoundException {
+    logger.info("removeStation with id {}", stationId);
+    Station station = getStation(stationId);
+    stationSearchIndex().remove(station);
+    stationLocationIndex().remove(station);
+    registeredStations.clear(stationId);
+  }
+
+  /**
+   * Adds a TransportationVehicle.
+   *
+   * @param transportationVehicle The TransportationVehicle to add.
+   * @return Id of the TransportationVehicle
+   */
+  @Override
+  public int addTransportationVehicle(TransportationVehicle transportationVehicle) {
+    logger.info("addTransportationVehicle with vehicle {}", transportationVehicle);
+    return vehicles.add(transportationVehicle);
+  }
+
+  /**
+   * Removes a TransportationVehicle.
+   *
+   * @param transportationVehicleId id of the transportationVehicle.
+   */
+  @Override
+  public void removeTransportationVehicle(int transportationVehicleId) {
+    logger.info("removeTransportationVehicle with vehicle {}", transportationVehicleId);
+    vehicles.remove(transportationVehicleId);
+  }
+
+  private SearchIndex<Station> stationSearchIndex() {
+    if (stationSearchIndex == null) {
+      stationSearchIndex = new SearchIndex<>();
+      for (int station = registeredStations.nextSetBit(0); station >= 0;
+          station = registeredStations.nextSetBit(station + 1)) {
+        Station registered = timetable.getStation(station);
+        stationSearchIndex.add(registered, registered.getName());
+      }
+    }
+    return stationSearchIndex;
+  }
+
+  private StationLocationIndex stationLocationIndex() {
+    if (stationLocationIndex == null) {
+      stationLocationIndex = new StationLocationIndex();
+      for (int station = registeredStations.nextSetBit(0); station >= 0;
+          station = registeredStations.nextSetBit(station + 1)) {
+        stationLocationIndex.add(timetable.getStation(station));
+      }
+    }
+    return stationLocationIndex;
+  }
+
+  private SearchIndex<Integer> tripSearchIndex() {
+    if (tripSearchIndex == null) {
+      tripSearchIndex = new SearchIndex<>();
+      for (int trip = 0; trip < timetable.getTripCount(); trip++) {
+        if (timetable.isTrip(trip)) {
+          tripSearchIndex.add(trip, timetable.getTripName(trip));
+        }
+      }
+    }
+    return tripSearchIndex;
+  }
+
+  private VehicleBlocks vehicleBlocks() {
+    if (vehicleBlocks == null) {
+      vehicleBlocks = new VehicleBlocks();
+      int conflicts = 0;
+      for (int trip = 0; trip < timetable.getTripCount(); trip++) {
+        if (timetable.isTrip(trip)) {
+          Line line = timetable.materializeTrip(trip);
+          if (vehicleBlocks.findConflict(line) != null) {
+            conflicts++;
+          }
+          vehicleBlocks.add(trip, line);
+        }
+      }
+      if (conflicts > 0) {
+        logger.warn("{} lines share their vehicle with another line at the same time",
+            conflicts);
+      }
+    }
+    return vehicleBlocks;
+  }
+}
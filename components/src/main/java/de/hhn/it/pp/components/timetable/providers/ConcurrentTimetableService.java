@@ -0,0 +1,452 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.TimetableService;
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DeparturePage;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timetable service which can be read by several threads while it is changed. All data is kept
+ * in an immutable {@link TimetableSnapshot}. Every read works on the snapshot that is current
+ * when it starts and never locks. Writers are serialized, each change creates a new snapshot
+ * and publishes it at once, so readers see either all or nothing of it.
+ *
+ * <p>Several changes can be committed together with {@link #update(TimetableChanges)}, which
+ * also avoids copying the maps once per change when many lines are added.
+ *
+ * <p>Lines are frozen when they are added, see {@link Line#freeze()}. Delays, the functional
+ * state of vehicles and the days of service calendars are not part of the snapshot, they are
+ * read from the objects when the departures are collected.
+ */
+public class ConcurrentTimetableService implements AdminTimetableService, TimetableService,
+    LineSource {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(ConcurrentTimetableService.class);
+
+  private volatile TimetableSnapshot snapshot = TimetableSnapshot.EMPTY;
+  private final Object writeLock = new Object();
+
+  /**
+   * Applies several changes and publishes them together. If the changes throw an exception,
+   * none of them is published.
+   *
+   * @param changes the changes to apply
+   * @throws LineAlreadyServedException when the changes add a line that already was added
+   * @throws TransportationVehicleBusyException when the changes add a line whose vehicle serves
+   *                                            another line at the same time
+   */
+  public void update(TimetableChanges changes)
+      throws LineAlreadyServedException, TransportationVehicleBusyException {
+    logger.info("update with changes {}", changes);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      changes.apply(editor);
+      snapshot = editor.commit();
+    }
+  }
+
+  /**
+   * Returns a list of registered station containing the entered name, ignoring case and
+   * accents. Stations whose name or one of its words starts with the name come first.
+   *
+   * @param name  Name of the station
+   * @param limit The max number of stations to be returned
+   * @return List of registered stations
+   */
+  @Override
+  public List<Station> getStationsByName(String name, int limit) throws StationNotFoundException {
+    logger.info("getStationsByName requested with name {}, limit {}", name, limit);
+    List<Station> checkList = snapshot.getStationSearchIndex().search(name, limit);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the registered stations nearest to a location. Stations without location are left
+   * out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param limit     The max number of stations to be returned
+   * @return List of registered stations, nearest first
+   */
+  @Override
+  public List<Station> getStationsNear(double latitude, double longitude, int limit)
+      throws StationNotFoundException {
+    logger.info("getStationsNear requested with location {}, {}, limit {}", latitude, longitude,
+        limit);
+    List<Station> checkList = snapshot.getStationLocationIndex()
+        .nearest(latitude, longitude, limit);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the registered stations within a distance of a location. Stations without location
+   * are left out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param radius    distance from the location in meters
+   * @return List of registered stations, nearest first
+   */
+  @Override
+  public List<Station> getStationsWithin(double latitude, double longitude, double radius)
+      throws StationNotFoundException {
+    logger.info("getStationsWithin requested with location {}, {}, radius {}", latitude,
+        longitude, radius);
+    List<Station> checkList = snapshot.getStationLocationIndex()
+        .within(latitude, longitude, radius);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the station with the given id.
+   *
+   * @param stationId id of the station
+   * @return the station
+   */
+  @Override
+  public Station getStation(int stationId) throws StationNotFoundException {
+    logger.info("getStation requested with id {}", stationId);
+    return getStation(snapshot, stationId);
+  }
+
+  private static Station getStation(TimetableSnapshot snapshot, int stationId)
+      throws StationNotFoundException {
+    Station station = snapshot.getStation(stationId);
+    if (station == null) {
+      throw new StationNotFoundException();
+    }
+    return station;
+  }
+
+  /**
+   * Getter for the station count.
+   *
+   * @return The total number of stations that exist
+   */
+  public int getStationCount() {
+    return snapshot.getStationCount();
+  }
+
+  /**
+   * Returns a list of registered lines containing the entered name, ignoring case and accents.
+   * Lines whose name or one of its words starts with the name come first.
+   *
+   * @param name  Name of the line
+   * @param limit The max number of lines to be returned
+   * @return List of registered lines
+   */
+  @Override
+  public List<Line> getLinesByName(String name, int limit) throws LineNotFoundException {
+    logger.info("getLinesByName requested with name {} and limit {}", name, limit);
+    List<Line> checkLine = snapshot.getLineSearchIndex().search(name, limit);
+    if (checkLine.size() == 0) {
+      throw new LineNotFoundException();
+    }
+    return checkLine;
+  }
+
+  /**
+   * Returns the line with the given id.
+   *
+   * @param lineId id of the line
+   * @return the line
+   * @throws LineNotFoundException if the id does not exist
+   */
+  @Override
+  public Line getLine(int lineId) throws LineNotFoundException {
+    logger.info("getLine requested with id {}", lineId);
+    Line line = snapshot.getLine(lineId);
+    if (line == null) {
+      throw new LineNotFoundException();
+    }
+    return line;
+  }
+
+  /**
+   * Returns the line whose trip a vehicle is on at a time. If one trip of the vehicle ends
+   * when the next one starts, the vehicle is on the next one. If trips of the vehicle overlap,
+   * which lines added by addLines may do, it is undefined which of them is returned.
+   *
+   * @param transportationVehicle the vehicle
+   * @param dateTime              Date and Time
+   * @return the line served by the vehicle
+   * @throws LineNotFoundException if the vehicle is on no trip at that time
+   */
+  @Override
+  public Line getServedLine(TransportationVehicle transportationVehicle,
+      LocalDateTime dateTime) throws LineNotFoundException {
+    logger.info("getServedLine requested with vehicle {}, date {}", transportationVehicle,
+        dateTime);
+    Line line = snapshot.getVehicleBlocks().getLine(transportationVehicle, dateTime);
+    if (line == null) {
+      throw new LineNotFoundException();
+    }
+    return line;
+  }
+
+  /**
+   * Getter for the lines.
+   *
+   * @return the lines of the current snapshot, ordered by their id
+   */
+  @Override
+  public Iterable<Line> getLines() {
+    return snapshot.getLines();
+  }
+
+  /**
+   * Getter for the lines count.
+   *
+   * @return The total number of lines that exist
+   */
+  public int getLinesCount() {
+    return snapshot.getLinesCount();
+  }
+
+  /**
+   * Returns the TransportationVehicle with the given id.
+   *
+   * @param transportationVehicleId id of the TransportationVehicle
+   * @return the TransportationVehicle
+   */
+  @Override
+  public TransportationVehicle getTransportationVehicle(int transportationVehicleId) {
+    logger.info("getTransportationVehicle requested with id {}", transportationVehicleId);
+    return snapshot.getTransportationVehicle(transportationVehicleId);
+  }
+
+  /**
+   * Getter for the transportation vehicle count.
+   *
+   * @return The total number of vehicles that exist
+   */
+  public int getTransportationVehicleCount() {
+    return snapshot.getTransportationVehicleCount();
+  }
+
+  /**
+   * All lines departing at the specified date from a specific station.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @return All lines that operate in ascending order from the specified time
+   */
+  @Override
+  public ArrayList<Departure> getDepartures(int stationId, LocalDateTime date, long rangeInMinutes,
+      ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    return getDepartures(stationId, date, rangeInMinutes, Integer.MAX_VALUE, currentTimeDelegate);
+  }
+
+  /**
+   * The next departures at the specified date from a specific station, but at most limit.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @param limit          The max number of departures to be returned
+   * @return The first departures in ascending order from the specified time
+   */
+  @Override
+  public ArrayList<Departure> getDepartures(int stationId, LocalDateTime date, long rangeInMinutes,
+      int limit, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    logger.info("getDepartures requested with stationId {}, date {}, rangeInMinutes {}, limit {}",
+        stationId, date, rangeInMinutes, limit);
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    TimetableSnapshot current = snapshot;
+    Station station = getStation(current, stationId);
+    ArrayList<Departure> departures = new ArrayList<>(Math.min(limit, 64));
+
+    current.getBoard(station).collectDepartures(
+        new DepartureCursor(stationId, date, rangeInMinutes), limit, currentTimeDelegate,
+        departures);
+    return departures;
+  }
+
+  /**
+   * The first page of the departures at the specified date from a specific station.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @param pageSize       The max number of departures on the page
+   * @return The first departures in ascending order and the cursor to the next page
+   */
+  @Override
+  public DeparturePage getDeparturePage(int stationId, LocalDateTime date, long rangeInMinutes,
+      int pageSize, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    logger.info("getDeparturePage requested with stationId {}, date {}, rangeInMinutes {}, "
+        + "pageSize {}", stationId, date, rangeInMinutes, pageSize);
+    return getDeparturePage(new DepartureCursor(stationId, date, rangeInMinutes), pageSize,
+        currentTimeDelegate);
+  }
+
+  /**
+   * The next page of departures, continuing exactly where the previous page stopped.
+   *
+   * @param cursor   Cursor of the previous page
+   * @param pageSize The max number of departures on the page
+   * @return The next departures in ascending order and the cursor to the next page
+   */
+  @Override
+  public DeparturePage getDeparturePage(String cursor, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    logger.info("getDeparturePage requested with cursor {}, pageSize {}", cursor, pageSize);
+    return getDeparturePage(DepartureCursor.decode(cursor), pageSize, currentTimeDelegate);
+  }
+
+  private DeparturePage getDeparturePage(DepartureCursor position, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    ArrayList<Departure> departures = new ArrayList<>(Math.min(pageSize, 64));
+
+    TimetableSnapshot current = snapshot;
+    Station station = getStation(current, position.getStationId());
+
+    DepartureCursor next = current.getBoard(station)
+        .collectDepartures(position, pageSize, currentTimeDelegate, departures);
+
+    return new DeparturePage(departures, next == null ? null : next.encode());
+  }
+
+  /**
+   * Adds a line and freezes it.
+   *
+   * @param line The line to add.
+   * @throws LineAlreadyServedException when line was added
+   * @throws TransportationVehicleBusyException when the vehicle of the line serves another line
+   *                                            at the same time
+   * @return Id of the Line
+   */
+  @Override
+  public int addLine(Line line)
+      throws LineAlreadyServedException, TransportationVehicleBusyException {
+    logger.info("addLine with line {}", line);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      int id = editor.addLine(line);
+      snapshot = editor.commit();
+      return id;
+    }
+  }
+
+  /**
+   * Adds multiple lines and freezes them, publishing all of them together.
+   * @param line list of lines to add
+   */
+  @Override
+  public void addLines(List<Line> line) {
+    logger.info("addLines with lines {}", line);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      editor.addLines(line);
+      snapshot = editor.commit();
+    }
+  }
+
+  /**
+   * Removes a line.
+   * @param lineId id of the line.
+   */
+  @Override
+  public void removeLine(int lineId) throws LineNotFoundException {
+    logger.info("removeLine with line {}", lineId);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      editor.removeLine(lineId);
+      snapshot = editor.commit();
+    }
+  }
+
+  /**
+   * Adds a station.
+   *
+   * @param station The station to add.
+   * @return id of the Station
+   */
+  @Override
+  public int addStation(Station station) {
+    logger.info("addStation with station {}", station);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      int id = editor.addStation(station);
+      snapshot = editor.commit();
+      return id;
+    }
+  }
+
+  /**
+   * Removes a station.
+   *
+   * @param stationId id of the station to be removed.
+   */
+  @Override
+  public void removeStation(int stationId) throws StationNotFoundException {
+    logger.info("removeStation with id {}", stationId);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      editor.removeStation(stationId);
+      snapshot = editor.commit();
+    }
+  }
+
+  /**
+   * Adds a TransportationVehicle.
+   *
+   * @param transportationVehicle The TransportationVehicle to add.
+   * @return Id of the TransportationVehicle
+   */
+  @Override
+  public int addTransportationVehicle(TransportationVehicle transportationVehicle) {
+    logger.info("addTransportationVehicle with vehicle {}", transportationVehicle);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      int id = editor.addTransportationVehicle(transportationVehicle);
+      snapshot = editor.commit();
+      return id;
+    }
+  }
+
+  /**
+   * Removes a TransportationVehicle.
+   *
+   * @param transportationVehicleId id of the transportationVehicle.
+   */
+  @Override
+  public void removeTransportationVehicle(int transportationVehicleId) {
+    logger.info("removeTransportationVehicle with vehicle {}", transportationVehicleId);
+    synchronized (writeLock) {
+      TimetableSnapshot.Editor editor = snapshot.edit();
+      editor.removeTransportationVehicle(transportationVehicleId);
+      snapshot = editor.commit();
+    }
+  }
+}
@@ -0,0 +1,848 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.JourneyPlannerService;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.models.Isochrone;
+import de.hhn.it.pp.components.timetable.models.Journey;
+import de.hhn.it.pp.components.timetable.models.Leg;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Journey planner using the Connection Scan Algorithm. Every pair of consecutive stops of every
+ * line is one connection, and all connections are kept in parallel arrays sorted by departure.
+ * A query scans the arrays in order, instead of following the network.
+ *
+ * <p>The planner answers three kinds of queries: the journeys arriving first when departing at
+ * a given time, scanning forward in rounds, where round k may use k trips; the journey
+ * departing last when arriving by a given time, scanning backward; and profiles, i.e. all
+ * journeys departing in a time range that are not beaten by a journey departing later and
+ * arriving no later, e.g. for printed connection tables. The forward scan also gives
+ * isochrones, the stations reachable from a station within a number of minutes, which can be
+ * computed for many stations in parallel.
+ *
+ * <p>Journeys use the scheduled times without delays and are searched on the day of the query
+ * and the neighbouring day. Changing lines at a station takes at least
+ * {@value RaptorJourneyPlanner#MIN_TRANSFER_MINUTES} minutes, like in the
+ * {@link RaptorJourneyPlanner}. A planner can be queried by several threads at the same time.
+ */
+public class ConnectionScanPlanner implements JourneyPlannerService {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(ConnectionScanPlanner.class);
+
+  private static final int TRANSFER_SECONDS = RaptorJourneyPlanner.MIN_TRANSFER_MINUTES * 60;
+  /**
+   * Number of service days searched by forward and backward scans.
+   */
+  private static final int DAYS = 2;
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  private static final int UNREACHED = Integer.MAX_VALUE;
+  private static final int NOT_DEPARTED = Integer.MIN_VALUE;
+  // Sort key of a connection: departure, arrival and index, times need 17 bits
+  private static final int TIME_BITS = 17;
+  private static final int INDEX_BITS = 63 - 2 * TIME_BITS;
+
+  private final LineSource timetable;
+  private final HashMap<Station, Integer> stationIndices = new HashMap<>();
+  private final Station[] stations;
+
+  // Connections, sorted by departure
+  private final int connectionCount;
+  private final int[] connectionDepartures;
+  private final int[] connectionArrivals;
+  private final int[] connectionFrom;
+  private final int[] connectionTo;
+  private final int[] connectionTrips;
+  /**
+   * Index of the departure stop of every connection in the stops of its line.
+   */
+  private final int[] connectionSequences;
+
+  // Trips: the connections of trip t in the order of its stops are tripConnections from
+  // tripConnectionOffsets[t] on
+  private final Line[] tripLines;
+  private final int[] tripCalendars;
+  private final int[] tripConnectionOffsets;
+  private final int[] tripConnections;
+  private final ServiceCalendar[] calendars;
+
+  /**
+   * Constructor. Sorts the connections of the current lines of the service, lines added to the
+   * service later are not planned with.
+   *
+   * @param service service with the lines
+   */
+  public ConnectionScanPlanner(LineSource service) {
+    this.timetable = service;
+
+    List<Line> tripLineList = new ArrayList<>();
+    List<List<Stop>> tripStops = new ArrayList<>();
+    IdentityHashMap<ServiceCalendar, Integer> calendarIndices = new IdentityHashMap<>();
+    List<ServiceCalendar> calendarList = new ArrayList<>();
+    long count = 0;
+    for (Line line : service.getLines()) {
+      List<Stop> stops = line.getStops();
+      if (stops.size() < 2 || line.getServiceCalendar() == null) {
+        continue;
+      }
+      tripLineList.add(line);
+      tripStops.add(stops);
+      if (!calendarIndices.containsKey(line.getServiceCalendar())) {
+        calendarIndices.put(line.getServiceCalendar(), calendarList.size());
+        calendarList.add(line.getServiceCalendar());
+      }
+      count += stops.size() - 1;
+    }
+    if (count >= 1 << INDEX_BITS) {
+      throw new IllegalArgumentException("Too many connections: " + count);
+    }
+    connectionCount = (int) count;
+    calendars = calendarList.toArray(new ServiceCalendar[0]);
+    tripLines = tripLineList.toArray(new Line[0]);
+    tripCalendars = new int[tripLines.length];
+    tripConnectionOffsets = new int[tripLines.length + 1];
+
+    // Create the connections in the order of the trips, then sort them by departure. Equal
+    // times keep this order, so the connections of a trip stay in the order of its stops.
+    int[] departures = new int[connectionCount];
+    int[] arrivals = new int[connectionCount];
+    int[] from = new int[connectionCount];
+    int[] to = new int[connectionCount];
+    int[] trips = new int[connectionCount];
+    int[] sequences = new int[connectionCount];
+    long[] order = new long[connectionCount];
+    int connection = 0;
+    for (int trip = 0; trip < tripLines.length; trip++) {
+      tripCalendars[trip] = calendarIndices.get(tripLines[trip].getServiceCalendar());
+      tripConnectionOffsets[trip] = connection;
+      List<Stop> stops = tripStops.get(trip);
+      for (int i = 0; i < stops.size() - 1; i++) {
+        departures[connection] = stops.get(i).getTime().toSecondOfDay();
+        arrivals[connection] = stops.get(i + 1).getTime().toSecondOfDay();
+        from[connection] = stationIndex(stops.get(i).getStation());
+        to[connection] = stationIndex(stops.get(i + 1).getStation());
+        trips[connection] = trip;
+        sequences[connection] = i;
+        order[connection] = (long) departures[connection] << (INDEX_BITS + TIME_BITS)
+            | (long) arrivals[connection] << INDEX_BITS | connection;
+        connection++;
+      }
+    }
+    tripConnectionOffsets[tripLines.length] = connection;
+    Arrays.sort(order);
+
+    connectionDepartures = new int[connectionCount];
+    connectionArrivals = new int[connectionCount];
+    connectionFrom = new int[connectionCount];
+    connectionTo = new int[connectionCount];
+    connectionTrips = new int[connectionCount];
+    connectionSequences = new int[connectionCount];
+    tripConnections = new int[connectionCount];
+    for (int sorted = 0; sorted < connectionCount; sorted++) {
+      int created = (int) (order[sorted] & ((1 << INDEX_BITS) - 1));
+      connectionDepartures[sorted] = departures[created];
+      connectionArrivals[sorted] = arrivals[created];
+      connectionFrom[sorted] = from[created];
+      connectionTo[sorted] = to[created];
+      connectionTrips[sorted] = trips[created];
+      connectionSequences[sorted] = sequences[created];
+      tripConnections[created] = sorted;
+    }
+    stations = new Station[stationIndices.size()];
+    for (Map.Entry<Station, Integer> entry : stationIndices.entrySet()) {
+      stations[entry.getValue()] = entry.getKey();
+    }
+    logger.info("Prepared {} connections of {} trips", connectionCount, tripLines.length);
+  }
+
+  /**
+   * Returns a journey that arrives first when departing at or after the given time.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param departure     earliest time of departure
+   * @return the journey, null if the station cannot be reached
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  @Override
+  public Journey getEarliestArrival(int fromStationId, int toStationId, LocalDateTime departure)
+      throws StationNotFoundException {
+    logger.info("getEarliestArrival requested from station {} to station {} at {}",
+        fromStationId, toStationId, departure);
+    List<Journey> journeys = scanRounds(fromStationId, toStationId, departure, true);
+    return journeys.isEmpty() ? null : journeys.get(journeys.size() - 1);
+  }
+
+  /**
+   * Returns the journeys departing at or after the given time that are best either in the time
+   * of arrival or in the number of transfers. Like in the {@link RaptorJourneyPlanner}, a journey
+   * has at most {@value RaptorJourneyPlanner#MAX_TRIPS} trips.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param departure     earliest time of departure
+   * @return the journeys ordered by the number of transfers, the last one arrives first. Empty if
+   *         the station cannot be reached.
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  @Override
+  public List<Journey> getJourneys(int fromStationId, int toStationId, LocalDateTime departure)
+      throws StationNotFoundException {
+    logger.info("getJourneys requested from station {} to station {} at {}", fromStationId,
+        toStationId, departure);
+    return scanRounds(fromStationId, toStationId, departure, false);
+  }
+
+  /**
+   * Finds the journeys with one trip more in every round. A scan without rounds gives the
+   * earliest arrival first, so the rounds stop as soon as it is reached.
+   *
+   * @param earliestOnly whether only the last journey is needed, so the rounds can skip all
+   *                     connections departing after the earliest arrival
+   */
+  private List<Journey> scanRounds(int fromStationId, int toStationId, LocalDateTime departure,
+      boolean earliestOnly) throws StationNotFoundException {
+    Integer origin = stationIndices.get(timetable.getStation(fromStationId));
+    Integer target = stationIndices.get(timetable.getStation(toStationId));
+    List<Journey> journeys = new ArrayList<>();
+    if (origin == null || target == null || origin.equals(target)) {
+      return journeys;
+    }
+    ForwardScan unbounded = new ForwardScan(origin, target, departure, UNREACHED);
+    unbounded.run();
+    int earliestArrival = unbounded.arrivals[target];
+    if (earliestArrival == UNREACHED) {
+      return journeys;
+    }
+    int limit = earliestOnly ? earliestArrival : UNREACHED;
+    ForwardScan round = null;
+    for (int trips = 1; trips <= RaptorJourneyPlanner.MAX_TRIPS; trips++) {
+      int arrival = round == null ? UNREACHED : round.arrivals[target];
+      round = new ForwardScan(origin, target, departure, limit, round);
+      if (!round.run()) {
+        break;
+      }
+      if (round.arrivals[target] < arrival) {
+        journeys.add(round.createJourney(target));
+      }
+      if (round.arrivals[target] <= earliestArrival) {
+        break;
+      }
+    }
+    return journeys;
+  }
+
+  /**
+   * Returns the stations which can be reached from a station within a number of minutes.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param departure     earliest time of departure
+   * @param minutes       minutes after the departure until which stations count as reachable
+   * @return the reachable stations with their earliest arrival
+   * @throws StationNotFoundException if the id does not exist
+   */
+  public Isochrone getIsochrone(int fromStationId, LocalDateTime departure, int minutes)
+      throws StationNotFoundException {
+    logger.info("getIsochrone requested from station {} at {} within {} minutes", fromStationId,
+        departure, minutes);
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Negative minutes: " + minutes);
+    }
+    return createIsochrone(timetable.getStation(fromStationId), departure, minutes);
+  }
+
+  /**
+   * Returns the stations which can be reached from each of several stations within a number of
+   * minutes. The isochrones are computed in parallel by the pool.
+   *
+   * @param fromStationIds ids of the stations to depart from
+   * @param departure      earliest time of departure
+   * @param minutes        minutes after the departure until which stations count as reachable
+   * @param pool           pool which computes the isochrones
+   * @return the isochrones in the order of the ids
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  public List<Isochrone> getIsochrones(Collection<Integer> fromStationIds,
+      LocalDateTime departure, int minutes, ForkJoinPool pool) throws StationNotFoundException {
+    logger.info("getIsochrones requested from {} stations at {} within {} minutes",
+        fromStationIds.size(), departure, minutes);
+    if (minutes < 0) {
+      throw new IllegalArgumentException("Negative minutes: " + minutes);
+    }
+    List<ForkJoinTask<Isochrone>> tasks = new ArrayList<>();
+    for (int id : fromStationIds) {
+      Station origin = timetable.getStation(id);
+      tasks.add(ForkJoinTask.adapt(() -> createIsochrone(origin, departure, minutes)));
+    }
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    List<Isochrone> isochrones = new ArrayList<>();
+    for (ForkJoinTask<Isochrone> task : tasks) {
+      isochrones.add(task.join());
+    }
+    return isochrones;
+  }
+
+  private Isochrone createIsochrone(Station station, LocalDateTime departure, int minutes) {
+    LinkedHashMap<Station, LocalDateTime> arrivals = new LinkedHashMap<>();
+    Integer origin = stationIndices.get(station);
+    if (origin == null) {
+      arrivals.put(station, departure);
+      return new Isochrone(station, departure, minutes, arrivals);
+    }
+    int limit = (int) Math.min(departure.toLocalTime().toSecondOfDay() + minutes * 60L,
+        UNREACHED - 1);
+    ForwardScan scan = new ForwardScan(origin, -1, departure, limit);
+    scan.run();
+
+    // Order the reached stations by arrival
+    long[] reached = new long[stations.length];
+    int count = 0;
+    for (int i = 0; i < stations.length; i++) {
+      if (scan.arrivals[i] <= limit) {
+        reached[count++] = (long) scan.arrivals[i] << 32 | i;
+      }
+    }
+    Arrays.sort(reached, 0, count);
+    LocalDateTime midnight = departure.toLocalDate().atStartOfDay();
+    for (int i = 0; i < count; i++) {
+      arrivals.put(stations[(int) reached[i]], midnight.plusSeconds(reached[i] >>> 32));
+    }
+    return new Isochrone(station, departure, minutes, arrivals);
+  }
+
+  /**
+   * Returns a journey that departs last when arriving at or before the given time.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param arrival       latest time of arrival
+   * @return the journey, null if the station cannot be reached in time
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  public Journey getLatestDeparture(int fromStationId, int toStationId, LocalDateTime arrival)
+      throws StationNotFoundException {
+    logger.info("getLatestDeparture requested from station {} to station {} at {}",
+        fromStationId, toStationId, arrival);
+    Integer origin = stationIndices.get(timetable.getStation(fromStationId));
+    Integer target = stationIndices.get(timetable.getStation(toStationId));
+    if (origin == null || target == null || origin.equals(target)) {
+      return null;
+    }
+    return new BackwardScan(origin, target, arrival).run();
+  }
+
+  /**
+   * Returns all journeys departing in a time range that are not beaten by another journey,
+   * i.e. every later departure arrives later. Journeys may arrive on the day after the range.
+   *
+   * @param fromStationId     id of the station to depart from
+   * @param toStationId       id of the station to arrive at
+   * @param earliestDeparture start of the range
+   * @param latestDeparture   end of the range
+   * @return the journeys ordered by departure, empty if the station cannot be reached
+   * @throws StationNotFoundException if one of the ids does not exist
+   */
+  public List<Journey> getJourneyProfile(int fromStationId, int toStationId,
+      LocalDateTime earliestDeparture, LocalDateTime latestDeparture)
+      throws StationNotFoundException {
+    logger.info("getJourneyProfile requested from station {} to station {} from {} to {}",
+        fromStationId, toStationId, earliestDeparture, latestDeparture);
+    if (latestDeparture.isBefore(earliestDeparture)) {
+      throw new IllegalArgumentException("latestDeparture " + latestDeparture
+          + " is before earliestDeparture " + earliestDeparture);
+    }
+    Integer origin = stationIndices.get(timetable.getStation(fromStationId));
+    Integer target = stationIndices.get(timetable.getStation(toStationId));
+    if (origin == null || target == null || origin.equals(target)) {
+      return new ArrayList<>();
+    }
+    return new ProfileScan(origin, target, earliestDeparture, latestDeparture).run();
+  }
+
+  private int stationIndex(Station station) {
+    return stationIndices.computeIfAbsent(station, key -> stationIndices.size());
+  }
+
+  /**
+   * Returns for every day whether the calendars run on it.
+   *
+   * @param firstDay the first day
+   * @param days     number of days
+   * @return runs[day][calendar]
+   */
+  private boolean[][] runs(LocalDate firstDay, int days) {
+    boolean[][] runs = new boolean[days][calendars.length];
+    for (int day = 0; day < days; day++) {
+      long epochDay = firstDay.toEpochDay() + day;
+      for (int calendar = 0; calendar < calendars.length; calendar++) {
+        runs[day][calendar] = calendars[calendar].runsOn(epochDay);
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * Returns the first connection departing at or after a time.
+   */
+  private int firstDeparture(int time) {
+    int low = 0;
+    int high = connectionCount;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (connectionDepartures[middle] < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Earliest arrival at every station, scanning the connections by ascending departure. A scan
+   * can be a round, which boards trips only at the stations reached by the previous round, so
+   * round k finds the earliest arrivals with at most k trips.
+   */
+  private class ForwardScan {
+
+    private final int origin;
+    private final int target;
+    private final LocalDate date;
+    private final int departureTime;
+    private final int limit;
+    private final boolean[][] runs;
+    /**
+     * Previous round, null for the first round and for scans without rounds.
+     */
+    private final ForwardScan previous;
+    private final boolean isRound;
+    private final int[] arrivals = new int[stationIndices.size()];
+    /**
+     * Arrivals at which trips can be boarded: the arrivals of the previous round, or the own
+     * arrivals of a scan without rounds.
+     */
+    private final int[] boardingArrivals;
+    // Connection and day by which every station was reached, -1 if it was reached by an
+    // earlier round
+    private final int[] arrivalConnections = new int[stationIndices.size()];
+    private final int[] arrivalDays = new int[stationIndices.size()];
+    /**
+     * Connection where every trip of every day was boarded, -1 if it was not.
+     */
+    private final int[] boardings = new int[tripLines.length * DAYS];
+
+    /**
+     * Constructor.
+     *
+     * @param origin    station to depart from
+     * @param target    station to arrive at, -1 to scan until the last connection
+     * @param departure earliest time of departure
+     * @param limit     seconds from the start of the day of departure until which to scan
+     */
+    ForwardScan(int origin, int target, LocalDateTime departure, int limit) {
+      this(origin, target, departure, limit, null, false);
+    }
+
+    /**
+     * Constructor for a round.
+     *
+     * @param origin    station to depart from
+     * @param target    station to arrive at
+     * @param departure earliest time of departure
+     * @param limit     seconds from the start of the day of departure until which to scan
+     * @param previous  previous round, null for the first round
+     */
+    ForwardScan(int origin, int target, LocalDateTime departure, int limit,
+        ForwardScan previous) {
+      this(origin, target, departure, limit, previous, true);
+    }
+
+    private ForwardScan(int origin, int target, LocalDateTime departure, int limit,
+        ForwardScan previous, boolean isRound) {
+      this.origin = origin;
+      this.target = target;
+      this.limit = limit;
+      this.previous = previous;
+      this.isRound = isRound;
+      date = departure.toLocalDate();
+      departureTime = departure.toLocalTime().toSecondOfDay();
+      runs = previous != null ? previous.runs : runs(date, DAYS);
+      if (previous != null) {
+        boardingArrivals = previous.arrivals;
+      } else if (isRound) {
+        boardingArrivals = new int[stationIndices.size()];
+        Arrays.fill(boardingArrivals, UNREACHED);
+        boardingArrivals[origin] = departureTime;
+      } else {
+        boardingArrivals = arrivals;
+      }
+    }
+
+    /**
+     * Scans the connections.
+     *
+     * @return whether the arrival at any station was improved, always true for scans without
+     *         rounds
+     */
+    boolean run() {
+      if (previous != null) {
+        System.arraycopy(previous.arrivals, 0, arrivals, 0, arrivals.length);
+      } else {
+        Arrays.fill(arrivals, UNREACHED);
+        arrivals[origin] = departureTime;
+      }
+      Arrays.fill(arrivalConnections, -1);
+      Arrays.fill(boardings, -1);
+      boolean improved = !isRound;
+      for (int day = 0; day < DAYS; day++) {
+        int offset = day * SECONDS_PER_DAY;
+        for (int c = firstDeparture(departureTime - offset); c < connectionCount; c++) {
+          int departure = connectionDepartures[c] + offset;
+          if (departure > limit || target >= 0 && departure >= arrivals[target]) {
+            return improved;
+          }
+          int trip = connectionTrips[c];
+          if (!runs[day][tripCalendars[trip]]) {
+            continue;
+          }
+          int key = trip * DAYS + day;
+          if (boardings[key] < 0) {
+            int from = connectionFrom[c];
+            if (boardingArrivals[from] == UNREACHED
+                || boardingArrivals[from] + (from == origin ? 0 : TRANSFER_SECONDS) > departure) {
+              continue;
+            }
+            boardings[key] = c;
+          }
+          int arrival = connectionArrivals[c] + offset;
+          int to = connectionTo[c];
+          if (arrival < arrivals[to]) {
+            arrivals[to] = arrival;
+            arrivalConnections[to] = c;
+            arrivalDays[to] = day;
+            improved = true;
+          }
+        }
+      }
+      return improved;
+    }
+
+    /**
+     * Follows the trips back from a station to the origin.
+     *
+     * @param station the station
+     * @return the journey, null if the station was not reached
+     */
+    Journey createJourney(int station) {
+      if (station == origin || arrivals[station] == UNREACHED) {
+        return null;
+      }
+      List<Leg> legs = new ArrayList<>();
+      ForwardScan scan = this;
+      while (station != origin) {
+        while (scan.arrivalConnections[station] < 0) {
+          scan = scan.previous;
+        }
+        int alighting = scan.arrivalConnections[station];
+        int day = scan.arrivalDays[station];
+        int trip = connectionTrips[alighting];
+        int boarding = scan.boardings[trip * DAYS + day];
+        legs.add(new Leg(tripLines[trip], connectionSequences[boarding],
+            connectionSequences[alighting] + 1, date.plusDays(day)));
+        station = connectionFrom[boarding];
+        if (scan.isRound) {
+          // The trip was boarded at an arrival of the previous round
+          scan = scan.previous;
+        }
+      }
+      Collections.reverse(legs);
+      return new Journey(legs);
+    }
+  }
+
+  /**
+   * Latest departure from every station, scanning the connections by descending departure.
+   */
+  private class BackwardScan {
+
+    private final int origin;
+    private final int target;
+    private final LocalDate date;
+    private final int arrivalTime;
+    /**
+     * Whether the calendars run on the day of arrival and the day before.
+     */
+    private final boolean[][] runs;
+    private final int[] departures = new int[stationIndices.size()];
+    // Connection and day by which every station is left
+    private final int[] departureConnections = new int[stationIndices.size()];
+    private final int[] departureDays = new int[stationIndices.size()];
+    /**
+     * Connection where every trip of every day is left, -1 if it does not lead to the target.
+     */
+    private final int[] exits = new int[tripLines.length * DAYS];
+
+    BackwardScan(int origin, int target, LocalDateTime arrival) {
+      this.origin = origin;
+      this.target = target;
+      date = arrival.toLocalDate();
+      arrivalTime = arrival.toLocalTime().toSecondOfDay();
+      boolean[][] forwardRuns = runs(date.minusDays(DAYS - 1), DAYS);
+      runs = new boolean[DAYS][];
+      for (int day = 0; day < DAYS; day++) {
+        runs[day] = forwardRuns[DAYS - 1 - day];
+      }
+    }
+
+    Journey run() {
+      Arrays.fill(departures, NOT_DEPARTED);
+      departures[target] = arrivalTime;
+      Arrays.fill(exits, -1);
+      scan:
+      for (int day = 0; day < DAYS; day++) {
+        int offset = -day * SECONDS_PER_DAY;
+        for (int c = firstDeparture(arrivalTime - offset + 1) - 1; c >= 0; c--) {
+          int departure = connectionDepartures[c] + offset;
+          if (departure <= departures[origin]) {
+            break scan;
+          }
+          int trip = connectionTrips[c];
+          int arrival = connectionArrivals[c] + offset;
+          if (arrival > arrivalTime || !runs[day][tripCalendars[trip]]) {
+            continue;
+          }
+          int key = trip * DAYS + day;
+          if (exits[key] < 0) {
+            int to = connectionTo[c];
+            if (departures[to] == NOT_DEPARTED
+                || arrival > departures[to] - (to == target ? 0 : TRANSFER_SECONDS)) {
+              continue;
+            }
+            exits[key] = c;
+          }
+          int from = connectionFrom[c];
+          if (from != target && departure > departures[from]) {
+            departures[from] = departure;
+            departureConnections[from] = c;
+            departureDays[from] = day;
+          }
+        }
+      }
+      if (departures[origin] == NOT_DEPARTED) {
+        return null;
+      }
+
+      List<Leg> legs = new ArrayList<>();
+      int station = origin;
+      while (station != target) {
+        int boarding = departureConnections[station];
+        int day = departureDays[station];
+        int trip = connectionTrips[boarding];
+        int alighting = exits[trip * DAYS + day];
+        legs.add(new Leg(tripLines[trip], connectionSequences[boarding],
+            connectionSequences[alighting] + 1, date.minusDays(day)));
+        station = connectionTo[alighting];
+      }
+      return new Journey(legs);
+    }
+  }
+
+  /**
+   * Profiles of all stations, scanning the connections by descending departure.
+   */
+  private class ProfileScan {
+
+    private final int origin;
+    private final int target;
+    private final LocalDate date;
+    private final int days;
+    /**
+     * Range of departures in seconds from the start of the first day.
+     */
+    private final int rangeStart;
+    private final int rangeEnd;
+    private final boolean[][] runs;
+    /**
+     * Profile of every station, null if the target cannot be reached from it yet.
+     */
+    private final Profile[] profiles = new Profile[stationIndices.size()];
+    /**
+     * Earliest arrival at the target when on a trip of a day.
+     */
+    private final int[] tripArrivals;
+
+    ProfileScan(int origin, int target, LocalDateTime earliestDeparture,
+        LocalDateTime latestDeparture) {
+      this.origin = origin;
+      this.target = target;
+      date = earliestDeparture.toLocalDate();
+      days = Math.toIntExact(ChronoUnit.DAYS.between(date, latestDeparture.toLocalDate())) + DAYS;
+      rangeStart = earliestDeparture.toLocalTime().toSecondOfDay();
+      rangeEnd = Math.toIntExact(
+          Duration.between(date.atStartOfDay(), latestDeparture).getSeconds());
+      runs = runs(date, days);
+      tripArrivals = new int[Math.multiplyExact(tripLines.length, days)];
+      Arrays.fill(tripArrivals, UNREACHED);
+    }
+
+    List<Journey> run() {
+      for (int day = days - 1; day >= 0; day--) {
+        int offset = day * SECONDS_PER_DAY;
+        for (int c = connectionCount - 1; c >= 0; c--) {
+          int departure = connectionDepartures[c] + offset;
+          if (departure < rangeStart) {
+            break;
+          }
+          int trip = connectionTrips[c];
+          if (!runs[day][tripCalendars[trip]]) {
+            continue;
+          }
+          int key = day * tripLines.length + trip;
+          int to = connectionTo[c];
+          int arrival = connectionArrivals[c] + offset;
+          // Get off at the target, stay on the trip or change at the next station
+          int best = to == target ? arrival : tripArrivals[key];
+          if (profiles[to] != null) {
+            best = Math.min(best, profiles[to].getEarliestArrival(arrival + TRANSFER_SECONDS));
+          }
+          if (best == UNREACHED) {
+            continue;
+          }
+          tripArrivals[key] = Math.min(tripArrivals[key], best);
+          int from = connectionFrom[c];
+          if (from == target || from == origin && departure > rangeEnd) {
+            continue;
+          }
+          if (profiles[from] == null) {
+            profiles[from] = new Profile();
+          }
+          profiles[from].add(departure, tripArrivals[key], c, day);
+        }
+      }
+
+      List<Journey> journeys = new ArrayList<>();
+      Profile profile = profiles[origin];
+      for (int entry = profile == null ? -1 : profile.size - 1; entry >= 0; entry--) {
+        journeys.add(createJourney(profile.connections[entry], profile.days[entry],
+            profile.arrivals[entry]));
+      }
+      return journeys;
+    }
+
+    /**
+     * Rides the trip of a connection until the station from which the target is reached at
+     * the arrival time, and continues from there.
+     */
+    private Journey createJourney(int connection, int day, int arrival) {
+      List<Leg> legs = new ArrayList<>();
+      while (true) {
+        int trip = connectionTrips[connection];
+        int offset = day * SECONDS_PER_DAY;
+        int boardingSequence = connectionSequences[connection];
+        int firstConnection = tripConnectionOffsets[trip];
+        int nextConnection = -1;
+        int nextDay = 0;
+        int sequence = boardingSequence;
+        for (; firstConnection + sequence < tripConnectionOffsets[trip + 1]; sequence++) {
+          int c = tripConnections[firstConnection + sequence];
+          int to = connectionTo[c];
+          int stopArrival = connectionArrivals[c] + offset;
+          if (to == target && stopArrival == arrival) {
+            break;
+          }
+          Profile profile = profiles[to];
+          int entry = profile == null ? -1 : profile.find(stopArrival + TRANSFER_SECONDS);
+          if (entry >= 0 && profile.arrivals[entry] == arrival) {
+            nextConnection = profile.connections[entry];
+            nextDay = profile.days[entry];
+            break;
+          }
+        }
+        legs.add(new Leg(tripLines[trip], boardingSequence, sequence + 1, date.plusDays(day)));
+        if (nextConnection < 0) {
+          return new Journey(legs);
+        }
+        connection = nextConnection;
+        day = nextDay;
+      }
+    }
+  }
+
+  /**
+   * Pareto set of departures from a station and the earliest arrivals at the target. Entries
+   * are added by descending departure, so arrivals are descending too.
+   */
+  private static class Profile {
+
+    private int[] departures = new int[4];
+    private int[] arrivals = new int[4];
+    // Connection and day to take for every entry
+    private int[] connections = new int[4];
+    private int[] days = new int[4];
+    private int size;
+
+    /**
+     * Adds an entry unless a later departure arrives as early.
+     */
+    void add(int departure, int arrival, int connection, int day) {
+      if (size > 0 && arrivals[size - 1] <= arrival) {
+        return;
+      }
+      if (size == 0 || departures[size - 1] != departure) {
+        if (size == departures.length) {
+          departures = Arrays.copyOf(departures, size * 2);
+          arrivals = Arrays.copyOf(arrivals, size * 2);
+          connections = Arrays.copyOf(connections, size * 2);
+          days = Arrays.copyOf(days, size * 2);
+        }
+        size++;
+      }
+      departures[size - 1] = departure;
+      arrivals[size - 1] = arrival;
+      connections[size - 1] = connection;
+      days[size - 1] = day;
+    }
+
+    /**
+     * Returns the entry departing first at or after a time, which arrives first of them.
+     *
+     * @return index of the entry, -1 if there is none
+     */
+    int find(int time) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (departures[middle] >= time) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low - 1;
+    }
+
+    int getEarliestArrival(int time) {
+      int entry = find(time);
+      return entry < 0 ? UNREACHED : arrivals[entry];
+    }
+  }
+}
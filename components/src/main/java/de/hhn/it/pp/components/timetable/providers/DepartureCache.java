@@ -0,0 +1,296 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.events.CalendarListener;
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.events.DelayListener;
+import de.hhn.it.pp.components.timetable.events.FunctionalListener;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Results of departure queries of the {@link SimpleTimetableService}, keyed by station, minute
+ * and query. Boards polled every few seconds are answered from the cache until something they
+ * depend on changes.
+ *
+ * <p>The cache holds at most a fixed number of results and evicts the least recently used one.
+ * Results are evicted per station: a changed delay, break down or calendar only evicts the
+ * results of the stations served by the affected lines. Only queries starting at a whole minute
+ * are cached.
+ *
+ * <p>Delays and break downs are set on other threads than the one querying departures, e.g. by
+ * the delay manager on the FX thread while a board is updated by a scheduler. So every method
+ * holds the lock of the cache, and a result computed while an eviction happened is not cached,
+ * see {@link #getGeneration()}.
+ */
+class DepartureCache {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(DepartureCache.class);
+
+  private final StationStopIndex stationStopIndex;
+  private final int maxEntries;
+  private final LinkedHashMap<Key, List<Departure>> entries;
+  /**
+   * Cached keys of every station, needed to evict the results of one station.
+   */
+  private final HashMap<Station, Set<Key>> keysByStation = new HashMap<>();
+  private final HashMap<TransportationVehicle, List<Line>> linesByVehicle = new HashMap<>();
+  private final HashMap<ServiceCalendar, List<Line>> linesByCalendar = new HashMap<>();
+  /**
+   * Number of evictions so far.
+   */
+  private long generation;
+
+  private final DelayListener delayListener = (vehicle, delay) -> invalidate(vehicle);
+  private final FunctionalListener functionalListener =
+      (vehicle, functional) -> invalidate(vehicle);
+  private final CalendarListener calendarListener =
+      calendar -> invalidate(linesByCalendar.get(calendar));
+
+  /**
+   * Constructor.
+   * @param stationStopIndex index that knows the stations of every line
+   * @param maxEntries       max number of cached results, 0 disables the cache
+   */
+  DepartureCache(StationStopIndex stationStopIndex, int maxEntries) {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+    }
+    this.stationStopIndex = stationStopIndex;
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, List<Departure>> eldest) {
+        if (size() <= DepartureCache.this.maxEntries) {
+          return false;
+        }
+        removeKey(eldest.getKey());
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns a cached result.
+   * @param station             station of the query
+   * @param date                start of the query
+   * @param rangeInMinutes      range of the query
+   * @param limit               limit of the query
+   * @param currentTimeDelegate delegate of the query
+   * @return copy of the cached departures, null if the result is not cached
+   */
+  synchronized ArrayList<Departure> get(Station station, LocalDateTime date, long rangeInMinutes,
+      int limit, ControllerCurrentTimeDelegate currentTimeDelegate) {
+    if (!isCacheable(date)) {
+      return null;
+    }
+    List<Departure> departures =
+        entries.get(new Key(station, date, rangeInMinutes, limit, currentTimeDelegate));
+    return departures == null ? null : new ArrayList<>(departures);
+  }
+
+  /**
+   * Getter for the generation, which changes whenever results are evicted. Read it before
+   * computing a result and pass it to
+   * {@link #put(Station, LocalDateTime, long, int, ControllerCurrentTimeDelegate, List, long)}.
+   * @return the current generation
+   */
+  synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Caches a result, unless results were evicted since it was computed.
+   * @param station             station of the query
+   * @param date                start of the query
+   * @param rangeInMinutes      range of the query
+   * @param limit               limit of the query
+   * @param currentTimeDelegate delegate of the query
+   * @param departures          departures found by the query, copied into the cache
+   * @param generation          generation read before the query, see {@link #getGeneration()}
+   */
+  synchronized void put(Station station, LocalDateTime date, long rangeInMinutes, int limit,
+      ControllerCurrentTimeDelegate currentTimeDelegate, List<Departure> departures,
+      long generation) {
+    if (maxEntries == 0 || !isCacheable(date) || generation != this.generation) {
+      return;
+    }
+    Key key = new Key(station, date, rangeInMinutes, limit, currentTimeDelegate);
+    keysByStation.computeIfAbsent(station, k -> new HashSet<>()).add(key);
+    entries.put(key, List.copyOf(departures));
+  }
+
+  /**
+   * Starts watching the vehicle and the calendar of a line. Must be called after the line was
+   * added to the station stop index.
+   * @param line line that was added
+   */
+  synchronized void addLine(Line line) {
+    TransportationVehicle vehicle = line.getServingTransportationVehicle();
+    List<Line> vehicleLines = linesByVehicle.computeIfAbsent(vehicle, k -> new ArrayList<>());
+    if (vehicleLines.isEmpty()) {
+      try {
+        vehicle.addDelayCallback(delayListener);
+        vehicle.addFunctionalCallback(functionalListener);
+      } catch (IllegalParameterException e) {
+        logger.warn("Vehicle {} was already watched", vehicle);
+      }
+    }
+    vehicleLines.add(line);
+
+    ServiceCalendar calendar = line.getServiceCalendar();
+    List<Line> calendarLines = linesByCalendar.computeIfAbsent(calendar, k -> new ArrayList<>());
+    if (calendarLines.isEmpty()) {
+      try {
+        calendar.addCalendarCallback(calendarListener);
+      } catch (IllegalParameterException e) {
+        logger.warn("Calendar {} was already watched", calendar);
+      }
+    }
+    calendarLines.add(line);
+
+    invalidate(line);
+  }
+
+  /**
+   * Stops watching the vehicle and the calendar of a line. Must be called before the line is
+   * removed from the station stop index.
+   * @param line line that is removed
+   */
+  synchronized void removeLine(Line line) {
+    invalidate(line);
+
+    TransportationVehicle vehicle = line.getServingTransportationVehicle();
+    List<Line> vehicleLines = linesByVehicle.get(vehicle);
+    if (vehicleLines != null && vehicleLines.remove(line) && vehicleLines.isEmpty()) {
+      linesByVehicle.remove(vehicle);
+      try {
+        vehicle.removeDelayCallback(delayListener);
+        vehicle.removeFunctionalCallback(functionalListener);
+      } catch (IllegalParameterException e) {
+        logger.warn("Vehicle {} was not watched", vehicle);
+      }
+    }
+
+    ServiceCalendar calendar = line.getServiceCalendar();
+    List<Line> calendarLines = linesByCalendar.get(calendar);
+    if (calendarLines != null && calendarLines.remove(line) && calendarLines.isEmpty()) {
+      linesByCalendar.remove(calendar);
+      try {
+        calendar.removeCalendarCallback(calendarListener);
+      } catch (IllegalParameterException e) {
+        logger.warn("Calendar {} was not watched", calendar);
+      }
+    }
+  }
+
+  /**
+   * Evicts the results of all stations served by a line.
+   * @param line the line
+   */
+  synchronized void invalidate(Line line) {
+    for (Station station : stationStopIndex.getStations(line)) {
+      invalidate(station);
+    }
+  }
+
+  /**
+   * Evicts the results of a station.
+   * @param station the station
+   */
+  synchronized void invalidate(Station station) {
+    generation++;
+    Set<Key> keys = keysByStation.remove(station);
+    if (keys != null) {
+      entries.keySet().removeAll(keys);
+    }
+  }
+
+  /**
+   * Getter for the number of cached results.
+   * @return number of cached results
+   */
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private synchronized void invalidate(TransportationVehicle vehicle) {
+    invalidate(linesByVehicle.get(vehicle));
+  }
+
+  private synchronized void invalidate(List<Line> lines) {
+    if (lines != null) {
+      for (Line line : lines) {
+        invalidate(line);
+      }
+    }
+  }
+
+  private void removeKey(Key key) {
+    Set<Key> keys = keysByStation.get(key.station);
+    if (keys != null) {
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        keysByStation.remove(key.station);
+      }
+    }
+  }
+
+  private static boolean isCacheable(LocalDateTime date) {
+    return date.getSecond() == 0 && date.getNano() == 0;
+  }
+
+  /**
+   * A departure query. The date is kept as minute since the epoch.
+   */
+  private static final class Key {
+
+    private final Station station;
+    private final long minute;
+    private final long rangeInMinutes;
+    private final int limit;
+    private final ControllerCurrentTimeDelegate currentTimeDelegate;
+
+    Key(Station station, LocalDateTime date, long rangeInMinutes, int limit,
+        ControllerCurrentTimeDelegate currentTimeDelegate) {
+      this.station = station;
+      this.minute = date.toEpochSecond(ZoneOffset.UTC) / 60;
+      this.rangeInMinutes = rangeInMinutes;
+      this.limit = limit;
+      this.currentTimeDelegate = currentTimeDelegate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return minute == key.minute && rangeInMinutes == key.rangeInMinutes && limit == key.limit
+          && station == key.station && currentTimeDelegate == key.currentTimeDelegate;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(station), minute, rangeInMinutes, limit,
+          System.identityHashCode(currentTimeDelegate));
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position within a departure query. Clients only ever see it as an opaque string, see
+ * {@link #encode()} and {@link #decode(String)}.
+ */
+class DepartureCursor {
+
+  /**
+   * Marks a cursor that starts at the beginning of the time window.
+   */
+  private static final long WINDOW_START = Long.MIN_VALUE;
+  private static final String SEPARATOR = "|";
+
+  private final int stationId;
+  /**
+   * Date and time the query was made for.
+   */
+  private final LocalDateTime date;
+  private final long rangeInMinutes;
+  /**
+   * Minute (counted from 00:00 of the day of date) of the next stop event to look at.
+   */
+  private final long minute;
+  /**
+   * Number of stop events at that minute which were already looked at.
+   */
+  private final int skip;
+
+  /**
+   * Constructor for a cursor at the beginning of the time window.
+   * @param stationId      station from which the departures are requested
+   * @param date           Date and time from when
+   * @param rangeInMinutes range in minutes
+   */
+  DepartureCursor(int stationId, LocalDateTime date, long rangeInMinutes) {
+    this(stationId, date, rangeInMinutes, WINDOW_START, 0);
+  }
+
+  private DepartureCursor(int stationId, LocalDateTime date, long rangeInMinutes, long minute,
+      int skip) {
+    this.stationId = stationId;
+    this.date = date;
+    this.rangeInMinutes = rangeInMinutes;
+    this.minute = minute;
+    this.skip = skip;
+  }
+
+  /**
+   * Creates a cursor for the same query which continues at another stop event.
+   * @param minute minute of the next stop event
+   * @param skip   number of stop events at that minute which were already looked at
+   * @return the new cursor
+   */
+  DepartureCursor continueAt(long minute, int skip) {
+    return new DepartureCursor(stationId, date, rangeInMinutes, minute, skip);
+  }
+
+  int getStationId() {
+    return stationId;
+  }
+
+  LocalDateTime getDate() {
+    return date;
+  }
+
+  long getRangeInMinutes() {
+    return rangeInMinutes;
+  }
+
+  long getMinute() {
+    return minute;
+  }
+
+  int getSkip() {
+    return skip;
+  }
+
+  /**
+   * Checker if the cursor is at the beginning of the time window.
+   * @return true if nothing was looked at yet
+   */
+  boolean isWindowStart() {
+    return minute == WINDOW_START;
+  }
+
+  /**
+   * Encodes the cursor to the string handed out to clients.
+   * @return url-safe string representation
+   */
+  String encode() {
+    String plain = stationId + SEPARATOR + date + SEPARATOR + rangeInMinutes + SEPARATOR + minute
+        + SEPARATOR + skip;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor handed out by {@link #encode()}.
+   * @param cursor string representation of the cursor
+   * @return the cursor
+   * @throws IllegalArgumentException if the string is not a valid cursor
+   */
+  static DepartureCursor decode(String cursor) {
+    try {
+      String plain = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = plain.split("\\|");
+      if (parts.length != 5) {
+        throw new IllegalArgumentException("Invalid departure cursor: " + cursor);
+      }
+      return new DepartureCursor(Integer.parseInt(parts[0]), LocalDateTime.parse(parts[1]),
+          Long.parseLong(parts[2]), Long.parseLong(parts[3]), Integer.parseInt(parts[4]));
+    } catch (NumberFormatException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid departure cursor: " + cursor, e);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Table of stations, lines or vehicles, addressed by an int id. Entities are stored in an array
+ * and looked up by their slot, without boxing the id.
+ *
+ * <p>Slots of removed entities are reused. The id of an entity contains its slot and the
+ * generation of the slot, which is counted up on every remove, so an old id does not find the
+ * entity stored in the slot later. Until a slot is reused, ids are the slots, starting at 0.
+ *
+ * @param <T> type of the entities
+ */
+class EntityTable<T> implements Iterable<T> {
+
+  private static final int SLOT_BITS = 22;
+  private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+  /**
+   * Generations wrap around after 512 removes from the same slot.
+   */
+  private static final int GENERATION_MASK = (1 << (Integer.SIZE - 1 - SLOT_BITS)) - 1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private Object[] entities;
+  private int[] generations;
+  /**
+   * Number of slots ever used.
+   */
+  private int slotCount;
+  /**
+   * Free slots, the last one is reused first.
+   */
+  private int[] freeSlots;
+  private int freeCount;
+
+  /**
+   * Constructor of an empty table.
+   */
+  EntityTable() {
+    entities = new Object[INITIAL_CAPACITY];
+    generations = new int[INITIAL_CAPACITY];
+    freeSlots = new int[0];
+  }
+
+  /**
+   * Copy constructor.
+   * @param other table to copy, it is not changed by changes to the copy
+   */
+  EntityTable(EntityTable<T> other) {
+    entities = Arrays.copyOf(other.entities, Math.max(other.slotCount, INITIAL_CAPACITY));
+    generations = Arrays.copyOf(other.generations, entities.length);
+    slotCount = other.slotCount;
+    freeSlots = Arrays.copyOf(other.freeSlots, other.freeCount);
+    freeCount = other.freeCount;
+  }
+
+  /**
+   * Adds an entity, reusing the slot removed last.
+   * @param entity the entity, not null
+   * @return id of the entity
+   */
+  int add(T entity) {
+    if (entity == null) {
+      throw new IllegalArgumentException("entity must not be null");
+    }
+    int slot;
+    if (freeCount > 0) {
+      slot = freeSlots[--freeCount];
+    } else {
+      if (slotCount > SLOT_MASK) {
+        throw new IllegalStateException("Table is full: " + slotCount);
+      }
+      if (slotCount == entities.length) {
+        entities = Arrays.copyOf(entities, slotCount * 2);
+        generations = Arrays.copyOf(generations, slotCount * 2);
+      }
+      slot = slotCount++;
+    }
+    entities[slot] = entity;
+    return generations[slot] << SLOT_BITS | slot;
+  }
+
+  /**
+   * Returns the entity with the given id.
+   * @param id id of the entity
+   * @return the entity, null if the id was never added or the entity was removed
+   */
+  @SuppressWarnings("unchecked")
+  T get(int id) {
+    int slot = id & SLOT_MASK;
+    if (id < 0 || slot >= slotCount || generations[slot] != id >>> SLOT_BITS) {
+      return null;
+    }
+    return (T) entities[slot];
+  }
+
+  /**
+   * Checker if an entity with the given id exists.
+   * @param id id of the entity
+   * @return true if the entity was added and not removed
+   */
+  boolean contains(int id) {
+    return get(id) != null;
+  }
+
+  /**
+   * Removes the entity with the given id. Its slot is free for the next add.
+   * @param id id of the entity
+   * @return the removed entity, null if there was none
+   */
+  T remove(int id) {
+    T entity = get(id);
+    if (entity != null) {
+      int slot = id & SLOT_MASK;
+      entities[slot] = null;
+      generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+      if (freeCount == freeSlots.length) {
+        freeSlots = Arrays.copyOf(freeSlots, Math.max(freeCount * 2, INITIAL_CAPACITY));
+      }
+      freeSlots[freeCount++] = slot;
+    }
+    return entity;
+  }
+
+  /**
+   * Getter for the size.
+   * @return number of entities in the table
+   */
+  int size() {
+    return slotCount - freeCount;
+  }
+
+  /**
+   * Returns an iterator over all entities, ordered by their slot. The table must not be changed
+   * while iterating.
+   * @return the iterator
+   */
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<>() {
+      private int slot = nextSlot(0);
+
+      @Override
+      public boolean hasNext() {
+        return slot < slotCount;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() {
+        if (slot >= slotCount) {
+          throw new NoSuchElementException();
+        }
+        T entity = (T) entities[slot];
+        slot = nextSlot(slot + 1);
+        return entity;
+      }
+    };
+  }
+
+  private int nextSlot(int from) {
+    int slot = from;
+    while (slot < slotCount && entities[slot] == null) {
+      slot++;
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,130 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Priority queue of events, a binary heap of keys with a value each. Keys and values are kept in
+ * arrays of primitives, so comparing keys does not follow references.
+ */
+class EventQueue {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private long[] values = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds an event.
+   *
+   * @param key   the smallest key is removed first
+   * @param value value of the event
+   */
+  void add(long key, long value) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    int index = size++;
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (keys[parent] <= key) {
+        break;
+      }
+      keys[index] = keys[parent];
+      values[index] = values[parent];
+      index = parent;
+    }
+    keys[index] = key;
+    values[index] = value;
+  }
+
+  /**
+   * Getter for the smallest key.
+   *
+   * @return key of the next event
+   * @throws NoSuchElementException if the queue is empty
+   */
+  long peekKey() {
+    if (size == 0) {
+      throw new NoSuchElementException("No events");
+    }
+    return keys[0];
+  }
+
+  /**
+   * Getter for the value of the smallest key.
+   *
+   * @return value of the next event
+   * @throws NoSuchElementException if the queue is empty
+   */
+  long peekValue() {
+    if (size == 0) {
+      throw new NoSuchElementException("No events");
+    }
+    return values[0];
+  }
+
+  /**
+   * Removes the event with the smallest key.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  void remove() {
+    if (size == 0) {
+      throw new NoSuchElementException("No events");
+    }
+    size--;
+    siftDown(keys[size], values[size]);
+  }
+
+  /**
+   * Removes the event with the smallest key and adds another one. This is faster than removing
+   * and adding.
+   *
+   * @param key   the smallest key is removed first
+   * @param value value of the event
+   * @throws NoSuchElementException if the queue is empty
+   */
+  void replaceFirst(long key, long value) {
+    if (size == 0) {
+      throw new NoSuchElementException("No events");
+    }
+    siftDown(key, value);
+  }
+
+  /**
+   * Moves an event from the root down to its place.
+   */
+  private void siftDown(long key, long value) {
+    int index = 0;
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && keys[child + 1] < keys[child]) {
+        child++;
+      }
+      if (key <= keys[child]) {
+        break;
+      }
+      keys[index] = keys[child];
+      values[index] = values[child];
+      index = child;
+    }
+    keys[index] = key;
+    values[index] = value;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
@@ -0,0 +1,21 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.TimetableService;
+import de.hhn.it.pp.components.timetable.models.Line;
+
+/**
+ * Timetable service whose lines can be read all at once. It is implemented by the
+ * {@link SimpleTimetableService}, the {@link ColumnarTimetableService} and the
+ * {@link ConcurrentTimetableService}, and accepted by the {@link RaptorJourneyPlanner}, the
+ * {@link ConnectionScanPlanner}, the {@link Simulation} and the {@link VehiclePositionService}.
+ * They prepare these lines when they are created, so changes of the service made later are not
+ * seen by them.
+ */
+public interface LineSource extends TimetableService {
+
+  /**
+   * Getter for the lines.
+   * @return all added lines, ordered by their id
+   */
+  Iterable<Line> getLines();
+}
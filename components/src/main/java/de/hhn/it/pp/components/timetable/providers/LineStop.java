@@ -0,0 +1,60 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Stop;
+
+/**
+ * Entry of the {@link StationStopIndex}: a stop of a line together with its position in the
+ * time-sorted stops of that line.
+ */
+class LineStop {
+
+  /**
+   * Line which makes the stop.
+   */
+  private final Line line;
+  /**
+   * The stop itself.
+   */
+  private final Stop stop;
+  /**
+   * Position of the stop in {@link Line#getStops()}.
+   */
+  private final int position;
+
+  /**
+   * Constructor.
+   * @param line     Line which makes the stop
+   * @param stop     The stop itself
+   * @param position Position of the stop in the sorted stops of the line
+   */
+  LineStop(Line line, Stop stop, int position) {
+    this.line = line;
+    this.stop = stop;
+    this.position = position;
+  }
+
+  /**
+   * Getter for the line.
+   * @return line
+   */
+  Line getLine() {
+    return line;
+  }
+
+  /**
+   * Getter for the stop.
+   * @return stop
+   */
+  Stop getStop() {
+    return stop;
+  }
+
+  /**
+   * Getter for the position.
+   * @return position of the stop in the sorted stops of the line
+   */
+  int getPosition() {
+    return position;
+  }
+}
@@ -0,0 +1,473 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.JourneyPlannerService;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.models.Journey;
+import de.hhn.it.pp.components.timetable.models.Leg;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Journey planner using RAPTOR, the round-based public transit routing algorithm. Round k finds
+ * the earliest arrival at every station with at most k trips, so one query also gives the
+ * journeys with fewer transfers that arrive later.
+ *
+ * <p>Lines serving the same stations in the same order are grouped into a route, and the stop
+ * times of all trips of a route are kept in one array, sorted by departure. A trip which would
+ * overtake another trip of its route gets a route of its own, so in every route the first trip
+ * leaving a stop after a given time is also the first to reach all later stops.
+ *
+ * <p>Journeys use the scheduled times without delays. Changing lines at a station takes at
+ * least {@value #MIN_TRANSFER_MINUTES} minutes. A journey may continue on the next day. A planner
+ * can be queried by several threads at the same time.
+ */
+public class RaptorJourneyPlanner implements JourneyPlannerService {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(RaptorJourneyPlanner.class);
+
+  /**
+   * Minimum time to change lines at a station.
+   */
+  public static final int MIN_TRANSFER_MINUTES = 2;
+  /**
+   * Max number of trips of a journey.
+   */
+  static final int MAX_TRIPS = 8;
+  /**
+   * Number of service days searched for trips, starting at the day of departure.
+   */
+  private static final int DAYS = 2;
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  private static final int UNREACHED = Integer.MAX_VALUE;
+
+  private final LineSource timetable;
+  private final HashMap<Station, Integer> stationIndices = new HashMap<>();
+
+  // Routes: route r serves the stations from routeStopOffsets[r] to routeStopOffsets[r + 1] in
+  // routeStations, its trips are the trips from routeTripOffsets[r] to routeTripOffsets[r + 1]
+  private final int[] routeStopOffsets;
+  private final int[] routeStations;
+  private final int[] routeTripOffsets;
+
+  // Trips, ordered by route and then by departure
+  private final Line[] tripLines;
+  private final int[] tripRoutes;
+  private final int[] tripCalendars;
+  /**
+   * Start of the stop times of every trip in {@link #stopTimes}.
+   */
+  private final int[] tripTimeOffsets;
+  /**
+   * Second of the day of every stop of every trip.
+   */
+  private final int[] stopTimes;
+  private final ServiceCalendar[] calendars;
+
+  // Routes serving every station and the position of the station in the route
+  private final int[] stationRouteOffsets;
+  private final int[] stationRoutes;
+  private final int[] stationRoutePositions;
+
+  /**
+   * Constructor. Groups the current lines of the service into routes, lines added to the
+   * service later are not planned with.
+   *
+   * @param service service with the lines
+   */
+  public RaptorJourneyPlanner(LineSource service) {
+    this.timetable = service;
+
+    // Group the trips by the stations they serve
+    LinkedHashMap<List<Integer>, List<Trip>> patterns = new LinkedHashMap<>();
+    IdentityHashMap<ServiceCalendar, Integer> calendarIndices = new IdentityHashMap<>();
+    List<ServiceCalendar> calendarList = new ArrayList<>();
+    for (Line line : service.getLines()) {
+      List<Stop> stops = line.getStops();
+      if (stops.size() < 2 || line.getServiceCalendar() == null) {
+        continue;
+      }
+      List<Integer> pattern = new ArrayList<>(stops.size());
+      int[] times = new int[stops.size()];
+      for (int i = 0; i < stops.size(); i++) {
+        pattern.add(stationIndices.computeIfAbsent(stops.get(i).getStation(),
+            station -> stationIndices.size()));
+        times[i] = stops.get(i).getTime().toSecondOfDay();
+      }
+      Integer calendar = calendarIndices.get(line.getServiceCalendar());
+      if (calendar == null) {
+        calendar = calendarList.size();
+        calendarList.add(line.getServiceCalendar());
+        calendarIndices.put(line.getServiceCalendar(), calendar);
+      }
+      patterns.computeIfAbsent(pattern, key -> new ArrayList<>())
+          .add(new Trip(line, calendar, times));
+    }
+    calendars = calendarList.toArray(new ServiceCalendar[0]);
+
+    // Split every pattern into routes whose trips do not overtake each other
+    List<List<Integer>> routePatterns = new ArrayList<>();
+    List<List<Trip>> routes = new ArrayList<>();
+    int tripCount = 0;
+    for (Map.Entry<List<Integer>, List<Trip>> pattern : patterns.entrySet()) {
+      List<Trip> trips = pattern.getValue();
+      trips.sort((trip1, trip2) -> Arrays.compare(trip1.times, trip2.times));
+      List<List<Trip>> patternRoutes = new ArrayList<>();
+      for (Trip trip : trips) {
+        List<Trip> route = null;
+        for (List<Trip> candidate : patternRoutes) {
+          if (!trip.overtakes(candidate.get(candidate.size() - 1))) {
+            route = candidate;
+            break;
+          }
+        }
+        if (route == null) {
+          route = new ArrayList<>();
+          patternRoutes.add(route);
+        }
+        route.add(trip);
+      }
+      for (List<Trip> route : patternRoutes) {
+        routePatterns.add(pattern.getKey());
+        routes.add(route);
+      }
+      tripCount += trips.size();
+    }
+
+    routeStopOffsets = new int[routes.size() + 1];
+    routeTripOffsets = new int[routes.size() + 1];
+    for (int route = 0; route < routes.size(); route++) {
+      routeStopOffsets[route + 1] = routeStopOffsets[route] + routePatterns.get(route).size();
+      routeTripOffsets[route + 1] = routeTripOffsets[route] + routes.get(route).size();
+    }
+    routeStations = new int[routeStopOffsets[routes.size()]];
+    tripLines = new Line[tripCount];
+    tripRoutes = new int[tripCount];
+    tripCalendars = new int[tripCount];
+    tripTimeOffsets = new int[tripCount];
+    int stopTimeCount = 0;
+    for (int route = 0; route < routes.size(); route++) {
+      List<Integer> pattern = routePatterns.get(route);
+      for (int position = 0; position < pattern.size(); position++) {
+        routeStations[routeStopOffsets[route] + position] = pattern.get(position);
+      }
+      stopTimeCount += pattern.size() * routes.get(route).size();
+    }
+    stopTimes = new int[stopTimeCount];
+    int trip = 0;
+    int timeOffset = 0;
+    for (int route = 0; route < routes.size(); route++) {
+      for (Trip routeTrip : routes.get(route)) {
+        tripLines[trip] = routeTrip.line;
+        tripRoutes[trip] = route;
+        tripCalendars[trip] = routeTrip.calendar;
+        tripTimeOffsets[trip] = timeOffset;
+        System.arraycopy(routeTrip.times, 0, stopTimes, timeOffset, routeTrip.times.length);
+        timeOffset += routeTrip.times.length;
+        trip++;
+      }
+    }
+
+    // Index the routes by station
+    stationRouteOffsets = new int[stationIndices.size() + 1];
+    for (int station : routeStations) {
+      stationRouteOffsets[station + 1]++;
+    }
+    for (int station = 0; station < stationIndices.size(); station++) {
+      stationRouteOffsets[station + 1] += stationRouteOffsets[station];
+    }
+    stationRoutes = new int[routeStations.length];
+    stationRoutePositions = new int[routeStations.length];
+    int[] next = Arrays.copyOf(stationRouteOffsets, stationIndices.size());
+    for (int route = 0; route < routes.size(); route++) {
+      for (int stop = routeStopOffsets[route]; stop < routeStopOffsets[route + 1]; stop++) {
+        int index = next[routeStations[stop]]++;
+        stationRoutes[index] = route;
+        stationRoutePositions[index] = stop - routeStopOffsets[route];
+      }
+    }
+    logger.info("Prepared {} trips in {} routes", tripCount, routes.size());
+  }
+
+  /**
+   * Returns the journey that arrives first when departing at or after the given time. Of the
+   * journeys arriving at the same time, the one with the fewest transfers is returned.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param departure     earliest time of departure
+   * @return the journey, null if the station cannot be reached
+   */
+  @Override
+  public Journey getEarliestArrival(int fromStationId, int toStationId, LocalDateTime departure)
+      throws StationNotFoundException {
+    List<Journey> journeys = getJourneys(fromStationId, toStationId, departure);
+    return journeys.isEmpty() ? null : journeys.get(journeys.size() - 1);
+  }
+
+  /**
+   * Returns the journeys departing at or after the given time that are best either in the time
+   * of arrival or in the number of transfers.
+   *
+   * @param fromStationId id of the station to depart from
+   * @param toStationId   id of the station to arrive at
+   * @param departure     earliest time of departure
+   * @return the journeys ordered by the number of transfers, the last one arrives first
+   */
+  @Override
+  public List<Journey> getJourneys(int fromStationId, int toStationId, LocalDateTime departure)
+      throws StationNotFoundException {
+    logger.info("getJourneys requested from station {} to station {} at {}", fromStationId,
+        toStationId, departure);
+    Integer origin = stationIndices.get(timetable.getStation(fromStationId));
+    Integer target = stationIndices.get(timetable.getStation(toStationId));
+    if (origin == null || target == null || origin.equals(target)) {
+      return new ArrayList<>();
+    }
+    return new Query(origin, target, departure).run();
+  }
+
+  /**
+   * State of one query.
+   */
+  private class Query {
+
+    private final int origin;
+    private final int target;
+    private final LocalDate date;
+    private final int departureTime;
+    /**
+     * Whether the calendars run on the days after the day of departure.
+     */
+    private final boolean[][] runs = new boolean[DAYS][];
+    // Per round: earliest arrival at every station with at most that many trips, and how the
+    // stations reached in the round were reached
+    private final int[][] arrivals = new int[MAX_TRIPS + 1][];
+    private final int[][] boardedTrips = new int[MAX_TRIPS + 1][];
+    private final int[][] boardingPositions = new int[MAX_TRIPS + 1][];
+    private final int[][] alightingPositions = new int[MAX_TRIPS + 1][];
+    // Stations reached in the last round
+    private final boolean[] marked = new boolean[stationIndices.size()];
+    private final int[] markedStations = new int[stationIndices.size()];
+    private int markedCount;
+    /**
+     * First position of every route to scan in the next round, -1 if the route is not scanned.
+     */
+    private final int[] routeStarts = new int[routeTripOffsets.length - 1];
+    private final int[] queuedRoutes = new int[routeStarts.length];
+
+    Query(int origin, int target, LocalDateTime departure) {
+      this.origin = origin;
+      this.target = target;
+      date = departure.toLocalDate();
+      departureTime = departure.toLocalTime().toSecondOfDay();
+      for (int day = 0; day < DAYS; day++) {
+        runs[day] = new boolean[calendars.length];
+        long epochDay = date.toEpochDay() + day;
+        for (int calendar = 0; calendar < calendars.length; calendar++) {
+          runs[day][calendar] = calendars[calendar].runsOn(epochDay);
+        }
+      }
+      Arrays.fill(routeStarts, -1);
+    }
+
+    List<Journey> run() {
+      arrivals[0] = new int[stationIndices.size()];
+      Arrays.fill(arrivals[0], UNREACHED);
+      arrivals[0][origin] = departureTime;
+      mark(origin);
+
+      int rounds = 0;
+      while (rounds < MAX_TRIPS && markedCount > 0) {
+        rounds++;
+        arrivals[rounds] = arrivals[rounds - 1].clone();
+        boardedTrips[rounds] = new int[stationIndices.size()];
+        Arrays.fill(boardedTrips[rounds], -1);
+        boardingPositions[rounds] = new int[stationIndices.size()];
+        alightingPositions[rounds] = new int[stationIndices.size()];
+
+        int queuedCount = queueRoutes();
+        for (int i = 0; i < queuedCount; i++) {
+          int route = queuedRoutes[i];
+          scanRoute(rounds, route, routeStarts[route]);
+          routeStarts[route] = -1;
+        }
+      }
+
+      List<Journey> journeys = new ArrayList<>();
+      int bestArrival = UNREACHED;
+      for (int round = 1; round <= rounds; round++) {
+        if (arrivals[round][target] < bestArrival) {
+          bestArrival = arrivals[round][target];
+          journeys.add(createJourney(round));
+        }
+      }
+      return journeys;
+    }
+
+    /**
+     * Queues every route serving a station reached in the last round, from the first of these
+     * stations on. Clears the marks.
+     * @return number of queued routes
+     */
+    private int queueRoutes() {
+      int queuedCount = 0;
+      for (int i = 0; i < markedCount; i++) {
+        int station = markedStations[i];
+        marked[station] = false;
+        for (int j = stationRouteOffsets[station]; j < stationRouteOffsets[station + 1]; j++) {
+          int route = stationRoutes[j];
+          int position = stationRoutePositions[j];
+          if (routeStarts[route] < 0) {
+            routeStarts[route] = position;
+            queuedRoutes[queuedCount++] = route;
+          } else if (position < routeStarts[route]) {
+            routeStarts[route] = position;
+          }
+        }
+      }
+      markedCount = 0;
+      return queuedCount;
+    }
+
+    /**
+     * Travels along a route, on the earliest trip that can be boarded at the stations reached
+     * in the previous round.
+     */
+    private void scanRoute(int round, int route, int start) {
+      int[] previous = arrivals[round - 1];
+      int[] current = arrivals[round];
+      int firstStop = routeStopOffsets[route];
+      int stopCount = routeStopOffsets[route + 1] - firstStop;
+      int trip = -1;
+      int day = 0;
+      int boardingPosition = -1;
+      for (int position = start; position < stopCount; position++) {
+        int station = routeStations[firstStop + position];
+        if (trip >= 0) {
+          int arrival = stopTimes[tripTimeOffsets[trip] + position] + day * SECONDS_PER_DAY;
+          if (arrival < current[station] && arrival < current[target]) {
+            current[station] = arrival;
+            boardedTrips[round][station] = trip * DAYS + day;
+            boardingPositions[round][station] = boardingPosition;
+            alightingPositions[round][station] = position;
+            mark(station);
+          }
+        }
+        if (previous[station] != UNREACHED) {
+          int ready = previous[station];
+          if (station != origin) {
+            ready += MIN_TRANSFER_MINUTES * 60;
+          }
+          if (trip < 0
+              || ready < stopTimes[tripTimeOffsets[trip] + position] + day * SECONDS_PER_DAY) {
+            int earliest = findTrip(route, position, ready);
+            if (earliest >= 0 && earliest != trip * DAYS + day) {
+              trip = earliest / DAYS;
+              day = earliest % DAYS;
+              boardingPosition = position;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Finds the first trip of a route leaving a stop at or after a time.
+     * @return trip * DAYS + day of the trip, -1 if there is none
+     */
+    private int findTrip(int route, int position, int time) {
+      int firstTrip = routeTripOffsets[route];
+      int endTrip = routeTripOffsets[route + 1];
+      for (int day = 0; day < DAYS; day++) {
+        int dayTime = time - day * SECONDS_PER_DAY;
+        // Trips of a route do not overtake each other, so they are sorted at every stop
+        int low = firstTrip;
+        int high = endTrip;
+        while (low < high) {
+          int middle = (low + high) >>> 1;
+          if (stopTimes[tripTimeOffsets[middle] + position] < dayTime) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        for (int trip = low; trip < endTrip; trip++) {
+          if (runs[day][tripCalendars[trip]]) {
+            return trip * DAYS + day;
+          }
+        }
+      }
+      return -1;
+    }
+
+    private void mark(int station) {
+      if (!marked[station]) {
+        marked[station] = true;
+        markedStations[markedCount++] = station;
+      }
+    }
+
+    /**
+     * Follows the trips back from the target to the origin.
+     */
+    private Journey createJourney(int round) {
+      List<Leg> legs = new ArrayList<>();
+      int station = target;
+      while (station != origin) {
+        while (boardedTrips[round][station] < 0) {
+          round--;
+        }
+        int trip = boardedTrips[round][station] / DAYS;
+        int day = boardedTrips[round][station] % DAYS;
+        int boardingPosition = boardingPositions[round][station];
+        legs.add(new Leg(tripLines[trip], boardingPosition,
+            alightingPositions[round][station], date.plusDays(day)));
+        station = routeStations[routeStopOffsets[tripRoutes[trip]] + boardingPosition];
+        round--;
+      }
+      Collections.reverse(legs);
+      return new Journey(legs);
+    }
+  }
+
+  /**
+   * Line with its stop times, while the routes are built.
+   */
+  private static class Trip {
+
+    private final Line line;
+    private final int calendar;
+    private final int[] times;
+
+    Trip(Line line, int calendar, int[] times) {
+      this.line = line;
+      this.calendar = calendar;
+      this.times = times;
+    }
+
+    /**
+     * Checker if this trip reaches any stop before a trip which left the first stop earlier.
+     */
+    boolean overtakes(Trip earlier) {
+      for (int i = 0; i < times.length; i++) {
+        if (times[i] < earlier.times[i]) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,331 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search index over the names of stations or lines. Names and queries are compared ignoring
+ * case and accents, so "Gansacker" and "Gaensaecker" both find "Flein Gänsäcker".
+ *
+ * <p>Prefix queries are answered from all word starts of the names, kept sorted like the paths
+ * of a trie, so the matches of a prefix are one range found by binary search. Substrings within
+ * words are found through an index of the groups of up to three letters of the names. A search
+ * only visits the names sharing the rarest letter group with the query. The index is
+ * rebuilt on the first search after a change.
+ *
+ * <p>Results are ranked: equal names first, then names starting with the query, then names
+ * with a word starting with the query, then all other names containing the query. Shorter names
+ * and then earlier added names come first within each rank.
+ *
+ * @param <T> type of the indexed items
+ */
+class SearchIndex<T> {
+
+  private static final int RANK_EQUAL = 0;
+  private static final int RANK_NAME_PREFIX = 1;
+  private static final int RANK_WORD_PREFIX = 2;
+  private static final int RANK_SUBSTRING = 3;
+  private static final int GRAM_LENGTH = 3;
+
+  /**
+   * Items in the order they were added, null for removed items.
+   */
+  private final ArrayList<T> items = new ArrayList<>();
+  /**
+   * Normalized spellings of the name of every item.
+   */
+  private final ArrayList<String[]> itemKeys = new ArrayList<>();
+  private final HashMap<T, Integer> slots = new HashMap<>();
+  private int removedCount;
+
+  private boolean valid;
+  /**
+   * Every normalized name from each of its word starts on, sorted.
+   */
+  private String[] wordStarts = new String[0];
+  private int[] wordStartSlots = new int[0];
+  /**
+   * Whether the word start is the start of the name.
+   */
+  private boolean[] nameStarts = new boolean[0];
+  /**
+   * Slots of all items whose name contains the one, two or three letters, ascending.
+   */
+  private final HashMap<Long, int[]> grams = new HashMap<>();
+
+  /**
+   * Adds an item, an item added before is added again with the new name.
+   * @param item the item
+   * @param name name to search the item by
+   */
+  void add(T item, String name) {
+    remove(item);
+    slots.put(item, items.size());
+    items.add(item);
+    itemKeys.add(keys(name));
+    valid = false;
+  }
+
+  /**
+   * Removes an item.
+   * @param item the item
+   */
+  void remove(T item) {
+    Integer slot = slots.remove(item);
+    if (slot != null) {
+      items.set(slot, null);
+      itemKeys.set(slot, null);
+      removedCount++;
+      valid = false;
+    }
+  }
+
+  /**
+   * Rebuilds the index now if it changed since the last search. Afterwards searches only read
+   * the index, so they may run on several threads until the next item is added or removed.
+   */
+  void prepare() {
+    if (!valid) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Returns the best matching items whose name contains the query.
+   * @param query the query, compared ignoring case and accents
+   * @param limit The max number of items to be returned
+   * @return matching items, best match first
+   */
+  List<T> search(String query, int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    if (!valid) {
+      rebuild();
+    }
+    String key = normalize(query);
+    // Best rank of every matching item by its slot
+    HashMap<Integer, Integer> ranks = new HashMap<>();
+
+    for (int i = lowerBound(key); i < wordStarts.length && wordStarts[i].startsWith(key); i++) {
+      int rank = !nameStarts[i] ? RANK_WORD_PREFIX
+          : wordStarts[i].length() == key.length() ? RANK_EQUAL : RANK_NAME_PREFIX;
+      ranks.merge(wordStartSlots[i], rank, Math::min);
+    }
+    // Names only containing the query can never rank above the word prefixes
+    if (ranks.size() < limit && !key.isEmpty()) {
+      addSubstringMatches(key, ranks);
+    }
+
+    // Rank, length of the name and slot packed into one long, so the smallest longs win
+    long[] best = new long[Math.min(limit, items.size())];
+    int size = 0;
+    for (Map.Entry<Integer, Integer> match : ranks.entrySet()) {
+      int slot = match.getKey();
+      long order = (long) match.getValue() << 56
+          | (long) Math.min(itemKeys.get(slot)[0].length(), 0xFFFFFF) << 32 | slot;
+      if (size < best.length) {
+        best[size++] = order;
+        siftUp(best, size - 1);
+      } else if (size > 0 && order < best[0]) {
+        best[0] = order;
+        siftDown(best, size);
+      }
+    }
+    Arrays.sort(best, 0, size);
+    List<T> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(items.get((int) best[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Adds the items only containing the query, looking only at the names with the rarest of its
+   * letter groups. Queries shorter than three letters are one group themselves.
+   */
+  private void addSubstringMatches(String key, HashMap<Integer, Integer> ranks) {
+    int length = Math.min(key.length(), GRAM_LENGTH);
+    int[] candidates = null;
+    for (int i = 0; i + length <= key.length(); i++) {
+      int[] slotsWithGram = grams.get(gram(key, i, length));
+      if (slotsWithGram == null) {
+        return;
+      }
+      if (candidates == null || slotsWithGram.length < candidates.length) {
+        candidates = slotsWithGram;
+      }
+    }
+    for (int slot : candidates) {
+      if (!ranks.containsKey(slot) && contains(slot, key)) {
+        ranks.put(slot, RANK_SUBSTRING);
+      }
+    }
+  }
+
+  private boolean contains(int slot, String key) {
+    for (String itemKey : itemKeys.get(slot)) {
+      if (itemKey.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves a new value of the max heap up to its place.
+   */
+  private static void siftUp(long[] heap, int index) {
+    while (index > 0 && heap[(index - 1) / 2] < heap[index]) {
+      swap(heap, index, (index - 1) / 2);
+      index = (index - 1) / 2;
+    }
+  }
+
+  /**
+   * Moves a new top of the max heap down to its place.
+   */
+  private static void siftDown(long[] heap, int size) {
+    int index = 0;
+    while (2 * index + 1 < size) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && heap[child + 1] > heap[child]) {
+        child++;
+      }
+      if (heap[index] >= heap[child]) {
+        return;
+      }
+      swap(heap, index, child);
+      index = child;
+    }
+  }
+
+  private static void swap(long[] heap, int i, int j) {
+    long value = heap[i];
+    heap[i] = heap[j];
+    heap[j] = value;
+  }
+
+  /**
+   * Drops removed items and sorts the word starts again.
+   */
+  private void rebuild() {
+    if (removedCount > 0) {
+      int next = 0;
+      for (int slot = 0; slot < items.size(); slot++) {
+        if (items.get(slot) != null) {
+          items.set(next, items.get(slot));
+          itemKeys.set(next, itemKeys.get(slot));
+          slots.put(items.get(next), next);
+          next++;
+        }
+      }
+      items.subList(next, items.size()).clear();
+      itemKeys.subList(next, itemKeys.size()).clear();
+      removedCount = 0;
+    }
+
+    ArrayList<String> starts = new ArrayList<>();
+    ArrayList<Integer> startSlots = new ArrayList<>();
+    HashMap<Long, List<Integer>> gramSlots = new HashMap<>();
+    for (int slot = 0; slot < items.size(); slot++) {
+      for (String key : itemKeys.get(slot)) {
+        for (int i = 0; i < key.length(); i++) {
+          if (Character.isLetterOrDigit(key.charAt(i))
+              && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)))) {
+            starts.add(key.substring(i));
+            startSlots.add(i == 0 ? slot : ~slot);
+          }
+          for (int length = 1; length <= GRAM_LENGTH && i + length <= key.length(); length++) {
+            List<Integer> list =
+                gramSlots.computeIfAbsent(gram(key, i, length), k -> new ArrayList<>());
+            if (list.isEmpty() || list.get(list.size() - 1) != slot) {
+              list.add(slot);
+            }
+          }
+        }
+      }
+    }
+
+    Integer[] order = new Integer[starts.size()];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, Comparator.comparing(starts::get));
+    wordStarts = new String[order.length];
+    wordStartSlots = new int[order.length];
+    nameStarts = new boolean[order.length];
+    for (int i = 0; i < order.length; i++) {
+      wordStarts[i] = starts.get(order[i]);
+      int slot = startSlots.get(order[i]);
+      nameStarts[i] = slot >= 0;
+      wordStartSlots[i] = slot >= 0 ? slot : ~slot;
+    }
+
+    grams.clear();
+    gramSlots.forEach((gram, list) -> grams.put(gram, list.stream().mapToInt(i -> i).toArray()));
+    valid = true;
+  }
+
+  private int lowerBound(String key) {
+    int low = 0;
+    int high = wordStarts.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (wordStarts[middle].compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Packs the length and up to three letters of a letter group into one long.
+   */
+  private static long gram(String key, int index, int length) {
+    long gram = length;
+    for (int i = index; i < index + length; i++) {
+      gram = gram << 16 | key.charAt(i);
+    }
+    return gram;
+  }
+
+  /**
+   * Returns the spellings a name is found by: without accents, and for German umlauts also
+   * with "ae", "oe" and "ue".
+   */
+  private static String[] keys(String name) {
+    String key = normalize(name);
+    String transcribed = normalize(name.replace("ä", "ae").replace("ö", "oe")
+        .replace("ü", "ue").replace("Ä", "Ae").replace("Ö", "Oe").replace("Ü", "Ue"));
+    return key.equals(transcribed) ? new String[] {key} : new String[] {key, transcribed};
+  }
+
+  /**
+   * Converts a name or query to lower case without accents, e.g. "Gänsäcker" to "gansacker".
+   * @param name the name
+   * @return the normalized name
+   */
+  static String normalize(String name) {
+    String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+    StringBuilder key = new StringBuilder(decomposed.length());
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        continue;
+      }
+      c = Character.toLowerCase(c);
+      if (c == 'ß') {
+        key.append("ss");
+      } else {
+        key.append(c);
+      }
+    }
+    return key.toString();
+  }
+}
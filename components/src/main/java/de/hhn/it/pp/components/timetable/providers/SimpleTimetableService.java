@@ -1,36 +1,66 @@
 package de.hhn.it.pp.components.timetable.providers;
 
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
 import de.hhn.it.pp.components.timetable.TimetableService;
 import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.events.StopsListener;
 import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
 import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
 import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
 import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DeparturePage;
 import de.hhn.it.pp.components.timetable.models.Line;
 import de.hhn.it.pp.components.timetable.models.Station;
 import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
-import java.time.DayOfWeek;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-public class SimpleTimetableService implements AdminTimetableService, TimetableService {
+public class SimpleTimetableService implements AdminTimetableService, TimetableService,
+    LineSource {
 
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
       .getLogger(SimpleTimetableService.class);
 
-  private final HashMap<Integer, Line> lines = new HashMap<>();
-  private final HashMap<Integer, TransportationVehicle> vehicles = new HashMap<>();
-  private final HashMap<Integer, Station> stations = new HashMap<>();
+  /**
+   * Default max number of cached departure results.
+   */
+  public static final int DEFAULT_DEPARTURE_CACHE_SIZE = 256;
+
+  private final EntityTable<Line> lines = new EntityTable<>();
+  private final EntityTable<TransportationVehicle> vehicles = new EntityTable<>();
+  private final EntityTable<Station> stations = new EntityTable<>();
+  private final StationStopIndex stationStopIndex = new StationStopIndex();
+  /**
+   * Keeps the station stop index up to date when stops of a registered line change.
+   */
+  private final StopsListener stopsListener = this::onStopsChanged;
+  private final DepartureCache departureCache;
+  private final SearchIndex<Station> stationSearchIndex = new SearchIndex<>();
+  private final SearchIndex<Line> lineSearchIndex = new SearchIndex<>();
+  private final StationLocationIndex stationLocationIndex = new StationLocationIndex();
+  private final VehicleBlocks vehicleBlocks = new VehicleBlocks();
 
   /**
-   * Returns a list of registered station containing the entered name.
+   * Constructor with a departure cache of the default size.
+   */
+  public SimpleTimetableService() {
+    this(DEFAULT_DEPARTURE_CACHE_SIZE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param departureCacheSize max number of cached departure results, 0 disables the cache
+   */
+  public SimpleTimetableService(int departureCacheSize) {
+    departureCache = new DepartureCache(stationStopIndex, departureCacheSize);
+  }
+
+  /**
+   * Returns a list of registered station containing the entered name, ignoring case and
+   * accents. Stations whose name or one of its words starts with the name come first.
    *
    * @param name  Name of the station
    * @param limit The max number of stations to be returned
@@ -39,12 +69,9 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   @Override
   public List<Station> getStationsByName(String name, int limit) throws StationNotFoundException {
     logger.info("getStationsByName requested with name {}, limit {}", name, limit);
-    Stream<Station> stream = stations.values().stream()
-        .filter(station -> station.getName().contains(name));
-
-    List<Station> checkList = stream.limit(limit).collect(Collectors.toList());
+    List<Station> checkList = stationSearchIndex.search(name, limit);
     if (checkList.size() == 0) {
-      throw new StationNotFoundException(); //check if we got something from our stream
+      throw new StationNotFoundException(); //check if we got something from our index
     }
     return checkList;
   }
@@ -65,6 +92,48 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
     return tempStation;
   }
 
+  /**
+   * Returns the registered stations nearest to a location. Stations without location are left
+   * out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param limit     The max number of stations to be returned
+   * @return List of registered stations, nearest first
+   */
+  @Override
+  public List<Station> getStationsNear(double latitude, double longitude, int limit)
+      throws StationNotFoundException {
+    logger.info("getStationsNear requested with location {}, {}, limit {}", latitude, longitude,
+        limit);
+    List<Station> checkList = stationLocationIndex.nearest(latitude, longitude, limit);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
+  /**
+   * Returns the registered stations within a distance of a location. Stations without location
+   * are left out.
+   *
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param radius    distance from the location in meters
+   * @return List of registered stations, nearest first
+   */
+  @Override
+  public List<Station> getStationsWithin(double latitude, double longitude, double radius)
+      throws StationNotFoundException {
+    logger.info("getStationsWithin requested with location {}, {}, radius {}", latitude,
+        longitude, radius);
+    List<Station> checkList = stationLocationIndex.within(latitude, longitude, radius);
+    if (checkList.size() == 0) {
+      throw new StationNotFoundException();
+    }
+    return checkList;
+  }
+
   /**
    * Getter for the station count.
    *
@@ -75,7 +144,8 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   }
 
   /**
-   * Returns a list of registered lines with the entered name.
+   * Returns a list of registered lines containing the entered name, ignoring case and accents.
+   * Lines whose name or one of its words starts with the name come first.
    *
    * @param name  Name of the line
    * @param limit The max number of stations to be returned
@@ -84,9 +154,7 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   @Override
   public List<Line> getLinesByName(String name, int limit) throws LineNotFoundException {
     logger.info("getLinesByName requested with name {} and limit {}", name, limit);
-    Stream<Line> stream = lines.values().stream().filter(line -> line.getName().contains(name));
-
-    List<Line> checkLine = stream.limit(limit).collect(Collectors.toList());
+    List<Line> checkLine = lineSearchIndex.search(name, limit);
     if (checkLine.size() == 0) {
       throw new LineNotFoundException();
     }
@@ -131,6 +199,28 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
     return vehicles.get(transportationVehicleId);
   }
 
+  /**
+   * Returns the line whose trip a vehicle is on at a time. If one trip of the vehicle ends
+   * when the next one starts, the vehicle is on the next one. If trips of the vehicle overlap,
+   * which lines added by addLines may do, it is undefined which of them is returned.
+   *
+   * @param transportationVehicle the vehicle
+   * @param dateTime              Date and Time
+   * @return the line served by the vehicle
+   * @throws LineNotFoundException if the vehicle is on no trip at that time
+   */
+  @Override
+  public Line getServedLine(TransportationVehicle transportationVehicle,
+      LocalDateTime dateTime) throws LineNotFoundException {
+    logger.info("getServedLine requested with vehicle {}, date {}", transportationVehicle,
+        dateTime);
+    Line line = vehicleBlocks.getLine(transportationVehicle, dateTime);
+    if (line == null) {
+      throw new LineNotFoundException();
+    }
+    return line;
+  }
+
   /**
    * Getter for the transportation vehicle count.
    *
@@ -140,6 +230,31 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
     return vehicles.size();
   }
 
+  /**
+   * Getter for the stations.
+   * @return all added stations, ordered by their id
+   */
+  Iterable<Station> getStations() {
+    return stations;
+  }
+
+  /**
+   * Getter for the lines.
+   * @return all added lines, ordered by their id
+   */
+  @Override
+  public Iterable<Line> getLines() {
+    return lines;
+  }
+
+  /**
+   * Getter for the vehicles.
+   * @return all added vehicles, ordered by their id
+   */
+  Iterable<TransportationVehicle> getTransportationVehicles() {
+    return vehicles;
+  }
+
   /**
    * All lines departing at the specified date from a specific line.
    *
@@ -152,58 +267,112 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   public ArrayList<Departure> getDepartures(int stationId, LocalDateTime date, long rangeInMinutes,
       ControllerCurrentTimeDelegate currentTimeDelegate)
       throws StationNotFoundException {
-    logger.info("getDepartures requested with stationId {}, date {}, rangeInMinutes {}", stationId,
-        date,
-        rangeInMinutes);
-    ArrayList<Departure> departures = new ArrayList<>();
+    return getDepartures(stationId, date, rangeInMinutes, Integer.MAX_VALUE, currentTimeDelegate);
+  }
 
+  /**
+   * The next departures at the specified date from a specific station, but at most limit. The
+   * departures are produced in order, so no more than limit departures are ever created. Repeated
+   * queries are answered from the departure cache until a serving line, vehicle or calendar
+   * changes.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @param limit          The max number of departures to be returned
+   * @return The first departures in ascending order from the specified time
+   */
+  @Override
+  public ArrayList<Departure> getDepartures(int stationId, LocalDateTime date, long rangeInMinutes,
+      int limit, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    logger.info("getDepartures requested with stationId {}, date {}, rangeInMinutes {}, limit {}",
+        stationId, date, rangeInMinutes, limit);
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
     Station station = getStation(stationId);
 
-    for (var focusedLine : lines.values()) {
-      if (focusedLine.getServingTransportationVehicle().isFunctional()) {
-        // Gets the stop with the stop Id in the line
-        var stop = focusedLine.getStops().stream().filter(s -> s.getStation().equals(station))
-            .findAny()
-            .orElse(null);
-
-        // If the stop isn't in the line, go on with the next one
-        if (stop != null) {
-          // TODO: Don't look on days which are latter than the time limit
-          for (DayOfWeek day : focusedLine.getServingDays()) {
-            LocalDateTime time = date.toLocalDate().with(TemporalAdjusters.nextOrSame(day))
-                .atTime(stop.getTime());
-
-            if (// Make sure the time is after the planned time + delay
-                date
-                    .isBefore(
-                        time.plusMinutes(focusedLine.getServingTransportationVehicle().getDelay()))
-                    // Make sure the departure is within the range in minutes
-                    && ChronoUnit.MINUTES.between(date, time) <= rangeInMinutes) {
-              departures.add(new Departure(focusedLine, stop, time, currentTimeDelegate));
-            }
-          }
-        }
-      }
+    long generation = departureCache.getGeneration();
+    ArrayList<Departure> departures =
+        departureCache.get(station, date, rangeInMinutes, limit, currentTimeDelegate);
+    if (departures != null) {
+      return departures;
     }
+    departures = new ArrayList<>(Math.min(limit, 64));
 
-    // Sort in ascending order according to the concrete departure time
-    departures.sort(Comparator.comparing(o -> o.getConcreteTime()));
+    stationStopIndex.getBoard(station).collectDepartures(
+        new DepartureCursor(stationId, date, rangeInMinutes), limit, currentTimeDelegate,
+        departures);
 
+    departureCache.put(station, date, rangeInMinutes, limit, currentTimeDelegate, departures,
+        generation);
     return departures;
   }
 
+  /**
+   * The first page of the departures at the specified date from a specific station.
+   *
+   * @param stationId      station from which the departures are requested.
+   * @param date           Date from when
+   * @param rangeInMinutes range in minutes
+   * @param pageSize       The max number of departures on the page
+   * @return The first departures in ascending order and the cursor to the next page
+   */
+  @Override
+  public DeparturePage getDeparturePage(int stationId, LocalDateTime date, long rangeInMinutes,
+      int pageSize, ControllerCurrentTimeDelegate currentTimeDelegate)
+      throws StationNotFoundException {
+    logger.info("getDeparturePage requested with stationId {}, date {}, rangeInMinutes {}, "
+        + "pageSize {}", stationId, date, rangeInMinutes, pageSize);
+    return getDeparturePage(new DepartureCursor(stationId, date, rangeInMinutes), pageSize,
+        currentTimeDelegate);
+  }
+
+  /**
+   * The next page of departures, continuing exactly where the previous page stopped.
+   *
+   * @param cursor   Cursor of the previous page
+   * @param pageSize The max number of departures on the page
+   * @return The next departures in ascending order and the cursor to the next page
+   */
+  @Override
+  public DeparturePage getDeparturePage(String cursor, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    logger.info("getDeparturePage requested with cursor {}, pageSize {}", cursor, pageSize);
+    return getDeparturePage(DepartureCursor.decode(cursor), pageSize, currentTimeDelegate);
+  }
+
+  private DeparturePage getDeparturePage(DepartureCursor position, int pageSize,
+      ControllerCurrentTimeDelegate currentTimeDelegate) throws StationNotFoundException {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+    ArrayList<Departure> departures = new ArrayList<>(Math.min(pageSize, 64));
+
+    Station station = getStation(position.getStationId());
+
+    DepartureCursor next = stationStopIndex.getBoard(station)
+        .collectDepartures(position, pageSize, currentTimeDelegate, departures);
+
+    return new DeparturePage(departures, next == null ? null : next.encode());
+  }
+
   /**
    * Adds a line.
    *
    * @param line The line to add.
    * @throws LineAlreadyServedException when line was added
+   * @throws TransportationVehicleBusyException when the vehicle of the line serves another line
+   *                                            at the same time
    * @return Id of the Line
    */
   @Override
-  public int addLine(Line line) throws LineAlreadyServedException {
+  public int addLine(Line line)
+      throws LineAlreadyServedException, TransportationVehicleBusyException {
     logger.info("addLine with line {}", line);
     try {
-      for (Line checkLine : lines.values()) {
+      for (Line checkLine : lines) {
         if (checkLine.getName().equals(line.getName())) {
           throw new LineAlreadyServedException();
         }
@@ -213,20 +382,33 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
       logger.error("addLine threw LineAlreadyServedException");
       throw e;
     }
+    Line busyLine = vehicleBlocks.findConflict(line);
+    if (busyLine != null) {
+      logger.error("addLine threw TransportationVehicleBusyException");
+      throw new TransportationVehicleBusyException(
+          "Vehicle of line " + line.getName() + " already serves line " + busyLine.getName());
+    }
 
-    int id = lines.size();
-    lines.put(id, line);
-    return id;
+    return putLine(line);
   }
 
   /**
-   * Adds multiple lines.
+   * Adds multiple lines without checking their names. Lines whose vehicle serves another line
+   * at the same time are added too, their number is logged as a warning.
    * @param line list of lines to add
    */
   public void addLines(List<Line> line) {
     logger.info("addLines with lines {}", line);
-    for (int i = 0; i < line.size(); i++) {
-      lines.put(i, line.get(i));
+    int conflicts = 0;
+    for (Line addedLine : line) {
+      if (vehicleBlocks.findConflict(addedLine) != null) {
+        conflicts++;
+      }
+      putLine(addedLine);
+    }
+    if (conflicts > 0) {
+      logger.warn("addLines added {} lines whose vehicle serves another line at the same time",
+          conflicts);
     }
   }
 
@@ -237,11 +419,61 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   @Override
   public void removeLine(int lineId) throws LineNotFoundException {
     logger.info("removeline with line {}", lineId);
-    if (!lines.containsKey(lineId)) {
+    Line line = lines.remove(lineId);
+    if (line == null) {
       throw new LineNotFoundException();
-    } else {
-      lines.remove(lineId);
     }
+    vehicleBlocks.remove(lineId);
+    unregisterLine(line);
+  }
+
+  /**
+   * Stores a line and adds it to the station stop index and the departure cache.
+   *
+   * @param line line to store
+   * @return id of the line
+   */
+  private int putLine(Line line) {
+    int id = lines.add(line);
+    stationStopIndex.addLine(line);
+    departureCache.addLine(line);
+    lineSearchIndex.add(line, line.getName());
+    vehicleBlocks.add(id, line);
+    try {
+      line.addStopsCallback(stopsListener);
+    } catch (IllegalParameterException e) {
+      logger.warn("Line {} was already registered", line);
+    }
+    return id;
+  }
+
+  /**
+   * Removes a line from the station stop index and the departure cache.
+   *
+   * @param line line that is no longer stored
+   */
+  private void unregisterLine(Line line) {
+    lineSearchIndex.remove(line);
+    departureCache.removeLine(line);
+    stationStopIndex.removeLine(line);
+    try {
+      line.removeStopsCallback(stopsListener);
+    } catch (IllegalParameterException e) {
+      logger.warn("Line {} was not registered", line);
+    }
+  }
+
+  /**
+   * Re-indexes a line whose stops changed.
+   *
+   * @param line line whose stops changed
+   */
+  private void onStopsChanged(Line line) {
+    // The line may have left some stations and reached others
+    departureCache.invalidate(line);
+    stationStopIndex.updateLine(line);
+    departureCache.invalidate(line);
+    vehicleBlocks.update(line);
   }
 
   /**
@@ -253,8 +485,9 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   @Override
   public int addStation(Station station) {
     logger.info("addStation with station", station);
-    int id = stations.size();
-    stations.put(id, station);
+    int id = stations.add(station);
+    stationSearchIndex.add(station, station.getName());
+    stationLocationIndex.add(station);
     return id;
   }
 
@@ -266,11 +499,14 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   @Override
   public void removeStation(int stationId) throws StationNotFoundException {
     logger.info("removeStation with id {}", stationId);
-    if (!stations.containsKey(stationId)) {
+    Station station = stations.remove(stationId);
+    if (station == null) {
       throw new StationNotFoundException();
-    } else {
-      stations.remove(stationId);
     }
+    departureCache.invalidate(station);
+    stationStopIndex.removeStation(station);
+    stationSearchIndex.remove(station);
+    stationLocationIndex.remove(station);
   }
 
   /**
@@ -282,9 +518,7 @@ public class SimpleTimetableService implements AdminTimetableService, TimetableS
   @Override
   public int addTransportationVehicle(TransportationVehicle transportationVehicle) {
     logger.info("addTransportationVehicle with vehicle {}", transportationVehicle);
-    int id = vehicles.size();
-    vehicles.put(id, transportationVehicle);
-    return id;
+    return vehicles.add(transportationVehicle);
   }
 
   /**
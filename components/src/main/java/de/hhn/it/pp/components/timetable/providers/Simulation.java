@@ -0,0 +1,451 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.events.SimulationListener;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.SimulationEvent;
+import de.hhn.it.pp.components.timetable.models.SimulationEventType;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Discrete-event simulation of the vehicles of the lines, independent of any user interface.
+ * The vehicle of a line arrives at and departs from each of its stops at the time of the stop
+ * plus its current delay. These events are kept in a priority queue and passed to the listeners
+ * in the order of their time, without waiting in between.
+ *
+ * <p>Only the next event of every line in service is in the queue. When it happened, the
+ * following one is scheduled with the delay at that time. If the delay grows until the event
+ * is due, the event is moved back in the queue. Lines enter the queue when the
+ * simulation reaches their first stop, so the queue stays small. Events at the same time are
+ * ordered by line, so runs are repeatable.
+ *
+ * <p>The events of a line never depend on other lines, so the lines can be split into
+ * partitions, each with its own queue. The partitions are advanced one window of 15 simulated
+ * minutes after another, by {@link #runUntil(LocalDateTime, ForkJoinPool)} on the threads of a
+ * pool, and their events are merged by time and line before they are passed to the listeners
+ * on the calling thread. Delays set by listeners while the simulation runs are seen from the
+ * next window on, so the events are the same for any number of partitions and threads.
+ *
+ * <p>A simulation must only be used by one thread at a time.
+ */
+public class Simulation {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(Simulation.class);
+
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  /**
+   * Simulated time which the partitions advance before their events are merged.
+   */
+  private static final int WINDOW_SECONDS = 15 * 60;
+
+  private final Line[] lines;
+  private final TransportationVehicle[] lineVehicles;
+  private final Stop[][] lineStops;
+  /**
+   * Time of every stop in seconds of the day. The stops of line l are from stopOffsets[l] on.
+   */
+  private final int[] stopTimes;
+  private final int[] stopOffsets;
+  private final Partition[] partitions;
+  private final List<SimulationListener> listeners = new ArrayList<>();
+
+  /**
+   * Start of the day of the start of the simulation. Times are seconds from then on.
+   */
+  private LocalDate firstDay;
+  private long currentTime;
+
+  /**
+   * Constructor. Simulates the current lines of the service, lines added later are not
+   * simulated. The simulation starts at the beginning of today.
+   *
+   * @param service service with the lines
+   */
+  public Simulation(LineSource service) {
+    this(service, 1);
+  }
+
+  /**
+   * Constructor for a simulation whose lines are split into partitions, which can be advanced
+   * on several threads.
+   *
+   * @param service        service with the lines
+   * @param partitionCount number of partitions, usually the number of threads
+   */
+  public Simulation(LineSource service, int partitionCount) {
+    if (partitionCount < 1) {
+      throw new IllegalArgumentException("Partitions must be positive: " + partitionCount);
+    }
+    List<Line> lineList = new ArrayList<>();
+    for (Line line : service.getLines()) {
+      if (!line.getStops().isEmpty() && line.getServiceCalendar() != null) {
+        lineList.add(line);
+      }
+    }
+    this.lines = lineList.toArray(new Line[0]);
+    lineVehicles = new TransportationVehicle[this.lines.length];
+    lineStops = new Stop[this.lines.length][];
+    stopOffsets = new int[this.lines.length + 1];
+    for (int line = 0; line < this.lines.length; line++) {
+      lineVehicles[line] = this.lines[line].getServingTransportationVehicle();
+      lineStops[line] = this.lines[line].getStops().toArray(new Stop[0]);
+      stopOffsets[line + 1] = stopOffsets[line] + lineStops[line].length;
+    }
+    stopTimes = new int[stopOffsets[this.lines.length]];
+    long[] order = new long[this.lines.length];
+    for (int line = 0; line < this.lines.length; line++) {
+      for (int stop = 0; stop < lineStops[line].length; stop++) {
+        stopTimes[stopOffsets[line] + stop] = lineStops[line][stop].getTime().toSecondOfDay();
+      }
+      order[line] = (long) stopTimes[stopOffsets[line]] << 32 | line;
+    }
+    Arrays.sort(order);
+    // Lines are dealt out in the order of their start, so every partition has work all day
+    partitions = new Partition[Math.min(partitionCount, Math.max(1, order.length))];
+    for (int partition = 0; partition < partitions.length; partition++) {
+      int size = (order.length - partition + partitions.length - 1) / partitions.length;
+      long[] partitionOrder = new long[size];
+      for (int i = 0; i < size; i++) {
+        partitionOrder[i] = order[partition + i * partitions.length];
+      }
+      partitions[partition] = new Partition(partitionOrder);
+    }
+    logger.info("Prepared simulation of {} lines in {} partitions", this.lines.length,
+        partitions.length);
+    start(LocalDate.now().atStartOfDay());
+  }
+
+  /**
+   * Starts the simulation again at a time. Pending events are discarded, lines in service at
+   * that time continue at their next stop.
+   *
+   * @param time time at which the simulation starts
+   */
+  public void start(LocalDateTime time) {
+    logger.info("start simulation at {}", time);
+    firstDay = time.toLocalDate();
+    currentTime = time.toLocalTime().toSecondOfDay();
+    for (Partition partition : partitions) {
+      partition.start();
+    }
+  }
+
+  /**
+   * Getter for the current time.
+   *
+   * @return time until which the simulation ran
+   */
+  public LocalDateTime getCurrentTime() {
+    return toDateTime(currentTime);
+  }
+
+  /**
+   * Lets the simulation run until a time and passes all events until then to the listeners.
+   * The partitions are advanced one after another on the calling thread.
+   *
+   * @param time time until which the simulation runs, including events at that time
+   * @return number of events
+   */
+  public int runUntil(LocalDateTime time) {
+    return runUntil(time, null);
+  }
+
+  /**
+   * Lets the simulation run until a time and passes all events until then to the listeners,
+   * advancing the partitions on the threads of a pool. The listeners are called on the calling
+   * thread, in the same order as without a pool.
+   *
+   * @param time time until which the simulation runs, including events at that time
+   * @param pool pool to advance the partitions, or null to advance them on the calling thread
+   * @return number of events
+   */
+  public int runUntil(LocalDateTime time, ForkJoinPool pool) {
+    long end = Duration.between(firstDay.atStartOfDay(), time).getSeconds();
+    if (end < currentTime) {
+      throw new IllegalArgumentException("Simulation already ran until " + getCurrentTime());
+    }
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    int count = 0;
+    while (true) {
+      long windowEnd = Math.min(end, currentTime + WINDOW_SECONDS);
+      if (pool == null) {
+        for (Partition partition : partitions) {
+          partition.advance(windowEnd);
+        }
+      } else {
+        tasks.clear();
+        for (Partition partition : partitions) {
+          tasks.add(ForkJoinTask.adapt(() -> partition.advance(windowEnd)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+      }
+      count += merge();
+      currentTime = windowEnd;
+      if (windowEnd == end) {
+        return count;
+      }
+    }
+  }
+
+  /**
+   * Inserts callbacks for events of the simulation.
+   *
+   * @param listener The listener to be added
+   * @throws IllegalParameterException when listener is already registered
+   */
+  public void addSimulationCallback(SimulationListener listener)
+      throws IllegalParameterException {
+    if (listeners.contains(listener)) {
+      throw new IllegalParameterException("Listener already registered.");
+    }
+
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a simulation callback.
+   *
+   * @param listener The listener to be removed
+   * @throws IllegalParameterException when listener is not yet registered
+   */
+  public void removeSimulationCallback(SimulationListener listener)
+      throws IllegalParameterException {
+    if (!listeners.contains(listener)) {
+      throw new IllegalParameterException("Listener is not registered:" + listener);
+    }
+
+    listeners.remove(listener);
+  }
+
+  /**
+   * Passes the events recorded by the partitions to the listeners, ordered by their key.
+   * @return number of events
+   */
+  private int merge() {
+    int count = 0;
+    for (Partition partition : partitions) {
+      count += partition.eventCount;
+    }
+    if (listeners.isEmpty()) {
+      return count;
+    }
+    // Next event of every partition, the key of the event with the partition as value
+    EventQueue heads = new EventQueue();
+    int[] next = new int[partitions.length];
+    for (int partition = 0; partition < partitions.length; partition++) {
+      if (partitions[partition].eventCount > 0) {
+        heads.add(partitions[partition].eventKeys[0], partition);
+      }
+    }
+    while (!heads.isEmpty()) {
+      long key = heads.peekKey();
+      int partition = (int) heads.peekValue();
+      Partition events = partitions[partition];
+      long value = events.eventValues[next[partition]++];
+      if (next[partition] < events.eventCount) {
+        heads.replaceFirst(events.eventKeys[next[partition]], partition);
+      } else {
+        heads.remove();
+      }
+      currentTime = key >>> 32;
+      dispatch((int) key, value);
+    }
+    return count;
+  }
+
+  /**
+   * Passes an event to the listeners at the current time.
+   * @param value day, stop and type of the event as in the queues
+   */
+  private void dispatch(int line, long value) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+    int day = (int) (value >>> 32);
+    int stop = (int) value >>> 1;
+    SimulationEventType type = (value & 1) == 0 ? SimulationEventType.ARRIVAL
+        : SimulationEventType.DEPARTURE;
+    long scheduled = (long) day * SECONDS_PER_DAY + stopTimes[stopOffsets[line] + stop];
+    SimulationEvent event = new SimulationEvent(type, lines[line], stop, lineStops[line][stop],
+        firstDay.plusDays(day), toDateTime(currentTime), (int) ((currentTime - scheduled) / 60));
+    for (SimulationListener listener : listeners) {
+      listener.notifySimulationEvent(event);
+    }
+  }
+
+  private LocalDateTime toDateTime(long time) {
+    return firstDay.atStartOfDay().plusSeconds(time);
+  }
+
+  /**
+   * Lines simulated together in one queue. A partition only reads the shared arrays of the
+   * simulation, so several partitions can be advanced at the same time.
+   */
+  private class Partition {
+
+    /**
+     * Lines ordered by the time of their first stop, and these times.
+     */
+    private final int[] linesByStart;
+    private final int[] lineStartTimes;
+    /**
+     * Next event of every line in service. The key is the time in the upper and the line in the
+     * lower half, the value is the day in the upper half, the stop and the type in the lower.
+     */
+    private final EventQueue queue = new EventQueue();
+    private long partitionTime;
+    /**
+     * Day whose lines are started, counted from the first day.
+     */
+    private int startingDay;
+    private LocalDate startingDate;
+    /**
+     * Index of the next line to start in the lines ordered by start.
+     */
+    private int nextStart;
+    /**
+     * Events of the last advance, with the keys and values of the queue.
+     */
+    private long[] eventKeys = new long[0];
+    private long[] eventValues = new long[0];
+    private int eventCount;
+
+    /**
+     * Constructor.
+     * @param order the lines, with the time of their first stop in the upper half, sorted
+     */
+    private Partition(long[] order) {
+      linesByStart = new int[order.length];
+      lineStartTimes = new int[order.length];
+      for (int i = 0; i < order.length; i++) {
+        linesByStart[i] = (int) order[i];
+        lineStartTimes[i] = (int) (order[i] >>> 32);
+      }
+    }
+
+    private void start() {
+      queue.clear();
+      eventCount = 0;
+      partitionTime = currentTime;
+      startingDay = 0;
+      startingDate = firstDay;
+
+      // Lines in service continue at their next stop
+      for (int line : linesByStart) {
+        int first = stopOffsets[line];
+        int last = stopOffsets[line + 1] - 1;
+        if (stopTimes[first] >= partitionTime || stopTimes[last] < partitionTime
+            || !lines[line].getServiceCalendar().runsOn(firstDay)) {
+          continue;
+        }
+        int stop = first + 1;
+        while (stopTimes[stop] < partitionTime) {
+          stop++;
+        }
+        schedule(line, 0, stop - first, SimulationEventType.ARRIVAL, false);
+      }
+      nextStart = 0;
+      while (nextStart < lineStartTimes.length && lineStartTimes[nextStart] < partitionTime) {
+        nextStart++;
+      }
+    }
+
+    /**
+     * Advances the lines of the partition until a time and records the events to be merged.
+     * @param end time until which the partition runs, including events at that time
+     * @return number of events
+     */
+    private int advance(long end) {
+      eventCount = 0;
+      int count = 0;
+      while (true) {
+        long nextTime = queue.isEmpty() ? Long.MAX_VALUE : queue.peekKey() >>> 32;
+        if (nextStart == linesByStart.length) {
+          // All lines of the day started, continue with the next day
+          long nextDayStart = (long) (startingDay + 1) * SECONDS_PER_DAY;
+          if (nextDayStart <= end && nextDayStart <= nextTime) {
+            startingDay++;
+            startingDate = startingDate.plusDays(1);
+            nextStart = 0;
+            continue;
+          }
+        } else {
+          long startTime = (long) startingDay * SECONDS_PER_DAY + lineStartTimes[nextStart];
+          if (startTime <= end && startTime <= nextTime) {
+            int line = linesByStart[nextStart++];
+            if (lines[line].getServiceCalendar().runsOn(startingDate)) {
+              // An early vehicle still waits for the start, so no other line is involved
+              partitionTime = Math.max(partitionTime, startTime);
+              schedule(line, startingDay, 0, SimulationEventType.DEPARTURE, false);
+            }
+            continue;
+          }
+        }
+        if (nextTime > end) {
+          break;
+        }
+        int line = (int) queue.peekKey();
+        long value = queue.peekValue();
+        int day = (int) (value >>> 32);
+        int stop = (int) value >>> 1;
+        long delayed = (long) day * SECONDS_PER_DAY + stopTimes[stopOffsets[line] + stop]
+            + lineVehicles[line].getDelay() * 60L;
+        if (delayed > nextTime) {
+          queue.replaceFirst(delayed << 32 | line, value);
+          continue;
+        }
+        partitionTime = nextTime;
+        record(queue.peekKey(), value);
+        // The vehicle departs from the stop at which it arrived, then arrives at the next one
+        if (stopOffsets[line] + stop == stopOffsets[line + 1] - 1) {
+          queue.remove();
+        } else if ((value & 1) == SimulationEventType.ARRIVAL.ordinal()) {
+          schedule(line, day, stop, SimulationEventType.DEPARTURE, true);
+        } else {
+          schedule(line, day, stop + 1, SimulationEventType.ARRIVAL, true);
+        }
+        count++;
+      }
+      partitionTime = end;
+      return count;
+    }
+
+    private void record(long key, long value) {
+      if (eventCount == eventKeys.length) {
+        eventKeys = Arrays.copyOf(eventKeys, Math.max(64, eventCount * 2));
+        eventValues = Arrays.copyOf(eventValues, eventKeys.length);
+      }
+      eventKeys[eventCount] = key;
+      eventValues[eventCount++] = value;
+    }
+
+    /**
+     * Schedules an event with the current delay of the vehicle, but not before the time of the
+     * partition.
+     * @param replaceFirst whether the event replaces the first one in the queue
+     */
+    private void schedule(int line, int day, int stop, SimulationEventType type,
+        boolean replaceFirst) {
+      int delay = lineVehicles[line].getDelay();
+      long scheduled = (long) day * SECONDS_PER_DAY + stopTimes[stopOffsets[line] + stop];
+      long time = Math.max(scheduled + delay * 60L, partitionTime);
+      long key = time << 32 | line;
+      long value = (long) day << 32 | stop << 1 | type.ordinal();
+      if (replaceFirst) {
+        queue.replaceFirst(key, value);
+      } else {
+        queue.add(key, value);
+      }
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulated time which passes a fixed number of times faster than real time. With a factor of
+ * {@link #WALL_CLOCK} it passes like real time, with {@link #AS_FAST_AS_POSSIBLE} it only
+ * passes when a simulation run by the clock reaches the next step.
+ *
+ * <p>The clock is a {@link ControllerCurrentTimeDelegate}, so departures and departure boards
+ * can use it instead of a user interface. The simulated time is computed from the real time at
+ * which the clock was started or last changed. Waiting for a step sleeps until the real time of
+ * that step, not for the length of the step, so time spent in the simulation and inexact sleeps
+ * do not add up to a drift. A clock can be read by several threads at the same time.
+ */
+public class SimulationClock implements ControllerCurrentTimeDelegate {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(SimulationClock.class);
+
+  /**
+   * Factor at which simulated time passes like real time.
+   */
+  public static final double WALL_CLOCK = 1;
+  /**
+   * Factor at which simulated time passes without waiting.
+   */
+  public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+  /**
+   * Sleeps shorter than this are done by parking, which is more exact.
+   */
+  private static final long PARK_NANOS = 2_000_000;
+
+  private double factor;
+  /**
+   * Simulated time at the real time anchorNanos.
+   */
+  private LocalDateTime anchorTime;
+  private long anchorNanos;
+
+  /**
+   * Constructor. The clock starts at once.
+   *
+   * @param time   simulated time at which the clock starts
+   * @param factor how many times faster than real time the simulated time passes
+   */
+  public SimulationClock(LocalDateTime time, double factor) {
+    checkFactor(factor);
+    this.factor = factor;
+    anchorTime = time;
+    anchorNanos = System.nanoTime();
+  }
+
+  /**
+   * Getter for the factor.
+   *
+   * @return how many times faster than real time the simulated time passes
+   */
+  public synchronized double getFactor() {
+    return factor;
+  }
+
+  /**
+   * Setter for the factor. The simulated time continues from the current time.
+   *
+   * @param factor how many times faster than real time the simulated time passes
+   */
+  public synchronized void setFactor(double factor) {
+    checkFactor(factor);
+    anchor(getCurrentTime());
+    this.factor = factor;
+  }
+
+  /**
+   * Getter for the current time.
+   *
+   * @return the simulated time
+   */
+  public synchronized LocalDateTime getCurrentTime() {
+    if (factor == AS_FAST_AS_POSSIBLE) {
+      return anchorTime;
+    }
+    return anchorTime.plusNanos((long) ((System.nanoTime() - anchorNanos) * factor));
+  }
+
+  /**
+   * Setter for the current time. The simulated time continues from there.
+   *
+   * @param time the simulated time
+   */
+  public synchronized void setCurrentTime(LocalDateTime time) {
+    anchor(time);
+  }
+
+  @Override
+  public LocalDateTime getControllerCurrentTime() {
+    return getCurrentTime();
+  }
+
+  /**
+   * Waits until the simulated time reached a time. If the clock runs as fast as possible, it is
+   * set to the time.
+   *
+   * @param time the simulated time to wait for
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void awaitTime(LocalDateTime time) throws InterruptedException {
+    while (true) {
+      long remaining;
+      synchronized (this) {
+        if (factor == AS_FAST_AS_POSSIBLE) {
+          if (time.isAfter(anchorTime)) {
+            anchorTime = time;
+          }
+          return;
+        }
+        long deadline = anchorNanos
+            + (long) (Duration.between(anchorTime, time).toNanos() / factor);
+        remaining = deadline - System.nanoTime();
+      }
+      if (remaining <= 0) {
+        return;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      // The deadline is computed again, in case the factor changed while sleeping
+      if (remaining > PARK_NANOS) {
+        Thread.sleep((remaining - PARK_NANOS / 2) / 1_000_000);
+      } else {
+        LockSupport.parkNanos(remaining);
+      }
+    }
+  }
+
+  /**
+   * Runs a simulation in steps until a time. Before each step, the clock waits until the
+   * simulated time reached the end of the step. If a step takes longer than its simulated time
+   * would, the next steps follow without waiting until the simulation caught up.
+   *
+   * @param simulation the simulation, which continues from its current time
+   * @param time       time until which the simulation runs
+   * @param step       simulated time of each step
+   * @return number of events
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public int run(Simulation simulation, LocalDateTime time, Duration step)
+      throws InterruptedException {
+    if (step.isNegative() || step.isZero()) {
+      throw new IllegalArgumentException("Step must be positive: " + step);
+    }
+    logger.info("run simulation until {} in steps of {} at factor {}", time, step, getFactor());
+    int count = 0;
+    LocalDateTime stepEnd = simulation.getCurrentTime();
+    while (stepEnd.isBefore(time)) {
+      stepEnd = stepEnd.plus(step);
+      if (stepEnd.isAfter(time)) {
+        stepEnd = time;
+      }
+      awaitTime(stepEnd);
+      count += simulation.runUntil(stepEnd);
+    }
+    return count;
+  }
+
+  private void anchor(LocalDateTime time) {
+    anchorTime = time;
+    anchorNanos = System.nanoTime();
+  }
+
+  private static void checkFactor(double factor) {
+    if (!(factor > 0)) {
+      throw new IllegalArgumentException("Factor must be positive: " + factor);
+    }
+  }
+}
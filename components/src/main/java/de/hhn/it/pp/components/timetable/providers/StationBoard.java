@@ -0,0 +1,101 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Station board of the {@link SimpleTimetableService}, built from the stops of the
+ * {@link StationStopIndex}. The board is immutable, it is rebuilt by the index when the lines
+ * serving the station change.
+ */
+class StationBoard extends AbstractStationBoard {
+
+  /**
+   * The stop of every stop event, sorted by their time of the day.
+   */
+  private final LineStop[] lineStops;
+  /**
+   * All vehicles serving the station, needed to find the biggest current delay.
+   */
+  private final TransportationVehicle[] vehicles;
+
+  /**
+   * Constructor.
+   * @param stops all stops made at the station
+   */
+  StationBoard(List<LineStop> stops) {
+    this(sortBySecondOfDay(stops), stops);
+  }
+
+  private StationBoard(long[] events, List<LineStop> stops) {
+    super(minutesOfDay(events), 0, events.length);
+    lineStops = new LineStop[events.length];
+    Set<TransportationVehicle> servingVehicles = new LinkedHashSet<>();
+    for (int i = 0; i < events.length; i++) {
+      lineStops[i] = stops.get((int) events[i]);
+      servingVehicles.add(lineStops[i].getLine().getServingTransportationVehicle());
+    }
+    vehicles = servingVehicles.toArray(new TransportationVehicle[0]);
+  }
+
+  /**
+   * Sorts the stops by their second of the day.
+   * @param stops the stops
+   * @return second and index of each stop, packed into one long per stop
+   */
+  private static long[] sortBySecondOfDay(List<LineStop> stops) {
+    long[] events = new long[stops.size()];
+    for (int i = 0; i < stops.size(); i++) {
+      long secondOfDay = stops.get(i).getStop().getTime().toSecondOfDay();
+      events[i] = secondOfDay << 32 | i;
+    }
+    Arrays.sort(events);
+    return events;
+  }
+
+  private static int[] minutesOfDay(long[] events) {
+    int[] minutesOfDay = new int[events.length];
+    for (int i = 0; i < events.length; i++) {
+      minutesOfDay[i] = (int) (events[i] >>> 32) / 60;
+    }
+    return minutesOfDay;
+  }
+
+  @Override
+  int getSecondOfDay(int event) {
+    return lineStops[event].getStop().getTime().toSecondOfDay();
+  }
+
+  @Override
+  TransportationVehicle getVehicle(int event) {
+    return lineStops[event].getLine().getServingTransportationVehicle();
+  }
+
+  @Override
+  ServiceCalendar getServiceCalendar(int event) {
+    return lineStops[event].getLine().getServiceCalendar();
+  }
+
+  @Override
+  Departure createDeparture(int event, LocalDateTime time,
+      ControllerCurrentTimeDelegate currentTimeDelegate) {
+    return new Departure(lineStops[event].getLine(), lineStops[event].getStop(), time,
+        currentTimeDelegate);
+  }
+
+  @Override
+  int getMaxDelay() {
+    int maxDelay = 0;
+    for (TransportationVehicle vehicle : vehicles) {
+      maxDelay = Math.max(maxDelay, vehicle.getDelay());
+    }
+    return maxDelay;
+  }
+}
@@ -0,0 +1,369 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.models.Station;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Spatial index over the locations of stations, answering which stations are nearest to a
+ * location and which are within a distance of it. Stations without location are left out.
+ *
+ * <p>The locations are kept as points on the unit sphere, so the straight distance between two
+ * points grows with their distance along the surface and no special care is needed near the
+ * poles or the 180th meridian. The points form a k-d tree stored in one array: the station at
+ * the middle of a range splits it on the axis along which the range is spread widest, so a
+ * query only visits the parts of the tree that can still hold a closer station. The index is
+ * rebuilt on the first query after a change.
+ */
+class StationLocationIndex {
+
+  /**
+   * Mean radius of the earth in meters.
+   */
+  static final double EARTH_RADIUS = 6_371_000;
+
+  /**
+   * Stations in the order they were added, null for removed stations.
+   */
+  private final ArrayList<Station> items = new ArrayList<>();
+  private final HashMap<Station, Integer> slots = new HashMap<>();
+
+  private boolean valid;
+  /**
+   * Slots of the stations in the order of the tree. The station at the middle of a range splits
+   * it along axes[middle], the ones before it are not greater on that axis, the ones after it
+   * are not smaller.
+   */
+  private int[] treeSlots = new int[0];
+  private double[][] points = new double[3][0];
+  private byte[] axes = new byte[0];
+
+  /**
+   * Adds a station, a station added before is added again with its new location.
+   * @param station the station
+   */
+  void add(Station station) {
+    remove(station);
+    if (station.hasLocation()) {
+      slots.put(station, items.size());
+      items.add(station);
+      valid = false;
+    }
+  }
+
+  /**
+   * Removes a station.
+   * @param station the station
+   */
+  void remove(Station station) {
+    Integer slot = slots.remove(station);
+    if (slot != null) {
+      items.set(slot, null);
+      valid = false;
+    }
+  }
+
+  /**
+   * Rebuilds the index now if it changed since the last query. Afterwards queries only read
+   * the index, so they may run on several threads until the next station is added or removed.
+   */
+  void prepare() {
+    if (!valid) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Returns the stations nearest to a location.
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param limit     The max number of stations to be returned
+   * @return nearest stations, nearest first
+   */
+  List<Station> nearest(double latitude, double longitude, int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    prepare();
+    NearestSearch search = new NearestSearch(point(latitude, longitude),
+        Math.min(limit, treeSlots.length));
+    if (search.capacity > 0) {
+      search.visit(0, treeSlots.length);
+    }
+    return search.result();
+  }
+
+  /**
+   * Returns the stations within a distance of a location.
+   * @param latitude  latitude of the location in degrees
+   * @param longitude longitude of the location in degrees
+   * @param radius    distance along the surface of the earth in meters
+   * @return stations within the distance, nearest first
+   */
+  List<Station> within(double latitude, double longitude, double radius) {
+    if (!(radius >= 0)) {
+      throw new IllegalArgumentException("radius must not be negative: " + radius);
+    }
+    prepare();
+    // Straight distance through the unit sphere for the distance along the surface
+    double chord = 2 * Math.sin(Math.min(radius / EARTH_RADIUS, Math.PI) / 2);
+    RadiusSearch search = new RadiusSearch(point(latitude, longitude), chord * chord);
+    search.visit(0, treeSlots.length);
+    return search.result();
+  }
+
+  private void rebuild() {
+    int size = slots.size();
+    treeSlots = new int[size];
+    points = new double[3][size];
+    axes = new byte[size];
+    int index = 0;
+    for (int slot = 0; slot < items.size(); slot++) {
+      Station station = items.get(slot);
+      if (station != null) {
+        double[] point = point(station.getLatitude(), station.getLongitude());
+        treeSlots[index] = slot;
+        for (int axis = 0; axis < 3; axis++) {
+          points[axis][index] = point[axis];
+        }
+        index++;
+      }
+    }
+    build(0, size);
+    valid = true;
+  }
+
+  /**
+   * Orders a range of the tree so that its middle splits it, then the parts before and after.
+   */
+  private void build(int low, int high) {
+    if (high - low <= 1) {
+      return;
+    }
+    byte axis = 0;
+    double widest = -1;
+    for (byte candidate = 0; candidate < 3; candidate++) {
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (int i = low; i < high; i++) {
+        min = Math.min(min, points[candidate][i]);
+        max = Math.max(max, points[candidate][i]);
+      }
+      if (max - min > widest) {
+        widest = max - min;
+        axis = candidate;
+      }
+    }
+    int middle = (low + high) >>> 1;
+    select(low, high - 1, middle, points[axis]);
+    axes[middle] = axis;
+    build(low, middle);
+    build(middle + 1, high);
+  }
+
+  /**
+   * Moves the point which is the k-th along an axis to k, the smaller ones before it and the
+   * greater ones after it.
+   */
+  private void select(int low, int high, int k, double[] values) {
+    while (low < high) {
+      double pivot = values[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      if (k <= j) {
+        high = j;
+      } else if (k >= i) {
+        low = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    int slot = treeSlots[i];
+    treeSlots[i] = treeSlots[j];
+    treeSlots[j] = slot;
+    for (double[] values : points) {
+      double value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+    }
+  }
+
+  /**
+   * Squared straight distance from a point to the point at an index of the tree.
+   */
+  private double distance(double[] point, int index) {
+    double x = point[0] - points[0][index];
+    double y = point[1] - points[1][index];
+    double z = point[2] - points[2][index];
+    return x * x + y * y + z * z;
+  }
+
+  private static double[] point(double latitude, double longitude) {
+    if (!(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180)) {
+      throw new IllegalArgumentException("Invalid location: " + latitude + ", " + longitude);
+    }
+    double phi = Math.toRadians(latitude);
+    double lambda = Math.toRadians(longitude);
+    return new double[] {Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda),
+        Math.sin(phi)};
+  }
+
+  /**
+   * Search for the nearest stations, keeping the best found so far in a max heap. Stations at
+   * the same distance are ordered by the time they were added.
+   */
+  private class NearestSearch {
+
+    private final double[] point;
+    private final int capacity;
+    private final double[] distances;
+    private final int[] heapSlots;
+    private int size;
+
+    private NearestSearch(double[] point, int capacity) {
+      this.point = point;
+      this.capacity = capacity;
+      distances = new double[capacity];
+      heapSlots = new int[capacity];
+    }
+
+    private void visit(int low, int high) {
+      if (low >= high) {
+        return;
+      }
+      int middle = (low + high) >>> 1;
+      offer(distance(point, middle), treeSlots[middle]);
+      double difference = point[axes[middle]] - points[axes[middle]][middle];
+      if (difference < 0) {
+        visit(low, middle);
+        if (size < capacity || difference * difference <= distances[0]) {
+          visit(middle + 1, high);
+        }
+      } else {
+        visit(middle + 1, high);
+        if (size < capacity || difference * difference <= distances[0]) {
+          visit(low, middle);
+        }
+      }
+    }
+
+    private void offer(double distance, int slot) {
+      if (size < capacity) {
+        int index = size++;
+        while (index > 0) {
+          int parent = (index - 1) >>> 1;
+          if (!greater(distance, slot, distances[parent], heapSlots[parent])) {
+            break;
+          }
+          distances[index] = distances[parent];
+          heapSlots[index] = heapSlots[parent];
+          index = parent;
+        }
+        distances[index] = distance;
+        heapSlots[index] = slot;
+      } else if (greater(distances[0], heapSlots[0], distance, slot)) {
+        int index = 0;
+        while (2 * index + 1 < size) {
+          int child = 2 * index + 1;
+          if (child + 1 < size && greater(distances[child + 1], heapSlots[child + 1],
+              distances[child], heapSlots[child])) {
+            child++;
+          }
+          if (!greater(distances[child], heapSlots[child], distance, slot)) {
+            break;
+          }
+          distances[index] = distances[child];
+          heapSlots[index] = heapSlots[child];
+          index = child;
+        }
+        distances[index] = distance;
+        heapSlots[index] = slot;
+      }
+    }
+
+    private List<Station> result() {
+      return sorted(distances, heapSlots, size);
+    }
+  }
+
+  /**
+   * Search for all stations within a squared straight distance.
+   */
+  private class RadiusSearch {
+
+    private final double[] point;
+    private final double limit;
+    private double[] distances = new double[16];
+    private int[] foundSlots = new int[16];
+    private int size;
+
+    private RadiusSearch(double[] point, double limit) {
+      this.point = point;
+      this.limit = limit;
+    }
+
+    private void visit(int low, int high) {
+      if (low >= high) {
+        return;
+      }
+      int middle = (low + high) >>> 1;
+      double distance = distance(point, middle);
+      if (distance <= limit) {
+        if (size == distances.length) {
+          distances = Arrays.copyOf(distances, size * 2);
+          foundSlots = Arrays.copyOf(foundSlots, size * 2);
+        }
+        distances[size] = distance;
+        foundSlots[size++] = treeSlots[middle];
+      }
+      double difference = point[axes[middle]] - points[axes[middle]][middle];
+      if (difference <= 0 || difference * difference <= limit) {
+        visit(low, middle);
+      }
+      if (difference >= 0 || difference * difference <= limit) {
+        visit(middle + 1, high);
+      }
+    }
+
+    private List<Station> result() {
+      return sorted(distances, foundSlots, size);
+    }
+  }
+
+  private static boolean greater(double distance, int slot, double otherDistance,
+      int otherSlot) {
+    return distance > otherDistance || distance == otherDistance && slot > otherSlot;
+  }
+
+  /**
+   * Returns the stations of slots ordered by their distance, then by slot.
+   */
+  private List<Station> sorted(double[] distances, int[] foundSlots, int size) {
+    Integer[] order = new Integer[size];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, (a, b) -> distances[a] != distances[b]
+        ? Double.compare(distances[a], distances[b])
+        : Integer.compare(foundSlots[a], foundSlots[b]));
+    List<Station> result = new ArrayList<>(size);
+    for (int i : order) {
+      result.add(items.get(foundSlots[i]));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,113 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Inverted index from a station to all stops which are made there, so that a departure query
+ * only has to look at the lines which actually serve the station.
+ *
+ * <p>Stops reference their station as object, therefore the index is keyed by the station and
+ * not by its id. This keeps the index valid no matter in which order stations and lines are
+ * registered.
+ */
+class StationStopIndex {
+
+  private final HashMap<Station, List<LineStop>> stopsByStation = new HashMap<>();
+  /**
+   * Stations a line was indexed under, needed to remove the line again.
+   */
+  private final HashMap<Line, List<Station>> stationsByLine = new HashMap<>();
+  /**
+   * Time-sorted boards built from the stops, created on first request.
+   */
+  private final HashMap<Station, StationBoard> boards = new HashMap<>();
+
+  /**
+   * Adds all stops of a line to the index.
+   * @param line line to add
+   */
+  void addLine(Line line) {
+    List<Stop> stops = line.getStops();
+    List<Station> indexedStations = new ArrayList<>(stops.size());
+    for (int i = 0; i < stops.size(); i++) {
+      Stop stop = stops.get(i);
+      stopsByStation.computeIfAbsent(stop.getStation(), station -> new ArrayList<>())
+          .add(new LineStop(line, stop, i));
+      indexedStations.add(stop.getStation());
+      boards.remove(stop.getStation());
+    }
+    stationsByLine.put(line, indexedStations);
+  }
+
+  /**
+   * Removes all stops of a line from the index.
+   * @param line line to remove
+   */
+  void removeLine(Line line) {
+    List<Station> indexedStations = stationsByLine.remove(line);
+    if (indexedStations == null) {
+      return;
+    }
+    for (Station station : indexedStations) {
+      List<LineStop> lineStops = stopsByStation.get(station);
+      if (lineStops != null) {
+        lineStops.removeIf(lineStop -> lineStop.getLine() == line);
+        boards.remove(station);
+        if (lineStops.isEmpty()) {
+          stopsByStation.remove(station);
+        }
+      }
+    }
+  }
+
+  /**
+   * Re-indexes a line, e.g. after its stops changed.
+   * @param line line to re-index
+   */
+  void updateLine(Line line) {
+    removeLine(line);
+    addLine(line);
+  }
+
+  /**
+   * Removes all stops at a station from the index.
+   * @param station station to remove
+   */
+  void removeStation(Station station) {
+    stopsByStation.remove(station);
+    boards.remove(station);
+  }
+
+  /**
+   * Returns all stops made at a station.
+   * @param station the station
+   * @return stops at the station, empty if no line serves it
+   */
+  List<LineStop> getStops(Station station) {
+    return stopsByStation.getOrDefault(station, Collections.emptyList());
+  }
+
+  /**
+   * Returns all stations a line is indexed under.
+   * @param line the line
+   * @return stations served by the line, empty if the line is not indexed
+   */
+  List<Station> getStations(Line line) {
+    return stationsByLine.getOrDefault(line, Collections.emptyList());
+  }
+
+  /**
+   * Returns the time-sorted stop events of a station.
+   * @param station the station
+   * @return board of the station, without events if no line serves it
+   */
+  StationBoard getBoard(Station station) {
+    return boards.computeIfAbsent(station, key -> new StationBoard(getStops(key)));
+  }
+}
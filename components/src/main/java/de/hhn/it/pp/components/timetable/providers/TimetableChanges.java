@@ -0,0 +1,23 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+
+/**
+ * Changes to a timetable which are committed together, see
+ * {@link ConcurrentTimetableService#update(TimetableChanges)}.
+ */
+@FunctionalInterface
+public interface TimetableChanges {
+
+  /**
+   * Applies the changes.
+   *
+   * @param timetable the timetable to change, only valid while the changes are applied
+   * @throws LineAlreadyServedException when a line already was added
+   * @throws TransportationVehicleBusyException when the vehicle of a line serves another line
+   *                                            at the same time
+   */
+  void apply(AdminTimetableService timetable)
+      throws LineAlreadyServedException, TransportationVehicleBusyException;
+}
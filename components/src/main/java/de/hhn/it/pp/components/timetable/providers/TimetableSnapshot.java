@@ -0,0 +1,424 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * State of the {@link ConcurrentTimetableService} at one point in time. A snapshot is never
+ * changed after it was created, so it can be read by any number of threads without locking.
+ *
+ * <p>Changes are made with an {@link Editor}, which copies only the tables and the stops of the
+ * stations it touches and builds the boards of those stations again. Everything else is shared
+ * with the previous snapshot.
+ */
+final class TimetableSnapshot {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(TimetableSnapshot.class);
+
+  static final TimetableSnapshot EMPTY = new TimetableSnapshot(new EntityTable<>(),
+      new EntityTable<>(), new EntityTable<>(), new HashMap<>(), new HashMap<>(),
+      new VehicleBlocks(), null, null, null);
+
+  private static final StationBoard EMPTY_BOARD = new StationBoard(List.of());
+
+  private final EntityTable<Station> stations;
+  private final EntityTable<Line> lines;
+  private final EntityTable<TransportationVehicle> vehicles;
+  /**
+   * All stops made at every station.
+   */
+  private final Map<Station, List<LineStop>> stopsByStation;
+  /**
+   * Time-sorted board of every station with at least one stop.
+   */
+  private final Map<Station, StationBoard> boards;
+  /**
+   * Trips of every vehicle, never changed after the snapshot was created.
+   */
+  private final VehicleBlocks vehicleBlocks;
+  /**
+   * Search indexes, created on the first search. Taken over from the previous snapshot when the
+   * stations or lines did not change.
+   */
+  private final AtomicReference<SearchIndex<Station>> stationSearchIndex;
+  private final AtomicReference<SearchIndex<Line>> lineSearchIndex;
+  private final AtomicReference<StationLocationIndex> stationLocationIndex;
+
+  private TimetableSnapshot(EntityTable<Station> stations, EntityTable<Line> lines,
+      EntityTable<TransportationVehicle> vehicles, Map<Station, List<LineStop>> stopsByStation,
+      Map<Station, StationBoard> boards, VehicleBlocks vehicleBlocks,
+      SearchIndex<Station> stationSearchIndex, SearchIndex<Line> lineSearchIndex,
+      StationLocationIndex stationLocationIndex) {
+    this.stations = stations;
+    this.lines = lines;
+    this.vehicles = vehicles;
+    this.stopsByStation = stopsByStation;
+    this.boards = boards;
+    this.vehicleBlocks = vehicleBlocks;
+    this.stationSearchIndex = new AtomicReference<>(stationSearchIndex);
+    this.lineSearchIndex = new AtomicReference<>(lineSearchIndex);
+    this.stationLocationIndex = new AtomicReference<>(stationLocationIndex);
+  }
+
+  /**
+   * Returns the station with the given id.
+   * @param stationId id of the station
+   * @return the station or null
+   */
+  Station getStation(int stationId) {
+    return stations.get(stationId);
+  }
+
+  /**
+   * Getter for the station count.
+   * @return number of stations
+   */
+  int getStationCount() {
+    return stations.size();
+  }
+
+  /**
+   * Returns the line with the given id.
+   * @param lineId id of the line
+   * @return the line or null
+   */
+  Line getLine(int lineId) {
+    return lines.get(lineId);
+  }
+
+  /**
+   * Getter for the lines.
+   * @return all lines, ordered by their id
+   */
+  Iterable<Line> getLines() {
+    return lines;
+  }
+
+  /**
+   * Getter for the lines count.
+   * @return number of lines
+   */
+  int getLinesCount() {
+    return lines.size();
+  }
+
+  /**
+   * Returns the TransportationVehicle with the given id.
+   * @param transportationVehicleId id of the TransportationVehicle
+   * @return the TransportationVehicle or null
+   */
+  TransportationVehicle getTransportationVehicle(int transportationVehicleId) {
+    return vehicles.get(transportationVehicleId);
+  }
+
+  /**
+   * Getter for the transportation vehicle count.
+   * @return number of vehicles
+   */
+  int getTransportationVehicleCount() {
+    return vehicles.size();
+  }
+
+  /**
+   * Returns the time-sorted stops of a station.
+   * @param station the station
+   * @return board of the station, empty if no line stops there
+   */
+  StationBoard getBoard(Station station) {
+    return boards.getOrDefault(station, EMPTY_BOARD);
+  }
+
+  /**
+   * Getter for the vehicle blocks.
+   * @return trips of every vehicle
+   */
+  VehicleBlocks getVehicleBlocks() {
+    return vehicleBlocks;
+  }
+
+  /**
+   * Getter for the station search index.
+   * @return index over the names of all stations
+   */
+  SearchIndex<Station> getStationSearchIndex() {
+    return getSearchIndex(stationSearchIndex, stations, Station::getName);
+  }
+
+  /**
+   * Getter for the line search index.
+   * @return index over the names of all lines
+   */
+  SearchIndex<Line> getLineSearchIndex() {
+    return getSearchIndex(lineSearchIndex, lines, Line::getName);
+  }
+
+  /**
+   * Getter for the station location index. Built like the search indexes on the first query.
+   * @return index over the locations of all stations
+   */
+  StationLocationIndex getStationLocationIndex() {
+    StationLocationIndex index = stationLocationIndex.get();
+    if (index == null) {
+      index = new StationLocationIndex();
+      for (Station station : stations) {
+        index.add(station);
+      }
+      index.prepare();
+      if (!stationLocationIndex.compareAndSet(null, index)) {
+        index = stationLocationIndex.get();
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Returns a search index, building it if this is the first search. Threads searching at the
+   * same time may each build one, but all of them continue with the one published first.
+   */
+  private static <T> SearchIndex<T> getSearchIndex(AtomicReference<SearchIndex<T>> reference,
+      EntityTable<T> items, Function<T, String> name) {
+    SearchIndex<T> index = reference.get();
+    if (index == null) {
+      index = new SearchIndex<>();
+      for (T item : items) {
+        index.add(item, name.apply(item));
+      }
+      index.prepare();
+      if (!reference.compareAndSet(null, index)) {
+        index = reference.get();
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Creates an editor for a new snapshot based on this one.
+   * @return the editor
+   */
+  Editor edit() {
+    return new Editor(this);
+  }
+
+  /**
+   * Collects changes to a snapshot. An editor must only be used by one thread and not after
+   * {@link #commit()}. Lines are frozen when they are added.
+   */
+  static final class Editor implements AdminTimetableService {
+
+    private final TimetableSnapshot base;
+    // Copies of the tables of the base snapshot, created on the first change
+    private EntityTable<Station> stations;
+    private EntityTable<Line> lines;
+    private EntityTable<TransportationVehicle> vehicles;
+    private HashMap<Station, List<LineStop>> stopsByStation;
+    private VehicleBlocks vehicleBlocks;
+    /**
+     * Stations whose stops were copied and whose boards must be built again.
+     */
+    private final Set<Station> changedStations = new HashSet<>();
+    private boolean committed;
+
+    private Editor(TimetableSnapshot base) {
+      this.base = base;
+    }
+
+    @Override
+    public int addLine(Line line)
+        throws LineAlreadyServedException, TransportationVehicleBusyException {
+      checkNotCommitted();
+      for (Line checkLine : lines != null ? lines : base.lines) {
+        if (checkLine.getName().equals(line.getName())) {
+          throw new LineAlreadyServedException();
+        }
+      }
+      Line busyLine = (vehicleBlocks != null ? vehicleBlocks : base.vehicleBlocks)
+          .findConflict(line);
+      if (busyLine != null) {
+        throw new TransportationVehicleBusyException(
+            "Vehicle of line " + line.getName() + " already serves line " + busyLine.getName());
+      }
+      return putLine(line);
+    }
+
+    @Override
+    public void addLines(List<Line> lines) {
+      checkNotCommitted();
+      int conflicts = 0;
+      for (Line line : lines) {
+        if ((vehicleBlocks != null ? vehicleBlocks : base.vehicleBlocks)
+            .findConflict(line) != null) {
+          conflicts++;
+        }
+        putLine(line);
+      }
+      if (conflicts > 0) {
+        logger.warn("addLines added {} lines whose vehicle serves another line at the same time",
+            conflicts);
+      }
+    }
+
+    @Override
+    public void removeLine(int lineId) throws LineNotFoundException {
+      checkNotCommitted();
+      if (!(lines != null ? lines : base.lines).contains(lineId)) {
+        throw new LineNotFoundException();
+      }
+      writableVehicleBlocks().remove(lineId);
+      removeStops(writableLines().remove(lineId));
+    }
+
+    @Override
+    public int addStation(Station station) {
+      checkNotCommitted();
+      return writableStations().add(station);
+    }
+
+    @Override
+    public void removeStation(int stationId) throws StationNotFoundException {
+      checkNotCommitted();
+      if (!(stations != null ? stations : base.stations).contains(stationId)) {
+        throw new StationNotFoundException();
+      }
+      Station station = writableStations().remove(stationId);
+      writableStopsByStation().remove(station);
+      changedStations.add(station);
+    }
+
+    @Override
+    public int addTransportationVehicle(TransportationVehicle transportationVehicle) {
+      checkNotCommitted();
+      if (vehicles == null) {
+        vehicles = new EntityTable<>(base.vehicles);
+      }
+      return vehicles.add(transportationVehicle);
+    }
+
+    @Override
+    public void removeTransportationVehicle(int transportationVehicleId) {
+      checkNotCommitted();
+      if (vehicles == null) {
+        vehicles = new EntityTable<>(base.vehicles);
+      }
+      vehicles.remove(transportationVehicleId);
+    }
+
+    /**
+     * Creates the snapshot with all changes. The boards of changed stations are built here, so
+     * readers of the snapshot never have to.
+     * @return the new snapshot
+     */
+    TimetableSnapshot commit() {
+      checkNotCommitted();
+      committed = true;
+
+      Map<Station, List<LineStop>> newStopsByStation = base.stopsByStation;
+      Map<Station, StationBoard> newBoards = base.boards;
+      if (!changedStations.isEmpty()) {
+        newStopsByStation = stopsByStation;
+        newBoards = new HashMap<>(base.boards);
+        for (Station station : changedStations) {
+          List<LineStop> stops = newStopsByStation.get(station);
+          if (stops == null || stops.isEmpty()) {
+            newStopsByStation.remove(station);
+            newBoards.remove(station);
+          } else {
+            newBoards.put(station, new StationBoard(stops));
+          }
+        }
+      }
+      return new TimetableSnapshot(
+          stations != null ? stations : base.stations,
+          lines != null ? lines : base.lines,
+          vehicles != null ? vehicles : base.vehicles,
+          newStopsByStation, newBoards,
+          vehicleBlocks != null ? vehicleBlocks : base.vehicleBlocks,
+          stations != null ? null : base.stationSearchIndex.get(),
+          lines != null ? null : base.lineSearchIndex.get(),
+          stations != null ? null : base.stationLocationIndex.get());
+    }
+
+    private int putLine(Line line) {
+      line.freeze();
+      int id = writableLines().add(line);
+      writableVehicleBlocks().add(id, line);
+      List<Stop> stops = line.getStops();
+      for (int i = 0; i < stops.size(); i++) {
+        Stop stop = stops.get(i);
+        writableStops(stop.getStation()).add(new LineStop(line, stop, i));
+      }
+      return id;
+    }
+
+    private void removeStops(Line line) {
+      for (Stop stop : line.getStops()) {
+        Map<Station, List<LineStop>> current =
+            stopsByStation != null ? stopsByStation : base.stopsByStation;
+        // The station may have been removed before the line
+        if (current.containsKey(stop.getStation())) {
+          writableStops(stop.getStation()).removeIf(lineStop -> lineStop.getLine() == line);
+        }
+      }
+    }
+
+    /**
+     * Returns the stops of a station, copied from the base snapshot on the first change.
+     */
+    private List<LineStop> writableStops(Station station) {
+      HashMap<Station, List<LineStop>> map = writableStopsByStation();
+      if (changedStations.add(station)) {
+        List<LineStop> baseStops = map.get(station);
+        map.put(station, baseStops == null ? new ArrayList<>() : new ArrayList<>(baseStops));
+      }
+      return map.computeIfAbsent(station, key -> new ArrayList<>());
+    }
+
+    private HashMap<Station, List<LineStop>> writableStopsByStation() {
+      if (stopsByStation == null) {
+        stopsByStation = new HashMap<>(base.stopsByStation);
+      }
+      return stopsByStation;
+    }
+
+    private EntityTable<Station> writableStations() {
+      if (stations == null) {
+        stations = new EntityTable<>(base.stations);
+      }
+      return stations;
+    }
+
+    private EntityTable<Line> writableLines() {
+      if (lines == null) {
+        lines = new EntityTable<>(base.lines);
+      }
+      return lines;
+    }
+
+    private VehicleBlocks writableVehicleBlocks() {
+      if (vehicleBlocks == null) {
+        vehicleBlocks = base.vehicleBlocks.copy();
+      }
+      return vehicleBlocks;
+    }
+
+    private void checkNotCommitted() {
+      if (committed) {
+        throw new IllegalStateException("Changes were already committed");
+      }
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The trips of every vehicle, its block. A trip occupies its vehicle from the time of its first
+ * stop until the time of its last stop on every day of its service calendar. Two trips of a
+ * vehicle overlap if they share a moment on a day on which both operate, but one trip may start
+ * at the moment another one ends.
+ *
+ * <p>The trips of a vehicle form an interval tree: a balanced search tree ordered by start
+ * where every node knows the latest end below it, so the trips overlapping a time are found in
+ * O(log n) plus the number of trips found. Nodes are never changed, a change copies the path to
+ * the changed node, so {@link #copy()} only copies the maps and copies share all trips.
+ */
+class VehicleBlocks {
+
+  /**
+   * Root of the tree of every vehicle with at least one trip.
+   */
+  private final HashMap<TransportationVehicle, Node> roots;
+  /**
+   * Id of every added line, also of the lines left out of the trees.
+   */
+  private final HashMap<Line, Integer> ids;
+  /**
+   * Node of every line in a tree by the id of the line.
+   */
+  private final HashMap<Integer, Node> trips;
+
+  /**
+   * Constructor of blocks without trips.
+   */
+  VehicleBlocks() {
+    this(new HashMap<>(), new HashMap<>(), new HashMap<>());
+  }
+
+  private VehicleBlocks(HashMap<TransportationVehicle, Node> roots, HashMap<Line, Integer> ids,
+      HashMap<Integer, Node> trips) {
+    this.roots = roots;
+    this.ids = ids;
+    this.trips = trips;
+  }
+
+  /**
+   * Copies the blocks, later changes of either are not seen by the other.
+   * @return the copy
+   */
+  VehicleBlocks copy() {
+    return new VehicleBlocks(new HashMap<>(roots), new HashMap<>(ids), new HashMap<>(trips));
+  }
+
+  /**
+   * Looks for a trip of the vehicle of a line which overlaps the line.
+   * @param line the line
+   * @return a line of the vehicle overlapping the line, or null if there is none
+   */
+  Line findConflict(Line line) {
+    Node trip = toNode(0, line);
+    if (trip == null) {
+      return null;
+    }
+    Node conflict = findConflict(roots.get(line.getServingTransportationVehicle()), trip);
+    return conflict == null ? null : conflict.line;
+  }
+
+  /**
+   * Adds the trip of a line to the block of its vehicle, even if it overlaps other trips. Lines
+   * without vehicle, calendar or stops are left out until their stops change.
+   * @param id   id of the line
+   * @param line the line
+   */
+  void add(int id, Line line) {
+    ids.put(line, id);
+    insert(id, line);
+  }
+
+  /**
+   * Removes the trip of a line from the block of its vehicle.
+   * @param id id of the line
+   */
+  void remove(int id) {
+    Node trip = delete(id);
+    if (trip != null) {
+      ids.remove(trip.line);
+    } else {
+      ids.values().remove(id);
+    }
+  }
+
+  /**
+   * Moves the trip of a line after its stops changed. Overlaps are not checked.
+   * @param line the line
+   */
+  void update(Line line) {
+    Integer id = ids.get(line);
+    if (id != null) {
+      delete(id);
+      insert(id, line);
+    }
+  }
+
+  /**
+   * Looks for the trip on which a vehicle is at a time. If one trip ends when the next starts,
+   * the vehicle is on the next one.
+   * @param vehicle the vehicle
+   * @param time    the time
+   * @return the line of the trip, or null if the vehicle is on no trip
+   */
+  Line getLine(TransportationVehicle vehicle, LocalDateTime time) {
+    Node trip = findAt(roots.get(vehicle), time.toLocalTime().toSecondOfDay(),
+        time.toLocalDate().toEpochDay(), null);
+    return trip == null ? null : trip.line;
+  }
+
+  private void insert(int id, Line line) {
+    Node trip = toNode(id, line);
+    if (trip != null) {
+      TransportationVehicle vehicle = line.getServingTransportationVehicle();
+      roots.put(vehicle, insert(roots.get(vehicle), trip));
+      trips.put(id, trip);
+    }
+  }
+
+  private Node delete(int id) {
+    Node trip = trips.remove(id);
+    if (trip != null) {
+      TransportationVehicle vehicle = trip.line.getServingTransportationVehicle();
+      Node root = delete(roots.get(vehicle), trip.start, trip.id);
+      if (root == null) {
+        roots.remove(vehicle);
+      } else {
+        roots.put(vehicle, root);
+      }
+    }
+    return trip;
+  }
+
+  /**
+   * Creates the node of the trip of a line.
+   * @return the node, or null if the line has no vehicle, calendar or stops
+   */
+  private static Node toNode(int id, Line line) {
+    List<Stop> stops = line.getStops();
+    if (line.getServingTransportationVehicle() == null || line.getServiceCalendar() == null
+        || stops.isEmpty()) {
+      return null;
+    }
+    int start = stops.get(0).getTime().toSecondOfDay();
+    int end = stops.get(stops.size() - 1).getTime().toSecondOfDay();
+    return new Node(start, end, id, line, null, null);
+  }
+
+  private static boolean overlaps(Node a, Node b) {
+    return a.start < b.end && b.start < a.end || a.start == b.start;
+  }
+
+  /**
+   * Looks for a trip overlapping another one on a day on which both operate.
+   */
+  private static Node findConflict(Node node, Node trip) {
+    // No trip below ends late enough
+    if (node == null || node.maxEnd < trip.start) {
+      return null;
+    }
+    Node conflict = findConflict(node.left, trip);
+    if (conflict != null) {
+      return conflict;
+    }
+    if (overlaps(node, trip) && node.line.getServiceCalendar()
+        .sharesDayWith(trip.line.getServiceCalendar())) {
+      return node;
+    }
+    // Trips to the right start no earlier than this one
+    return node.start > trip.end ? null : findConflict(node.right, trip);
+  }
+
+  /**
+   * Looks for the trip operating at a time which started last.
+   */
+  private static Node findAt(Node node, int second, long epochDay, Node best) {
+    if (node == null || node.maxEnd < second) {
+      return best;
+    }
+    best = findAt(node.left, second, epochDay, best);
+    if (node.start > second) {
+      return best;
+    }
+    if (node.end >= second && node.line.getServiceCalendar().runsOn(epochDay)
+        && (best == null || node.start >= best.start)) {
+      best = node;
+    }
+    return findAt(node.right, second, epochDay, best);
+  }
+
+  private static int compare(int start, int id, Node node) {
+    return start != node.start ? Integer.compare(start, node.start) : Integer.compare(id, node.id);
+  }
+
+  private static Node insert(Node node, Node trip) {
+    if (node == null) {
+      return trip;
+    }
+    if (compare(trip.start, trip.id, node) < 0) {
+      return balance(node.with(insert(node.left, trip), node.right));
+    }
+    return balance(node.with(node.left, insert(node.right, trip)));
+  }
+
+  private static Node delete(Node node, int start, int id) {
+    if (node == null) {
+      return null;
+    }
+    int comparison = compare(start, id, node);
+    if (comparison < 0) {
+      return balance(node.with(delete(node.left, start, id), node.right));
+    }
+    if (comparison > 0) {
+      return balance(node.with(node.left, delete(node.right, start, id)));
+    }
+    if (node.left == null) {
+      return node.right;
+    }
+    if (node.right == null) {
+      return node.left;
+    }
+    // Replace the node by the first trip to its right
+    Node next = node.right;
+    while (next.left != null) {
+      next = next.left;
+    }
+    return balance(next.with(node.left, delete(node.right, next.start, next.id)));
+  }
+
+  private static Node balance(Node node) {
+    int difference = height(node.left) - height(node.right);
+    if (difference > 1) {
+      Node left = node.left;
+      if (height(left.left) < height(left.right)) {
+        left = rotateLeft(left);
+      }
+      return rotateRight(node.with(left, node.right));
+    }
+    if (difference < -1) {
+      Node right = node.right;
+      if (height(right.right) < height(right.left)) {
+        right = rotateRight(right);
+      }
+      return rotateLeft(node.with(node.left, right));
+    }
+    return node;
+  }
+
+  private static Node rotateLeft(Node node) {
+    Node right = node.right;
+    return right.with(node.with(node.left, right.left), right.right);
+  }
+
+  private static Node rotateRight(Node node) {
+    Node left = node.left;
+    return left.with(left.left, node.with(left.right, node.right));
+  }
+
+  private static int height(Node node) {
+    return node == null ? 0 : node.height;
+  }
+
+  /**
+   * Trip in the tree of a vehicle, never changed after it was created.
+   */
+  private static final class Node {
+
+    /**
+     * Times of the first and the last stop in seconds of the day.
+     */
+    private final int start;
+    private final int end;
+    private final int id;
+    private final Line line;
+    private final Node left;
+    private final Node right;
+    private final int height;
+    /**
+     * Latest end of the trips of this subtree.
+     */
+    private final int maxEnd;
+
+    private Node(int start, int end, int id, Line line, Node left, Node right) {
+      this.start = start;
+      this.end = end;
+      this.id = id;
+      this.line = line;
+      this.left = left;
+      this.right = right;
+      height = Math.max(height(left), height(right)) + 1;
+      int latest = end;
+      if (left != null) {
+        latest = Math.max(latest, left.maxEnd);
+      }
+      if (right != null) {
+        latest = Math.max(latest, right.maxEnd);
+      }
+      maxEnd = latest;
+    }
+
+    /**
+     * Creates a copy of the trip with other children.
+     */
+    private Node with(Node left, Node right) {
+      return left == this.left && right == this.right ? this
+          : new Node(start, end, id, line, left, right);
+    }
+  }
+}
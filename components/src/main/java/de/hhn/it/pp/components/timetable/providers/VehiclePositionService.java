@@ -0,0 +1,348 @@
+package de.hhn.it.pp.components.timetable.providers;
+
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.VehiclePosition;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Positions of the vehicles of the lines at a simulated time. Between two stops, a vehicle is
+ * placed on the straight line between their stations, at the part of the way given by the time
+ * of the stops plus its current delay. Segments to or from a station without a location are
+ * left out.
+ *
+ * <p>{@link #update(LocalDateTime)} computes the positions of all vehicles at a time and sorts
+ * them into a uniform grid over the stations. Queries use the last update and only look at the
+ * cells which overlap the bounding box, so they are cheap enough to be made very often. Updates
+ * publish a new grid at once, so queries can be made by several threads while another one
+ * updates.
+ */
+public class VehiclePositionService {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+      .getLogger(VehiclePositionService.class);
+
+  private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+  /**
+   * Number of stations per cell of the grid the grid is sized for.
+   */
+  private static final int STATIONS_PER_CELL = 4;
+
+  private final Line[] lines;
+  private final TransportationVehicle[] lineVehicles;
+  /**
+   * Time of every stop in seconds of the day, and the location of its station. The stops of line
+   * l are from stopOffsets[l] on.
+   */
+  private final int[] stopTimes;
+  private final double[] stopLatitudes;
+  private final double[] stopLongitudes;
+  private final int[] stopOffsets;
+  /**
+   * Lines ordered by the time of their first stop, and these times.
+   */
+  private final int[] linesByStart;
+  private final int[] lineStartTimes;
+  /**
+   * Longest time from the first to the last stop of a line.
+   */
+  private final int maxDuration;
+  private final TransportationVehicle[] vehicles;
+
+  private final double minLatitude;
+  private final double minLongitude;
+  private final double cellHeight;
+  private final double cellWidth;
+  private final int rows;
+  private final int columns;
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Constructor. Places the vehicles of the current lines of the service, lines added later
+   * are left out.
+   *
+   * @param service service with the lines
+   */
+  public VehiclePositionService(LineSource service) {
+    List<Line> lineList = new ArrayList<>();
+    for (Line line : service.getLines()) {
+      if (line.getStops().size() > 1 && line.getServiceCalendar() != null) {
+        lineList.add(line);
+      }
+    }
+    this.lines = lineList.toArray(new Line[0]);
+    lineVehicles = new TransportationVehicle[this.lines.length];
+    stopOffsets = new int[this.lines.length + 1];
+    Map<TransportationVehicle, Boolean> vehicleSet = new IdentityHashMap<>();
+    for (int line = 0; line < this.lines.length; line++) {
+      lineVehicles[line] = this.lines[line].getServingTransportationVehicle();
+      vehicleSet.put(lineVehicles[line], Boolean.TRUE);
+      stopOffsets[line + 1] = stopOffsets[line] + this.lines[line].getStops().size();
+    }
+    vehicles = vehicleSet.keySet().toArray(new TransportationVehicle[0]);
+
+    stopTimes = new int[stopOffsets[this.lines.length]];
+    stopLatitudes = new double[stopTimes.length];
+    stopLongitudes = new double[stopTimes.length];
+    Map<Station, Boolean> located = new IdentityHashMap<>();
+    double minLat = Double.POSITIVE_INFINITY;
+    double maxLat = Double.NEGATIVE_INFINITY;
+    double minLon = Double.POSITIVE_INFINITY;
+    double maxLon = Double.NEGATIVE_INFINITY;
+    long[] order = new long[this.lines.length];
+    int longest = 0;
+    for (int line = 0; line < this.lines.length; line++) {
+      int index = stopOffsets[line];
+      for (Stop stop : this.lines[line].getStops()) {
+        Station station = stop.getStation();
+        stopTimes[index] = stop.getTime().toSecondOfDay();
+        stopLatitudes[index] = station.getLatitude();
+        stopLongitudes[index] = station.getLongitude();
+        if (station.hasLocation() && located.put(station, Boolean.TRUE) == null) {
+          minLat = Math.min(minLat, station.getLatitude());
+          maxLat = Math.max(maxLat, station.getLatitude());
+          minLon = Math.min(minLon, station.getLongitude());
+          maxLon = Math.max(maxLon, station.getLongitude());
+        }
+        index++;
+      }
+      int first = stopTimes[stopOffsets[line]];
+      longest = Math.max(longest, stopTimes[stopOffsets[line + 1] - 1] - first);
+      order[line] = (long) first << 32 | line;
+    }
+    maxDuration = longest;
+    Arrays.sort(order);
+    linesByStart = new int[order.length];
+    lineStartTimes = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      linesByStart[i] = (int) order[i];
+      lineStartTimes[i] = (int) (order[i] >>> 32);
+    }
+
+    // Vehicles are always between stations, so the grid only has to cover these
+    if (located.isEmpty()) {
+      minLat = 0;
+      maxLat = 0;
+      minLon = 0;
+      maxLon = 0;
+    }
+    int side = Math.max(1, (int) Math.sqrt((double) located.size() / STATIONS_PER_CELL));
+    minLatitude = minLat;
+    minLongitude = minLon;
+    rows = side;
+    columns = side;
+    cellHeight = Math.max(maxLat - minLat, Double.MIN_NORMAL) / rows;
+    cellWidth = Math.max(maxLon - minLon, Double.MIN_NORMAL) / columns;
+    snapshot = new Snapshot(null, new VehiclePosition[0], new double[0], new double[0],
+        new int[rows * columns + 1]);
+    logger.info("Prepared positions of {} lines in a grid of {}x{} cells", this.lines.length,
+        rows, columns);
+  }
+
+  /**
+   * Computes the positions of the vehicles at a time. Queries made afterwards use them.
+   *
+   * @param time the simulated time
+   */
+  public synchronized void update(LocalDateTime time) {
+    int slack = 0;
+    for (TransportationVehicle vehicle : vehicles) {
+      slack = Math.max(slack, Math.abs(vehicle.getDelay()) * 60);
+    }
+    List<VehiclePosition> positions = new ArrayList<>();
+    LocalDate date = time.toLocalDate();
+    int second = time.toLocalTime().toSecondOfDay();
+    // Lines of the day before can still be on their way after midnight
+    addPositions(date.minusDays(1), second + SECONDS_PER_DAY, slack, positions);
+    addPositions(date, second, slack, positions);
+
+    // Sort the positions into the cells of the grid by counting
+    int size = positions.size();
+    int[] cells = new int[size];
+    int[] cellOffsets = new int[rows * columns + 1];
+    for (int i = 0; i < size; i++) {
+      VehiclePosition position = positions.get(i);
+      cells[i] = cell(row(position.getLatitude()), column(position.getLongitude()));
+      cellOffsets[cells[i] + 1]++;
+    }
+    for (int cell = 0; cell < rows * columns; cell++) {
+      cellOffsets[cell + 1] += cellOffsets[cell];
+    }
+    int[] next = Arrays.copyOf(cellOffsets, rows * columns);
+    VehiclePosition[] sorted = new VehiclePosition[size];
+    double[] latitudes = new double[size];
+    double[] longitudes = new double[size];
+    for (int i = 0; i < size; i++) {
+      int index = next[cells[i]]++;
+      sorted[index] = positions.get(i);
+      latitudes[index] = sorted[index].getLatitude();
+      longitudes[index] = sorted[index].getLongitude();
+    }
+    snapshot = new Snapshot(time, sorted, latitudes, longitudes, cellOffsets);
+    logger.debug("update positions at {}: {} vehicles", time, size);
+  }
+
+  /**
+   * Getter for the time of the positions.
+   *
+   * @return time of the last update, or null if there was none
+   */
+  public LocalDateTime getTime() {
+    return snapshot.time;
+  }
+
+  /**
+   * Getter for the positions.
+   *
+   * @return positions of all vehicles on their way at the time of the last update
+   */
+  public List<VehiclePosition> getPositions() {
+    return Collections.unmodifiableList(Arrays.asList(snapshot.positions));
+  }
+
+  /**
+   * Looks for the vehicles within a bounding box, including its borders.
+   *
+   * @param minLatitude  southern border in degrees
+   * @param minLongitude western border in degrees
+   * @param maxLatitude  northern border in degrees
+   * @param maxLongitude eastern border in degrees
+   * @return positions of the vehicles within the box at the time of the last update
+   */
+  public List<VehiclePosition> getVehiclesInBox(double minLatitude, double minLongitude,
+      double maxLatitude, double maxLongitude) {
+    Snapshot current = snapshot;
+    List<VehiclePosition> result = new ArrayList<>();
+    if (current.positions.length == 0 || !(minLatitude <= maxLatitude)
+        || !(minLongitude <= maxLongitude)) {
+      return result;
+    }
+    int firstRow = row(minLatitude);
+    int lastRow = row(maxLatitude);
+    int firstColumn = column(minLongitude);
+    int lastColumn = column(maxLongitude);
+    for (int row = firstRow; row <= lastRow; row++) {
+      // The cells of a row follow each other, so they are scanned as one range
+      int end = current.cellOffsets[cell(row, lastColumn) + 1];
+      for (int i = current.cellOffsets[cell(row, firstColumn)]; i < end; i++) {
+        double latitude = current.latitudes[i];
+        double longitude = current.longitudes[i];
+        if (latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude
+            && longitude <= maxLongitude) {
+          result.add(current.positions[i]);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the positions of the lines operating on a day.
+   *
+   * @param second time in seconds from the start of the day
+   * @param slack  largest delay of a vehicle in seconds
+   */
+  private void addPositions(LocalDate date, int second, int slack,
+      List<VehiclePosition> positions) {
+    // Only lines which started since the longest line before can be on their way
+    int index = lowerBound(second - maxDuration - slack);
+    while (index < lineStartTimes.length && lineStartTimes[index] <= second + slack) {
+      int line = linesByStart[index++];
+      int delay = lineVehicles[line].getDelay();
+      int scheduled = second - delay * 60;
+      int first = stopOffsets[line];
+      int last = stopOffsets[line + 1] - 1;
+      if (scheduled < stopTimes[first] || scheduled > stopTimes[last]
+          || !lines[line].getServiceCalendar().runsOn(date)) {
+        continue;
+      }
+      // Last stop whose time passed, but not the last stop of the line
+      int low = first;
+      int high = last - 1;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (stopTimes[middle] <= scheduled) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      double fromLatitude = stopLatitudes[low];
+      double toLatitude = stopLatitudes[low + 1];
+      if (Double.isNaN(fromLatitude) || Double.isNaN(toLatitude)) {
+        continue;
+      }
+      int length = stopTimes[low + 1] - stopTimes[low];
+      double progress = length <= 0 ? 1
+          : Math.min(1, (double) (scheduled - stopTimes[low]) / length);
+      double latitude = fromLatitude + (toLatitude - fromLatitude) * progress;
+      double longitude = stopLongitudes[low]
+          + (stopLongitudes[low + 1] - stopLongitudes[low]) * progress;
+      positions.add(new VehiclePosition(lines[line], date, low - first, progress, latitude,
+          longitude, delay));
+    }
+  }
+
+  /**
+   * Looks for the first line starting at a time or later.
+   */
+  private int lowerBound(int time) {
+    int low = 0;
+    int high = lineStartTimes.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (lineStartTimes[middle] < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int row(double latitude) {
+    int row = (int) Math.floor((latitude - minLatitude) / cellHeight);
+    return Math.max(0, Math.min(rows - 1, row));
+  }
+
+  private int column(double longitude) {
+    int column = (int) Math.floor((longitude - minLongitude) / cellWidth);
+    return Math.max(0, Math.min(columns - 1, column));
+  }
+
+  private int cell(int row, int column) {
+    return row * columns + column;
+  }
+
+  /**
+   * Positions at a time, ordered by the cell of the grid they are in. The positions in cell c are
+   * from cellOffsets[c] to cellOffsets[c + 1].
+   */
+  private static class Snapshot {
+
+    private final LocalDateTime time;
+    private final VehiclePosition[] positions;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] cellOffsets;
+
+    private Snapshot(LocalDateTime time, VehiclePosition[] positions, double[] latitudes,
+        double[] longitudes, int[] cellOffsets) {
+      this.time = time;
+      this.positions = positions;
+      this.latitudes = latitudes;
+      this.longitudes = longitudes;
+      this.cellOffsets = cellOffsets;
+    }
+  }
+}
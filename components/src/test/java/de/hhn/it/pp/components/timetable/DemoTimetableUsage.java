@@ -2,6 +2,7 @@ package de.hhn.it.pp.components.timetable;
 
 import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
 import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
 import de.hhn.it.pp.components.timetable.models.Departure;
 import de.hhn.it.pp.components.timetable.models.Line;
 import de.hhn.it.pp.components.timetable.models.Station;
@@ -19,7 +20,8 @@ import java.util.List;
 public class DemoTimetableUsage {
 
   public static void main(String[] args)
-      throws LineAlreadyServedException, StationNotFoundException {
+      throws LineAlreadyServedException, StationNotFoundException,
+      TransportationVehicleBusyException {
     SimpleTimetableService demoService = new SimpleTimetableService();
 
     // create stations
@@ -0,0 +1,130 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.TimetableService;
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.AdminTimetableService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests every timetable service which can be edited has to pass. The subclasses create the
+ * service and test what only their service offers.
+ *
+ * @param <S> type of the tested service
+ */
+abstract class AdminTimetableServiceTest<S extends AdminTimetableService & TimetableService> {
+
+  S timetableService;
+  int idStation1;
+  int idStation2;
+  int idLine1;
+  int idLine2;
+  Station station1;
+  Station station2;
+  Station station3;
+  TransportationVehicle bus1;
+
+  /**
+   * Creates the tested service.
+   * @return an empty service
+   */
+  abstract S createService();
+
+  @BeforeEach
+  void setup() throws LineAlreadyServedException, TransportationVehicleBusyException {
+    timetableService = createService();
+
+    station1 = new Station("University", false, true, false);
+    station2 = new Station("Allee", false, true, true);
+    station3 = new Station("Main Station", true, true, true);
+    idStation1 = timetableService.addStation(station1);
+    idStation2 = timetableService.addStation(station2);
+    timetableService.addStation(station3);
+
+    bus1 = new TransportationVehicle(TransportationVehicleType.BUS);
+    timetableService.addTransportationVehicle(bus1);
+
+    Line line1 = new Line("Linie 1", EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+        DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY), bus1);
+    line1.addStops(List.of(
+        new Stop(LocalTime.of(8, 0), station1, "University West"),
+        new Stop(LocalTime.of(8, 10), station2, "Allee West"),
+        new Stop(LocalTime.of(8, 20), station3, "Main Station")));
+    Line line2 = new Line("Linie 2", EnumSet.of(DayOfWeek.WEDNESDAY), bus1);
+    line2.addStops(List.of(
+        new Stop(LocalTime.of(7, 30), station1, "University East"),
+        new Stop(LocalTime.of(7, 50), station2, "Allee East"),
+        new Stop(LocalTime.of(8, 0), station3, "Main Station")));
+    idLine1 = timetableService.addLine(line1);
+    idLine2 = timetableService.addLine(line2);
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() returns the departures in ascending order")
+  void getDepartures() {
+    List<Departure> actual = timetableService
+        .getDepartures(idStation2, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null);
+
+    assertEquals(2, actual.size());
+    assertEquals("Linie 2", actual.get(0).getLineName());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 7, 50), actual.get(0).getConcreteTime());
+    assertEquals("Linie 1", actual.get(1).getLineName());
+    assertEquals("Allee West", actual.get(1).getFocusedStop().getName());
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() no longer returns departures of a removed line")
+  void getDeparturesAfterRemoveLine() {
+    timetableService.removeLine(idLine2);
+    List<Departure> actual = timetableService
+        .getDepartures(idStation2, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null);
+
+    assertEquals(1, actual.size());
+    assertEquals("Linie 1", actual.get(0).getLineName());
+    assertThrows(LineNotFoundException.class, () -> timetableService.getLine(idLine2));
+  }
+
+  @Test
+  @DisplayName("Tests if stations are found near a location until they are removed")
+  void getStationsNear() {
+    Station harmonie = new Station("Harmonie", false, true, false, 49.1427, 9.2226);
+    Station sontheim = new Station("Sontheim", false, true, true, 49.1226, 9.2107);
+    int idHarmonie = timetableService.addStation(harmonie);
+    timetableService.addStation(sontheim);
+
+    assertEquals(List.of(sontheim, harmonie), timetableService.getStationsNear(49.12, 9.21, 5));
+    assertEquals(List.of(sontheim), timetableService.getStationsWithin(49.12, 9.21, 1000));
+
+    timetableService.removeStation(idHarmonie);
+    assertEquals(List.of(sontheim), timetableService.getStationsNear(49.12, 9.21, 5));
+  }
+
+  @Test
+  @DisplayName("Tests if a removed station can no longer be requested")
+  void removeStation() {
+    timetableService.removeStation(idStation1);
+
+    assertThrows(StationNotFoundException.class,
+        () -> timetableService.getStation(idStation1));
+    assertTrue(timetableService.getStationsByName("Allee", 10).contains(station2));
+  }
+}
@@ -0,0 +1,166 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.BinaryTimetableFile;
+import de.hhn.it.pp.components.timetable.providers.ColumnarTimetableService;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BinaryTimetableFileTest {
+
+  SimpleTimetableService simpleTimetableService;
+  int idStation1;
+  int idStation2;
+  int idLine2;
+  Path file;
+
+  @BeforeEach
+  void setup()
+      throws IOException, LineAlreadyServedException, TransportationVehicleBusyException {
+    simpleTimetableService = new SimpleTimetableService();
+
+    Station station1 = new Station("University", false, true, false);
+    Station station2 = new Station("Allee", true, false, true, 49.1423, 9.2197);
+    Station station3 = new Station("Flein Gänsäcker", false, false, false);
+    idStation1 = simpleTimetableService.addStation(station1);
+    idStation2 = simpleTimetableService.addStation(station2);
+    simpleTimetableService.addStation(station3);
+
+    TransportationVehicle bus = new TransportationVehicle(TransportationVehicleType.BUS)
+        .setDelay(3);
+    TransportationVehicle strain = new TransportationVehicle(TransportationVehicleType.STRAIN);
+    simpleTimetableService.addTransportationVehicle(bus);
+    simpleTimetableService.addTransportationVehicle(strain);
+
+    ServiceCalendar weekdays = new ServiceCalendar(EnumSet.range(DayOfWeek.MONDAY,
+        DayOfWeek.FRIDAY), LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31));
+    weekdays.removeDate(LocalDate.of(2020, 7, 23));
+    weekdays.addDate(LocalDate.of(2021, 1, 2));
+    Line line1 = new Line("Linie 1", weekdays, bus);
+    line1.createStop(LocalTime.of(8, 0, 30), station1, "University West");
+    line1.createStop(LocalTime.of(8, 10), station2, "Allee West");
+    Line line2 = new Line("Linie 2", weekdays, strain);
+    line2.createStop(LocalTime.of(7, 30), station3, "Gänsäcker");
+    line2.createStop(LocalTime.of(7, 50), station2, "Allee East");
+    simpleTimetableService.addLine(line1);
+    idLine2 = simpleTimetableService.addLine(line2);
+
+    file = Files.createTempFile("timetable", ".bin");
+  }
+
+  @AfterEach
+  void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  @DisplayName("Tests if a read service has the stations, lines and departures of the written")
+  void writeAndRead() throws IOException {
+    BinaryTimetableFile.write(simpleTimetableService, file);
+    ColumnarTimetableService actual = BinaryTimetableFile.read(file);
+
+    assertEquals(3, actual.getStationCount());
+    assertEquals(2, actual.getLinesCount());
+    assertEquals(2, actual.getTransportationVehicleCount());
+    assertEquals("Allee", actual.getStation(idStation2).getName());
+    assertTrue(actual.getStation(idStation2).isTravelCenter());
+    assertFalse(actual.getStation(idStation2).isStepFreeAccess());
+    assertEquals(49.1423, actual.getStation(idStation2).getLatitude());
+    assertFalse(actual.getStation(idStation1).hasLocation());
+    assertEquals("Flein Gänsäcker", actual.getStationsByName("Gansacker", 1).get(0).getName());
+    assertEquals("Linie 2", actual.getLine(idLine2).getName());
+
+    List<Departure> departures =
+        actual.getDepartures(idStation1, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null);
+    assertEquals(1, departures.size());
+    assertEquals(LocalTime.of(8, 0, 30), departures.get(0).getFocusedStop().getTime());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 0, 30), departures.get(0).getConcreteTime());
+    assertEquals(departures.get(0).getConcreteTime(), simpleTimetableService
+        .getDepartures(idStation1, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null).get(0)
+        .getConcreteTime());
+    assertEquals(3, departures.get(0).getLine().getServingTransportationVehicle().getDelay());
+    assertEquals(TransportationVehicleType.STRAIN, actual.getTransportationVehicle(1).getType());
+
+    // The exception dates of the calendar are kept
+    assertEquals(0, actual
+        .getDepartures(idStation1, LocalDateTime.of(2020, 7, 23, 7, 0), 120, null).size());
+    assertEquals(1, actual
+        .getDepartures(idStation1, LocalDateTime.of(2021, 1, 2, 7, 0), 120, null).size());
+  }
+
+  @Test
+  @DisplayName("Tests if a read columnar service keeps the ids of lines after a removed line")
+  void writeAndReadColumnar()
+      throws IOException, LineAlreadyServedException, TransportationVehicleBusyException {
+    BinaryTimetableFile.write(simpleTimetableService, file);
+    ColumnarTimetableService service = BinaryTimetableFile.read(file);
+    service.removeLine(0);
+    BinaryTimetableFile.write(service, file);
+    ColumnarTimetableService actual = BinaryTimetableFile.read(file);
+
+    assertEquals(1, actual.getLinesCount());
+    assertThrows(LineNotFoundException.class, () -> actual.getLine(0));
+    assertEquals("Linie 2", actual.getLine(idLine2).getName());
+    assertEquals("Linie 2", actual.getLinesByName("linie", 5).get(0).getName());
+    assertEquals(1, actual
+        .getDepartures(idStation2, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null).size());
+
+    // The read service can be changed
+    Line line3 = new Line("Linie 3", EnumSet.allOf(DayOfWeek.class),
+        actual.getTransportationVehicle(0));
+    line3.createStop(LocalTime.of(7, 0), actual.getStation(idStation2), "Allee");
+    actual.addLine(line3);
+    assertEquals(2, actual
+        .getDepartures(idStation2, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null).size());
+    assertThrows(LineAlreadyServedException.class, () -> actual.addLine(line3));
+  }
+
+  @Test
+  @DisplayName("Tests if files of another version or with changed bytes are rejected")
+  void readCorruptFile() throws IOException {
+    BinaryTimetableFile.write(simpleTimetableService, file);
+    byte[] bytes = Files.readAllBytes(file);
+
+    byte[] otherVersion = bytes.clone();
+    otherVersion[7]++;
+    Files.write(file, otherVersion);
+    assertThrows(IOException.class, () -> BinaryTimetableFile.read(file));
+
+    byte[] changed = bytes.clone();
+    changed[bytes.length / 2] ^= 1;
+    Files.write(file, changed);
+    assertThrows(IOException.class, () -> BinaryTimetableFile.read(file));
+
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+    assertThrows(IOException.class, () -> BinaryTimetableFile.read(file));
+
+    Files.write(file, new byte[3]);
+    assertThrows(IOException.class, () -> BinaryTimetableFile.read(file));
+  }
+}
@@ -0,0 +1,72 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.ColumnarTimetableService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ColumnarTimetableServiceTest extends AdminTimetableServiceTest<ColumnarTimetableService> {
+
+  @Override
+  ColumnarTimetableService createService() {
+    return new ColumnarTimetableService();
+  }
+
+  @Test
+  @DisplayName("Tests if getStation() returns the correct object")
+  void getStation() {
+    assertEquals(station1, timetableService.getStation(idStation1));
+  }
+
+  @Test
+  @DisplayName("Tests if getLine() returns a line with the stops of the added line")
+  void getLine() {
+    Line line = timetableService.getLine(idLine1);
+
+    assertEquals("Linie 1", line.getName());
+    assertEquals(2, line.getStops().size());
+    assertEquals(station2, line.getStops().get(1).getStation());
+    assertEquals("Allee West", line.getStops().get(1).getName());
+  }
+
+  @Test
+  @DisplayName("Tests if lines keep their stops while other lines are added and removed")
+  void addAndRemoveLines() throws LineAlreadyServedException, TransportationVehicleBusyException {
+    for (int i = 0; i < 100; i++) {
+      Line line = new Line("Linie " + (i + 3), EnumSet.of(DayOfWeek.WEDNESDAY),
+          new TransportationVehicle(TransportationVehicleType.BUS));
+      line.createStop(LocalTime.of(7, 0), station1, "University");
+      line.createStop(LocalTime.of(7, 40), station2, "Allee");
+      timetableService.removeLine(timetableService.addLine(line));
+    }
+    timetableService.removeLine(idLine2);
+
+    ArrayList<Departure> actual = timetableService
+        .getDepartures(idStation2, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null);
+    assertEquals(1, actual.size());
+    assertEquals("Allee West", actual.get(0).getFocusedStop().getName());
+    assertEquals("Allee West", timetableService.getLine(idLine1).getStops().get(1)
+        .getName());
+  }
+
+  @Test
+  @DisplayName("Tests if addLine() rejects a line with the same name")
+  void addLineTwice() {
+    Line line = new Line("Linie 1", EnumSet.of(DayOfWeek.MONDAY),
+        timetableService.getTransportationVehicle(0));
+    assertThrows(LineAlreadyServedException.class, () -> timetableService.addLine(line));
+  }
+}
@@ -0,0 +1,108 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.providers.ConcurrentTimetableService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentTimetableServiceTest
+    extends AdminTimetableServiceTest<ConcurrentTimetableService> {
+
+  @Override
+  ConcurrentTimetableService createService() {
+    return new ConcurrentTimetableService();
+  }
+
+  @Test
+  @DisplayName("Tests if added lines are frozen")
+  void addLine() {
+    assertTrue(timetableService.getLine(idLine1).isFrozen());
+  }
+
+  @Test
+  @DisplayName("Tests if a failing update() publishes none of its changes")
+  void updateIsAtomic() {
+    Line line3 = new Line("Linie 3", EnumSet.of(DayOfWeek.WEDNESDAY), bus1);
+    line3.addStops(List.of(new Stop(LocalTime.of(7, 55), station2, "Allee")));
+    Line duplicate = new Line("Linie 1", EnumSet.of(DayOfWeek.WEDNESDAY), bus1);
+
+    assertThrows(LineAlreadyServedException.class, () -> timetableService.update(
+        timetable -> {
+          timetable.addStation(new Station("Bahnhof", true, false, false));
+          timetable.addLine(line3);
+          timetable.addLine(duplicate);
+        }));
+
+    assertEquals(3, timetableService.getStationCount());
+    assertEquals(2, timetableService.getLinesCount());
+    assertEquals(2, timetableService
+        .getDepartures(idStation2, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null).size());
+  }
+
+  @Test
+  @DisplayName("Tests if readers always see whole updates while lines are added and removed")
+  void readWhileWriting() throws Exception {
+    // Every update adds or removes two lines stopping at station 2 at the same time
+    Line line3 = new Line("Linie 3", EnumSet.allOf(DayOfWeek.class), bus1);
+    line3.addStops(List.of(new Stop(LocalTime.of(7, 40), station2, "Allee")));
+    Line line4 = new Line("Linie 4", EnumSet.allOf(DayOfWeek.class), bus1);
+    line4.addStops(List.of(new Stop(LocalTime.of(7, 45), station2, "Allee")));
+    LocalDateTime date = LocalDateTime.of(2020, 7, 22, 7, 0);
+
+    AtomicBoolean writing = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Integer>> readers = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        readers.add(executor.submit(() -> {
+          int reads = 0;
+          while (writing.get()) {
+            int size = timetableService.getDepartures(idStation2, date, 120, null)
+                .size();
+            if (size != 2 && size != 4) {
+              return -1;
+            }
+            reads++;
+          }
+          return reads;
+        }));
+      }
+      int[] lineIds = new int[2];
+      for (int i = 0; i < 200; i++) {
+        timetableService.update(timetable -> {
+          lineIds[0] = timetable.addLine(line3);
+          lineIds[1] = timetable.addLine(line4);
+        });
+        timetableService.update(timetable -> {
+          timetable.removeLine(lineIds[0]);
+          timetable.removeLine(lineIds[1]);
+        });
+      }
+      writing.set(false);
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get(10, TimeUnit.SECONDS) >= 0);
+      }
+    } finally {
+      writing.set(false);
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.models.Isochrone;
+import de.hhn.it.pp.components.timetable.models.Journey;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.providers.ConnectionScanPlanner;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConnectionScanPlannerTest extends JourneyPlannerServiceTest<ConnectionScanPlanner> {
+
+  @Override
+  ConnectionScanPlanner createPlanner(SimpleTimetableService service) {
+    return new ConnectionScanPlanner(service);
+  }
+
+  @Test
+  @DisplayName("Tests if the journey departing last is found when arriving by a time")
+  void getLatestDeparture() {
+    Journey actual = planner
+        .getLatestDeparture(idUniversity, idFlein, LocalDateTime.of(2020, 7, 22, 8, 40));
+
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 5), actual.getDepartureTime());
+    assertEquals(1, actual.getTransferCount());
+
+    // Linie 3 is too close for a transfer on the same day, so wait at the main station overnight
+    actual = planner
+        .getLatestDeparture(idUniversity, idFlein, LocalDateTime.of(2020, 7, 22, 8, 37));
+    assertEquals(LocalDateTime.of(2020, 7, 21, 8, 5), actual.getDepartureTime());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 35), actual.getArrivalTime());
+    assertNull(planner
+        .getLatestDeparture(idUniversity, idFlein, LocalDateTime.of(2020, 7, 20, 8, 30)));
+    actual = planner
+        .getLatestDeparture(idAllee, idSontheim, LocalDateTime.of(2020, 7, 27, 5, 0));
+    assertEquals(LocalDateTime.of(2020, 7, 26, 6, 0), actual.getDepartureTime());
+  }
+
+  @Test
+  @DisplayName("Tests if the profile contains the journeys which are not beaten by later ones")
+  void getJourneyProfile() {
+    List<Journey> actual = planner.getJourneyProfile(idUniversity, idFlein,
+        LocalDateTime.of(2020, 7, 22, 7, 0), LocalDateTime.of(2020, 7, 22, 9, 0));
+
+    // The direct line is beaten by the later journey with a transfer
+    assertEquals(1, actual.size());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 5), actual.get(0).getDepartureTime());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 38), actual.get(0).getArrivalTime());
+
+    // Unless the later journey departs after the range
+    actual = planner.getJourneyProfile(idUniversity, idFlein,
+        LocalDateTime.of(2020, 7, 22, 7, 0), LocalDateTime.of(2020, 7, 22, 8, 2));
+    assertEquals(1, actual.size());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 9, 30), actual.get(0).getArrivalTime());
+    assertEquals(0, actual.get(0).getTransferCount());
+
+    // Nothing runs on Saturday
+    actual = planner.getJourneyProfile(idUniversity, idFlein,
+        LocalDateTime.of(2020, 7, 25, 7, 0), LocalDateTime.of(2020, 7, 25, 9, 0));
+    assertEquals(0, actual.size());
+  }
+
+  @Test
+  @DisplayName("Tests if the stations reachable within some minutes are found")
+  void getIsochrone() {
+    Isochrone actual = planner
+        .getIsochrone(idUniversity, LocalDateTime.of(2020, 7, 22, 7, 50), 40);
+
+    assertEquals(LocalDateTime.of(2020, 7, 22, 7, 50),
+        actual.getArrivalTime(actual.getOrigin()));
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 20), actual.getArrivalTime(mainStation));
+    assertNull(actual.getArrivalTime(flein));
+
+    // Stations are ordered by arrival
+    assertEquals(List.of("University", "Allee", "Main Station"), actual.getArrivals().keySet()
+        .stream().map(Station::getName).collect(Collectors.toList()));
+  }
+
+  @Test
+  @DisplayName("Tests if isochrones of several stations are computed in parallel")
+  void getIsochrones() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    List<Isochrone> actual = planner.getIsochrones(List.of(idUniversity, idMainStation, idFlein),
+        LocalDateTime.of(2020, 7, 22, 7, 50), 60, pool);
+    pool.shutdown();
+
+    assertEquals(3, actual.size());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 38), actual.get(0).getArrivalTime(flein));
+    // No transfer time is needed at the origin
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 35), actual.get(1).getArrivalTime(flein));
+    // Nothing departs from Flein
+    assertEquals(1, actual.get(2).getArrivals().size());
+    // Nothing runs on Saturday
+    actual = planner.getIsochrones(List.of(idUniversity), LocalDateTime.of(2020, 7, 25, 7, 50),
+        60, ForkJoinPool.commonPool());
+    assertEquals(1, actual.get(0).getArrivals().size());
+  }
+
+  @Test
+  @DisplayName("Tests if invalid queries are rejected")
+  void getJourneyProfileInvalid() {
+    assertThrows(IllegalArgumentException.class, () -> planner.getJourneyProfile(idUniversity,
+        idFlein, LocalDateTime.of(2020, 7, 22, 9, 0), LocalDateTime.of(2020, 7, 22, 7, 0)));
+    assertThrows(StationNotFoundException.class, () -> planner
+        .getLatestDeparture(idFlein, 42, LocalDateTime.of(2020, 7, 22, 7, 0)));
+  }
+}
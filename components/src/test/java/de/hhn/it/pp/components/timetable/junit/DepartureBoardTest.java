@@ -0,0 +1,160 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.events.DepartureBoardListener;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DepartureBoard;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DepartureBoardTest {
+
+  SimpleTimetableService timetableService;
+  DepartureBoard departureBoard;
+  TransportationVehicle bus1;
+  int idStation1;
+  List<String> events;
+  List<Departure> rows;
+
+  @BeforeEach
+  void setup() throws IllegalParameterException {
+    timetableService = new SimpleTimetableService();
+    Station station1 = new Station("University", false, true, false);
+    Station station2 = new Station("Main Station", true, true, true);
+    idStation1 = timetableService.addStation(station1);
+    timetableService.addStation(station2);
+
+    bus1 = new TransportationVehicle(TransportationVehicleType.BUS);
+    TransportationVehicle bus2 = new TransportationVehicle(TransportationVehicleType.BUS);
+    timetableService.addTransportationVehicle(bus1);
+    timetableService.addTransportationVehicle(bus2);
+
+    List<Line> lines = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      Line line = new Line("Linie " + i, EnumSet.allOf(DayOfWeek.class), i % 2 == 0 ? bus1 : bus2);
+      line.createStop(LocalTime.of(8, i * 10), station1, "University " + i);
+      line.createStop(LocalTime.of(9, i * 10), station2, "Main Station " + i);
+      lines.add(line);
+    }
+    timetableService.addLines(lines);
+
+    departureBoard = new DepartureBoard(timetableService, 30, 3, null);
+    bus1.addDelayCallback(departureBoard);
+    bus1.addFunctionalCallback(departureBoard);
+
+    events = new ArrayList<>();
+    rows = new ArrayList<>();
+    departureBoard.addBoardCallback(new DepartureBoardListener() {
+      @Override
+      public void notifyDeparturesRemoved(int from, int to) {
+        events.add("removed " + from + "-" + to);
+        rows.subList(from, to).clear();
+      }
+
+      @Override
+      public void notifyDeparturesAdded(int index, List<Departure> departures) {
+        events.add("added " + index + "+" + departures.size());
+        rows.addAll(index, departures);
+      }
+
+      @Override
+      public void notifyDepartureChanged(int index, Departure departure) {
+        events.add("changed " + index);
+        rows.set(index, departure);
+      }
+
+      @Override
+      public void notifyDeparturesReset(List<Departure> departures) {
+        events.add("reset");
+        rows.clear();
+        rows.addAll(departures);
+      }
+    });
+    departureBoard.setStation(idStation1);
+  }
+
+  @Test
+  @DisplayName("Tests if advancing the time only drops the head and appends the tail")
+  void updateAdvancesIncrementally() {
+    departureBoard.update(LocalDateTime.of(2020, 7, 22, 7, 55));
+    Departure second = departureBoard.getDepartures().get(1);
+
+    departureBoard.update(LocalDateTime.of(2020, 7, 22, 8, 5));
+
+    assertEquals(List.of("reset", "removed 0-1", "added 2+1"), events);
+    assertSame(second, departureBoard.getDepartures().get(0));
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 30),
+        departureBoard.getDepartures().get(2).getConcreteTime());
+    assertEquals(departureBoard.getDepartures(), rows);
+  }
+
+  @Test
+  @DisplayName("Tests if a delay only reports the rows of the delayed vehicle")
+  void updateAfterDelay() {
+    departureBoard.update(LocalDateTime.of(2020, 7, 22, 8, 5));
+    events.clear();
+
+    bus1.setDelay(5);
+    departureBoard.update(LocalDateTime.of(2020, 7, 22, 8, 5));
+
+    assertEquals(List.of("changed 1"), events);
+    assertEquals(departureBoard.getDepartures(), rows);
+  }
+
+  @Test
+  @DisplayName("Tests if a broken vehicle removes only its own rows")
+  void updateAfterBreakDown() {
+    departureBoard.update(LocalDateTime.of(2020, 7, 22, 7, 55));
+    events.clear();
+
+    bus1.setFunctional(false);
+    departureBoard.update(LocalDateTime.of(2020, 7, 22, 7, 55));
+
+    assertEquals(1, departureBoard.getDepartures().size());
+    assertEquals("Linie 1", departureBoard.getDepartures().get(0).getLineName());
+    assertEquals(List.of("removed 2-3", "removed 0-1"), events);
+    assertEquals(departureBoard.getDepartures(), rows);
+  }
+
+  @Test
+  @DisplayName("Tests if addBoardCallback() rejects a listener registered twice")
+  void addBoardCallbackTwice() throws IllegalParameterException {
+    DepartureBoardListener listener = new DepartureBoardListener() {
+      @Override
+      public void notifyDeparturesRemoved(int from, int to) {
+      }
+
+      @Override
+      public void notifyDeparturesAdded(int index, List<Departure> departures) {
+      }
+
+      @Override
+      public void notifyDepartureChanged(int index, Departure departure) {
+      }
+
+      @Override
+      public void notifyDeparturesReset(List<Departure> departures) {
+      }
+    };
+    departureBoard.addBoardCallback(listener);
+    assertThrows(IllegalParameterException.class,
+        () -> departureBoard.addBoardCallback(listener));
+  }
+}
@@ -0,0 +1,69 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.Stop;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DepartureTest {
+
+  LocalDateTime currentTime;
+  TransportationVehicle bus1;
+  Departure departure;
+
+  @BeforeEach
+  void setup() {
+    bus1 = new TransportationVehicle(TransportationVehicleType.BUS);
+    Line line1 = new Line("Linie 1", EnumSet.allOf(DayOfWeek.class), bus1);
+    Stop stop1 = new Stop(LocalTime.of(8, 5), new Station("University", false, true, false),
+        "University West");
+    departure = new Departure(line1, stop1, LocalDateTime.of(2020, 7, 22, 8, 5),
+        () -> currentTime);
+  }
+
+  @Test
+  @DisplayName("Tests if getArrivalMessage() shows the minutes and the delay")
+  void getArrivalMessageMinutes() {
+    currentTime = LocalDateTime.of(2020, 7, 22, 8, 0);
+    assertEquals("5 min", departure.getArrivalMessage());
+
+    bus1.setDelay(3);
+    assertEquals("5 + 3 min", departure.getArrivalMessage());
+
+    currentTime = LocalDateTime.of(2020, 7, 22, 8, 7);
+    assertEquals("0 + 1 min", departure.getArrivalMessage());
+  }
+
+  @Test
+  @DisplayName("Tests if getArrivalMessage() shows the time of later departures")
+  void getArrivalMessageTime() {
+    currentTime = LocalDateTime.of(2020, 7, 22, 6, 0);
+    assertEquals("08:05", departure.getArrivalMessage());
+
+    currentTime = LocalDateTime.of(2020, 7, 20, 21, 0);
+    bus1.setDelay(2);
+    assertEquals("+2 Tag(e) 08:05 + 2 min", departure.getArrivalMessage());
+  }
+
+  @Test
+  @DisplayName("Tests if getArrivalMessage() reuses the message within the same minute")
+  void getArrivalMessageCached() {
+    currentTime = LocalDateTime.of(2020, 7, 22, 7, 0);
+    String message = departure.getArrivalMessage();
+
+    currentTime = LocalDateTime.of(2020, 7, 22, 7, 0, 30);
+    assertSame(message, departure.getArrivalMessage());
+  }
+}
@@ -0,0 +1,181 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.io.GtfsImporter;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.ColumnarTimetableService;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class GtfsImporterTest {
+
+  private static final String[][] FEED = {
+      {"stops.txt", "\uFEFFstop_id,stop_name,location_type,parent_station,wheelchair_boarding,"
+          + "stop_lat,stop_lon\n"
+          + "uni_1,\"University, Platform 1\",0,uni,,49.1225,9.2106\n"
+          + "uni,University,1,,1,49.1226,9.2107\n"
+          + "allee,Allee,0,,0,49.1423,9.2197\n"
+          + "main,Main Station,,,,,\n"},
+      {"routes.txt", "route_id,agency_id,route_short_name,route_long_name,route_type\n"
+          + "r1,a,1,,3\n"
+          + "r2,a,,Stadtbahn S4,0\n"},
+      {"trips.txt", "route_id,service_id,trip_id,block_id\n"
+          + "r1,weekdays,t1,b1\n"
+          + "r1,weekdays,t2,b1\n"
+          + "r2,holiday,t3,\n"
+          + "r2,holiday,t4,\n"},
+      {"calendar.txt", "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,"
+          + "start_date,end_date\n"
+          + "weekdays,1,1,1,1,1,0,0,20200101,20201231\n"},
+      {"calendar_dates.txt", "service_id,date,exception_type\n"
+          + "weekdays,20200723,2\n"
+          + "holiday,20200722,1\n"},
+      {"stop_times.txt", "trip_id,arrival_time,departure_time,stop_id,stop_sequence\r\n"
+          + "t1,08:00:00,08:00:00,uni_1,1\r\n"
+          + "t1,08:10:00,08:10:00,allee,2\r\n"
+          + "t1,,,main,3\r\n"
+          + "t2,8:30:00,8:30:00,uni_1,1\r\n"
+          + "t2,08:40:00,08:40:00,allee,2\r\n"
+          + "t3,24:05:00,24:05:00,allee,1\r\n"
+          + "t3,24:15:00,24:15:00,main,2\r\n"
+          + "t4,23:50:00,23:50:00,allee,1\r\n"
+          + "t4,24:10:00,24:10:00,main,2\r\n"
+          + "unknown,08:00:00,08:00:00,allee,1"}
+  };
+
+  Path directory;
+
+  @BeforeEach
+  void setup() throws IOException {
+    directory = Files.createTempDirectory("gtfs");
+    for (String[] file : FEED) {
+      Files.write(directory.resolve(file[0]), file[1].getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @AfterEach
+  void cleanup() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  @DisplayName("Tests if a feed directory is imported with stations, lines and calendars")
+  void importDirectory() throws IOException {
+    SimpleTimetableService service = new SimpleTimetableService();
+    new GtfsImporter(service).importFeed(directory);
+
+    assertEquals(3, service.getStationCount());
+    assertEquals(3, service.getLinesCount());
+    Station university = service.getStationsByName("University", 1).get(0);
+    assertTrue(university.isStepFreeAccess());
+    assertEquals(49.1226, university.getLatitude());
+    assertEquals(9.2107, university.getLongitude());
+    assertFalse(service.getStationsByName("Main Station", 1).get(0).hasLocation());
+
+    // Stations are numbered like the stops without a parent station
+    int universityId = 0;
+    List<Departure> actual = service
+        .getDepartures(universityId, LocalDateTime.of(2020, 7, 22, 7, 0), 120, null);
+    assertEquals(2, actual.size());
+    assertEquals("1", actual.get(0).getLineName());
+    assertEquals("University, Platform 1", actual.get(0).getFocusedStop().getName());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 30), actual.get(1).getConcreteTime());
+    assertSame(actual.get(0).getLine().getServingTransportationVehicle(),
+        actual.get(1).getLine().getServingTransportationVehicle());
+
+    // No service on the removed date
+    assertEquals(0, service
+        .getDepartures(universityId, LocalDateTime.of(2020, 7, 23, 7, 0), 120, null).size());
+  }
+
+  @Test
+  @DisplayName("Tests if a zip file gives the same departures as the directory")
+  void importZip() throws IOException {
+    Path zip = directory.resolve("feed.zip");
+    try (OutputStream out = Files.newOutputStream(zip);
+        ZipOutputStream zipOut = new ZipOutputStream(out)) {
+      for (String[] file : FEED) {
+        zipOut.putNextEntry(new ZipEntry("feed/" + file[0]));
+        zipOut.write(file[1].getBytes(StandardCharsets.UTF_8));
+        zipOut.closeEntry();
+      }
+    }
+    ColumnarTimetableService service = new ColumnarTimetableService();
+    new GtfsImporter(service).importFeed(zip);
+
+    int alleeId = 1;
+    List<Departure> actual = service
+        .getDepartures(alleeId, LocalDateTime.of(2020, 7, 22, 8, 0), 1440, null);
+    assertEquals(3, actual.size());
+    assertEquals("1", actual.get(0).getLineName());
+    assertEquals("Stadtbahn S4", actual.get(2).getLineName());
+    assertEquals(LocalDateTime.of(2020, 7, 23, 0, 5), actual.get(2).getConcreteTime());
+    assertEquals(TransportationVehicleType.STRAIN, actual.get(2).getLine()
+        .getServingTransportationVehicle().getType());
+  }
+
+  @Test
+  @DisplayName("Tests if a trip across midnight is skipped and a trip after midnight is kept")
+  void importTripsAroundMidnight() throws IOException {
+    SimpleTimetableService service = new SimpleTimetableService();
+    new GtfsImporter(service).importFeed(directory);
+
+    // The trip after midnight of the holiday runs on the following day
+    int mainStationId = 2;
+    assertEquals(0, service
+        .getDepartures(mainStationId, LocalDateTime.of(2020, 7, 22, 0, 0), 1440, null).size());
+    List<Departure> actual = service
+        .getDepartures(mainStationId, LocalDateTime.of(2020, 7, 23, 0, 0), 1440, null);
+    assertEquals(1, actual.size());
+    assertEquals(LocalDateTime.of(2020, 7, 23, 0, 15), actual.get(0).getConcreteTime());
+    int alleeId = 1;
+    assertEquals(2, service
+        .getDepartures(alleeId, LocalDateTime.of(2020, 7, 22, 0, 0), 1440, null).size());
+  }
+
+  @Test
+  @DisplayName("Tests if a trip continued after another trip is rejected")
+  void importUngroupedStopTimes() throws IOException {
+    Files.write(directory.resolve("stop_times.txt"), ("trip_id,departure_time,stop_id\n"
+        + "t1,10:00:00,allee\n"
+        + "t2,12:00:00,allee\n"
+        + "t2,12:10:00,main\n"
+        + "t1,23:55:00,main\n"
+        + "t1,24:05:00,uni_1\n").getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(IOException.class,
+        () -> new GtfsImporter(new SimpleTimetableService()).importFeed(directory));
+  }
+
+  @Test
+  @DisplayName("Tests if a feed without routes.txt is rejected")
+  void importWithoutRoutes() throws IOException {
+    Files.delete(directory.resolve("routes.txt"));
+
+    assertThrows(IOException.class,
+        () -> new GtfsImporter(new SimpleTimetableService()).importFeed(directory));
+  }
+}
@@ -0,0 +1,154 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.hhn.it.pp.components.timetable.JourneyPlannerService;
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.models.Journey;
+import de.hhn.it.pp.components.timetable.models.Leg;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests every {@link JourneyPlannerService} has to pass. The subclasses create the planner and
+ * test what only their planner offers.
+ *
+ * @param <P> type of the tested planner
+ */
+abstract class JourneyPlannerServiceTest<P extends JourneyPlannerService> {
+
+  SimpleTimetableService simpleTimetableService;
+  P planner;
+  int idUniversity;
+  int idAllee;
+  int idMainStation;
+  int idFlein;
+  int idSontheim;
+  Station mainStation;
+  Station flein;
+
+  /**
+   * Creates the tested planner.
+   * @param service service with the stations and lines of the test
+   * @return the planner
+   */
+  abstract P createPlanner(SimpleTimetableService service);
+
+  @BeforeEach
+  void setup() throws LineAlreadyServedException {
+    simpleTimetableService = new SimpleTimetableService();
+
+    Station university = new Station("University", false, true, false);
+    Station allee = new Station("Allee", false, true, true);
+    mainStation = new Station("Main Station", true, true, true);
+    flein = new Station("Flein", false, false, false);
+    Station sontheim = new Station("Sontheim", false, false, false);
+    idUniversity = simpleTimetableService.addStation(university);
+    idAllee = simpleTimetableService.addStation(allee);
+    idMainStation = simpleTimetableService.addStation(mainStation);
+    idFlein = simpleTimetableService.addStation(flein);
+    idSontheim = simpleTimetableService.addStation(sontheim);
+
+    TransportationVehicle bus = new TransportationVehicle(TransportationVehicleType.BUS);
+    EnumSet<DayOfWeek> weekdays = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+
+    // Slow direct line and a faster connection with one transfer at the main station
+    Line direct = new Line("Linie 1", weekdays, bus);
+    direct.createStop(LocalTime.of(8, 0), university, "University");
+    direct.createStop(LocalTime.of(9, 30), flein, "Flein");
+    Line first = new Line("Linie 2", weekdays, bus);
+    first.createStop(LocalTime.of(8, 5), university, "University");
+    first.createStop(LocalTime.of(8, 10), allee, "Allee");
+    first.createStop(LocalTime.of(8, 20), mainStation, "Main Station");
+    // Too close for a transfer
+    Line missed = new Line("Linie 3", weekdays, bus);
+    missed.createStop(LocalTime.of(8, 21), mainStation, "Main Station");
+    missed.createStop(LocalTime.of(8, 35), flein, "Flein");
+    Line second = new Line("Linie 4", weekdays, bus);
+    second.createStop(LocalTime.of(8, 25), mainStation, "Main Station");
+    second.createStop(LocalTime.of(8, 40), flein, "Flein");
+    // Overtakes Linie 4 on the same stations
+    Line express = new Line("Linie 5", weekdays, bus);
+    express.createStop(LocalTime.of(8, 30), mainStation, "Main Station");
+    express.createStop(LocalTime.of(8, 38), flein, "Flein");
+    Line sunday = new Line("Linie 6", EnumSet.of(DayOfWeek.SUNDAY), bus);
+    sunday.createStop(LocalTime.of(6, 0), allee, "Allee");
+    sunday.createStop(LocalTime.of(6, 30), sontheim, "Sontheim");
+    simpleTimetableService.addLines(List.of(direct, first, missed, second, express, sunday));
+
+    planner = createPlanner(simpleTimetableService);
+  }
+
+  @Test
+  @DisplayName("Tests if the journey arriving first is found when departing at a time")
+  void getEarliestArrival() {
+    // Wednesday
+    Journey actual = planner
+        .getEarliestArrival(idUniversity, idFlein, LocalDateTime.of(2020, 7, 22, 7, 50));
+
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 5), actual.getDepartureTime());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 38), actual.getArrivalTime());
+    assertEquals("Linie 2", actual.getLegs().get(0).getLine().getName());
+    assertEquals("Main Station", actual.getLegs().get(0).getAlightingStop().getName());
+    assertEquals("Linie 5", actual.getLegs().get(1).getLine().getName());
+  }
+
+  @Test
+  @DisplayName("Tests if the journeys with the fewest transfers and the earliest arrival are found")
+  void getJourneys() {
+    // Wednesday
+    List<Journey> actual = planner
+        .getJourneys(idUniversity, idFlein, LocalDateTime.of(2020, 7, 22, 7, 50));
+
+    assertEquals(2, actual.size());
+    assertEquals(0, actual.get(0).getTransferCount());
+    assertEquals("Linie 1", actual.get(0).getLegs().get(0).getLine().getName());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 9, 30), actual.get(0).getArrivalTime());
+
+    Journey fastest = actual.get(1);
+    assertEquals(1, fastest.getTransferCount());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 5), fastest.getDepartureTime());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 38), fastest.getArrivalTime());
+    Leg firstLeg = fastest.getLegs().get(0);
+    assertEquals("Linie 2", firstLeg.getLine().getName());
+    assertEquals(3, firstLeg.getStops().size());
+    assertEquals("Main Station", firstLeg.getAlightingStop().getName());
+    assertEquals("Linie 5", fastest.getLegs().get(1).getLine().getName());
+  }
+
+  @Test
+  @DisplayName("Tests if a journey departing after the last trip continues on the next day")
+  void getEarliestArrivalNextDay() {
+    Journey actual = planner
+        .getEarliestArrival(idAllee, idSontheim, LocalDateTime.of(2020, 7, 25, 7, 0));
+
+    assertEquals(LocalDateTime.of(2020, 7, 26, 6, 30), actual.getArrivalTime());
+    assertEquals(0, actual.getTransferCount());
+  }
+
+  @Test
+  @DisplayName("Tests if unreachable stations give no journey")
+  void getEarliestArrivalUnreachable() {
+    // Nothing runs on Sunday after 7:00 and on Monday
+    assertNull(planner
+        .getEarliestArrival(idAllee, idSontheim, LocalDateTime.of(2020, 7, 26, 7, 0)));
+    assertNull(planner
+        .getEarliestArrival(idFlein, idUniversity, LocalDateTime.of(2020, 7, 22, 7, 0)));
+    assertThrows(StationNotFoundException.class, () -> planner
+        .getEarliestArrival(idFlein, 42, LocalDateTime.of(2020, 7, 22, 7, 0)));
+  }
+}
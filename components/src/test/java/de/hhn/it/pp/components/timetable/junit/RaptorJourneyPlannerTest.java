@@ -0,0 +1,55 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.hhn.it.pp.components.timetable.models.Journey;
+import de.hhn.it.pp.components.timetable.providers.ColumnarTimetableService;
+import de.hhn.it.pp.components.timetable.providers.ConcurrentTimetableService;
+import de.hhn.it.pp.components.timetable.providers.RaptorJourneyPlanner;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RaptorJourneyPlannerTest extends JourneyPlannerServiceTest<RaptorJourneyPlanner> {
+
+  @Override
+  RaptorJourneyPlanner createPlanner(SimpleTimetableService service) {
+    return new RaptorJourneyPlanner(service);
+  }
+
+  @Test
+  @DisplayName("Tests if a planner of the columnar service finds the same journey")
+  void getEarliestArrivalColumnar() {
+    ColumnarTimetableService columnarTimetableService = new ColumnarTimetableService();
+    for (int i = 0; i < simpleTimetableService.getStationCount(); i++) {
+      columnarTimetableService.addStation(simpleTimetableService.getStation(i));
+    }
+    for (int i = 0; i < simpleTimetableService.getLinesCount(); i++) {
+      columnarTimetableService.addLines(List.of(simpleTimetableService.getLine(i)));
+    }
+
+    Journey actual = new RaptorJourneyPlanner(columnarTimetableService)
+        .getEarliestArrival(idUniversity, idFlein, LocalDateTime.of(2020, 7, 22, 7, 50));
+
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 38), actual.getArrivalTime());
+  }
+
+  @Test
+  @DisplayName("Tests if a planner of the concurrent service finds the same journey")
+  void getEarliestArrivalConcurrent() {
+    ConcurrentTimetableService concurrentTimetableService = new ConcurrentTimetableService();
+    for (int i = 0; i < simpleTimetableService.getStationCount(); i++) {
+      concurrentTimetableService.addStation(simpleTimetableService.getStation(i));
+    }
+    for (int i = 0; i < simpleTimetableService.getLinesCount(); i++) {
+      concurrentTimetableService.addLines(List.of(simpleTimetableService.getLine(i)));
+    }
+
+    Journey actual = new RaptorJourneyPlanner(concurrentTimetableService)
+        .getEarliestArrival(idUniversity, idFlein, LocalDateTime.of(2020, 7, 22, 7, 50));
+
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 38), actual.getArrivalTime());
+  }
+}
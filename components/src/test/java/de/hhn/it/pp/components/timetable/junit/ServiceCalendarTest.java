@@ -0,0 +1,72 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.models.ServiceCalendar;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ServiceCalendarTest {
+
+  @Test
+  @DisplayName("Tests if an open calendar follows the weekly pattern")
+  void runsOnWeeklyPattern() {
+    ServiceCalendar calendar = new ServiceCalendar(EnumSet.of(DayOfWeek.MONDAY));
+
+    assertTrue(calendar.runsOn(LocalDate.of(2020, 7, 20)));
+    assertFalse(calendar.runsOn(LocalDate.of(2020, 7, 21)));
+    assertTrue(calendar.runsOn(LocalDate.of(1969, 12, 29)));
+  }
+
+  @Test
+  @DisplayName("Tests if a calendar does not run outside of its period of validity")
+  void runsOnPeriodOfValidity() {
+    ServiceCalendar calendar = new ServiceCalendar(EnumSet.allOf(DayOfWeek.class),
+        LocalDate.of(2020, 7, 1), LocalDate.of(2020, 7, 31));
+
+    assertFalse(calendar.runsOn(LocalDate.of(2020, 6, 30)));
+    assertTrue(calendar.runsOn(LocalDate.of(2020, 7, 1)));
+    assertTrue(calendar.runsOn(LocalDate.of(2020, 7, 31)));
+    assertFalse(calendar.runsOn(LocalDate.of(2020, 8, 1)));
+  }
+
+  @Test
+  @DisplayName("Tests if exception dates override the weekly pattern")
+  void runsOnExceptionDates() {
+    ServiceCalendar calendar = new ServiceCalendar(EnumSet.of(DayOfWeek.MONDAY),
+        LocalDate.of(2020, 7, 1), LocalDate.of(2020, 7, 31));
+    calendar.removeDate(LocalDate.of(2020, 7, 20));
+    calendar.addDate(LocalDate.of(2020, 7, 21));
+    calendar.addDate(LocalDate.of(2020, 6, 2));
+
+    assertFalse(calendar.runsOn(LocalDate.of(2020, 7, 20)));
+    assertTrue(calendar.runsOn(LocalDate.of(2020, 7, 21)));
+    assertTrue(calendar.runsOn(LocalDate.of(2020, 7, 27)));
+    assertTrue(calendar.runsOn(LocalDate.of(2020, 6, 2)));
+    assertFalse(calendar.runsOn(LocalDate.of(2020, 6, 8)));
+  }
+
+  @Test
+  @DisplayName("Tests if calendars share a day only if both run on it")
+  void sharesDayWith() {
+    ServiceCalendar mondays = new ServiceCalendar(EnumSet.of(DayOfWeek.MONDAY));
+    ServiceCalendar weekend = new ServiceCalendar(EnumSet.of(DayOfWeek.SATURDAY,
+        DayOfWeek.SUNDAY));
+    ServiceCalendar july = new ServiceCalendar(EnumSet.allOf(DayOfWeek.class),
+        LocalDate.of(2020, 7, 1), LocalDate.of(2020, 7, 31));
+    ServiceCalendar august = new ServiceCalendar(EnumSet.allOf(DayOfWeek.class),
+        LocalDate.of(2020, 8, 1), LocalDate.of(2020, 8, 31));
+
+    assertFalse(mondays.sharesDayWith(weekend));
+    assertTrue(mondays.sharesDayWith(july));
+    assertFalse(july.sharesDayWith(august));
+
+    // A single added date is enough
+    weekend.addDate(LocalDate.of(2020, 7, 20));
+    assertTrue(weekend.sharesDayWith(mondays));
+  }
+}
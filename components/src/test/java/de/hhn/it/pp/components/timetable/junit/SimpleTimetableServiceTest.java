@@ -5,7 +5,9 @@ import de.hhn.it.pp.components.timetable.events.DelayListener;
 import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
 import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
 import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
 import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DeparturePage;
 import de.hhn.it.pp.components.timetable.models.Line;
 import de.hhn.it.pp.components.timetable.models.Station;
 import de.hhn.it.pp.components.timetable.models.Stop;
@@ -14,11 +16,18 @@ import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
 import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
 
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -71,7 +80,7 @@ class SimpleTimetableServiceTest {
     try {
       idLine1 = demoTimetableService.addLine(line1);
       idLine2 = demoTimetableService.addLine(line2);
-    } catch (LineAlreadyServedException e) {
+    } catch (LineAlreadyServedException | TransportationVehicleBusyException e) {
       e.printStackTrace();
     }
 
@@ -104,6 +113,89 @@ class SimpleTimetableServiceTest {
     assertEquals(station1, demoTimetableService.getStationsByName("University", 1).get(0));
   }
 
+  @Test
+  @DisplayName("Tests if getStationsByName() ignores case and umlauts")
+  void getStationsByNameNormalized() throws StationNotFoundException {
+    Station station = new Station("Flein Gänsäcker", false, true, false);
+    demoTimetableService.addStation(station);
+
+    assertEquals(station, demoTimetableService.getStationsByName("gansacker", 1).get(0));
+    assertEquals(station, demoTimetableService.getStationsByName("Gaensaecker", 1).get(0));
+    assertEquals(station, demoTimetableService.getStationsByName("flein g", 1).get(0));
+  }
+
+  @Test
+  @DisplayName("Tests if getStationsByName() returns names starting with the query first")
+  void getStationsByNameRanked() throws StationNotFoundException {
+    demoTimetableService.addStation(new Station("Stadtallee", false, true, false));
+    demoTimetableService.addStation(new Station("Allee Süd", false, true, false));
+
+    List<Station> actual = demoTimetableService.getStationsByName("allee", 10);
+    assertEquals(3, actual.size());
+    assertEquals("Allee", actual.get(0).getName());
+    assertEquals("Allee Süd", actual.get(1).getName());
+    assertEquals("Stadtallee", actual.get(2).getName());
+  }
+
+  @Test
+  @DisplayName("Tests if getStationsByName() finds a short query within words")
+  void getStationsByNameShort() throws StationNotFoundException {
+    demoTimetableService.addStation(new Station("Stadtallee", false, true, false));
+    Station flein = new Station("Flein", false, true, false);
+    demoTimetableService.addStation(flein);
+
+    assertEquals(List.of(station1), demoTimetableService.getStationsByName("un", 10));
+    assertEquals(2, demoTimetableService.getStationsByName("ll", 10).size());
+    assertTrue(demoTimetableService.getStationsByName("le", 10).contains(flein));
+    assertEquals(List.of(flein), demoTimetableService.getStationsByName("f", 10));
+    assertThrows(StationNotFoundException.class,
+        () -> demoTimetableService.getStationsByName("q", 10));
+  }
+
+  @Test
+  @DisplayName("Tests if getStationsNear() returns the nearest stations first")
+  void getStationsNear() throws StationNotFoundException {
+    assertThrows(StationNotFoundException.class,
+        () -> demoTimetableService.getStationsNear(49.12, 9.21, 3));
+
+    Station harmonie = new Station("Harmonie", false, true, false, 49.1427, 9.2226);
+    Station bildungscampus = new Station("Bildungscampus", false, true, true, 49.1484, 9.2165);
+    Station sontheim = new Station("Sontheim", false, true, true, 49.1226, 9.2107);
+    Station stuttgart = new Station("Stuttgart Hbf", true, true, true, 48.7840, 9.1815);
+    demoTimetableService.addStation(harmonie);
+    demoTimetableService.addStation(bildungscampus);
+    demoTimetableService.addStation(sontheim);
+    demoTimetableService.addStation(stuttgart);
+
+    assertEquals(List.of(harmonie, bildungscampus, sontheim),
+        demoTimetableService.getStationsNear(49.1420, 9.2200, 3));
+    assertEquals(List.of(stuttgart), demoTimetableService.getStationsNear(48.5, 9.0, 1));
+    assertEquals(4, demoTimetableService.getStationsNear(49.1420, 9.2200, 10).size());
+  }
+
+  @Test
+  @DisplayName("Tests if getStationsWithin() returns all stations within the radius")
+  void getStationsWithin() throws StationNotFoundException {
+    Station harmonie = new Station("Harmonie", false, true, false, 49.1427, 9.2226);
+    Station bildungscampus = new Station("Bildungscampus", false, true, true, 49.1484, 9.2165);
+    Station sontheim = new Station("Sontheim", false, true, true, 49.1226, 9.2107);
+    demoTimetableService.addStation(harmonie);
+    int idBildungscampus = demoTimetableService.addStation(bildungscampus);
+    demoTimetableService.addStation(sontheim);
+
+    // Bildungscampus is about 770 meters away, Sontheim more than 2 kilometers
+    assertEquals(List.of(harmonie, bildungscampus),
+        demoTimetableService.getStationsWithin(49.1427, 9.2226, 1000));
+    assertEquals(List.of(harmonie),
+        demoTimetableService.getStationsWithin(49.1427, 9.2226, 500));
+
+    demoTimetableService.removeStation(idBildungscampus);
+    assertEquals(List.of(harmonie),
+        demoTimetableService.getStationsWithin(49.1427, 9.2226, 1000));
+    assertThrows(StationNotFoundException.class,
+        () -> demoTimetableService.getStationsWithin(48.0, 9.0, 1000));
+  }
+
   @Test
   @DisplayName("Tests if the getStation() returns the correct object")
   void getStation() throws StationNotFoundException {
@@ -128,6 +220,41 @@ class SimpleTimetableServiceTest {
     assertEquals(bus1, demoTimetableService.getTransportationVehicle(idBus1));
   }
 
+  @Test
+  @DisplayName("Tests if getServedLine() returns the line the vehicle is on")
+  void getServedLine() throws LineNotFoundException {
+    assertEquals(line1, demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 22, 9, 0)));
+    assertEquals(line1, demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 22, 10, 1)));
+    // After the last stop and on a saturday
+    assertThrows(LineNotFoundException.class, () -> demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 22, 10, 2)));
+    assertThrows(LineNotFoundException.class, () -> demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 25, 9, 0)));
+
+    demoTimetableService.removeLine(idLine1);
+    assertThrows(LineNotFoundException.class, () -> demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 22, 9, 0)));
+  }
+
+  @Test
+  @DisplayName("Tests if addLines() adds lines whose vehicle serves another line at that time")
+  void addLinesOverlapping() throws LineNotFoundException {
+    Line overlapping = new Line("Linie 3", EnumSet.of(DayOfWeek.WEDNESDAY), bus1);
+    overlapping.createStop(LocalTime.of(9, 30), station1, "University");
+    overlapping.createStop(LocalTime.of(10, 30), demoTimetableService.getStation(idStation2),
+        "Allee");
+    demoTimetableService.addLines(List.of(overlapping));
+
+    assertEquals(3, demoTimetableService.getLinesCount());
+    assertEquals(overlapping, demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 22, 10, 15)));
+    // Either of the overlapping trips
+    assertTrue(List.of(line1, overlapping).contains(demoTimetableService.getServedLine(bus1,
+        LocalDateTime.of(2020, 7, 22, 9, 45))));
+  }
+
   @Test
   @DisplayName("Tests if getDepartures() returns the correct list of objects")
   void getDepartures() {
@@ -139,6 +266,179 @@ class SimpleTimetableServiceTest {
     assertEquals(LocalDateTime.of(2020,7,22,8,0), actual.get(0).getConcreteTime());
   }
 
+  @Test
+  @DisplayName("Tests if getDepartures() returns the departures in ascending order")
+  void getDeparturesSorted() {
+    ArrayList<Departure> actual;
+    actual = demoTimetableService.getDepartures(idStation2, LocalDateTime.of(2020,7,24,10,5), 4320, null);
+
+    assertEquals(3, actual.size());
+    assertEquals(LocalDateTime.of(2020,7,25,10,15), actual.get(0).getConcreteTime());
+    assertEquals(LocalDateTime.of(2020,7,26,10,15), actual.get(1).getConcreteTime());
+    assertEquals(LocalDateTime.of(2020,7,27,10,1), actual.get(2).getConcreteTime());
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() returns no more than limit departures")
+  void getDeparturesWithLimit() {
+    ArrayList<Departure> actual;
+    actual = demoTimetableService.getDepartures(idStation2, LocalDateTime.of(2020,7,24,10,5), 4320, 2, null);
+
+    assertEquals(2, actual.size());
+    assertEquals(LocalDateTime.of(2020,7,25,10,15), actual.get(0).getConcreteTime());
+    assertEquals(LocalDateTime.of(2020,7,26,10,15), actual.get(1).getConcreteTime());
+  }
+
+  @Test
+  @DisplayName("Tests if a repeated getDepartures() is answered from the cache")
+  void getDeparturesCached() {
+    ArrayList<Departure> first =
+        demoTimetableService.getDepartures(idStation1, LocalDateTime.of(2020,7,22,7,0), 120, null);
+    ArrayList<Departure> second =
+        demoTimetableService.getDepartures(idStation1, LocalDateTime.of(2020,7,22,7,0), 120, null);
+
+    assertEquals(1, second.size());
+    assertNotSame(first, second);
+    assertSame(first.get(0), second.get(0));
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() sees a delay or break down set after a cached query")
+  void getDeparturesCachedAfterVehicleChange() {
+    LocalDateTime date = LocalDateTime.of(2020,7,22,8,5);
+    assertTrue(demoTimetableService.getDepartures(idStation1, date, 120, null).isEmpty());
+
+    bus1.setDelay(10);
+    assertEquals(1, demoTimetableService.getDepartures(idStation1, date, 120, null).size());
+
+    bus1.setFunctional(false);
+    assertTrue(demoTimetableService.getDepartures(idStation1, date, 120, null).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() and setDelay() can run on different threads")
+  void getDeparturesWhileSettingDelays() throws Exception {
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicInteger totalReads = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Integer>> readers = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        int offset = i;
+        readers.add(executor.submit(() -> {
+          int reads = 0;
+          while (writing.get()) {
+            // Different minutes, so that results are cached, evicted and dropped as eldest
+            LocalDateTime date = LocalDateTime.of(2020, 7, 22, 8, 5 + (reads + offset) % 20);
+            int size = demoTimetableService.getDepartures(idStation1, date, 120, null).size();
+            if (size > 1) {
+              return -1;
+            }
+            reads++;
+            totalReads.incrementAndGet();
+          }
+          return reads;
+        }));
+      }
+      for (int i = 0; totalReads.get() < 20000; i++) {
+        bus1.setDelay(i % 2 == 0 ? 30 : 0);
+      }
+      writing.set(false);
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get(10, TimeUnit.SECONDS) >= 0);
+      }
+    } finally {
+      writing.set(false);
+      executor.shutdownNow();
+    }
+
+    // No result computed before the last delay was cached
+    bus1.setDelay(30);
+    assertEquals(1, demoTimetableService
+        .getDepartures(idStation1, LocalDateTime.of(2020, 7, 22, 8, 5), 120, null).size());
+  }
+
+  @Test
+  @DisplayName("Tests if getDeparturePage() continues where the previous page stopped")
+  void getDeparturePage() {
+    DeparturePage first = demoTimetableService
+        .getDeparturePage(idStation2, LocalDateTime.of(2020,7,24,10,5), 4320, 2, null);
+    assertEquals(2, first.getDepartures().size());
+    assertTrue(first.hasNextPage());
+
+    DeparturePage second = demoTimetableService.getDeparturePage(first.getNextCursor(), 2, null);
+    assertEquals(1, second.getDepartures().size());
+    assertEquals(LocalDateTime.of(2020,7,27,10,1), second.getDepartures().get(0).getConcreteTime());
+    assertFalse(second.hasNextPage());
+  }
+
+  @Test
+  @DisplayName("Tests if getDeparturePage() rejects an invalid cursor")
+  void getDeparturePageInvalidCursor() {
+    assertThrows(IllegalArgumentException.class,
+        () -> demoTimetableService.getDeparturePage("no cursor", 2, null));
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() continues with the next week")
+  void getDeparturesNextWeek() {
+    ArrayList<Departure> actual;
+    actual = demoTimetableService.getDepartures(idStation1, LocalDateTime.of(2020,7,26,23,0), 600, null);
+
+    assertEquals(1, actual.size());
+    assertEquals(line1, actual.get(0).getLine());
+    assertEquals(LocalDateTime.of(2020,7,27,8,0), actual.get(0).getConcreteTime());
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() skips dates on which the line does not operate")
+  void getDeparturesOnHoliday() {
+    line1.getServiceCalendar().removeDate(LocalDate.of(2020, 7, 22));
+    ArrayList<Departure> actual;
+    actual = demoTimetableService.getDepartures(idStation1, LocalDateTime.of(2020,7,22,7,0), 1500, null);
+
+    assertEquals(1, actual.size());
+    assertEquals(LocalDateTime.of(2020,7,23,8,0), actual.get(0).getConcreteTime());
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() no longer returns departures of a removed line")
+  void getDeparturesAfterRemoveLine() {
+    demoTimetableService.removeLine(idLine1);
+    ArrayList<Departure> actual =
+        demoTimetableService.getDepartures(idStation1, LocalDateTime.of(2020,7,22,7,0), 120, null);
+
+    assertTrue(actual.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Tests if getDepartures() returns departures of stops created after adding the line")
+  void getDeparturesAfterCreateStop() {
+    demoTimetableService.getLine(idLine1).createStop(LocalTime.of(9, 0),
+        demoTimetableService.getStation(idStation3), "Main Station North");
+    ArrayList<Departure> actual =
+        demoTimetableService.getDepartures(idStation3, LocalDateTime.of(2020,7,22,7,0), 120, null);
+
+    assertEquals(1, actual.size());
+    assertEquals(LocalDateTime.of(2020,7,22,9,0), actual.get(0).getConcreteTime());
+  }
+
+  @Test
+  @DisplayName("Tests if a frozen line keeps its sorted stops and rejects changes")
+  void freezeLine() {
+    Line line = demoTimetableService.getLine(idLine1);
+    List<Stop> stops = line.getStops();
+    line.freeze();
+
+    assertTrue(line.isFrozen());
+    assertEquals(stops, line.getStops());
+    assertSame(line.getStops(), line.getStops());
+    assertEquals(stops.get(stops.size() - 1), line.getLastStop());
+    assertThrows(UnsupportedOperationException.class, () -> line.getStops().remove(0));
+    assertThrows(UnsupportedOperationException.class, () -> line.createStop(LocalTime.of(9, 0),
+        demoTimetableService.getStation(idStation3), "Main Station North"));
+  }
+
   @Test
   @DisplayName("Tests if addLine() returns the correct lineId")
   void addLine() {
@@ -147,7 +447,7 @@ class SimpleTimetableServiceTest {
     int testLineId = 0;
     try {
       testLineId = demoTimetableService.addLine(testLine);
-    } catch (LineAlreadyServedException e) {
+    } catch (LineAlreadyServedException | TransportationVehicleBusyException e) {
       e.printStackTrace();
     }
     assertEquals(2, testLineId);
@@ -183,6 +483,20 @@ class SimpleTimetableServiceTest {
     }
   }
 
+  @Test
+  @DisplayName("Tests if a station added after a remove neither replaces nor reuses an id")
+  void addStationAfterRemoveStation() {
+    demoTimetableService.removeStation(idStation1);
+    Station testStation = new Station("Test", false, true, true);
+    int testStationId = demoTimetableService.addStation(testStation);
+
+    assertNotEquals(idStation1, testStationId);
+    assertEquals(testStation, demoTimetableService.getStation(testStationId));
+    assertEquals("Neckarturm", demoTimetableService.getStation(idStation4).getName());
+    assertThrows(StationNotFoundException.class,
+        () -> demoTimetableService.getStation(idStation1));
+  }
+
   @Test
   @DisplayName("Tests if addTransportationVehicle returns the correct transportationVehicleId")
   void addTransportationVehicle() {
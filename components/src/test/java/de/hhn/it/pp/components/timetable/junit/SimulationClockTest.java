@@ -0,0 +1,110 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import de.hhn.it.pp.components.timetable.providers.Simulation;
+import de.hhn.it.pp.components.timetable.providers.SimulationClock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SimulationClockTest {
+
+  SimpleTimetableService simpleTimetableService;
+  int idUniversity;
+
+  @BeforeEach
+  void setup() throws LineAlreadyServedException {
+    simpleTimetableService = new SimpleTimetableService();
+
+    Station university = new Station("University", false, true, false);
+    Station mainStation = new Station("Main Station", true, true, true);
+    idUniversity = simpleTimetableService.addStation(university);
+    simpleTimetableService.addStation(mainStation);
+
+    TransportationVehicle bus = new TransportationVehicle(TransportationVehicleType.BUS);
+    Line line = new Line("Linie 1", EnumSet.allOf(DayOfWeek.class), bus);
+    line.createStop(LocalTime.of(8, 0), university, "University");
+    line.createStop(LocalTime.of(8, 20), mainStation, "Main Station");
+    simpleTimetableService.addLines(List.of(line));
+  }
+
+  @Test
+  @DisplayName("Tests if a clock running as fast as possible only moves with the simulation")
+  void runAsFastAsPossible() throws InterruptedException {
+    SimulationClock clock = new SimulationClock(LocalDateTime.of(2020, 7, 22, 0, 0),
+        SimulationClock.AS_FAST_AS_POSSIBLE);
+    Simulation simulation = new Simulation(simpleTimetableService);
+    simulation.start(clock.getCurrentTime());
+
+    int actual = clock.run(simulation, LocalDateTime.of(2020, 7, 24, 0, 0), Duration.ofHours(1));
+
+    assertEquals(4, actual);
+    assertEquals(LocalDateTime.of(2020, 7, 24, 0, 0), clock.getCurrentTime());
+    assertEquals(LocalDateTime.of(2020, 7, 24, 0, 0), simulation.getCurrentTime());
+  }
+
+  @Test
+  @DisplayName("Tests if a clock with time warp waits for the simulated time")
+  void runTimeWarp() throws InterruptedException {
+    // One simulated hour in 100 milliseconds
+    SimulationClock clock = new SimulationClock(LocalDateTime.of(2020, 7, 22, 7, 30), 36000);
+    Simulation simulation = new Simulation(simpleTimetableService);
+    simulation.start(LocalDateTime.of(2020, 7, 22, 7, 30));
+
+    long start = System.nanoTime();
+    int actual = clock.run(simulation, LocalDateTime.of(2020, 7, 22, 8, 30),
+        Duration.ofMinutes(1));
+    long elapsed = System.nanoTime() - start;
+
+    assertEquals(2, actual);
+    assertTrue(elapsed >= 90_000_000, "Too fast: " + elapsed);
+    assertFalse(clock.getCurrentTime().isBefore(LocalDateTime.of(2020, 7, 22, 8, 30)));
+  }
+
+  @Test
+  @DisplayName("Tests if departures use the time of the clock")
+  void getDepartures() {
+    SimulationClock clock = new SimulationClock(LocalDateTime.of(2020, 7, 22, 7, 50),
+        SimulationClock.AS_FAST_AS_POSSIBLE);
+
+    List<Departure> departures = simpleTimetableService
+        .getDepartures(idUniversity, clock.getCurrentTime(), 60, clock);
+    assertEquals(1, departures.size());
+    String message = departures.get(0).getArrivalMessage();
+
+    clock.setCurrentTime(LocalDateTime.of(2020, 7, 22, 7, 55));
+    assertFalse(message.equals(departures.get(0).getArrivalMessage()));
+  }
+
+  @Test
+  @DisplayName("Tests if invalid factors are rejected")
+  void setFactor() {
+    SimulationClock clock = new SimulationClock(LocalDateTime.of(2020, 7, 22, 7, 50),
+        SimulationClock.WALL_CLOCK);
+    assertThrows(IllegalArgumentException.class, () -> clock.setFactor(0));
+    assertThrows(IllegalArgumentException.class, () -> clock.setFactor(Double.NaN));
+    assertThrows(IllegalArgumentException.class,
+        () -> new SimulationClock(LocalDateTime.of(2020, 7, 22, 7, 50), -60));
+
+    clock.setFactor(SimulationClock.AS_FAST_AS_POSSIBLE);
+    LocalDateTime time = clock.getCurrentTime();
+    assertEquals(time, clock.getCurrentTime());
+  }
+}
@@ -0,0 +1,162 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
+import de.hhn.it.pp.components.timetable.events.SimulationListener;
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.SimulationEvent;
+import de.hhn.it.pp.components.timetable.models.SimulationEventType;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.providers.Simulation;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SimulationTest {
+
+  SimpleTimetableService simpleTimetableService;
+  TransportationVehicle bus;
+  Simulation simulation;
+  List<SimulationEvent> events;
+
+  @BeforeEach
+  void setup() throws LineAlreadyServedException, IllegalParameterException {
+    simpleTimetableService = new SimpleTimetableService();
+
+    Station university = new Station("University", false, true, false);
+    Station allee = new Station("Allee", false, true, true);
+    Station mainStation = new Station("Main Station", true, true, true);
+    simpleTimetableService.addStation(university);
+    simpleTimetableService.addStation(allee);
+    simpleTimetableService.addStation(mainStation);
+
+    bus = new TransportationVehicle(TransportationVehicleType.BUS);
+    TransportationVehicle tram = new TransportationVehicle(TransportationVehicleType.STRAIN);
+    EnumSet<DayOfWeek> weekdays = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+
+    Line bus1 = new Line("Linie 1", weekdays, bus);
+    bus1.createStop(LocalTime.of(8, 0), university, "University");
+    bus1.createStop(LocalTime.of(8, 10), allee, "Allee");
+    bus1.createStop(LocalTime.of(8, 20), mainStation, "Main Station");
+    Line tram2 = new Line("Linie 2", weekdays, tram);
+    tram2.createStop(LocalTime.of(8, 10), mainStation, "Main Station");
+    tram2.createStop(LocalTime.of(8, 15), university, "University");
+    simpleTimetableService.addLines(List.of(bus1, tram2));
+
+    simulation = new Simulation(simpleTimetableService);
+    events = new ArrayList<>();
+    simulation.addSimulationCallback(events::add);
+  }
+
+  @Test
+  @DisplayName("Tests if the vehicles arrive and depart at every stop in order")
+  void runUntil() {
+    // Wednesday
+    simulation.start(LocalDateTime.of(2020, 7, 22, 0, 0));
+    int actual = simulation.runUntil(LocalDateTime.of(2020, 7, 22, 23, 59));
+
+    assertEquals(6, actual);
+    assertEquals(List.of("08:00 DEPARTURE Linie 1 University",
+        "08:10 ARRIVAL Linie 1 Allee", "08:10 DEPARTURE Linie 1 Allee",
+        "08:10 DEPARTURE Linie 2 Main Station", "08:15 ARRIVAL Linie 2 University",
+        "08:20 ARRIVAL Linie 1 Main Station"), describe(events));
+    assertEquals(LocalDateTime.of(2020, 7, 22, 23, 59), simulation.getCurrentTime());
+    assertEquals(bus, events.get(0).getTransportationVehicle());
+    assertEquals(1, events.get(1).getStopIndex());
+  }
+
+  @Test
+  @DisplayName("Tests if the simulation continues over several days")
+  void runUntilNextDays() {
+    // Friday to Monday
+    simulation.start(LocalDateTime.of(2020, 7, 24, 8, 12));
+    simulation.runUntil(LocalDateTime.of(2020, 7, 27, 8, 0));
+
+    // Lines in service continue at their next stop, nothing runs on the weekend
+    assertEquals(List.of("08:15 ARRIVAL Linie 2 University", "08:20 ARRIVAL Linie 1 Main Station",
+        "08:00 DEPARTURE Linie 1 University"), describe(events));
+    assertEquals(LocalDateTime.of(2020, 7, 27, 8, 0), events.get(2).getTime());
+    assertThrows(IllegalArgumentException.class,
+        () -> simulation.runUntil(LocalDateTime.of(2020, 7, 27, 7, 0)));
+  }
+
+  @Test
+  @DisplayName("Tests if the delay of a vehicle moves its next events")
+  void runUntilDelayed() {
+    simulation.start(LocalDateTime.of(2020, 7, 22, 8, 0));
+    simulation.runUntil(LocalDateTime.of(2020, 7, 22, 8, 5));
+    bus.setDelay(7);
+    simulation.runUntil(LocalDateTime.of(2020, 7, 22, 9, 0));
+
+    assertEquals(List.of("08:00 DEPARTURE Linie 1 University",
+        "08:10 DEPARTURE Linie 2 Main Station", "08:15 ARRIVAL Linie 2 University",
+        "08:17 ARRIVAL Linie 1 Allee", "08:17 DEPARTURE Linie 1 Allee",
+        "08:27 ARRIVAL Linie 1 Main Station"), describe(events));
+    SimulationEvent delayed = events.get(5);
+    assertEquals(7, delayed.getDelay());
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 20), delayed.getScheduledTime());
+    assertEquals(SimulationEventType.ARRIVAL, delayed.getType());
+  }
+
+  @Test
+  @DisplayName("Tests if partitions advanced by a pool pass the same events in the same order")
+  void runUntilPartitioned() throws IllegalParameterException {
+    List<SimulationEvent> partitionedEvents = new ArrayList<>();
+    Simulation partitioned = new Simulation(simpleTimetableService, 2);
+    partitioned.addSimulationCallback(partitionedEvents::add);
+    // The arrival of the tram, which runs in the other partition, delays the bus until it
+    // arrives at its last stop
+    SimulationListener delayBus = event -> {
+      if (event.getType() != SimulationEventType.ARRIVAL) {
+        return;
+      }
+      if (event.getLine().getName().equals("Linie 2")) {
+        bus.setDelay(bus.getDelay() + 3);
+      } else if (event.getStop().getName().equals("Main Station")) {
+        bus.setDelay(bus.getDelay() - 3);
+      }
+    };
+    simulation.addSimulationCallback(delayBus);
+    partitioned.addSimulationCallback(delayBus);
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      simulation.start(LocalDateTime.of(2020, 7, 21, 8, 12));
+      partitioned.start(LocalDateTime.of(2020, 7, 21, 8, 12));
+      simulation.runUntil(LocalDateTime.of(2020, 7, 22, 8, 5));
+      bus.setDelay(0);
+      assertEquals(3, partitioned.runUntil(LocalDateTime.of(2020, 7, 22, 8, 5), pool));
+      bus.setDelay(-3);
+      simulation.runUntil(LocalDateTime.of(2020, 7, 23, 9, 0));
+      bus.setDelay(-3);
+      partitioned.runUntil(LocalDateTime.of(2020, 7, 23, 9, 0), pool);
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(describe(events), describe(partitionedEvents));
+    // An early vehicle does not leave its first stop before time
+    assertEquals("08:00 DEPARTURE Linie 1 University", describe(partitionedEvents).get(8));
+    assertEquals("08:07 ARRIVAL Linie 1 Allee", describe(partitionedEvents).get(9));
+    assertEquals(LocalDateTime.of(2020, 7, 23, 9, 0), partitioned.getCurrentTime());
+  }
+
+  private static List<String> describe(List<SimulationEvent> events) {
+    return events.stream().map(event -> event.getTime().toLocalTime() + " " + event.getType()
+        + " " + event.getLine().getName() + " " + event.getStop().getName())
+        .collect(Collectors.toList());
+  }
+}
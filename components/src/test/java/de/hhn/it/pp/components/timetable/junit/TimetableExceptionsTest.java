@@ -1,10 +1,12 @@
 package de.hhn.it.pp.components.timetable.junit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
 import de.hhn.it.pp.components.timetable.exceptions.LineNotFoundException;
 import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
+import de.hhn.it.pp.components.timetable.exceptions.TransportationVehicleBusyException;
 import de.hhn.it.pp.components.timetable.models.Line;
 import de.hhn.it.pp.components.timetable.models.Station;
 import de.hhn.it.pp.components.timetable.models.Stop;
@@ -49,7 +51,7 @@ public class TimetableExceptionsTest {
 
     try {
       int line1Id = timetableService.addLine(line1);
-    } catch (LineAlreadyServedException e) {
+    } catch (LineAlreadyServedException | TransportationVehicleBusyException e) {
       e.printStackTrace();
     }
   }
@@ -105,5 +107,40 @@ public class TimetableExceptionsTest {
     });
   }
 
-  //TODO TransportationVehicleBusyException missing
+  @Test
+  @DisplayName("Tests if TransportationVehicleBusyException is thrown by adding a line whose "
+      + "vehicle is still on another line")
+  void throwTransportationVehicleBusyException()
+      throws LineAlreadyServedException, TransportationVehicleBusyException {
+    timetableService.addLine(createLine("Linie 2", LocalTime.of(12, 0), LocalTime.of(13, 0)));
+
+    TransportationVehicleBusyException thrown = assertThrows(
+        TransportationVehicleBusyException.class, () -> {
+          Line line3 = createLine("Linie 3", LocalTime.of(12, 30), LocalTime.of(13, 30));
+          int line3Id = timetableService.addLine(line3); //this should throw
+        });
+  }
+
+  @Test
+  @DisplayName("Tests if no TransportationVehicleBusyException is thrown by adding a line which "
+      + "starts when the other line of the vehicle ends")
+  void notThrowTransportationVehicleBusyException()
+      throws LineAlreadyServedException, TransportationVehicleBusyException {
+    timetableService.addLine(createLine("Linie 2", LocalTime.of(12, 0), LocalTime.of(13, 0)));
+
+    Line line3 = createLine("Linie 3", LocalTime.of(13, 0), LocalTime.of(14, 0));
+    int line3Id = timetableService.addLine(line3);
+    assertEquals(line3, timetableService.getLine(line3Id));
+  }
+
+  /**
+   * Creates a line of the bus from the University to the Allee on mondays.
+   */
+  private Line createLine(String name, LocalTime start, LocalTime end) {
+    Line line = new Line(name, EnumSet.of(DayOfWeek.MONDAY),
+        timetableService.getTransportationVehicle(0));
+    line.createStop(start, timetableService.getStation(0), "University");
+    line.createStop(end, timetableService.getStation(1), "Allee");
+    return line;
+  }
 }
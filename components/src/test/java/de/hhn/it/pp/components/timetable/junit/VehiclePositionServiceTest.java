@@ -0,0 +1,113 @@
+package de.hhn.it.pp.components.timetable.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.hhn.it.pp.components.timetable.exceptions.LineAlreadyServedException;
+import de.hhn.it.pp.components.timetable.models.Line;
+import de.hhn.it.pp.components.timetable.models.Station;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicle;
+import de.hhn.it.pp.components.timetable.models.TransportationVehicleType;
+import de.hhn.it.pp.components.timetable.models.VehiclePosition;
+import de.hhn.it.pp.components.timetable.providers.SimpleTimetableService;
+import de.hhn.it.pp.components.timetable.providers.VehiclePositionService;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class VehiclePositionServiceTest {
+
+  SimpleTimetableService simpleTimetableService;
+  TransportationVehicle bus;
+  VehiclePositionService positionService;
+
+  @BeforeEach
+  void setup() throws LineAlreadyServedException {
+    simpleTimetableService = new SimpleTimetableService();
+
+    Station university = new Station("University", false, true, false, 49.12, 9.21);
+    Station allee = new Station("Allee", false, true, true, 49.14, 9.22);
+    Station mainStation = new Station("Main Station", true, true, true, 49.14, 9.20);
+    Station flein = new Station("Flein", false, false, false);
+    simpleTimetableService.addStation(university);
+    simpleTimetableService.addStation(allee);
+    simpleTimetableService.addStation(mainStation);
+    simpleTimetableService.addStation(flein);
+
+    bus = new TransportationVehicle(TransportationVehicleType.BUS);
+    TransportationVehicle tram = new TransportationVehicle(TransportationVehicleType.STRAIN);
+    EnumSet<DayOfWeek> weekdays = EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+
+    Line bus1 = new Line("Linie 1", weekdays, bus);
+    bus1.createStop(LocalTime.of(8, 0), university, "University");
+    bus1.createStop(LocalTime.of(8, 10), allee, "Allee");
+    bus1.createStop(LocalTime.of(8, 20), mainStation, "Main Station");
+    Line tram2 = new Line("Linie 2", weekdays, tram);
+    tram2.createStop(LocalTime.of(8, 0), mainStation, "Main Station");
+    tram2.createStop(LocalTime.of(8, 30), flein, "Flein");
+    simpleTimetableService.addLines(List.of(bus1, tram2));
+
+    positionService = new VehiclePositionService(simpleTimetableService);
+  }
+
+  @Test
+  @DisplayName("Tests if vehicles are placed between the stations of their stops")
+  void update() {
+    assertNull(positionService.getTime());
+    assertTrue(positionService.getPositions().isEmpty());
+
+    // Wednesday
+    positionService.update(LocalDateTime.of(2020, 7, 22, 8, 5));
+
+    // The tram goes to a station without location
+    List<VehiclePosition> positions = positionService.getPositions();
+    assertEquals(1, positions.size());
+    VehiclePosition position = positions.get(0);
+    assertEquals(bus, position.getTransportationVehicle());
+    assertEquals("University", position.getPreviousStop().getName());
+    assertEquals("Allee", position.getNextStop().getName());
+    assertEquals(0.5, position.getProgress(), 1e-9);
+    assertEquals(49.13, position.getLatitude(), 1e-9);
+    assertEquals(9.215, position.getLongitude(), 1e-9);
+    assertEquals(LocalDateTime.of(2020, 7, 22, 8, 5), positionService.getTime());
+
+    // Saturday
+    positionService.update(LocalDateTime.of(2020, 7, 25, 8, 5));
+    assertTrue(positionService.getPositions().isEmpty());
+  }
+
+  @Test
+  @DisplayName("Tests if the delay of a vehicle moves it back")
+  void updateDelayed() {
+    bus.setDelay(10);
+    positionService.update(LocalDateTime.of(2020, 7, 22, 8, 25));
+
+    VehiclePosition position = positionService.getPositions().get(0);
+    assertEquals(10, position.getDelay());
+    assertEquals("Allee", position.getPreviousStop().getName());
+    assertEquals(0.5, position.getProgress(), 1e-9);
+    assertEquals(49.14, position.getLatitude(), 1e-9);
+    assertEquals(9.21, position.getLongitude(), 1e-9);
+
+    positionService.update(LocalDateTime.of(2020, 7, 22, 8, 31));
+    assertTrue(positionService.getPositions().isEmpty());
+  }
+
+  @Test
+  @DisplayName("Tests if only vehicles within the bounding box are found")
+  void getVehiclesInBox() {
+    positionService.update(LocalDateTime.of(2020, 7, 22, 8, 5));
+
+    assertEquals(1, positionService.getVehiclesInBox(49.125, 9.21, 49.135, 9.22).size());
+    assertEquals(1, positionService.getVehiclesInBox(49.0, 9.0, 50.0, 10.0).size());
+    assertTrue(positionService.getVehiclesInBox(49.135, 9.21, 49.14, 9.22).isEmpty());
+    assertTrue(positionService.getVehiclesInBox(49.125, 9.2, 49.135, 9.21).isEmpty());
+    assertTrue(positionService.getVehiclesInBox(49.135, 9.21, 49.125, 9.22).isEmpty());
+  }
+}
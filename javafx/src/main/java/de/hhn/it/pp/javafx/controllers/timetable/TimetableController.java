@@ -1,8 +1,11 @@
 package de.hhn.it.pp.javafx.controllers.timetable;
 
+import de.hhn.it.pp.components.exceptions.IllegalParameterException;
 import de.hhn.it.pp.components.timetable.events.ControllerCurrentTimeDelegate;
+import de.hhn.it.pp.components.timetable.events.DepartureBoardListener;
 import de.hhn.it.pp.components.timetable.exceptions.StationNotFoundException;
 import de.hhn.it.pp.components.timetable.models.Departure;
+import de.hhn.it.pp.components.timetable.models.DepartureBoard;
 import de.hhn.it.pp.components.timetable.models.Line;
 import de.hhn.it.pp.components.timetable.models.Station;
 import de.hhn.it.pp.components.timetable.models.Stop;
@@ -15,7 +18,6 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Random;
@@ -25,8 +27,12 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -36,6 +42,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.DatePicker;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.SpinnerValueFactory;
 import javafx.scene.control.TableColumn;
@@ -48,10 +55,18 @@ import javafx.stage.Stage;
  * Controller of the timetable
  */
 public class TimetableController extends Controller implements Initializable,
-    ControllerCurrentTimeDelegate {
+    ControllerCurrentTimeDelegate, DepartureBoardListener {
 
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(TimetableController.class);
+  /**
+   * How many departures the table shows at most.
+   */
+  private static final int MAX_DEPARTURES = 50;
+  /**
+   * Steps reported while the scenario is built.
+   */
+  private static final long SCENARIO_STEPS = 3;
 
   @FXML
   private Button buttonDelay;
@@ -81,7 +96,14 @@ public class TimetableController extends Controller implements Initializable,
   private TableColumn<Departure, String> columZiel;
   @FXML
   private TableColumn<Departure, String> columAbfahrtIn;
+  @FXML
+  private ProgressBar progressLoading;
   private SimpleTimetableService demoService;
+  private DepartureBoard departureBoard;
+  /**
+   * Rows of the table, changed row by row as the departure board changes.
+   */
+  private final ObservableList<Departure> tableDepartures = FXCollections.observableArrayList();
   private int observedStationId;
   private Stage timetableTransportationVehicleDelayManagerWindow;
   private ScheduledExecutorService realtimeUpdateScheduler;
@@ -97,14 +119,6 @@ public class TimetableController extends Controller implements Initializable,
    */
   @Override
   public void initialize(URL location, ResourceBundle resources) {
-    try {
-      buildScenario();
-      logger.info("Successfully build scenario!");
-    } catch (Exception e) {
-      logger.error("Failed to build scenario", e);
-      return;
-    }
-
     try {
       SpinnerValueFactory<Integer> hourValueFactory =
           new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 23, 12);
@@ -129,18 +143,73 @@ public class TimetableController extends Controller implements Initializable,
     }
 
     try {
-      populateChoiceBox();
-      logger.info("Successfully populated choiceBox!");
+      setDataPropertiesToColumns();
+      table.setItems(tableDepartures);
+      logger.info("Successfully set DataProperties to Columns!");
     } catch (Exception e) {
-      logger.error("Failed to populated choiceBox!", e);
+      logger.error("Failed to set DataProperties to Columns!", e);
       return;
     }
 
     try {
-      setDataPropertiesToColumns();
-      logger.info("Successfully set DataProperties to Columns!");
+      realtimeUpdateScheduler = Executors.newScheduledThreadPool(1, new DaemonThreadFactory());
+
     } catch (Exception e) {
-      logger.error("Failed to set DataProperties to Columns!", e);
+      logger.error("Failed to create newSingleThreadScheduledExecutor!", e);
+    }
+
+    loadScenario();
+  }
+
+  /**
+   * Builds the scenario on a background thread, so that the window shows up at once. The
+   * controls which need the timetable are disabled until it is loaded.
+   */
+  private void loadScenario() {
+    setTimetableControlsDisabled(true);
+    Task<SimpleTimetableService> task = new Task<>() {
+      @Override
+      protected SimpleTimetableService call() {
+        return buildScenario((done, total) -> updateProgress(done, total));
+      }
+    };
+    progressLoading.progressProperty().bind(task.progressProperty());
+    task.setOnSucceeded(event -> onScenarioLoaded(task.getValue()));
+    task.setOnFailed(event -> {
+      logger.error("Failed to build scenario", task.getException());
+      progressLoading.progressProperty().unbind();
+      progressLoading.setVisible(false);
+    });
+
+    Thread loader = new DaemonThreadFactory().newThread(task);
+    loader.setName("timetable-scenario-loader");
+    loader.start();
+  }
+
+  /**
+   * Shows the loaded scenario. Called on the JavaFX Application Thread.
+   *
+   * @param service The service with the scenario
+   */
+  private void onScenarioLoaded(SimpleTimetableService service) {
+    demoService = service;
+    progressLoading.progressProperty().unbind();
+    progressLoading.setVisible(false);
+    logger.info("Successfully build scenario!");
+
+    try {
+      createDepartureBoard();
+      logger.info("Successfully created the departure board!");
+    } catch (Exception e) {
+      logger.error("Failed to create the departure board!", e);
+      return;
+    }
+
+    try {
+      populateChoiceBox();
+      logger.info("Successfully populated choiceBox!");
+    } catch (Exception e) {
+      logger.error("Failed to populated choiceBox!", e);
       return;
     }
 
@@ -164,14 +233,15 @@ public class TimetableController extends Controller implements Initializable,
       logger.error("Failed to provide the timetableTransportationVehicleDelayManager!", e);
       return;
     }
-    try {
-      realtimeUpdateScheduler = Executors.newScheduledThreadPool(1, new DaemonThreadFactory());
 
-    } catch (Exception e) {
-      logger.error("Failed to create newSingleThreadScheduledExecutor!", e);
-    }
+    setTimetableControlsDisabled(false);
   }
 
+  private void setTimetableControlsDisabled(boolean disabled) {
+    choiceBoxStation.setDisable(disabled);
+    checkBoxisRealtime.setDisable(disabled);
+    buttonDelay.setDisable(disabled);
+  }
 
   private void populateChoiceBox() throws StationNotFoundException {
     for (int i = 0; i < demoService.getStationCount(); i++) {
@@ -190,19 +260,57 @@ public class TimetableController extends Controller implements Initializable,
 
   private void setObservedStation(int stationId) throws StationNotFoundException {
     observedStationId = stationId;
+    departureBoard.setStation(stationId);
 
     updatePictograms();
     updateDepartures();
   }
 
+  /**
+   * Creates the departure board and lets it listen to the delays of all vehicles.
+   * @throws IllegalParameterException If the board is already registered
+   */
+  private void createDepartureBoard() throws IllegalParameterException {
+    departureBoard = new DepartureBoard(demoService, 10080, MAX_DEPARTURES, this);
+    departureBoard.addBoardCallback(this);
+    for (int i = 0; i < demoService.getTransportationVehicleCount(); i++) {
+      demoService.getTransportationVehicle(i).addDelayCallback(departureBoard);
+      demoService.getTransportationVehicle(i).addFunctionalCallback(departureBoard);
+    }
+  }
+
   void updateDepartures() throws StationNotFoundException {
+    if (departureBoard == null) {
+      // The scenario is still loading
+      return;
+    }
     synchronized (this) {
-      ArrayList<Departure> departures = demoService
-          .getDepartures(observedStationId, getControllerCurrentTime(), 10080, this);
-      table.setItems(FXCollections.observableArrayList(departures));
+      departureBoard.update(getControllerCurrentTime());
+      // The arrival messages depend on the current time, even for unchanged rows
+      table.refresh();
     }
   }
 
+  @Override
+  public void notifyDeparturesRemoved(int from, int to) {
+    tableDepartures.remove(from, to);
+  }
+
+  @Override
+  public void notifyDeparturesAdded(int index, List<Departure> departures) {
+    tableDepartures.addAll(index, departures);
+  }
+
+  @Override
+  public void notifyDepartureChanged(int index, Departure departure) {
+    tableDepartures.set(index, departure);
+  }
+
+  @Override
+  public void notifyDeparturesReset(List<Departure> departures) {
+    tableDepartures.setAll(departures);
+  }
+
   /**
    * Sets the columns to show the right information
    */
@@ -238,8 +346,14 @@ public class TimetableController extends Controller implements Initializable,
     iconToilet.setVisible(station.isToilets());
   }
 
-  private void buildScenario() throws StationNotFoundException {
-    demoService = new SimpleTimetableService(); // demo Object
+  /**
+   * Builds the demo timetable. Called on a background thread, so it must not touch the controls.
+   *
+   * @param progress Receives the finished steps and the number of all steps
+   * @return The service with the demo timetable
+   */
+  private static SimpleTimetableService buildScenario(BiConsumer<Long, Long> progress) {
+    SimpleTimetableService service = new SimpleTimetableService(); // demo Object
     //create stations and add them
     Station station0 = new Station("Flein Gänsäcker", false, true, false);
     Station station1 = new Station("Flein Rathaus", false, false, false);
@@ -257,37 +371,38 @@ public class TimetableController extends Controller implements Initializable,
     Station station13 = new Station("Böllinger Höfe Mühlrainstraße", false, false, false);
     Station station14 = new Station("Kirchausen Schloßstraße", false, false, false);
     Station station15 = new Station("Wimpfener Weg", false, false, false);
-    demoService.addStation(station0);
-    demoService.addStation(station1);
-    demoService.addStation(station2);
-    demoService.addStation(station3);
-    demoService.addStation(station4);
-    demoService.addStation(station5);
-    demoService.addStation(station6);
-    demoService.addStation(station7);
-    demoService.addStation(station8);
-    demoService.addStation(station9);
-    demoService.addStation(station10);
-    demoService.addStation(station11);
-    demoService.addStation(station12);
-    demoService.addStation(station13);
-    demoService.addStation(station14);
-    demoService.addStation(station15);
+    service.addStation(station0);
+    service.addStation(station1);
+    service.addStation(station2);
+    service.addStation(station3);
+    service.addStation(station4);
+    service.addStation(station5);
+    service.addStation(station6);
+    service.addStation(station7);
+    service.addStation(station8);
+    service.addStation(station9);
+    service.addStation(station10);
+    service.addStation(station11);
+    service.addStation(station12);
+    service.addStation(station13);
+    service.addStation(station14);
+    service.addStation(station15);
+    progress.accept(1L, SCENARIO_STEPS);
 
     // create bus and add it
     TransportationVehicle bus0 = new TransportationVehicle(TransportationVehicleType.BUS);
-    demoService.addTransportationVehicle(bus0);
+    service.addTransportationVehicle(bus0);
     TransportationVehicle bus1 = new TransportationVehicle(TransportationVehicleType.BUS);
-    demoService.addTransportationVehicle(bus1);
+    service.addTransportationVehicle(bus1);
     TransportationVehicle bus2 = new TransportationVehicle(TransportationVehicleType.BUS);
-    demoService.addTransportationVehicle(bus2);
+    service.addTransportationVehicle(bus2);
     TransportationVehicle bus3 = new TransportationVehicle(TransportationVehicleType.BUS);
-    demoService.addTransportationVehicle(bus3);
+    service.addTransportationVehicle(bus3);
 
     // Add random delay to the busses
-    for(int i=0; i< demoService.getTransportationVehicleCount(); i++){
+    for(int i=0; i< service.getTransportationVehicleCount(); i++){
       Random random = new Random();
-      demoService.getTransportationVehicle(i).setDelay(random.nextInt(8));
+      service.getTransportationVehicle(i).setDelay(random.nextInt(8));
     }
 
     // create lines and add them
@@ -1039,18 +1154,20 @@ public class TimetableController extends Controller implements Initializable,
         new Stop(LocalTime.of(23,37), station14, "Kirchausen Schloßstraße")
     ));
 
-    try{
-      demoService.addLines(List.of(
-          line61N0, line61N1, line61N2, line61N3, line61N4, line61N5, line61N6, line61N7,
-          line61N8, line61N9, line61N10, line61N11, line61N12, line61N13, line61N14, line61N15,
-          line61N16, line61N17, line61N18, line61N19, line61N20, line61N21, line61N22, line61N23,
-          line61N24, line61N25, line61N26, line61N27, line61N28, line61N29, line61N30, line61N31,
-          line61N32, line61N33, line61N34, line61N35, line61N36, line61N37, line61N38
-      ));
-    } catch (Exception e){
-      e.printStackTrace();
-    }
-
+    // The demo timetable never changes, so the stops are sorted only once
+    List<Line> lines = List.of(
+        line61N0, line61N1, line61N2, line61N3, line61N4, line61N5, line61N6, line61N7,
+        line61N8, line61N9, line61N10, line61N11, line61N12, line61N13, line61N14, line61N15,
+        line61N16, line61N17, line61N18, line61N19, line61N20, line61N21, line61N22, line61N23,
+        line61N24, line61N25, line61N26, line61N27, line61N28, line61N29, line61N30, line61N31,
+        line61N32, line61N33, line61N34, line61N35, line61N36, line61N37, line61N38
+    );
+    lines.forEach(Line::freeze);
+    progress.accept(2L, SCENARIO_STEPS);
+
+    service.addLines(lines);
+    progress.accept(SCENARIO_STEPS, SCENARIO_STEPS);
+    return service;
   }
 
   /**
@@ -1063,7 +1180,8 @@ public class TimetableController extends Controller implements Initializable,
   }
 
   /**
-   * This method is executed when a minute in the simulation passes
+   * This method is executed when a minute in the simulation passes. It runs on the JavaFX
+   * application thread, as the departure board changes the table rows while updating.
    */
   private void onRealtimeMinutePassed() {
     enableUserTimeInput = false;
@@ -1130,7 +1248,8 @@ public class TimetableController extends Controller implements Initializable,
 
     if (newValue) {
       realtimeUpdateSchedulerExecution = realtimeUpdateScheduler
-          .scheduleAtFixedRate(() -> onRealtimeMinutePassed(), 1, 1, TimeUnit.SECONDS);
+          .scheduleAtFixedRate(() -> Platform.runLater(this::onRealtimeMinutePassed), 1, 1,
+              TimeUnit.SECONDS);
     } else {
       realtimeUpdateSchedulerExecution.cancel(true);
     }